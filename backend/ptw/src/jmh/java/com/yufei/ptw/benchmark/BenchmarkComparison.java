@@ -0,0 +1,84 @@
+package com.yufei.ptw.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 对比两次JMH运行的JSON结果（-rf json），用于比较两个提交、发现性能回退
+ * 同一基准（名称 + 参数）的得分变差超过阈值，且差值大于两次结果误差之和时视为回退，存在回退时以退出码1结束。
+ * 吞吐量模式得分越高越好，其他模式（平均时间、采样时间、单次时间）得分越低越好
+ * 参数：基准结果JSON 当前结果JSON [阈值百分比，默认10]
+ */
+public class BenchmarkComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BenchmarkComparison <基准结果JSON> <当前结果JSON> [阈值百分比，默认10]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, JsonNode> baseline = load(Paths.get(args[0]));
+        Map<String, JsonNode> current = load(Paths.get(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.get(entry.getKey());
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            double score = now.path("primaryMetric").path("score").asDouble();
+            if (before == null) {
+                System.out.printf("%-90s %14s -> %14.3f %-10s 新增%n", entry.getKey(), "-", score, unit);
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double error = error(before) + error(now);
+            boolean higherIsBetter = "thrpt".equals(now.path("mode").asText());
+            // 正数表示变好
+            double change = baseScore == 0 ? 0 : (score - baseScore) / baseScore * 100 * (higherIsBetter ? 1 : -1);
+            boolean regressed = change < -threshold && Math.abs(score - baseScore) > error;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f -> %14.3f %-10s %+7.1f%%%s%n", entry.getKey(), baseScore, score, unit,
+                    change, regressed ? "  回退" : "");
+        }
+        for (String removed : baseline.keySet()) {
+            if (!current.containsKey(removed)) {
+                System.out.printf("%-90s 当前结果中不存在%n", removed);
+            }
+        }
+        System.out.printf("共 %d 项，回退 %d 项（阈值 %.1f%%）%n", current.size(), regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * 按 基准名称 + 参数 索引结果
+     */
+    private static Map<String, JsonNode> load(Path path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(path.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.yufei.ptw.benchmark.", ""));
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            if (!params.isEmpty()) {
+                key.append(params);
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double error(JsonNode result) {
+        double error = result.path("primaryMetric").path("scoreError").asDouble();
+        // 只有一次测量时JMH输出NaN
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
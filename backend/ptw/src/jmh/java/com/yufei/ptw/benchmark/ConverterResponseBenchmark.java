@@ -0,0 +1,133 @@
+package com.yufei.ptw.benchmark;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.converter.PythonConverterClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换服务响应的处理方式：PythonConverterClient 通过固定缓冲区流式写入输出，
+ * 对比先把整个响应读成 byte[] 再写出。响应体模拟为每次最多返回16KB的网络流，
+ * 输出为本地文件或内存缓冲区（超过阈值时转写本地文件）。
+ * 内存占用的差别用 -prof gc 查看（gc.alloc.rate.norm）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterResponseBenchmark {
+
+    // 网络流每次read返回的最大字节数
+    private static final int NETWORK_CHUNK = 16 * 1024;
+
+    @Param({"65536", "1048576", "16777216"})
+    public int responseBytes;
+
+    @Param({"file", "memory"})
+    public String target;
+
+    private byte[] response;
+    private Path dir;
+    private DocumentContent output;
+    private PythonConverterClient client;
+    private MethodHandle transferTo;
+
+    @Setup
+    public void setUp() throws Exception {
+        response = new byte[responseBytes];
+        new Random(responseBytes).nextBytes(response);
+        dir = Files.createTempDirectory("converter-response-benchmark");
+        MemoryProperties memoryProperties = new MemoryProperties();
+        memoryProperties.setEnabled("memory".equals(target));
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "memoryProperties", memoryProperties);
+        output = bufferPool.allocate(dir.resolve("out.docx"));
+
+        client = new PythonConverterClient();
+        // 直接调用客户端处理响应体的方法，不经过HTTP
+        transferTo = MethodHandles.privateLookupIn(PythonConverterClient.class, MethodHandles.lookup())
+                .findVirtual(PythonConverterClient.class, "transferTo",
+                        MethodType.methodType(long.class, InputStream.class, DocumentContent.class));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        output.delete();
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long streaming() throws Throwable {
+        InputStream body = new NetworkInputStream(response);
+        return (long) transferTo.invokeExact(client, body, output);
+    }
+
+    @Benchmark
+    public long byteArray() throws IOException {
+        byte[] bytes;
+        try (InputStream body = new NetworkInputStream(response)) {
+            bytes = body.readAllBytes();
+        }
+        try (OutputStream out = output.openOutput()) {
+            out.write(bytes);
+        }
+        return bytes.length;
+    }
+
+    /**
+     * 按网络读取的方式分块返回内容，避免 ByteArrayInputStream 一次返回全部内容的捷径
+     */
+    private static final class NetworkInputStream extends InputStream {
+        private final byte[] content;
+        private int position;
+
+        private NetworkInputStream(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read() {
+            return position < content.length ? content[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= content.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, NETWORK_CHUNK), content.length - position);
+            System.arraycopy(content, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
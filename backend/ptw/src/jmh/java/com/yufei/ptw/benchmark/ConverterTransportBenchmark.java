@@ -0,0 +1,175 @@
+package com.yufei.ptw.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.CircuitBreakerProperties;
+import com.yufei.ptw.config.ConverterLimiterProperties;
+import com.yufei.ptw.config.ConverterProperties;
+import com.yufei.ptw.config.HedgeProperties;
+import com.yufei.ptw.converter.AbortableRequestFactory;
+import com.yufei.ptw.converter.AdaptiveConcurrencyLimiter;
+import com.yufei.ptw.converter.CircuitBreaker;
+import com.yufei.ptw.converter.ConverterWorker;
+import com.yufei.ptw.converter.ConverterWorkerPool;
+import com.yufei.ptw.converter.FakeSocketConverterServer;
+import com.yufei.ptw.converter.HedgePolicy;
+import com.yufei.ptw.converter.PythonConverterClient;
+import com.yufei.ptw.converter.UnixSocketConverterTransport;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比HTTP和Unix域套接字两种传输方式的单次转换开销：HTTP、套接字传路径、套接字传内容。
+ * 两端的"转换"都是原样复制文件，测得的只是传输本身的成本；HTTP服务和Flask一样先把上传内容另存一份再返回。
+ * 使用SampleTime模式，结果中同时给出p50、p99等分位数
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterTransportBenchmark {
+
+    @Param({"1048576", "4194304"})
+    public int fileBytes;
+
+    @Param({"http", "unix-path", "unix-stream"})
+    public String transport;
+
+    private Path dir;
+    private DocumentContent input;
+    private DocumentContent output;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+    private FakeSocketConverterServer socketServer;
+    private CloseableHttpClient httpClient;
+    private ThreadPoolTaskExecutor hedgeExecutor;
+    private PythonConverterClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("converter-transport-benchmark");
+        byte[] content = new byte[fileBytes];
+        new Random(fileBytes).nextBytes(content);
+        input = DocumentContent.ofFile(Files.write(dir.resolve("in.pdf"), content));
+        output = DocumentContent.ofFile(dir.resolve("out.docx"));
+
+        ConverterProperties properties = new ConverterProperties();
+        String workerUrl;
+        if ("http".equals(transport)) {
+            startHttpServer();
+            workerUrl = "http://127.0.0.1:" + httpServer.getAddress().getPort();
+        } else {
+            socketServer = new FakeSocketConverterServer(dir.resolve("converter.sock"));
+            workerUrl = "unix:" + socketServer.getSocketPath();
+            properties.setSocketTransferMode("unix-path".equals(transport)
+                    ? ConverterProperties.SocketTransferMode.PATH : ConverterProperties.SocketTransferMode.STREAM);
+        }
+        httpClient = HttpClients.createDefault();
+        client = newClient(workerUrl, properties);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.shutdown();
+        hedgeExecutor.shutdown();
+        httpClient.close();
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpExecutor.shutdownNow();
+        }
+        if (socketServer != null) {
+            socketServer.close();
+        }
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void convert() throws Exception {
+        output.delete();
+        client.convert(ConversionType.PDF_TO_DOCX, false, input, output);
+    }
+
+    private PythonConverterClient newClient(String workerUrl, ConverterProperties properties) {
+        ConverterWorkerPool workerPool = new ConverterWorkerPool();
+        ReflectionTestUtils.setField(workerPool, "converterProperties", properties);
+        @SuppressWarnings("unchecked")
+        List<ConverterWorker> workers = (List<ConverterWorker>) ReflectionTestUtils.getField(workerPool, "workers");
+        workers.add(new ConverterWorker(workerUrl));
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "limiterProperties", new ConverterLimiterProperties());
+        limiter.init();
+        CircuitBreaker breaker = new CircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "breakerProperties", new CircuitBreakerProperties());
+        HedgePolicy hedgePolicy = new HedgePolicy();
+        ReflectionTestUtils.setField(hedgePolicy, "hedgeProperties", new HedgeProperties());
+        hedgeExecutor = new ThreadPoolTaskExecutor();
+        hedgeExecutor.initialize();
+        UnixSocketConverterTransport socketTransport = new UnixSocketConverterTransport();
+        ReflectionTestUtils.setField(socketTransport, "converterProperties", properties);
+
+        PythonConverterClient converterClient = new PythonConverterClient();
+        ReflectionTestUtils.setField(converterClient, "restTemplate",
+                new RestTemplate(new AbortableRequestFactory(httpClient)));
+        ReflectionTestUtils.setField(converterClient, "workerPool", workerPool);
+        ReflectionTestUtils.setField(converterClient, "circuitBreaker", breaker);
+        ReflectionTestUtils.setField(converterClient, "limiter", limiter);
+        ReflectionTestUtils.setField(converterClient, "hedgePolicy", hedgePolicy);
+        ReflectionTestUtils.setField(converterClient, "hedgeExecutor", hedgeExecutor);
+        ReflectionTestUtils.setField(converterClient, "socketTransport", socketTransport);
+        return converterClient;
+    }
+
+    private void startHttpServer() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/", exchange -> {
+            Path upload = Files.createTempFile(dir, "upload", ".bin");
+            try {
+                try (InputStream in = exchange.getRequestBody()) {
+                    Files.copy(in, upload, StandardCopyOption.REPLACE_EXISTING);
+                }
+                exchange.sendResponseHeaders(200, Files.size(upload));
+                try (OutputStream out = exchange.getResponseBody()) {
+                    Files.copy(upload, out);
+                }
+            } finally {
+                Files.deleteIfExists(upload);
+            }
+        });
+        httpExecutor = Executors.newCachedThreadPool();
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+    }
+}
@@ -0,0 +1,77 @@
+package com.yufei.ptw.benchmark;
+
+import com.yufei.ptw.config.MetricsProperties;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.service.serviceImpl.ConvertServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件类型识别：按扩展名命中、只能靠Content-Type或文件头识别、以及不支持的文件（所有判断都走完）
+ * 识别在每个上传请求和批量压缩包的每个条目上执行，包含一次阶段计时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileTypeDetectionBenchmark {
+
+    private static final byte[] DOCX_HEADER = {0x50, 0x4B, 0x03, 0x04, 0x14, 0x00, 0x06, 0x00};
+    private static final byte[] DOC_HEADER = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0,
+            (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final byte[] PDF_HEADER = "%PDF-1.7".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_HEADER = "plain te".getBytes(StandardCharsets.US_ASCII);
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    private ConvertServiceImpl convertService;
+
+    @Setup
+    public void setUp() {
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pipelineMetrics, "metricsProperties", new MetricsProperties());
+        convertService = new ConvertServiceImpl();
+        ReflectionTestUtils.setField(convertService, "pipelineMetrics", pipelineMetrics);
+    }
+
+    @Benchmark
+    public ConversionType docxByExtension() {
+        return convertService.detectConversionType("report.docx", OCTET_STREAM, DOCX_HEADER);
+    }
+
+    @Benchmark
+    public ConversionType pdfByExtension() {
+        return convertService.detectConversionType("scan.pdf", "application/pdf", PDF_HEADER);
+    }
+
+    @Benchmark
+    public ConversionType docByHeader() {
+        return convertService.detectConversionType("upload", OCTET_STREAM, DOC_HEADER);
+    }
+
+    @Benchmark
+    public ConversionType pdfByHeader() {
+        return convertService.detectConversionType("upload", OCTET_STREAM, PDF_HEADER);
+    }
+
+    @Benchmark
+    public ConversionType unsupported() {
+        return convertService.detectConversionType("notes.txt", "text/plain", TEXT_HEADER);
+    }
+}
@@ -0,0 +1,158 @@
+package com.yufei.ptw.benchmark;
+
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.config.OssProperties;
+import com.yufei.ptw.util.OssUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OssUtil 的各条上传路径：字节数组、内存中的转换结果、本地文件（小文件单次上传，大文件并发分片上传）。
+ * OSS客户端替换为只读取上传内容的本地替身，测得的是读取源数据、构造请求和分片调度的开销，不包括网络
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OssUploadBenchmark {
+
+    // 64KB走单次上传，32MB超过默认的16MB分片阈值，按8MB分片并发上传
+    @Param({"65536", "33554432"})
+    public int fileBytes;
+
+    private byte[] bytes;
+    private Path dir;
+    private Path file;
+    private DocumentContent memoryContent;
+    private OssUtil ossUtil;
+
+    @Setup
+    public void setUp() throws IOException {
+        bytes = new byte[fileBytes];
+        new Random(fileBytes).nextBytes(bytes);
+        dir = Files.createTempDirectory("oss-upload-benchmark");
+        file = Files.write(dir.resolve("result.pdf"), bytes);
+
+        MemoryProperties memoryProperties = new MemoryProperties();
+        memoryProperties.setEnabled(true);
+        memoryProperties.setThreshold(fileBytes);
+        memoryProperties.setMaxBufferedBytes(fileBytes);
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "memoryProperties", memoryProperties);
+        memoryContent = bufferPool.allocate(dir.resolve("memory.pdf"));
+        try (OutputStream out = memoryContent.openOutput()) {
+            out.write(bytes);
+        }
+
+        OssProperties properties = new OssProperties();
+        properties.setBucketName("bucket");
+        properties.setFolder("converted/");
+        properties.setUrlPrefix("https://bucket.oss.example/");
+        ossUtil = new OssUtil(properties, stubOss());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ossUtil.shutdown();
+        memoryContent.delete();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public String uploadBytes() {
+        return ossUtil.uploadBytes(bytes, "result.pdf", "application/pdf");
+    }
+
+    @Benchmark
+    public String uploadMemoryContent() throws IOException {
+        return ossUtil.uploadContent(memoryContent, "result.pdf", "application/pdf");
+    }
+
+    @Benchmark
+    public String uploadFile() throws IOException {
+        return ossUtil.uploadFile(file, "result.pdf", "application/pdf");
+    }
+
+    /**
+     * 只实现 OssUtil 用到的方法，读取并丢弃上传的内容
+     */
+    private static OSS stubOss() {
+        return (OSS) Proxy.newProxyInstance(OSS.class.getClassLoader(), new Class<?>[]{OSS.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "putObject":
+                            if (args.length == 1 && args[0] instanceof PutObjectRequest) {
+                                drain(((PutObjectRequest) args[0]).getInputStream(), Long.MAX_VALUE);
+                                return new PutObjectResult();
+                            }
+                            break;
+                        case "initiateMultipartUpload":
+                            InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+                            initiated.setUploadId("upload-1");
+                            return initiated;
+                        case "uploadPart":
+                            UploadPartRequest request = (UploadPartRequest) args[0];
+                            drain(request.getInputStream(), request.getPartSize());
+                            UploadPartResult result = new UploadPartResult();
+                            result.setPartNumber(request.getPartNumber());
+                            result.setETag("etag-" + request.getPartNumber());
+                            return result;
+                        case "completeMultipartUpload":
+                            return new CompleteMultipartUploadResult();
+                        case "abortMultipartUpload":
+                        case "shutdown":
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "StubOSS";
+                        default:
+                            break;
+                    }
+                    throw new UnsupportedOperationException(method.toString());
+                });
+    }
+
+    private static void drain(InputStream in, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = limit;
+        int read;
+        while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+            remaining -= read;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.yufei.ptw.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.entity.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口响应的JSON序列化：任务查询返回的 Result&lt;ConvertTask&gt;、提交接口返回的 Result&lt;String&gt;，
+ * 以及一次返回多个任务的列表。ObjectMapper与Spring MVC默认配置相同（包括Java时间类型的处理）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Result<ConvertTask> taskResult;
+    private Result<String> submitResult;
+    private Result<List<ConvertTask>> taskListResult;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        taskResult = Result.success(task(0));
+        submitResult = Result.success("任务已提交，任务ID: 3f1c9a52-8e7b-4d0a-9f51-6b2f0c7d8e19");
+        List<ConvertTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(task(i));
+        }
+        taskListResult = Result.success(tasks);
+    }
+
+    private static ConvertTask task(int index) {
+        String taskId = "3f1c9a52-8e7b-4d0a-9f51-" + String.format("%012d", index);
+        ConvertTask task = new ConvertTask(taskId, "季度报告-" + index + ".docx");
+        task.setStatus(TaskStatus.COMPLETED);
+        task.setFileUrl("https://bucket.oss-cn-hangzhou.aliyuncs.com/converted/" + taskId + ".pdf");
+        task.setEngine("poi-itext");
+        task.setTenant("tenant-a");
+        task.setHasTextLayer(Boolean.TRUE);
+        task.setEstimatedCompletionTime(LocalDateTime.now());
+        return task;
+    }
+
+    @Benchmark
+    public byte[] taskResult() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskResult);
+    }
+
+    @Benchmark
+    public byte[] submitResult() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(submitResult);
+    }
+
+    @Benchmark
+    public byte[] taskListResult() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskListResult);
+    }
+}
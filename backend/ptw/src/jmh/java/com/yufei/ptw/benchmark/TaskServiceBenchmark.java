@@ -0,0 +1,121 @@
+package com.yufei.ptw.benchmark;
+
+import com.yufei.ptw.config.JournalProperties;
+import com.yufei.ptw.config.TaskStoreProperties;
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.journal.TaskJournal;
+import com.yufei.ptw.service.serviceImpl.TaskServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多线程竞争下的任务创建、查询和状态更新
+ * 任务日志关闭，测得的是内存中任务表和淘汰逻辑本身的开销；
+ * 创建的任务随即完成，任务总数达到上限后由淘汰保持稳定，不会随运行时间无限增长
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskServiceBenchmark {
+
+    // 预先创建、一直处于进行中的任务数，查询和更新在其中随机选择
+    private static final int ACTIVE_TASKS = 10_000;
+
+    private TaskServiceImpl taskService;
+    private String[] activeIds;
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        TaskStoreProperties properties = new TaskStoreProperties();
+        properties.setMaxEntries(50_000);
+        JournalProperties journalProperties = new JournalProperties();
+        journalProperties.setEnabled(false);
+        TaskJournal journal = new TaskJournal();
+        ReflectionTestUtils.setField(journal, "journalProperties", journalProperties);
+        taskService = new TaskServiceImpl();
+        ReflectionTestUtils.setField(taskService, "taskStoreProperties", properties);
+        ReflectionTestUtils.setField(taskService, "taskJournal", journal);
+        ReflectionTestUtils.setField(taskService, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+
+        activeIds = new String[ACTIVE_TASKS];
+        for (int i = 0; i < ACTIVE_TASKS; i++) {
+            activeIds[i] = "active-" + i;
+            taskService.createTask(activeIds[i], activeIds[i] + ".docx");
+        }
+    }
+
+    private String randomActiveId() {
+        return activeIds[ThreadLocalRandom.current().nextInt(ACTIVE_TASKS)];
+    }
+
+    private ConvertTask createAndComplete() {
+        String taskId = "task-" + nextId.incrementAndGet();
+        ConvertTask task = taskService.createTask(taskId, "upload.docx");
+        taskService.updateTaskToCompleted(taskId, "https://oss.example/" + taskId + ".pdf");
+        return task;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ConvertTask create() {
+        return createAndComplete();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ConvertTask get() {
+        return taskService.getTask(randomActiveId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void update() {
+        taskService.updateTaskToProcessing(randomActiveId());
+    }
+
+    /**
+     * 接近实际负载的混合操作：前端轮询查询最多，创建和状态更新较少
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public ConvertTask mixedCreate() {
+        return createAndComplete();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public ConvertTask mixedGet() {
+        return taskService.getTask(randomActiveId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedUpdate() {
+        taskService.updateTaskToProcessing(randomActiveId());
+    }
+}
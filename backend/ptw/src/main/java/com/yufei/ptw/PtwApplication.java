@@ -4,12 +4,18 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.util.Map;
+
 @EnableAsync
 @SpringBootApplication
 public class PtwApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(PtwApplication.class, args);
+        SpringApplication application = new SpringApplication(PtwApplication.class);
+        // 默认只开放健康检查和Prometheus抓取端点，配置文件中的设置优先
+        application.setDefaultProperties(Map.of(
+                "management.endpoints.web.exposure.include", "health,prometheus"));
+        application.run(args);
 
     }
 
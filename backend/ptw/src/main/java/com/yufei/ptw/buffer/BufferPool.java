@@ -0,0 +1,114 @@
+package com.yufei.ptw.buffer;
+
+import com.yufei.ptw.config.MemoryProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件内容缓冲区池
+ * 缓冲区大小固定为内存阈值，释放后放回池中复用，不随每个任务重新分配；
+ * 已分配的缓冲区总量不超过 maxBufferedBytes，突发请求用尽缓冲区时新文件直接写入本地，不会因为内存不足失败
+ */
+@Slf4j
+@Component
+public class BufferPool {
+
+    @Autowired
+    private MemoryProperties memoryProperties;
+
+    // 空闲的缓冲区
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    // 已分配（空闲和使用中）的缓冲区数
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    // 缓冲区用尽、直接写入本地的次数
+    private final AtomicLong exhausted = new AtomicLong();
+    // 内容超过阈值、从内存转写到本地的次数
+    private final AtomicLong spills = new AtomicLong();
+
+    /**
+     * 创建一个文件内容，未启用内存缓冲时直接写入本地文件
+     *
+     * @param spillPath 内容超过阈值或没有可用缓冲区时写入的本地文件
+     */
+    public DocumentContent allocate(Path spillPath) {
+        return memoryProperties.isEnabled() ? new DocumentContent(spillPath, this) : DocumentContent.ofFile(spillPath);
+    }
+
+    /**
+     * 取得一块缓冲区，没有空闲缓冲区且已达到总量上限时返回null
+     */
+    ByteBuffer tryAcquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            int slabSize = getSlabSize();
+            long maxSlabs = memoryProperties.getMaxBufferedBytes() / slabSize;
+            int current;
+            do {
+                current = allocated.get();
+                if (current >= maxSlabs) {
+                    exhausted.incrementAndGet();
+                    log.debug("内存缓冲区已用尽，写入本地文件，已分配: {} 块", current);
+                    return null;
+                }
+            } while (!allocated.compareAndSet(current, current + 1));
+            buffer = memoryProperties.isOffHeap() ? ByteBuffer.allocateDirect(slabSize) : ByteBuffer.allocate(slabSize);
+        }
+        peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    void release(ByteBuffer buffer) {
+        inUse.decrementAndGet();
+        free.offer(buffer);
+    }
+
+    void recordSpill() {
+        spills.incrementAndGet();
+    }
+
+    /**
+     * 每块缓冲区的大小，即单个文件保存在内存中的最大字节数
+     */
+    public int getSlabSize() {
+        return Math.max(1, memoryProperties.getThreshold());
+    }
+
+    /**
+     * 已分配的缓冲区字节数
+     */
+    public long getAllocatedBytes() {
+        return (long) allocated.get() * getSlabSize();
+    }
+
+    /**
+     * 使用中的缓冲区字节数
+     */
+    public long getInUseBytes() {
+        return (long) inUse.get() * getSlabSize();
+    }
+
+    public long getPeakInUseBytes() {
+        return (long) peakInUse.get() * getSlabSize();
+    }
+
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    public long getSpills() {
+        return spills.get();
+    }
+}
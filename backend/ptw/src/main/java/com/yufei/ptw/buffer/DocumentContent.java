@@ -0,0 +1,250 @@
+package com.yufei.ptw.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 源文件或转换结果的内容
+ * 内容不超过缓冲区大小时保存在 {@link BufferPool} 的缓冲区中，写入超过缓冲区大小或没有可用缓冲区时写入本地文件（spill）；
+ * 通过 {@link #ofFile(Path)} 创建的内容始终是本地文件。
+ * 同一时刻只由一个线程写入，流水线各阶段之间通过Future传递，不需要额外同步
+ */
+public class DocumentContent {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Path path;
+    // 为null时内容始终是本地文件
+    private final BufferPool pool;
+    // 内容在内存中时为[0, size)，否则为null
+    private ByteBuffer buffer;
+    private long size;
+    // 内容已写入本地文件
+    private boolean onDisk;
+
+    DocumentContent(Path path, BufferPool pool) {
+        this.path = path;
+        this.pool = pool;
+    }
+
+    /**
+     * 本地文件的内容
+     */
+    public static DocumentContent ofFile(Path path) {
+        DocumentContent content = new DocumentContent(path, null);
+        content.onDisk = true;
+        return content;
+    }
+
+    /**
+     * 本地文件路径，内容在内存中时该文件不存在，用作文件名和写入本地时的位置
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isInMemory() {
+        return buffer != null;
+    }
+
+    public long size() throws IOException {
+        return buffer != null ? size : Files.size(path);
+    }
+
+    /**
+     * 读取内容，内容在内存中时不复制
+     */
+    public InputStream openInput() throws IOException {
+        return buffer != null ? new BufferInputStream(asReadOnlyBuffer()) : Files.newInputStream(path);
+    }
+
+    /**
+     * 内存中内容的只读视图，内容不在内存中时返回null
+     */
+    public ByteBuffer asReadOnlyBuffer() {
+        if (buffer == null) {
+            return null;
+        }
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.position(0).limit((int) size);
+        return view;
+    }
+
+    /**
+     * 覆盖写入内容，优先写入缓冲区，超过缓冲区大小时将已写入的部分转写到本地文件后继续写入文件
+     */
+    public OutputStream openOutput() throws IOException {
+        delete();
+        ByteBuffer acquired = pool != null ? pool.tryAcquire() : null;
+        if (acquired == null) {
+            onDisk = true;
+            return Files.newOutputStream(path);
+        }
+        buffer = acquired;
+        return new SpillingOutputStream();
+    }
+
+    /**
+     * 内容已由其他进程直接写入本地文件（如转换服务按路径输出），丢弃内存中的内容
+     */
+    public void markOnDisk() {
+        releaseBuffer();
+        onDisk = true;
+    }
+
+    /**
+     * 同目录下带后缀的另一个内容，使用相同的缓冲区池
+     */
+    public DocumentContent sibling(String suffix) {
+        Path siblingPath = path.resolveSibling(path.getFileName() + suffix);
+        return pool != null ? new DocumentContent(siblingPath, pool) : ofFile(siblingPath);
+    }
+
+    /**
+     * 用另一个内容替换本内容，内存中的内容直接转移缓冲区，文件内容移动到本内容的路径
+     */
+    public void replaceWith(DocumentContent other) throws IOException {
+        delete();
+        if (other.buffer != null && pool != null) {
+            buffer = other.buffer;
+            size = other.size;
+            other.buffer = null;
+            other.size = 0;
+            return;
+        }
+        if (other.buffer != null) {
+            try (InputStream in = other.openInput()) {
+                Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            other.delete();
+        } else {
+            Files.move(other.path, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        onDisk = true;
+    }
+
+    /**
+     * 释放缓冲区并删除本地文件
+     */
+    public void delete() throws IOException {
+        releaseBuffer();
+        if (pool != null) {
+            onDisk = false;
+        }
+        Files.deleteIfExists(path);
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+            size = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path + (buffer != null ? "（内存，" + size + " 字节）" : "");
+    }
+
+    /**
+     * 先写入缓冲区，放不下时转写到本地文件
+     */
+    private final class SpillingOutputStream extends OutputStream {
+        private OutputStream file;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (file == null && buffer.remaining() < len) {
+                spill();
+            }
+            if (file != null) {
+                file.write(b, off, len);
+            } else {
+                buffer.put(b, off, len);
+            }
+        }
+
+        private void spill() throws IOException {
+            file = Files.newOutputStream(path);
+            byte[] chunk = new byte[BUFFER_SIZE];
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                int n = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, n);
+                file.write(chunk, 0, n);
+            }
+            pool.release(buffer);
+            pool.recordSpill();
+            buffer = null;
+            onDisk = true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (file != null) {
+                file.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+            } else if (buffer != null) {
+                size = buffer.position();
+            }
+        }
+    }
+
+    /**
+     * 读取缓冲区的输入流
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer source;
+
+        private BufferInputStream(ByteBuffer source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return source.hasRemaining() ? source.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, source.remaining());
+            source.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, source.remaining()));
+            source.position(source.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return source.remaining();
+        }
+    }
+}
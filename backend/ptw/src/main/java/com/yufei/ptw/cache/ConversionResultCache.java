@@ -0,0 +1,254 @@
+package com.yufei.ptw.cache;
+
+import com.yufei.ptw.config.CacheProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内容寻址的转换结果缓存
+ * 以 转换类型 + 源文件SHA-256 为键，缓存已上传到OSS的文件URL。
+ * 内存中按访问顺序维护LRU，条目超过有效期后失效；
+ * 所有变更以追加方式写入磁盘索引，启动时回放，日志过长时整体重写压缩
+ */
+@Slf4j
+@Component
+public class ConversionResultCache {
+
+    private static final String INDEX_FILENAME = ".result-cache.idx";
+    private static final char PUT = 'P';
+    private static final char REMOVE = 'R';
+
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // 按访问顺序排列的LRU映射，所有访问都在this锁内进行
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private Path indexPath;
+    private BufferedWriter indexWriter;
+    // 索引文件中的记录行数，用于判断何时压缩
+    private long indexLines;
+
+    @PostConstruct
+    public synchronized void init() {
+        if (!cacheProperties.isEnabled()) {
+            log.info("转换结果缓存未启用");
+            return;
+        }
+        indexPath = cacheProperties.getIndexFile() != null
+                ? Paths.get(cacheProperties.getIndexFile())
+                : Paths.get(uploadDir).resolve(INDEX_FILENAME);
+        try {
+            if (indexPath.getParent() != null) {
+                Files.createDirectories(indexPath.getParent());
+            }
+            load();
+            compact();
+            log.info("转换结果缓存已加载，条目数: {}, 索引文件: {}", entries.size(), indexPath);
+        } catch (IOException e) {
+            log.error("加载转换结果缓存索引失败，将以空缓存启动: {}", e.getMessage(), e);
+            entries.clear();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (indexWriter != null) {
+            try {
+                indexWriter.close();
+            } catch (IOException e) {
+                log.warn("关闭缓存索引文件失败: {}", e.getMessage());
+            }
+            indexWriter = null;
+        }
+    }
+
+    /**
+     * 构造缓存键
+     */
+    public String key(ConversionType type, String contentHash) {
+        return type.name() + ":" + contentHash;
+    }
+
+    /**
+     * 查询缓存，命中时返回OSS文件URL，未命中或已过期返回null
+     */
+    public synchronized String get(String key) {
+        if (!cacheProperties.isEnabled()) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(key);
+            evictions.incrementAndGet();
+            append(REMOVE, key, null);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.fileUrl;
+    }
+
+    /**
+     * 写入缓存条目
+     */
+    public synchronized void put(String key, String fileUrl) {
+        if (!cacheProperties.isEnabled() || fileUrl == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry(fileUrl, now));
+        append(PUT, key, new Entry(fileUrl, now));
+        evictOverflow();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt > cacheProperties.getTtl().toMillis();
+    }
+
+    /**
+     * 超出容量时淘汰最久未访问的条目
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > cacheProperties.getMaxEntries() && iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            iterator.remove();
+            evictions.incrementAndGet();
+            append(REMOVE, key, null);
+        }
+    }
+
+    /**
+     * 回放磁盘索引
+     */
+    private void load() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 4 && parts[0].charAt(0) == PUT) {
+                    Entry entry = new Entry(parts[2], Long.parseLong(parts[3]));
+                    if (!isExpired(entry, now)) {
+                        entries.put(parts[1], entry);
+                    }
+                } else if (parts.length == 2 && parts[0].charAt(0) == REMOVE) {
+                    entries.remove(parts[1]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // 索引末尾可能因进程崩溃而写入不完整，保留已读取的部分
+            log.warn("缓存索引存在损坏的记录，已忽略后续内容: {}", e.getMessage());
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > cacheProperties.getMaxEntries() && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 将当前内存中的条目重写为新的索引文件，丢弃历史记录
+     */
+    private void compact() throws IOException {
+        close();
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                writeRecord(writer, PUT, e.getKey(), e.getValue());
+            }
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexLines = entries.size();
+        indexWriter = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void append(char op, String key, Entry entry) {
+        if (indexWriter == null) {
+            return;
+        }
+        try {
+            writeRecord(indexWriter, op, key, entry);
+            indexWriter.flush();
+            indexLines++;
+            if (indexLines > Math.max(1024, 2L * entries.size())) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("写入缓存索引失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void writeRecord(BufferedWriter writer, char op, String key, Entry entry) throws IOException {
+        writer.write(op);
+        writer.write('\t');
+        writer.write(key);
+        if (entry != null) {
+            writer.write('\t');
+            writer.write(entry.fileUrl);
+            writer.write('\t');
+            writer.write(Long.toString(entry.createdAt));
+        }
+        writer.newLine();
+    }
+
+    private static final class Entry {
+        private final String fileUrl;
+        private final long createdAt;
+
+        private Entry(String fileUrl, long createdAt) {
+            this.fileUrl = fileUrl;
+            this.createdAt = createdAt;
+        }
+    }
+}
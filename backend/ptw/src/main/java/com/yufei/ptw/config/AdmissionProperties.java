@@ -0,0 +1,32 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 准入控制配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.admission")
+public class AdmissionProperties {
+    // 是否启用准入控制
+    private boolean enabled = true;
+    // 转换队列使用率达到该比例时拒绝新请求
+    private double maxQueueUtilization = 0.9;
+    // 剩余可用堆内存低于该值时拒绝新请求
+    private long minFreeHeap = 64L * 1024 * 1024;
+    // 上传目录剩余磁盘空间（扣除本次上传大小后）低于该值时拒绝新请求
+    private long minFreeDisk = 512L * 1024 * 1024;
+    // 内存不足时建议的重试间隔
+    private Duration heapRetryAfter = Duration.ofSeconds(10);
+    // 磁盘空间不足时建议的重试间隔
+    private Duration diskRetryAfter = Duration.ofSeconds(60);
+    // 建议重试间隔的上限
+    private Duration maxRetryAfter = Duration.ofMinutes(5);
+    // 还没有转换耗时记录时假定的单个任务转换耗时
+    private Duration initialConversionTime = Duration.ofSeconds(5);
+}
@@ -5,14 +5,23 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * 线程池配置
+ * 转换流水线的每个阶段使用独立的有界线程池：
+ * taskExecutor负责调用转换服务，storeExecutor负责上传OSS，finalizeExecutor负责更新状态和清理文件，
+ * 这样转换线程不会因为等待OSS上传而被占用
+ */
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    /**
+     * 转换阶段线程池
+     */
     @Bean("taskExecutor")
-    public Executor taskExecutor() {
+    public ThreadPoolTaskExecutor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         // 设置核心线程数
         executor.setCorePoolSize(5);
@@ -28,4 +37,85 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 存储阶段线程池（上传OSS）
+     * 队列满时由提交线程直接执行，保证已转换的结果不会被丢弃
+     */
+    @Bean("storeExecutor")
+    public ThreadPoolTaskExecutor storeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(200);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("AsyncStore-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 收尾阶段线程池（更新任务状态、清理本地文件）
+     */
+    @Bean("finalizeExecutor")
+    public ThreadPoolTaskExecutor finalizeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("AsyncFinalize-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 异步响应线程池（批量结果ZIP下载）
+     * 下载线程会一直等待批次中的文件完成，与转换线程池分开，避免占用转换线程
+     */
+    @Bean("downloadExecutor")
+    public ThreadPoolTaskExecutor downloadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(50);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("AsyncDownload-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 任务状态推送线程池（SSE写出）
+     * 每个连接同一时间最多占用一个线程，写出完成即释放
+     */
+    @Bean("eventExecutor")
+    public ThreadPoolTaskExecutor eventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(10000);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("AsyncEvent-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 对冲请求线程池
+     * 不排队，没有空闲线程时放弃本次对冲
+     */
+    @Bean("hedgeExecutor")
+    public ThreadPoolTaskExecutor hedgeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("AsyncHedge-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,28 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 批量转换配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.batch")
+public class BatchProperties {
+    // 单个批次同时在转换流水线中的最大文件数
+    private int maxConcurrency = 4;
+    // 单个批次的最大文件数（包括ZIP中的文件）
+    private int maxItems = 500;
+    // 单个批次中ZIP压缩包解压后的最大总字节数
+    private long maxExpandedBytes = 1024L * 1024 * 1024;
+    // ZIP压缩包解压后与压缩前大小的最大比值，超过时按压缩炸弹拒绝
+    private int maxCompressionRatio = 100;
+    // 批次全部完成后保留的时间，超时后不能再查询和下载
+    private Duration retention = Duration.ofHours(1);
+    // 下载结果压缩包的最长时间
+    private Duration downloadTimeout = Duration.ofHours(1);
+}
@@ -0,0 +1,24 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 转换结果缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.cache")
+public class CacheProperties {
+    // 是否启用结果缓存
+    private boolean enabled = true;
+    // 最大缓存条目数，超出后按LRU淘汰
+    private int maxEntries = 10000;
+    // 缓存条目有效期
+    private Duration ttl = Duration.ofDays(7);
+    // 磁盘索引文件路径，为空时使用 ${file.upload-dir}/.result-cache.idx
+    private String indexFile;
+}
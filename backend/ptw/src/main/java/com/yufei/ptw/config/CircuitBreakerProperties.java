@@ -0,0 +1,28 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Python转换服务熔断配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "converter.breaker")
+public class CircuitBreakerProperties {
+    // 是否启用熔断
+    private boolean enabled = true;
+    // 统计最近多少次调用的失败率
+    private int windowSize = 20;
+    // 窗口内至少有多少次调用才计算失败率
+    private int minimumCalls = 5;
+    // 失败率达到该值时熔断，取值0~1
+    private double failureRateThreshold = 0.5;
+    // 熔断持续时间，之后进入半开状态放行少量试探请求
+    private Duration openDuration = Duration.ofSeconds(30);
+    // 半开状态放行的试探请求数，全部成功后恢复
+    private int halfOpenCalls = 2;
+}
@@ -0,0 +1,65 @@
+package com.yufei.ptw.config;
+
+import com.yufei.ptw.converter.AbortableRequestFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换服务HTTP客户端配置
+ * 所有转换节点共享一个带连接池的HttpClient，连接保持keep-alive复用
+ */
+@Configuration
+public class ConverterClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient converterHttpClient(ConverterProperties converterProperties,
+                                                   WorkerProcessProperties workerProcessProperties) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                converterProperties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setDefaultMaxPerRoute(converterProperties.getMaxConnectionsPerWorker());
+        // 连接池创建时进程池的进程还未启动，按最多可能同时存在的节点数计算总连接数
+        int maxWorkers = converterProperties.getWorkers().size()
+                + (workerProcessProperties.isEnabled() ? workerProcessProperties.getMaxWorkers() : 0);
+        connectionManager.setMaxTotal(converterProperties.getMaxConnectionsPerWorker() * Math.max(1, maxWorkers));
+        connectionManager.setValidateAfterInactivity(2000);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(converterProperties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS)
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * 转换请求使用的RestTemplate，请求体不做缓冲，直接从磁盘流式发送
+     */
+    @Bean
+    public RestTemplate converterRestTemplate(CloseableHttpClient converterHttpClient, ConverterProperties converterProperties) {
+        // 对冲请求的失败方需要从其他线程中止
+        HttpComponentsClientHttpRequestFactory requestFactory = new AbortableRequestFactory(converterHttpClient);
+        requestFactory.setConnectTimeout((int) converterProperties.getConnectTimeout().toMillis());
+        requestFactory.setConnectionRequestTimeout((int) converterProperties.getConnectionRequestTimeout().toMillis());
+        requestFactory.setReadTimeout((int) converterProperties.getReadTimeout().toMillis());
+        requestFactory.setBufferRequestBody(false);
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * 健康检查使用的RestTemplate，共享连接池但使用较短的超时
+     */
+    @Bean
+    public RestTemplate converterHealthRestTemplate(CloseableHttpClient converterHttpClient, ConverterProperties converterProperties) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(converterHttpClient);
+        int timeout = (int) converterProperties.getHealthCheckTimeout().toMillis();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setConnectionRequestTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        return new RestTemplate(requestFactory);
+    }
+}
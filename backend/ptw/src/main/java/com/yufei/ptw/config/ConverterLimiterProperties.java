@@ -0,0 +1,28 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Python转换服务自适应并发限制配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "converter.limiter")
+public class ConverterLimiterProperties {
+    // 是否启用自适应并发限制，关闭后并发只受调度器的maxConcurrency限制
+    private boolean enabled = true;
+    // 初始并发上限
+    private int initialLimit = 4;
+    // 并发上限的下限
+    private int minLimit = 1;
+    // 并发上限的上限
+    private int maxLimit = 20;
+    // 延迟超过基线的多少倍时认为转换服务开始排队，按latencyBackoffRatio收缩
+    private double latencyTolerance = 2.0;
+    // 延迟升高时的收缩比例
+    private double latencyBackoffRatio = 0.9;
+    // 请求超时、连接失败或服务端错误时的收缩比例
+    private double dropBackoffRatio = 0.5;
+}
@@ -0,0 +1,45 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Python转换服务节点配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "converter")
+public class ConverterProperties {
+    // 转换服务节点地址列表，如 http://10.0.0.5:5000；同机部署的节点可使用Unix域套接字，如 unix:/run/ptw/converter.sock
+    // unix: 节点（uds_server.py）只能运行在Linux上，只提供PDF转Word；Word转PDF只发往HTTP节点，需要运行 app.py 的Windows节点
+    private List<String> workers = new ArrayList<>(List.of("http://localhost:5000"));
+    // 连接超时
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    // 从连接池获取连接的最长等待时间，连接池耗尽时超时失败而不是一直等待
+    private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+    // 读取超时（单个文档转换的最长等待时间）
+    private Duration readTimeout = Duration.ofMinutes(10);
+    // 每个节点的最大连接数
+    private int maxConnectionsPerWorker = 20;
+    // 空闲连接保活时间
+    private Duration keepAlive = Duration.ofSeconds(30);
+    // 健康检查间隔
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+    // 健康检查超时
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+    // 健康检查路径
+    private String healthPath = "/";
+    // 连续失败多少次后摘除节点
+    private int unhealthyThreshold = 2;
+    // Unix域套接字节点的文件传递方式：PATH只传递文件路径（要求共享文件系统），STREAM在套接字上传输文件内容
+    private SocketTransferMode socketTransferMode = SocketTransferMode.PATH;
+
+    public enum SocketTransferMode {
+        PATH, STREAM
+    }
+}
@@ -0,0 +1,30 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 转换成本估算配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.cost")
+public class CostProperties {
+    // 每个任务的固定开销（毫秒）
+    private long baseMillis = 500;
+    // 还没有历史记录时假定的每页转换耗时（毫秒）
+    private long initialMillisPerPage = 1000;
+    // 扫描件PDF还没有历史记录时假定的每页转换耗时（毫秒）
+    private long initialScannedMillisPerPage = 15000;
+    // 无法读取页数时按文件大小估算，还没有历史记录时假定的每MB转换耗时（毫秒）
+    private long initialMillisPerMegabyte = 3000;
+    // 实测耗时对估算参数的修正权重，取值0~1
+    private double learningRate = 0.2;
+    // 预计耗时不超过该值的任务进入快速通道
+    private Duration expressThreshold = Duration.ofSeconds(5);
+    // 为快速通道保留的转换并发数，普通任务不能占用
+    private int expressSlots = 1;
+}
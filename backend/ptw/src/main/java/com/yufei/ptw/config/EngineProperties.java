@@ -0,0 +1,20 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 转换引擎配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.engine")
+public class EngineProperties {
+    // 是否启用JVM内的POI+iText转换引擎；该引擎不处理字体族、行距和制表位，版式要求高的部署保持关闭
+    private boolean inProcessEnabled = false;
+    // JVM内引擎处理的最大源文件大小（字节），超出时交给Python引擎
+    private long inProcessMaxBytes = 10L * 1024 * 1024;
+    // JVM内引擎使用的字体文件（如 C:/Windows/Fonts/simsun.ttc,0），为空时只能渲染西文字符
+    private String fontPath;
+}
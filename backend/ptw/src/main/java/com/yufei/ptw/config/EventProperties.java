@@ -0,0 +1,22 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 任务状态推送（Server-Sent Events）配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.events")
+public class EventProperties {
+    // 单个订阅连接的最长时间，超时后客户端需要重新订阅
+    private Duration timeout = Duration.ofMinutes(30);
+    // 心跳间隔，防止代理关闭空闲连接并及时发现已断开的客户端
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    // 单个连接最多订阅的任务数
+    private int maxTasksPerSubscription = 1000;
+}
@@ -0,0 +1,30 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 转换请求对冲配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "converter.hedge")
+public class HedgeProperties {
+    // 是否启用对冲请求，需要至少两个健康的转换服务节点
+    private boolean enabled = false;
+    // 转换耗时超过近期耗时的该分位数后向另一个节点发出对冲请求，取值0~1
+    private double percentile = 0.95;
+    // 对冲前的最短等待时间
+    private Duration minDelay = Duration.ofSeconds(2);
+    // 统计最近多少次成功请求的耗时
+    private int window = 200;
+    // 样本数达到该值后才开始对冲
+    private int minSamples = 20;
+    // 对冲请求数占请求总数的上限（百分比）
+    private double budgetPercent = 5;
+    // 对冲额度的最大积累量，限制空闲后的突发对冲
+    private int maxBurst = 5;
+}
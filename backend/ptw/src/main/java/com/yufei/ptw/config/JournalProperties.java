@@ -0,0 +1,24 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 任务日志配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.journal")
+public class JournalProperties {
+    // 是否启用任务日志，关闭后任务只保存在内存中，重启后丢失
+    private boolean enabled = true;
+    // 日志文件路径，为空时使用 ${file.upload-dir}/.task-journal
+    private String file;
+    // 日志文件映射大小，写满时先压缩，压缩后仍不够再扩容
+    private int capacity = 64 * 1024 * 1024;
+    // 批量刷盘间隔，同一间隔内的多条记录只执行一次fsync
+    private Duration syncInterval = Duration.ofMillis(50);
+}
@@ -0,0 +1,24 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 小文件内存缓冲配置
+ * 启用后不超过阈值的源文件和转换结果只保存在内存缓冲区中，从上传、调用转换服务到上传OSS都不写本地文件；
+ * 超过阈值或缓冲区总量用尽时写入上传目录。内存中的源文件在服务重启后不会恢复，对应任务按源文件已不存在处理
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.memory")
+public class MemoryProperties {
+    // 是否启用内存缓冲
+    private boolean enabled = false;
+    // 单个文件保存在内存中的最大字节数，也是每块缓冲区的大小
+    private int threshold = 256 * 1024;
+    // 所有缓冲区的总字节数上限，用尽时新文件直接写入本地
+    private long maxBufferedBytes = 64L * 1024 * 1024;
+    // 是否使用堆外内存（DirectByteBuffer）
+    private boolean offHeap = false;
+}
@@ -0,0 +1,20 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 流水线指标配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.metrics")
+public class MetricsProperties {
+    // 计时器输出的分位数，取值0~1
+    private double[] percentiles = {0.5, 0.95, 0.99};
+    // 分位数和最大值统计的时间窗口，只统计最近一个窗口内的耗时
+    private Duration window = Duration.ofMinutes(1);
+}
@@ -0,0 +1,27 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 小文档微批处理配置
+ * 启用后，小的Word转PDF任务在短时间窗口内合并为一次转换服务调用，共用一次Word启动
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "converter.micro-batch")
+public class MicroBatchProperties {
+    // 是否启用微批处理，需要转换服务支持 /convert/word-to-pdf/batch
+    private boolean enabled = false;
+    // 第一个文档到达后最多等待多久凑批
+    private Duration window = Duration.ofMillis(200);
+    // 每批最多文档数，凑满立即发送
+    // 等待凑批的文档各自占用一个转换并发，实际上限不超过调度器当前的并发上限（maxConcurrency与自适应并发上限的较小值），
+    // 否则批次永远凑不满，所有并发在整个窗口内空等
+    private int maxItems = 4;
+    // 参与微批处理的文档大小上限（字节）
+    private long maxBytes = 1024 * 1024;
+}
@@ -14,4 +14,12 @@ public class OssProperties {
     private String accessKeySecret;
     private String folder;
     private String urlPrefix;
-}
\ No newline at end of file
+    // 超过该大小（字节）的文件使用分片上传
+    private long multipartThreshold = 16L * 1024 * 1024;
+    // 分片大小（字节），OSS要求除最后一片外不小于100KB
+    private long partSize = 8L * 1024 * 1024;
+    // 并发上传分片的线程数
+    private int uploadConcurrency = 4;
+    // 单个分片失败后的重试次数
+    private int partRetries = 3;
+}
@@ -0,0 +1,36 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多租户公平调度配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.scheduler")
+public class SchedulerProperties {
+    // 标识租户的请求头
+    private String tenantHeader = "X-Tenant-Id";
+    // 请求头缺失时使用的租户
+    private String defaultTenant = "default";
+    // 同时转换的最大任务数，0表示使用转换线程池的核心线程数
+    private int maxConcurrency = 0;
+    // 所有租户排队任务总数上限
+    private int maxQueued = 1000;
+    // 未单独配置的租户权重，权重越大每轮获得的额度越多
+    private int defaultWeight = 1;
+    // 权重为1的租户每轮获得的额度，任务按预计转换耗时消耗额度
+    private Duration quantum = Duration.ofSeconds(10);
+    // 未单独配置的租户同时转换的任务数上限，0表示不限制
+    private int defaultTenantConcurrency = 0;
+    // 租户权重
+    private Map<String, Integer> weights = new HashMap<>();
+    // 租户同时转换的任务数上限
+    private Map<String, Integer> tenantConcurrency = new HashMap<>();
+}
@@ -0,0 +1,20 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 任务存储配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.task")
+public class TaskStoreProperties {
+    // 内存中保留的最大任务数，超出后按完成时间淘汰最早结束的任务
+    private int maxEntries = 100000;
+    // 已完成或失败的任务保留时间
+    private Duration finishedTtl = Duration.ofHours(1);
+}
@@ -0,0 +1,22 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * PDF文本层检测配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.text-layer")
+public class TextLayerProperties {
+    // 是否检测PDF文本层，关闭后所有PDF按文本PDF处理
+    private boolean enabled = true;
+    // 最多抽样的页数，抽样页在文档中均匀分布
+    private int samplePages = 5;
+    // 抽样页平均每页的可见字符数低于该值时判定为扫描件
+    private int minCharsPerPage = 20;
+    // 扫描件通道的转换并发数，扫描件最多占用这么多并发，其余并发留给文本PDF和Word
+    private int scannedSlots = 1;
+}
@@ -0,0 +1,16 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上传文件落盘配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.upload")
+public class UploadProperties {
+    // 单个文件的最大字节数，写入本地时超过即中止，与转换服务的上传上限一致
+    private long maxFileSize = 100L * 1024 * 1024;
+}
@@ -0,0 +1,22 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 入队前文档结构校验配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "convert.validation")
+public class ValidationProperties {
+    // 是否在任务入队前校验文档结构
+    private boolean enabled = true;
+    // DOCX压缩包的最大条目数
+    private int maxZipEntries = 10000;
+    // DOCX压缩包所有条目解压后的最大总字节数
+    private long maxUncompressedBytes = 1024L * 1024 * 1024;
+    // 单个条目的最大压缩比（解压后大小 / 压缩后大小），超过即视为压缩炸弹
+    private int maxCompressionRatio = 100;
+}
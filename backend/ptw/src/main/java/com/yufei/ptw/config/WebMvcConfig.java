@@ -1,7 +1,14 @@
 package com.yufei.ptw.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -11,6 +18,33 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private BatchProperties batchProperties;
+
+    @Autowired
+    @Qualifier("downloadExecutor")
+    private ThreadPoolTaskExecutor downloadExecutor;
+
+    /**
+     * 延迟解析multipart请求，只有声明了MultipartFile参数的接口才由Servlet容器解析和缓存上传内容，
+     * 流式上传接口可以直接读取请求体
+     */
+    @Bean
+    public MultipartResolver multipartResolver() {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver();
+        resolver.setResolveLazily(true);
+        return resolver;
+    }
+
+    /**
+     * 异步响应配置，批量结果下载会持续到批次全部完成
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(downloadExecutor);
+        configurer.setDefaultTimeout(batchProperties.getDownloadTimeout().toMillis());
+    }
+
     /**
      * 配置Swagger静态资源访问
      */
@@ -0,0 +1,46 @@
+package com.yufei.ptw.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本机转换服务进程池配置
+ * 启用后由后端启动并监管转换服务进程，进程作为节点加入转换服务节点池，与 converter.workers 中的节点共同承担请求
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "converter.process")
+public class WorkerProcessProperties {
+    // 是否由后端启动和监管转换服务进程；启用时通常把 converter.workers 配置为空
+    private boolean enabled = false;
+    // 启动命令，{port} 替换为分配的端口，{socket} 替换为分配的Unix域套接字路径；包含 {socket} 时通过套接字访问
+    // 如 [python, app.py, "{port}"] 或 [python, uds_server.py, "{socket}"]；uds_server.py 只能运行在Linux上，只提供PDF转Word
+    private List<String> command = new ArrayList<>(List.of("python", "app.py", "{port}"));
+    // 进程的工作目录，为空时使用后端的工作目录
+    private String workingDirectory;
+    // 第一个进程的端口，之后的进程依次递增
+    private int basePort = 5100;
+    // Unix域套接字文件所在目录
+    private String socketDirectory = System.getProperty("java.io.tmpdir");
+    // 最少进程数
+    private int minWorkers = 1;
+    // 最多进程数
+    private int maxWorkers = 4;
+    // 排队任务数超过 进程数 × 该值 时增加一个进程
+    private int scaleUpQueueDepth = 2;
+    // 连续空闲超过该时间后减少一个进程
+    private Duration scaleDownIdle = Duration.ofMinutes(5);
+    // 每个进程处理多少个请求后重启，限制内存泄漏的累积，0表示不重启
+    private long maxRequests = 500;
+    // 进程启动后在该时间内未通过健康检查则重启
+    private Duration startupTimeout = Duration.ofSeconds(30);
+    // 回收进程时等待其完成未完成请求的最长时间
+    private Duration drainTimeout = Duration.ofMinutes(10);
+    // 监管检查间隔
+    private Duration superviseInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,103 @@
+package com.yufei.ptw.controller;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.converter.AdaptiveConcurrencyLimiter;
+import com.yufei.ptw.converter.CircuitBreaker;
+import com.yufei.ptw.converter.ConversionMicroBatcher;
+import com.yufei.ptw.converter.ConverterProcessSupervisor;
+import com.yufei.ptw.converter.HedgePolicy;
+import com.yufei.ptw.entity.BufferPoolStatus;
+import com.yufei.ptw.entity.ConverterStatus;
+import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.entity.TenantQueueStatus;
+import com.yufei.ptw.entity.WorkerProcessStatus;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@Api(tags = "运维管理接口")
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private FairShareScheduler scheduler;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private HedgePolicy hedgePolicy;
+
+    @Autowired
+    private ConverterProcessSupervisor processSupervisor;
+
+    @Autowired
+    private ConversionMicroBatcher microBatcher;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    @Autowired
+    private MemoryProperties memoryProperties;
+
+    @ApiOperation("查询各租户的调度队列状态")
+    @GetMapping("/scheduler/tenants")
+    public Result<List<TenantQueueStatus>> getTenantQueues(){
+        return Result.success(scheduler.getTenantStatus());
+    }
+
+    @ApiOperation("查询转换服务的并发上限、熔断、对冲和微批处理状态")
+    @GetMapping("/converter")
+    public Result<ConverterStatus> getConverterStatus(){
+        ConverterStatus status = new ConverterStatus();
+        status.setConcurrencyLimit(limiter.getLimit());
+        status.setInFlight(limiter.getInFlight());
+        status.setLastLatencyMillis(limiter.getLastLatency());
+        status.setLimiterRejections(limiter.getRejections());
+        status.setBreakerState(circuitBreaker.getState().name());
+        status.setBreakerTrips(circuitBreaker.getTrips());
+        status.setBreakerRejections(circuitBreaker.getRejections());
+        status.setHedges(hedgePolicy.getHedges());
+        status.setHedgeWins(hedgePolicy.getHedgeWins());
+        long batches = microBatcher.getBatches();
+        status.setMicroBatches(batches);
+        status.setMicroBatchedDocuments(microBatcher.getBatchedDocuments());
+        status.setAverageBatchSize(batches > 0 ? (double) microBatcher.getBatchedDocuments() / batches : 0);
+        status.setMicroBatchFallbacks(microBatcher.getFallbacks());
+        return Result.success(status);
+    }
+
+    @ApiOperation("查询后端启动的本机转换服务进程状态")
+    @GetMapping("/converter/processes")
+    public Result<List<WorkerProcessStatus>> getConverterProcesses(){
+        return Result.success(processSupervisor.getStatus());
+    }
+
+    @ApiOperation("查询小文件内存缓冲区的使用情况")
+    @GetMapping("/buffers")
+    public Result<BufferPoolStatus> getBufferPoolStatus(){
+        BufferPoolStatus status = new BufferPoolStatus();
+        status.setEnabled(memoryProperties.isEnabled());
+        status.setSlabSize(bufferPool.getSlabSize());
+        status.setMaxBytes(memoryProperties.getMaxBufferedBytes());
+        status.setAllocatedBytes(bufferPool.getAllocatedBytes());
+        status.setInUseBytes(bufferPool.getInUseBytes());
+        status.setPeakInUseBytes(bufferPool.getPeakInUseBytes());
+        status.setExhausted(bufferPool.getExhausted());
+        status.setSpills(bufferPool.getSpills());
+        return Result.success(status);
+    }
+}
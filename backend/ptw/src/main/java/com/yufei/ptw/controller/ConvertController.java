@@ -1,8 +1,11 @@
 package com.yufei.ptw.controller;
 
 
+import com.yufei.ptw.entity.BatchStatus;
 import com.yufei.ptw.entity.ConvertTask;
 import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.event.TaskEventBroadcaster;
+import com.yufei.ptw.service.BatchService;
 import com.yufei.ptw.service.ConvertService;
 import com.yufei.ptw.service.TaskService;
 import io.swagger.annotations.Api;
@@ -10,12 +13,22 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
 
 @Slf4j
 @Api(tags = "文件转换接口")
@@ -29,6 +42,12 @@ public class ConvertController {
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private TaskEventBroadcaster taskEventBroadcaster;
+
     @ApiOperation("文件转换接口 - 目前只支持word转pdf")
     @PostMapping("/word-to-pdf")
     public Result<String> convertFile(@ApiParam(name = "file", value = "要转换的Word文件", required = true) @RequestParam("file") MultipartFile file){
@@ -45,6 +64,13 @@ public class ConvertController {
     
 
 
+    @ApiOperation("流式上传转换接口 - 不经过Servlet的multipart缓存，边接收边写入本地，根据文件内容自动选择Word转PDF或PDF转Word")
+    @PostMapping(value = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Result<String> convertStream(HttpServletRequest request) throws IOException {
+        log.info("开始处理流式上传转换请求");
+        return convertService.changeStream(request.getInputStream(), request.getContentType(), request.getContentLengthLong());
+    }
+
     @ApiOperation("查询任务状态接口")
     @GetMapping("/task/status")
     public Result<ConvertTask> getTaskStatus(@ApiParam(name = "taskId", value = "任务ID", required = true) @RequestParam("taskId") String taskId){
@@ -55,4 +81,44 @@ public class ConvertController {
         }
         return Result.success(task);
     }
+
+    @ApiOperation("订阅任务状态接口 - Server-Sent Events推送，一个连接可订阅多个任务，全部结束后关闭")
+    @GetMapping(value = "/task/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTaskEvents(@ApiParam(name = "taskIds", value = "任务ID，多个用逗号分隔", required = true) @RequestParam("taskIds") List<String> taskIds){
+        log.info("订阅任务状态，任务数: {}", taskIds.size());
+        return taskEventBroadcaster.subscribe(taskIds);
+    }
+
+    @ApiOperation("批量转换接口 - 支持多个文件或ZIP压缩包，根据文件类型自动选择转换方式")
+    @PostMapping("/batch")
+    public Result<String> convertBatch(@ApiParam(name = "files", value = "要转换的文件或ZIP压缩包", required = true) @RequestParam("files") MultipartFile[] files){
+        log.info("开始处理批量转换请求，文件数: {}", files.length);
+        return batchService.submitBatch(files);
+    }
+
+    @ApiOperation("查询批次状态接口")
+    @GetMapping("/batch/status")
+    public Result<BatchStatus> getBatchStatus(@ApiParam(name = "batchId", value = "批次ID", required = true) @RequestParam("batchId") String batchId){
+        log.info("查询批次状态，批次ID: {}", batchId);
+        BatchStatus status = batchService.getBatchStatus(batchId);
+        if (status == null) {
+            return Result.error("批次不存在");
+        }
+        return Result.success(status);
+    }
+
+    @ApiOperation("下载批次结果接口 - 以ZIP格式按完成顺序输出，转换失败的文件记录在errors.txt中")
+    @GetMapping("/batch/download")
+    public ResponseEntity<StreamingResponseBody> downloadBatch(@ApiParam(name = "batchId", value = "批次ID", required = true) @RequestParam("batchId") String batchId){
+        log.info("下载批次结果，批次ID: {}", batchId);
+        if (batchService.getBatchStatus(batchId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = outputStream -> batchService.writeResults(batchId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(batchId + ".zip").build().toString())
+                .body(body);
+    }
 }
@@ -0,0 +1,44 @@
+package com.yufei.ptw.converter;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.util.function.Consumer;
+
+/**
+ * 可中止请求的HttpComponents请求工厂
+ * 当前线程通过 {@link #listen(Consumer)} 登记监听后，创建的底层请求会交给监听器，
+ * 其他线程可以调用 {@link HttpUriRequest#abort()} 中止正在等待响应的请求
+ */
+public class AbortableRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private static final ThreadLocal<Consumer<HttpUriRequest>> LISTENER = new ThreadLocal<>();
+
+    public AbortableRequestFactory(HttpClient httpClient) {
+        super(httpClient);
+    }
+
+    /**
+     * 登记当前线程后续创建的请求的监听器，调用方负责在请求结束后调用 {@link #clear()}
+     */
+    public static void listen(Consumer<HttpUriRequest> listener) {
+        LISTENER.set(listener);
+    }
+
+    public static void clear() {
+        LISTENER.remove();
+    }
+
+    @Override
+    protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+        HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+        Consumer<HttpUriRequest> listener = LISTENER.get();
+        if (listener != null) {
+            listener.accept(request);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,191 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.ConverterLimiterProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 转换服务自适应并发限制（AIMD）
+ * 以无负载时的延迟为基线：延迟没有明显升高且并发上限被用满时每轮加1（加性增），
+ * 延迟超过基线的latencyTolerance倍时按比例收缩，请求超时或失败时大幅收缩（乘性减）。
+ * 延迟按源文件大小归一化（每MB耗时），大文档本身耗时长不会被误判为转换服务过载；
+ * 不同转换类型（以及扫描件PDF）的正常耗时相差很大，每一类分别维护基线，只与同类请求比较。
+ * <p>
+ * 并发上限由 {@link com.yufei.ptw.pipeline.FairShareScheduler} 在派发任务时执行，超出上限的任务在调度器中排队；
+ * 许可释放或上限提高时通知调度器继续派发
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+    // 基线向上漂移的速度，转换服务整体变慢后基线能够跟上
+    private static final double BASELINE_DRIFT = 0.01;
+
+    @Autowired
+    private ConverterLimiterProperties limiterProperties;
+
+    // 许可释放或上限提高时调用，在限流器的锁外执行
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    // 以下字段由限流器的监视器保护
+    private double limit;
+    private int inFlight;
+    // 各类请求的延迟基线，下标见 latencyClass
+    private final double[] baselines = new double[ConversionType.values().length * 2];
+    private long lastLatency;
+    private long rejections;
+
+    @PostConstruct
+    public synchronized void init() {
+        limit = clamp(limiterProperties.getInitialLimit());
+        Arrays.fill(baselines, Double.NaN);
+    }
+
+    public boolean isEnabled() {
+        return limiterProperties.isEnabled();
+    }
+
+    /**
+     * 注册许可释放或上限提高时的回调
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 占用一个并发许可
+     * 调度器已按 {@link #getLimit()} 控制同时执行的任务数，这里不等待；上限刚被收缩时可能短暂超出，
+     * 之后调度器在正在进行的请求数降到上限以下前不再派发新任务
+     */
+    public synchronized void acquire() {
+        if (limiterProperties.isEnabled()) {
+            inFlight++;
+        }
+    }
+
+    /**
+     * 不等待地获取并发许可（对冲请求使用），达到上限时返回false
+     */
+    public synchronized boolean tryAcquire() {
+        if (!limiterProperties.isEnabled()) {
+            return true;
+        }
+        if (inFlight >= (int) limit) {
+            rejections++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * 请求成功，与同类请求的基线比较后调整上限并释放许可
+     *
+     * @param type          转换类型
+     * @param scanned       是否为扫描件PDF
+     * @param latencyMillis 请求耗时
+     * @param inputBytes    源文件大小
+     */
+    public void onSuccess(ConversionType type, boolean scanned, long latencyMillis, long inputBytes) {
+        if (!limiterProperties.isEnabled()) {
+            return;
+        }
+        double normalized = latencyMillis / (1 + inputBytes / BYTES_PER_MEGABYTE);
+        synchronized (this) {
+            lastLatency = latencyMillis;
+            int index = latencyClass(type, scanned);
+            double baseline = baselines[index];
+            if (Double.isNaN(baseline) || normalized < baseline) {
+                baseline = normalized;
+            } else {
+                baseline += (normalized - baseline) * BASELINE_DRIFT;
+            }
+            baselines[index] = baseline;
+            if (normalized > baseline * limiterProperties.getLatencyTolerance()) {
+                decrease(limiterProperties.getLatencyBackoffRatio());
+            } else if (inFlight >= (int) limit) {
+                // 上限被用满且延迟正常，每次成功增加1/limit，一轮约增加1
+                limit = clamp(limit + 1 / limit);
+            }
+            inFlight--;
+        }
+        notifyListeners();
+    }
+
+    /**
+     * 请求超时、连接失败或服务端错误，收缩上限并释放许可
+     */
+    public void onDropped() {
+        if (!limiterProperties.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            decrease(limiterProperties.getDropBackoffRatio());
+            inFlight--;
+        }
+        notifyListeners();
+    }
+
+    /**
+     * 与转换服务负载无关的失败（如文档本身有问题），只释放许可
+     */
+    public void onIgnored() {
+        if (!limiterProperties.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            inFlight--;
+        }
+        notifyListeners();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getLastLatency() {
+        return lastLatency;
+    }
+
+    /**
+     * 因达到并发上限未能发出的对冲请求数
+     */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    private void decrease(double ratio) {
+        int before = (int) limit;
+        limit = clamp(limit * ratio);
+        if ((int) limit < before) {
+            log.info("转换服务并发上限下调: {} -> {}", before, (int) limit);
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private static int latencyClass(ConversionType type, boolean scanned) {
+        return type.ordinal() * 2 + (scanned ? 1 : 0);
+    }
+
+    private double clamp(double value) {
+        int min = Math.max(1, limiterProperties.getMinLimit());
+        return Math.max(min, Math.min(Math.max(min, limiterProperties.getMaxLimit()), value));
+    }
+}
@@ -0,0 +1,152 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.CircuitBreakerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 转换服务熔断器
+ * 统计最近windowSize次调用的失败率，超过阈值后熔断，熔断期间的请求直接失败，不再占用转换线程等待超时；
+ * 熔断openDuration后进入半开状态放行halfOpenCalls个试探请求，全部成功则恢复，任一失败则重新熔断
+ */
+@Slf4j
+@Component
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Autowired
+    private CircuitBreakerProperties breakerProperties;
+
+    // 以下字段由熔断器的监视器保护
+    private State state = State.CLOSED;
+    private boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long trips;
+    private long rejections;
+
+    /**
+     * 申请调用许可，熔断中时抛出 {@link ConverterUnavailableException}
+     */
+    public synchronized void acquirePermission() {
+        if (!breakerProperties.isEnabled()) {
+            return;
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < breakerProperties.getOpenDuration().toNanos()) {
+                rejections++;
+                throw new ConverterUnavailableException("转换服务暂时不可用，请稍后重试");
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = Math.max(1, breakerProperties.getHalfOpenCalls());
+            halfOpenSuccesses = 0;
+            log.info("转换服务熔断结束，进入半开状态");
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                rejections++;
+                throw new ConverterUnavailableException("转换服务暂时不可用，请稍后重试");
+            }
+            halfOpenPermits--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (!breakerProperties.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= Math.max(1, breakerProperties.getHalfOpenCalls())) {
+                state = State.CLOSED;
+                resetWindow();
+                log.info("转换服务已恢复，熔断关闭");
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (!breakerProperties.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= breakerProperties.getMinimumCalls()
+                    && failures >= breakerProperties.getFailureRateThreshold() * recorded) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * 取得许可后没有发出请求，归还半开状态的试探名额
+     */
+    public synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getTrips() {
+        return trips;
+    }
+
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    private void record(boolean failure) {
+        int size = Math.max(1, breakerProperties.getWindowSize());
+        if (outcomes == null || outcomes.length != size) {
+            outcomes = new boolean[size];
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        if (recorded == size) {
+            // 覆盖窗口中最早的一次调用
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % size;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        trips++;
+        resetWindow();
+        log.warn("转换服务失败率过高，熔断{}秒，累计熔断次数: {}", breakerProperties.getOpenDuration().getSeconds(), trips);
+    }
+
+    private void resetWindow() {
+        outcomes = null;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,210 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.MicroBatchProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 小文档微批处理
+ * 小的Word转PDF任务到达后不立即调用转换服务，而是在时间窗口内凑批，凑满或窗口结束时合并为一次批量请求，
+ * 转换服务在同一个Word实例中依次转换，省去每个文档启动Word的开销；
+ * 第一个到达的任务所在线程负责等待和发送，其余任务等待各自的结果；
+ * 等待中的任务占用转换并发，每批文档数不超过调度器当前的并发上限，否则批次凑不满，只能等到窗口结束。
+ * 批量请求整体失败或其中某个文档失败时，受影响的文档各自单独重新转换，不受同批次其他文档的影响
+ */
+@Slf4j
+@Component
+public class ConversionMicroBatcher {
+
+    @Autowired
+    private MicroBatchProperties batchProperties;
+
+    @Autowired
+    private PythonConverterClient converterClient;
+
+    @Autowired
+    private FairShareScheduler scheduler;
+
+    // 正在凑批的批次，由本对象的监视器保护
+    private Batch current;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedDocuments = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * 该文档是否参与微批处理
+     */
+    public boolean accepts(ConversionType type, DocumentContent source) {
+        if (!batchProperties.isEnabled() || type != ConversionType.WORD_TO_PDF || maxItems() < 2) {
+            return false;
+        }
+        try {
+            return source.size() <= batchProperties.getMaxBytes();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 以微批方式执行Word转PDF，返回时结果已写入output
+     */
+    public void convert(DocumentContent source, DocumentContent output) throws Exception {
+        Item item = new Item(source, output);
+        Batch batch = join(item, maxItems());
+        if (batch.items.get(0) == item) {
+            List<Item> items;
+            try {
+                items = awaitClose(batch);
+            } catch (InterruptedException e) {
+                // 批次已关闭，其余文档改为单独转换
+                for (Item other : close(batch)) {
+                    other.result.complete(false);
+                }
+                throw e;
+            }
+            send(items);
+        }
+        boolean converted;
+        try {
+            converted = item.result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        if (!converted) {
+            converterClient.convert(ConversionType.WORD_TO_PDF, false, source, output);
+        }
+    }
+
+    /**
+     * 已发送的批量请求数
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * 通过批量请求完成转换的文档数，除以批量请求数即平均批大小
+     */
+    public long getBatchedDocuments() {
+        return batchedDocuments.get();
+    }
+
+    /**
+     * 批量转换失败后改为单独转换的文档数
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * 每批最多文档数，不超过调度器当前允许同时执行的任务数
+     */
+    private int maxItems() {
+        return Math.min(batchProperties.getMaxItems(), scheduler.getConcurrencyLimit());
+    }
+
+    private synchronized Batch join(Item item, int maxItems) {
+        if (current == null) {
+            current = new Batch();
+        }
+        Batch batch = current;
+        batch.items.add(item);
+        if (batch.items.size() >= maxItems) {
+            current = null;
+            notifyAll();
+        }
+        return batch;
+    }
+
+    /**
+     * 等待批次凑满或窗口结束，返回批次中的所有文档
+     */
+    private synchronized List<Item> awaitClose(Batch batch) throws InterruptedException {
+        long deadline = System.nanoTime() + batchProperties.getWindow().toNanos();
+        while (current == batch) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                current = null;
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return new ArrayList<>(batch.items);
+    }
+
+    private synchronized List<Item> close(Batch batch) {
+        if (current == batch) {
+            current = null;
+        }
+        return new ArrayList<>(batch.items.subList(1, batch.items.size()));
+    }
+
+    private void send(List<Item> items) {
+        if (items.size() == 1) {
+            // 窗口内没有其他文档，直接单独转换
+            items.get(0).result.complete(false);
+            return;
+        }
+        List<DocumentContent> sources = new ArrayList<>(items.size());
+        List<DocumentContent> outputs = new ArrayList<>(items.size());
+        for (Item item : items) {
+            sources.add(item.source);
+            outputs.add(item.output);
+        }
+        long start = System.currentTimeMillis();
+        List<String> errors;
+        try {
+            errors = converterClient.convertBatch(sources, outputs);
+        } catch (Exception e) {
+            log.warn("批量Word转PDF失败，{}个文档改为单独转换: {}", items.size(), e.getMessage());
+            fallbacks.addAndGet(items.size());
+            items.forEach(item -> item.result.complete(false));
+            return;
+        }
+        int succeeded = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (errors.get(i) == null) {
+                succeeded++;
+                item.result.complete(true);
+            } else {
+                log.info("批量Word转PDF中的文档失败，改为单独转换: {}, 原因: {}", item.source, errors.get(i));
+                fallbacks.incrementAndGet();
+                item.result.complete(false);
+            }
+        }
+        batches.incrementAndGet();
+        batchedDocuments.addAndGet(succeeded);
+        log.info("批量Word转PDF完成，文档数: {}, 成功: {}, 耗时: {} ms", items.size(), succeeded,
+                System.currentTimeMillis() - start);
+    }
+
+    private static final class Batch {
+        private final List<Item> items = new ArrayList<>();
+    }
+
+    private static final class Item {
+        private final DocumentContent source;
+        private final DocumentContent output;
+        // true表示已由批量请求转换完成，false表示需要单独转换
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Item(DocumentContent source, DocumentContent output) {
+            this.source = source;
+            this.output = output;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.WorkerProcessProperties;
+import com.yufei.ptw.entity.WorkerProcessStatus;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机转换服务进程监管
+ * 通过 {@link ProcessBuilder} 在不同的端口或Unix域套接字上启动转换服务进程，进程通过健康检查后加入 {@link ConverterWorkerPool}；
+ * 定时检查各进程：退出的进程重启，加入后连续健康检查失败（卡住）的进程强制结束后重启，
+ * 处理请求数达到上限的进程先移出节点池、等待未完成请求结束后重启；
+ * 并根据调度队列的排队任务数在最少和最多进程数之间增减进程
+ */
+@Slf4j
+@Component
+public class ConverterProcessSupervisor {
+
+    private static final String PORT_PLACEHOLDER = "{port}";
+    private static final String SOCKET_PLACEHOLDER = "{socket}";
+
+    @Autowired
+    private WorkerProcessProperties processProperties;
+
+    @Autowired
+    private ConverterWorkerPool workerPool;
+
+    @Autowired
+    private FairShareScheduler scheduler;
+
+    // 按槽位号排序，槽位号决定端口和套接字路径
+    private final List<WorkerProcess> processes = new ArrayList<>();
+
+    private ScheduledExecutorService supervisor;
+
+    private long lastBusy;
+
+    @PostConstruct
+    public void init() {
+        if (!processProperties.isEnabled()) {
+            return;
+        }
+        lastBusy = System.currentTimeMillis();
+        synchronized (this) {
+            for (int i = 0; i < Math.max(0, processProperties.getMinWorkers()); i++) {
+                addProcess();
+            }
+        }
+        supervisor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ConverterProcessSupervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = processProperties.getSuperviseInterval().toMillis();
+        supervisor.scheduleWithFixedDelay(this::superviseQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (supervisor != null) {
+            supervisor.shutdownNow();
+        }
+        for (WorkerProcess process : processes) {
+            workerPool.removeWorker(process.worker);
+            stop(process);
+        }
+        processes.clear();
+    }
+
+    /**
+     * 各进程的当前状态
+     */
+    public synchronized List<WorkerProcessStatus> getStatus() {
+        List<WorkerProcessStatus> result = new ArrayList<>(processes.size());
+        for (WorkerProcess process : processes) {
+            WorkerProcessStatus status = new WorkerProcessStatus();
+            status.setSlot(process.slot);
+            status.setUrl(process.worker.getBaseUrl());
+            status.setPid(process.process != null && process.process.isAlive() ? process.process.pid() : null);
+            status.setState(process.state.name());
+            status.setRequests(process.worker.getRequests());
+            status.setOutstanding(process.worker.getOutstanding());
+            status.setRestarts(process.restarts);
+            result.add(status);
+        }
+        return result;
+    }
+
+    private void superviseQuietly() {
+        try {
+            supervise();
+        } catch (RuntimeException e) {
+            log.error("转换服务进程监管检查失败", e);
+        }
+    }
+
+    /**
+     * 检查一次所有进程并调整进程数
+     */
+    synchronized void supervise() {
+        long now = System.currentTimeMillis();
+        for (WorkerProcess process : new ArrayList<>(processes)) {
+            check(process, now);
+        }
+        scale(now);
+    }
+
+    private void check(WorkerProcess process, long now) {
+        boolean alive = process.process != null && process.process.isAlive();
+        switch (process.state) {
+            case STARTING:
+                if (alive && workerPool.probe(process.worker)) {
+                    process.state = ProcessState.READY;
+                    workerPool.addWorker(process.worker);
+                } else if (!alive || now - process.startedAt > processProperties.getStartupTimeout().toMillis()) {
+                    log.warn("转换服务进程启动失败，重新启动: {}", process.worker);
+                    restart(process);
+                }
+                break;
+            case READY:
+                if (!alive) {
+                    log.warn("转换服务进程已退出，重新启动: {}, 退出码: {}", process.worker, exitCode(process));
+                    restart(process);
+                } else if (!process.worker.isHealthy()) {
+                    log.warn("转换服务进程无响应，强制结束后重新启动: {}", process.worker);
+                    restart(process);
+                } else if (processProperties.getMaxRequests() > 0
+                        && process.worker.getRequests() >= processProperties.getMaxRequests()) {
+                    log.info("转换服务进程已处理{}个请求，回收后重新启动: {}", process.worker.getRequests(), process.worker);
+                    drain(process, ProcessState.RECYCLING, now);
+                }
+                break;
+            case RECYCLING:
+            case RETIRING:
+                if (alive && process.worker.getOutstanding() > 0
+                        && now - process.drainStartedAt < processProperties.getDrainTimeout().toMillis()) {
+                    break;
+                }
+                if (process.state == ProcessState.RECYCLING) {
+                    restart(process);
+                } else {
+                    stop(process);
+                    processes.remove(process);
+                    log.info("转换服务进程已停止: {}", process.worker);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 排队任务多时增加进程，持续空闲时减少进程，每次检查最多调整一个
+     */
+    private void scale(long now) {
+        int queued = scheduler.getQueued();
+        int active = 0;
+        boolean busy = queued > 0;
+        for (WorkerProcess process : processes) {
+            if (process.state != ProcessState.RETIRING) {
+                active++;
+            }
+            busy |= process.worker.getOutstanding() > 0;
+        }
+        if (busy) {
+            lastBusy = now;
+        }
+        if (active < processProperties.getMinWorkers()
+                || (active < processProperties.getMaxWorkers()
+                && queued > active * processProperties.getScaleUpQueueDepth())) {
+            log.info("排队任务数: {}, 增加转换服务进程，当前进程数: {}", queued, active);
+            addProcess();
+        } else if (active > processProperties.getMinWorkers()
+                && now - lastBusy > processProperties.getScaleDownIdle().toMillis()) {
+            for (int i = processes.size() - 1; i >= 0; i--) {
+                WorkerProcess process = processes.get(i);
+                if (process.state == ProcessState.READY || process.state == ProcessState.STARTING) {
+                    log.info("转换服务持续空闲，减少转换服务进程: {}", process.worker);
+                    drain(process, ProcessState.RETIRING, now);
+                    lastBusy = now;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addProcess() {
+        int slot = 0;
+        for (WorkerProcess process : processes) {
+            if (process.slot != slot) {
+                break;
+            }
+            slot++;
+        }
+        WorkerProcess process = new WorkerProcess(slot);
+        processes.add(slot, process);
+        start(process);
+    }
+
+    /**
+     * 移出节点池，不再接收新请求，等待未完成的请求结束
+     */
+    private void drain(WorkerProcess process, ProcessState state, long now) {
+        workerPool.removeWorker(process.worker);
+        process.state = state;
+        process.drainStartedAt = now;
+    }
+
+    private void restart(WorkerProcess process) {
+        workerPool.removeWorker(process.worker);
+        stop(process);
+        process.restarts++;
+        start(process);
+    }
+
+    private void start(WorkerProcess process) {
+        List<String> command = new ArrayList<>();
+        boolean socket = false;
+        for (String arg : processProperties.getCommand()) {
+            socket |= arg.contains(SOCKET_PLACEHOLDER);
+            command.add(arg.replace(PORT_PLACEHOLDER, String.valueOf(port(process.slot)))
+                    .replace(SOCKET_PLACEHOLDER, socketPath(process.slot).toString()));
+        }
+        // 每次启动使用新的节点对象，请求计数和健康状态从零开始
+        process.worker = new ConverterWorker(socket ? "unix:" + socketPath(process.slot)
+                : "http://127.0.0.1:" + port(process.slot));
+        process.state = ProcessState.STARTING;
+        process.startedAt = System.currentTimeMillis();
+        try {
+            if (socket) {
+                // 上一个进程异常退出时可能留下套接字文件
+                Files.deleteIfExists(socketPath(process.slot));
+            }
+            ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+            if (processProperties.getWorkingDirectory() != null) {
+                builder.directory(new File(processProperties.getWorkingDirectory()));
+            }
+            process.process = builder.start();
+            log.info("已启动转换服务进程: {}, pid: {}", process.worker, process.process.pid());
+        } catch (IOException e) {
+            // 下次检查时按启动失败处理
+            process.process = null;
+            log.error("启动转换服务进程失败: {}, 命令: {}", process.worker, command, e);
+        }
+    }
+
+    private void stop(WorkerProcess process) {
+        Process handle = process.process;
+        if (handle == null || !handle.isAlive()) {
+            return;
+        }
+        handle.destroy();
+        try {
+            if (!handle.waitFor(5, TimeUnit.SECONDS)) {
+                handle.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            handle.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object exitCode(WorkerProcess process) {
+        return process.process != null ? process.process.exitValue() : "未启动";
+    }
+
+    private int port(int slot) {
+        return processProperties.getBasePort() + slot;
+    }
+
+    private Path socketPath(int slot) {
+        return Paths.get(processProperties.getSocketDirectory(), "ptw-converter-" + slot + ".sock");
+    }
+
+    private enum ProcessState {
+        // 已启动，等待通过健康检查
+        STARTING,
+        // 已加入节点池
+        READY,
+        // 请求数达到上限，等待未完成请求结束后重启
+        RECYCLING,
+        // 缩容，等待未完成请求结束后停止
+        RETIRING
+    }
+
+    private static final class WorkerProcess {
+        private final int slot;
+        private ConverterWorker worker;
+        private Process process;
+        private ProcessState state;
+        private long startedAt;
+        private long drainStartedAt;
+        private int restarts;
+
+        private WorkerProcess(int slot) {
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.yufei.ptw.converter;
+
+/**
+ * 转换服务熔断中或并发许可等待超时，请求没有发送到转换服务
+ */
+public class ConverterUnavailableException extends RuntimeException {
+
+    public ConverterUnavailableException(String message) {
+        super(message);
+    }
+}
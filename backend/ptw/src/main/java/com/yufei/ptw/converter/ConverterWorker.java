@@ -0,0 +1,91 @@
+package com.yufei.ptw.converter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 转换服务节点
+ * 记录节点地址、当前未完成的请求数和健康状态；
+ * 地址以 unix: 开头时通过Unix域套接字访问同机部署的节点，否则通过HTTP访问
+ */
+public class ConverterWorker {
+
+    private static final String UNIX_SCHEME = "unix:";
+
+    private final String baseUrl;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile boolean healthy = true;
+
+    public ConverterWorker(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public boolean isUnixSocket() {
+        return baseUrl.startsWith(UNIX_SCHEME);
+    }
+
+    /**
+     * Unix域套接字文件路径，地址形如 unix:/run/ptw/converter.sock
+     */
+    public Path getSocketPath() {
+        return Paths.get(baseUrl.substring(UNIX_SCHEME.length()));
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * 节点累计处理的请求数
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    /**
+     * 记录一次成功，节点恢复可用
+     */
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        healthy = true;
+    }
+
+    /**
+     * 记录一次失败，连续失败达到阈值后节点被摘除
+     *
+     * @return 本次是否导致节点由可用变为不可用
+     */
+    boolean recordFailure(int unhealthyThreshold) {
+        if (consecutiveFailures.incrementAndGet() >= unhealthyThreshold && healthy) {
+            healthy = false;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
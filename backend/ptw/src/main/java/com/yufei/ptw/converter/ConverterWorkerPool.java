@@ -0,0 +1,191 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.ConverterProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 转换服务节点池
+ * 每次请求选择未完成请求数最少的健康节点；Unix域套接字节点（uds_server.py）只提供PDF转Word，Word转PDF只选择HTTP节点；
+ * 后台定时主动探测各节点，连续失败的节点被移出轮转，探测成功后重新加入；
+ * 除配置的节点外，{@link ConverterProcessSupervisor} 启动的本机进程就绪后也会加入节点池
+ */
+@Slf4j
+@Component
+public class ConverterWorkerPool {
+
+    @Autowired
+    private ConverterProperties converterProperties;
+
+    @Autowired
+    @Qualifier("converterHealthRestTemplate")
+    private RestTemplate healthRestTemplate;
+
+    @Autowired
+    private UnixSocketConverterTransport socketTransport;
+
+    private final List<ConverterWorker> workers = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService healthChecker;
+
+    @PostConstruct
+    public void init() {
+        for (String url : converterProperties.getWorkers()) {
+            workers.add(new ConverterWorker(url));
+        }
+        log.info("转换服务节点: {}", workers);
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ConverterHealthCheck");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = converterProperties.getHealthCheckInterval().toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    /**
+     * 选择未完成请求数最少的健康节点并占用
+     * 调用方必须在请求结束后调用 {@link #release(ConverterWorker)}
+     *
+     * @throws IllegalStateException 没有可用节点时
+     */
+    public ConverterWorker acquire() {
+        return acquire(null, null);
+    }
+
+    /**
+     * 选择能处理该转换类型、除excluded外未完成请求数最少的健康节点并占用
+     *
+     * @param type     转换类型，为null时不限制节点类型
+     * @param excluded 不选择的节点（对冲请求排除主请求的节点），可以为null
+     * @throws IllegalStateException 没有可用节点时
+     */
+    public ConverterWorker acquire(ConversionType type, ConverterWorker excluded) {
+        List<ConverterWorker> snapshot = workers;
+        int size = snapshot.size();
+        if (size == 0) {
+            throw new IllegalStateException("没有配置转换服务节点");
+        }
+        // 从随机位置开始遍历，负载相同时避免总是选中第一个节点
+        int start = ThreadLocalRandom.current().nextInt(size);
+        ConverterWorker best = null;
+        for (int i = 0; i < size; i++) {
+            ConverterWorker worker = snapshot.get((start + i) % size);
+            if (!worker.isHealthy() || worker == excluded || !supports(worker, type)) {
+                continue;
+            }
+            if (best == null || worker.getOutstanding() < best.getOutstanding()) {
+                best = worker;
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("没有可用的转换服务节点");
+        }
+        best.acquire();
+        return best;
+    }
+
+    private static boolean supports(ConverterWorker worker, ConversionType type) {
+        return type != ConversionType.WORD_TO_PDF || !worker.isUnixSocket();
+    }
+
+    /**
+     * 释放节点占用
+     */
+    public void release(ConverterWorker worker) {
+        worker.release();
+    }
+
+    /**
+     * 请求成功，重置节点的失败计数
+     */
+    public void recordSuccess(ConverterWorker worker) {
+        worker.recordSuccess();
+    }
+
+    /**
+     * 请求因连接问题失败（被动健康检查）
+     */
+    public void recordFailure(ConverterWorker worker) {
+        if (worker.recordFailure(converterProperties.getUnhealthyThreshold())) {
+            log.warn("转换服务节点不可用，已移出轮转: {}", worker);
+        }
+    }
+
+    /**
+     * 加入节点
+     */
+    public void addWorker(ConverterWorker worker) {
+        workers.add(worker);
+        log.info("转换服务节点已加入: {}", worker);
+    }
+
+    /**
+     * 移出节点，不再分配新请求，已分配的请求不受影响
+     */
+    public void removeWorker(ConverterWorker worker) {
+        if (workers.remove(worker)) {
+            log.info("转换服务节点已移出: {}", worker);
+        }
+    }
+
+    public List<ConverterWorker> getWorkers() {
+        return Collections.unmodifiableList(workers);
+    }
+
+    /**
+     * 主动探测所有节点
+     */
+    void checkAll() {
+        for (ConverterWorker worker : workers) {
+            boolean wasHealthy = worker.isHealthy();
+            if (probe(worker)) {
+                worker.recordSuccess();
+                if (!wasHealthy) {
+                    log.info("转换服务节点已恢复，重新加入轮转: {}", worker);
+                }
+            } else {
+                recordFailure(worker);
+            }
+        }
+    }
+
+    /**
+     * 探测节点是否可以响应，不改变节点状态
+     */
+    boolean probe(ConverterWorker worker) {
+        try {
+            if (worker.isUnixSocket()) {
+                socketTransport.ping(worker.getSocketPath());
+            } else {
+                healthRestTemplate.getForEntity(worker.getBaseUrl() + converterProperties.getHealthPath(), String.class);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.debug("转换服务节点健康检查失败: {}, {}", worker, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.HedgeProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * 对冲请求策略
+ * 记录近期成功请求按源文件大小归一化的耗时（每MB耗时），对冲等待时间取其分位数再按当前文档大小还原；
+ * 不同转换类型（以及扫描件PDF）的正常耗时相差很大，每一类分别保留样本窗口，只用同类请求的分位数；
+ * 每个请求积累budgetPercent%的对冲额度，发出对冲请求消耗1个额度，对冲请求数不超过流量的固定比例
+ */
+@Component
+public class HedgePolicy {
+
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    @Autowired
+    private HedgeProperties hedgeProperties;
+
+    // 以下字段由策略的监视器保护
+    // 各类请求的样本窗口，下标见 latencyClass
+    private final Window[] windows = new Window[ConversionType.values().length * 2];
+    private double tokens;
+    private long requests;
+    private long hedges;
+    private long hedgeWins;
+
+    public boolean isEnabled() {
+        return hedgeProperties.isEnabled();
+    }
+
+    /**
+     * 记录一次请求并积累对冲额度，返回对冲前应等待的毫秒数，同类请求样本不足时返回-1表示不对冲
+     *
+     * @param type       转换类型
+     * @param scanned    是否为扫描件PDF
+     * @param inputBytes 源文件大小
+     */
+    public synchronized long onRequest(ConversionType type, boolean scanned, long inputBytes) {
+        requests++;
+        tokens = Math.min(Math.max(1, hedgeProperties.getMaxBurst()),
+                tokens + hedgeProperties.getBudgetPercent() / 100);
+        Window window = windows[latencyClass(type, scanned)];
+        if (window == null || window.count < Math.max(1, hedgeProperties.getMinSamples())) {
+            return -1;
+        }
+        double[] sorted = Arrays.copyOf(window.samples, window.count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(hedgeProperties.getPercentile() * window.count) - 1;
+        double perUnit = sorted[Math.max(0, Math.min(window.count - 1, index))];
+        long delay = Math.round(perUnit * (1 + inputBytes / BYTES_PER_MEGABYTE));
+        return Math.max(hedgeProperties.getMinDelay().toMillis(), delay);
+    }
+
+    /**
+     * 尝试消耗一个对冲额度
+     */
+    public synchronized boolean tryHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        hedges++;
+        return true;
+    }
+
+    /**
+     * 记录成功请求的耗时，计入同类请求的样本窗口
+     */
+    public synchronized void recordLatency(ConversionType type, boolean scanned, long latencyMillis, long inputBytes) {
+        int size = Math.max(1, hedgeProperties.getWindow());
+        int index = latencyClass(type, scanned);
+        Window window = windows[index];
+        if (window == null || window.samples.length != size) {
+            window = new Window(size);
+            windows[index] = window;
+        }
+        window.samples[window.next] = latencyMillis / (1 + inputBytes / BYTES_PER_MEGABYTE);
+        window.next = (window.next + 1) % size;
+        window.count = Math.min(size, window.count + 1);
+    }
+
+    public synchronized void recordHedgeWin() {
+        hedgeWins++;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getHedges() {
+        return hedges;
+    }
+
+    public synchronized long getHedgeWins() {
+        return hedgeWins;
+    }
+
+    private static int latencyClass(ConversionType type, boolean scanned) {
+        return type.ordinal() * 2 + (scanned ? 1 : 0);
+    }
+
+    private static final class Window {
+        private final double[] samples;
+        private int count;
+        private int next;
+
+        private Window(int size) {
+            this.samples = new double[size];
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Python转换服务客户端
+ * 按转换类型调用对应的Python API端点，并将结果写入输出文件；
+ * 请求通过连接池发送到 {@link ConverterWorkerPool} 选出的节点，unix: 地址的节点通过 {@link UnixSocketConverterTransport} 调用；
+ * 发送前经过 {@link CircuitBreaker} 和 {@link AdaptiveConcurrencyLimiter}，转换服务不健康时快速失败，过载时限制并发；
+ * 可选的对冲请求（{@link HedgePolicy}）降低个别节点卡住时的长尾延迟
+ */
+@Slf4j
+@Component
+public class PythonConverterClient {
+
+    // 响应体写入输出时使用的固定缓冲区大小
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CONVERT_PATH = "/convert";
+
+    private static final String BATCH_PATH = "/batch";
+
+    @Autowired
+    @Qualifier("converterRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ConverterWorkerPool workerPool;
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    private HedgePolicy hedgePolicy;
+
+    @Autowired
+    private UnixSocketConverterTransport socketTransport;
+
+    @Autowired
+    @Qualifier("hedgeExecutor")
+    private ThreadPoolTaskExecutor hedgeExecutor;
+
+    // 到达对冲时间时发出对冲请求，只负责计时，请求在hedgeExecutor上执行
+    private final ScheduledExecutorService hedgeTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ConverterHedgeTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 调用Python API执行转换
+     * 请求路由到未完成请求数最少的健康节点，请求体从源文件或内存缓冲区流式读取，响应体通过固定大小的缓冲区直接写入输出，
+     * 单个任务占用的内存与文档大小无关；启用对冲时，请求超过近期耗时的分位数仍未完成会向另一个节点发出相同请求，
+     * 采用先完成的结果并中止另一个请求
+     *
+     * @param type    转换类型
+     * @param scanned 是否为扫描件PDF，扫描件的耗时单独统计
+     * @param input   源文件内容
+     * @param output  转换结果
+     */
+    public void convert(ConversionType type, boolean scanned, DocumentContent input, DocumentContent output)
+            throws Exception {
+        long inputBytes = input.size();
+        ConverterWorker worker = acquireWorker(type);
+        Attempt primary = new Attempt(worker, output);
+        long delay = hedgePolicy.isEnabled() ? hedgePolicy.onRequest(type, scanned, inputBytes) : -1;
+        if (delay < 0) {
+            attempt(primary, type, scanned, input, inputBytes);
+            return;
+        }
+
+        HedgedCall call = new HedgedCall(primary);
+        ScheduledFuture<?> timer = hedgeTimer.schedule(() -> launchHedge(call, type, scanned, input, inputBytes),
+                delay, TimeUnit.MILLISECONDS);
+        Exception primaryError = null;
+        try {
+            attempt(primary, type, scanned, input, inputBytes);
+        } catch (Exception e) {
+            primaryError = e;
+        }
+        timer.cancel(false);
+        Attempt hedge = call.finishPrimary(primaryError == null);
+        if (call.getWinner() == primary) {
+            if (hedge != null) {
+                hedge.cancel();
+            }
+            return;
+        }
+        if (hedge == null) {
+            throw primaryError;
+        }
+        // 主请求失败或被中止，等待对冲请求的结果
+        call.awaitHedge();
+        if (call.getWinner() != hedge) {
+            throw primaryError;
+        }
+        output.replaceWith(hedge.target);
+        hedgePolicy.recordHedgeWin();
+        log.info("对冲请求先完成，节点: {}, 输出: {}", hedge.worker, output);
+    }
+
+    /**
+     * 在一次请求中批量执行Word转PDF，转换服务在同一个Word实例中依次转换所有文档
+     * 批量请求不对冲，只发往HTTP节点
+     *
+     * @param inputs  源文件内容
+     * @param outputs 与源文件一一对应的转换结果
+     * @return 与源文件一一对应的错误信息，转换成功的文档为null
+     * @throws IllegalStateException 没有可用的HTTP节点时
+     * @throws Exception 整个请求失败时
+     */
+    public List<String> convertBatch(List<DocumentContent> inputs, List<DocumentContent> outputs) throws Exception {
+        long inputBytes = 0;
+        for (DocumentContent input : inputs) {
+            inputBytes += input.size();
+        }
+        // 按Word转PDF选择节点，只会选中HTTP节点
+        ConverterWorker worker = acquireWorker(ConversionType.WORD_TO_PDF);
+        List<String> errors = new ArrayList<>(inputs.size());
+        execute(new Attempt(worker, null), ConversionType.WORD_TO_PDF, false, inputBytes,
+                () -> errors.addAll(convertBatch(worker, inputs, outputs)));
+        return errors;
+    }
+
+    /**
+     * 依次通过熔断器、并发限制和节点池获得一个能处理该转换类型的节点
+     * 调度器已按并发上限派发任务，占用并发许可不会等待
+     */
+    private ConverterWorker acquireWorker(ConversionType type) {
+        circuitBreaker.acquirePermission();
+        limiter.acquire();
+        try {
+            return workerPool.acquire(type, null);
+        } catch (RuntimeException e) {
+            limiter.onIgnored();
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * 到达对冲时间后向另一个节点发出相同请求，受对冲额度、并发上限和熔断状态限制
+     */
+    private void launchHedge(HedgedCall call, ConversionType type, boolean scanned, DocumentContent input,
+                             long inputBytes) {
+        if (call.isPrimaryDone() || circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            return;
+        }
+        ConverterWorker worker;
+        try {
+            worker = workerPool.acquire(type, call.primary.worker);
+        } catch (IllegalStateException e) {
+            limiter.onIgnored();
+            return;
+        }
+        if (!hedgePolicy.tryHedge()) {
+            workerPool.release(worker);
+            limiter.onIgnored();
+            return;
+        }
+        DocumentContent target = call.primary.target.sibling(".hedge");
+        Attempt hedge = new Attempt(worker, target);
+        if (!call.startHedge(hedge)) {
+            workerPool.release(worker);
+            limiter.onIgnored();
+            return;
+        }
+        log.info("转换请求超时未完成，向节点 {} 发出对冲请求", worker);
+        try {
+            hedgeExecutor.execute(() -> runHedge(call, hedge, type, scanned, input, inputBytes));
+        } catch (RejectedExecutionException e) {
+            workerPool.release(worker);
+            limiter.onIgnored();
+            call.finishHedge(hedge, false);
+        }
+    }
+
+    private void runHedge(HedgedCall call, Attempt hedge, ConversionType type, boolean scanned, DocumentContent input,
+                          long inputBytes) {
+        boolean success = false;
+        try {
+            attempt(hedge, type, scanned, input, inputBytes);
+            success = true;
+        } catch (Exception e) {
+            log.debug("对冲请求未完成，节点: {}, 原因: {}", hedge.worker, e.getMessage());
+        } finally {
+            if (!call.finishHedge(hedge, success)) {
+                deleteQuietly(hedge.target);
+            }
+        }
+    }
+
+    /**
+     * 在已占用的节点上执行一次请求，并记录节点健康、并发限制和熔断的结果；被中止的请求不计入统计
+     */
+    private void attempt(Attempt attempt, ConversionType type, boolean scanned, DocumentContent input, long inputBytes)
+            throws Exception {
+        ConverterWorker worker = attempt.worker;
+        execute(attempt, type, scanned, inputBytes, () -> {
+            if (worker.isUnixSocket()) {
+                socketTransport.convert(worker.getSocketPath(), type, input, attempt.target, attempt::register);
+            } else {
+                convert(worker, type, input, attempt.target);
+            }
+        });
+    }
+
+    private void execute(Attempt attempt, ConversionType type, boolean scanned, long inputBytes, Call call)
+            throws Exception {
+        ConverterWorker worker = attempt.worker;
+        long start = System.currentTimeMillis();
+        AbortableRequestFactory.listen(request -> attempt.register(request::abort));
+        try {
+            call.run();
+            long latency = System.currentTimeMillis() - start;
+            workerPool.recordSuccess(worker);
+            limiter.onSuccess(type, scanned, latency, inputBytes);
+            circuitBreaker.onSuccess();
+            hedgePolicy.recordLatency(type, scanned, latency, inputBytes);
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            // 连接失败、超时、502/503/504及其他5xx，说明转换服务本身有问题
+            if (attempt.cancelled) {
+                limiter.onIgnored();
+                throw e;
+            }
+            if (e instanceof ResourceAccessException) {
+                // 连接失败或超时，计入节点的被动健康检查
+                workerPool.recordFailure(worker);
+            }
+            limiter.onDropped();
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (Exception e) {
+            // 4xx（文档本身无法转换时为422）等错误，转换服务仍然正常响应，不影响并发上限和熔断
+            limiter.onIgnored();
+            if (!attempt.cancelled) {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        } finally {
+            AbortableRequestFactory.clear();
+            workerPool.release(worker);
+        }
+    }
+
+    private void deleteQuietly(DocumentContent content) {
+        try {
+            content.delete();
+        } catch (IOException e) {
+            log.warn("清理对冲请求输出文件失败: {}", content);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeTimer.shutdownNow();
+    }
+
+    /**
+     * 通过HTTP在指定节点上执行转换
+     */
+    private void convert(ConverterWorker worker, ConversionType type, DocumentContent input, DocumentContent output)
+            throws Exception {
+        String url = worker.getBaseUrl() + CONVERT_PATH + type.getEndpoint();
+
+        // 构建多部分表单数据
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", resource(input));
+
+        // 设置请求头
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        // 创建请求实体
+        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+        // 发送请求并将响应流式写入输出
+        log.debug("调用Python API进行{}: {}", type.getDescription(), url);
+        Long written = restTemplate.execute(
+                url,
+                HttpMethod.POST,
+                restTemplate.httpEntityCallback(requestEntity),
+                response -> {
+                    // 检查响应状态
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new IOException("Python API调用失败: " + response.getStatusCode());
+                    }
+                    return transferTo(response.getBody(), output);
+                }
+        );
+
+        if (written == null || written == 0) {
+            throw new Exception("Python API返回空响应");
+        }
+        log.debug("{}成功，输出: {}, 大小: {} 字节", type.getDescription(), output, written);
+    }
+
+    /**
+     * 通过HTTP在指定节点上执行批量Word转PDF
+     * 响应为ZIP：第i个文档成功时包含 i.pdf，失败时包含 i.error
+     */
+    private List<String> convertBatch(ConverterWorker worker, List<DocumentContent> inputs,
+                                      List<DocumentContent> outputs) {
+        String url = worker.getBaseUrl() + CONVERT_PATH + ConversionType.WORD_TO_PDF.getEndpoint() + BATCH_PATH;
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        for (DocumentContent input : inputs) {
+            body.add("files", resource(input));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+        log.debug("调用Python API批量Word转PDF: {}, 文档数: {}", url, inputs.size());
+        return restTemplate.execute(
+                url,
+                HttpMethod.POST,
+                restTemplate.httpEntityCallback(requestEntity),
+                response -> {
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new IOException("Python API调用失败: " + response.getStatusCode());
+                    }
+                    List<String> errors = new ArrayList<>(Collections.nCopies(inputs.size(), "转换服务未返回该文档的结果"));
+                    try (ZipInputStream zip = new ZipInputStream(response.getBody())) {
+                        ZipEntry entry;
+                        while ((entry = zip.getNextEntry()) != null) {
+                            String name = entry.getName();
+                            int dot = name.indexOf('.');
+                            int index = dot > 0 ? parseIndex(name.substring(0, dot)) : -1;
+                            if (index < 0 || index >= inputs.size()) {
+                                continue;
+                            }
+                            if (name.endsWith(".error")) {
+                                errors.set(index, new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+                            } else {
+                                transferTo(zip, outputs.get(index));
+                                errors.set(index, null);
+                            }
+                        }
+                    }
+                    return errors;
+                }
+        );
+    }
+
+    private int parseIndex(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 通过固定大小的缓冲区将输入流写入输出，不关闭输入流
+     *
+     * @return 写入的字节数
+     */
+    private long transferTo(InputStream in, DocumentContent output) throws IOException {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        long total = 0;
+        try (OutputStream target = output.openOutput()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                target.write(buffer, 0, read);
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 请求体中的文件部分，本地文件使用文件资源，内存中的内容直接读取缓冲区
+     */
+    private Resource resource(DocumentContent content) {
+        return content.isInMemory() ? new ContentResource(content) : new FileSystemResource(content.getPath());
+    }
+
+    /**
+     * 内存中的文件内容，提供文件名和长度以生成multipart请求头
+     */
+    private static final class ContentResource extends AbstractResource {
+        private final DocumentContent content;
+
+        private ContentResource(DocumentContent content) {
+            this.content = content;
+        }
+
+        @Override
+        public String getFilename() {
+            return content.getPath().getFileName().toString();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return content.size();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return content.openInput();
+        }
+
+        @Override
+        public String getDescription() {
+            return "内存文件 [" + content + "]";
+        }
+    }
+
+    /**
+     * 在节点上执行的一次调用
+     */
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    /**
+     * 发往一个节点的一次请求
+     */
+    private static final class Attempt {
+        private final ConverterWorker worker;
+        private final DocumentContent target;
+        private volatile Runnable abort;
+        private volatile boolean cancelled;
+
+        private Attempt(ConverterWorker worker, DocumentContent target) {
+            this.worker = worker;
+            this.target = target;
+        }
+
+        private void register(Runnable abort) {
+            this.abort = abort;
+            if (cancelled) {
+                abort.run();
+            }
+        }
+
+        /**
+         * 中止请求，正在等待响应或读取响应体的线程会立即抛出异常
+         */
+        private void cancel() {
+            cancelled = true;
+            Runnable current = abort;
+            if (current != null) {
+                current.run();
+            }
+        }
+    }
+
+    /**
+     * 一次对冲调用中主请求和对冲请求的协调状态，先成功的请求成为winner，另一个被中止
+     */
+    private static final class HedgedCall {
+        private final Attempt primary;
+        private final CountDownLatch hedgeDone = new CountDownLatch(1);
+        // 以下字段由调用状态的监视器保护
+        private Attempt hedge;
+        private Attempt winner;
+        private boolean primaryDone;
+
+        private HedgedCall(Attempt primary) {
+            this.primary = primary;
+        }
+
+        private synchronized boolean isPrimaryDone() {
+            return primaryDone;
+        }
+
+        private synchronized Attempt getWinner() {
+            return winner;
+        }
+
+        private synchronized boolean startHedge(Attempt attempt) {
+            if (primaryDone || winner != null) {
+                return false;
+            }
+            hedge = attempt;
+            return true;
+        }
+
+        /**
+         * 主请求结束，成功且对冲请求尚未成功时主请求胜出
+         *
+         * @return 已发出的对冲请求，没有时返回null
+         */
+        private synchronized Attempt finishPrimary(boolean success) {
+            primaryDone = true;
+            if (success && winner == null) {
+                winner = primary;
+            }
+            return hedge;
+        }
+
+        /**
+         * 对冲请求结束，成功且主请求尚未成功时对冲请求胜出并中止主请求
+         *
+         * @return 对冲请求是否胜出
+         */
+        private boolean finishHedge(Attempt attempt, boolean success) {
+            boolean won;
+            synchronized (this) {
+                won = success && winner == null;
+                if (won) {
+                    winner = attempt;
+                }
+            }
+            if (won) {
+                primary.cancel();
+            }
+            hedgeDone.countDown();
+            return won;
+        }
+
+        private void awaitHedge() throws InterruptedException {
+            hedgeDone.await();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.ConverterProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 通过Unix域套接字调用同机部署的转换服务
+ * 使用长度前缀的二进制帧，所有整数为大端序，字符串为 int长度 + UTF-8字节：
+ * <pre>
+ * 请求: int magic | byte version | byte op | string endpoint | 参数
+ *   op=PING           无参数
+ *   op=CONVERT_PATH   string inputPath | string outputPath   转换服务直接读写本地文件
+ *   op=CONVERT_STREAM string filename | long length | 文件内容
+ * 响应: byte status（0成功，1失败）| 成功且为STREAM时 long length | 文件内容；失败时 string message
+ * </pre>
+ * PATH模式没有文件内容的复制和HTTP解析，要求转换服务能访问本服务的上传目录；源文件在内存中时使用STREAM模式，
+ * 内容直接从缓冲区写入套接字
+ */
+@Slf4j
+@Component
+public class UnixSocketConverterTransport {
+
+    static final int MAGIC = 0x50545755;
+    static final byte VERSION = 1;
+    static final byte OP_PING = 0;
+    static final byte OP_CONVERT_PATH = 1;
+    static final byte OP_CONVERT_STREAM = 2;
+    static final byte STATUS_OK = 0;
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ConverterProperties converterProperties;
+
+    // 读取超时后关闭通道，Unix域套接字通道不支持SO_TIMEOUT
+    private final ScheduledExecutorService timeoutTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ConverterSocketTimeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 执行转换
+     *
+     * @param onOpen 连接建立后接收中止动作，其他线程调用该动作会关闭连接并使本次调用失败
+     * @throws ResourceAccessException 连接失败、超时或连接中断
+     * @throws IOException             转换服务返回错误
+     */
+    public void convert(Path socketPath, ConversionType type, DocumentContent input, DocumentContent output,
+                        Consumer<Runnable> onOpen) throws IOException {
+        ByteBuffer buffer = input.asReadOnlyBuffer();
+        boolean stream = buffer != null
+                || converterProperties.getSocketTransferMode() == ConverterProperties.SocketTransferMode.STREAM;
+        Path inputPath = input.getPath();
+        Path outputPath = output.getPath();
+        String error = call(socketPath, converterProperties.getReadTimeout().toMillis(), onOpen, (channel, out) -> {
+            out.writeByte(stream ? OP_CONVERT_STREAM : OP_CONVERT_PATH);
+            writeString(out, type.getEndpoint());
+            if (buffer != null) {
+                writeString(out, inputPath.getFileName().toString());
+                out.writeLong(buffer.remaining());
+                out.flush();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } else if (stream) {
+                writeString(out, inputPath.getFileName().toString());
+                try (FileChannel file = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+                    out.writeLong(file.size());
+                    out.flush();
+                    long position = 0;
+                    long size = file.size();
+                    while (position < size) {
+                        position += file.transferTo(position, size - position, channel);
+                    }
+                }
+            } else {
+                writeString(out, inputPath.toAbsolutePath().toString());
+                writeString(out, outputPath.toAbsolutePath().toString());
+                out.flush();
+            }
+        }, in -> {
+            if (stream) {
+                copyTo(in, in.readLong(), output);
+            }
+        });
+        if (error != null) {
+            throw new IOException("转换服务返回错误: " + error);
+        }
+        if (!stream) {
+            output.markOnDisk();
+        }
+    }
+
+    /**
+     * 探测节点是否可用
+     */
+    public void ping(Path socketPath) throws IOException {
+        String error = call(socketPath, converterProperties.getHealthCheckTimeout().toMillis(), abort -> {
+        }, (channel, out) -> {
+            out.writeByte(OP_PING);
+            writeString(out, "");
+            out.flush();
+        }, in -> {
+        });
+        if (error != null) {
+            throw new IOException("转换服务返回错误: " + error);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeoutTimer.shutdownNow();
+    }
+
+    private String call(Path socketPath, long timeoutMillis, Consumer<Runnable> onOpen,
+                        RequestWriter writer, ResponseReader reader) throws IOException {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            Runnable abort = () -> closeQuietly(channel);
+            ScheduledFuture<?> timeout = timeoutTimer.schedule(() -> {
+                timedOut.set(true);
+                abort.run();
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socketPath));
+                onOpen.accept(abort);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), TRANSFER_BUFFER_SIZE));
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                writer.write(channel, out);
+
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Channels.newInputStream(channel), TRANSFER_BUFFER_SIZE));
+                if (in.readByte() != STATUS_OK) {
+                    return readString(in);
+                }
+                reader.read(in);
+                return null;
+            } finally {
+                timeout.cancel(false);
+            }
+        } catch (IOException e) {
+            String reason = timedOut.get() ? "读取超时" : e.getMessage();
+            throw new ResourceAccessException("Unix域套接字调用失败: " + socketPath + ", " + reason, e);
+        }
+    }
+
+    private void copyTo(DataInputStream in, long length, DocumentContent output) throws IOException {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        try (OutputStream target = output.openOutput()) {
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("响应内容不完整");
+                }
+                target.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("关闭Unix域套接字失败: {}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestWriter {
+        void write(SocketChannel channel, DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader {
+        void read(DataInputStream in) throws IOException;
+    }
+}
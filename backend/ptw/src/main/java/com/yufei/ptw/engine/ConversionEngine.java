@@ -0,0 +1,32 @@
+package com.yufei.ptw.engine;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.CostEstimate;
+
+/**
+ * 转换引擎SPI
+ * 实现类注册为Spring Bean并通过 {@link org.springframework.core.annotation.Order} 指定优先级，
+ * {@link ConversionEngineSelector} 按优先级依次尝试，引擎无法忠实转换时抛出 {@link UnsupportedDocumentException} 交给下一个引擎
+ */
+public interface ConversionEngine {
+
+    /**
+     * 引擎名称，记录在任务上
+     */
+    String getName();
+
+    /**
+     * 根据转换类型和源文件做快速判断，是否值得尝试由本引擎转换
+     */
+    boolean supports(ConversionType type, DocumentContent source);
+
+    /**
+     * 执行转换，结果写入output，源文件和结果都可能只在内存中
+     *
+     * @param estimate 任务的成本估算（包括是否为扫描件），未估算时为null
+     * @throws UnsupportedDocumentException 文档包含本引擎无法忠实处理的内容
+     */
+    void convert(ConversionType type, CostEstimate estimate, DocumentContent source, DocumentContent output)
+            throws Exception;
+}
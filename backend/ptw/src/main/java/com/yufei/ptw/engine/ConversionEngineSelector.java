@@ -0,0 +1,58 @@
+package com.yufei.ptw.engine;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.CostEstimate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 转换引擎选择器
+ * 按优先级依次尝试支持该转换的引擎，引擎报告无法忠实转换或转换出错时回退到下一个引擎，
+ * 所有引擎都失败时抛出最后一个引擎的异常
+ */
+@Slf4j
+@Component
+public class ConversionEngineSelector {
+
+    // 按@Order排序注入
+    @Autowired
+    private List<ConversionEngine> engines;
+
+    /**
+     * 执行转换
+     *
+     * @return 实际完成转换的引擎名称
+     */
+    public String convert(ConversionType type, CostEstimate estimate, DocumentContent source, DocumentContent output)
+            throws Exception {
+        Exception failure = null;
+        for (ConversionEngine engine : engines) {
+            if (!engine.supports(type, source)) {
+                continue;
+            }
+            try {
+                engine.convert(type, estimate, source, output);
+                return engine.getName();
+            } catch (InterruptedException e) {
+                output.delete();
+                throw e;
+            } catch (UnsupportedDocumentException e) {
+                log.info("{}引擎无法处理该文档，回退到下一个引擎: {}", engine.getName(), e.getMessage());
+                output.delete();
+            } catch (Exception e) {
+                // 解析或渲染出错（如损坏的图片、XML错误），交给下一个引擎重新转换
+                log.warn("{}引擎转换失败: {}", engine.getName(), e.toString());
+                output.delete();
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        throw new UnsupportedOperationException("没有可用的转换引擎: " + type.getDescription());
+    }
+}
@@ -0,0 +1,410 @@
+package com.yufei.ptw.engine;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.apache.poi.common.usermodel.PictureType;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.UnderlinePatterns;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFPicture;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFStyle;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDrawing;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTOnOff;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageMar;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageSz;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblGridCol;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STBrType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DOCX到PDF的渲染器
+ * 逐个遍历正文中的段落和表格，按页面设置、段落格式、字符格式生成对应的iText元素；
+ * 遇到无法忠实渲染的元素时抛出 {@link UnsupportedDocumentException}
+ */
+class DocxPdfRenderer {
+
+    private static final float TWIPS_PER_POINT = 20f;
+    private static final float DEFAULT_MARGIN = 72f;
+    private static final float DEFAULT_FONT_SIZE = 10.5f;
+    private static final int MAX_STYLE_DEPTH = 10;
+    private static final Set<PictureType> SUPPORTED_PICTURES =
+            EnumSet.of(PictureType.PNG, PictureType.JPEG, PictureType.GIF, PictureType.BMP);
+
+    private final XWPFDocument document;
+    private final PoiItextConversionEngine fonts;
+    // 列表编号计数器：numId:ilvl -> 当前序号
+    private final Map<String, Integer> listCounters = new HashMap<>();
+
+    DocxPdfRenderer(XWPFDocument document, PoiItextConversionEngine fonts) {
+        this.document = document;
+        this.fonts = fonts;
+    }
+
+    void render(OutputStream out) throws IOException, DocumentException, UnsupportedDocumentException {
+        Rectangle pageSize = PageSize.A4;
+        float marginLeft = DEFAULT_MARGIN, marginRight = DEFAULT_MARGIN, marginTop = DEFAULT_MARGIN, marginBottom = DEFAULT_MARGIN;
+        CTSectPr sectPr = document.getDocument().getBody().getSectPr();
+        if (sectPr != null) {
+            CTPageSz pgSz = sectPr.getPgSz();
+            if (pgSz != null && pgSz.getW() != null && pgSz.getH() != null) {
+                pageSize = new Rectangle(toPoints(pgSz.getW(), pageSize.getWidth()), toPoints(pgSz.getH(), pageSize.getHeight()));
+            }
+            CTPageMar pgMar = sectPr.getPgMar();
+            if (pgMar != null) {
+                marginLeft = toPoints(pgMar.getLeft(), DEFAULT_MARGIN);
+                marginRight = toPoints(pgMar.getRight(), DEFAULT_MARGIN);
+                marginTop = toPoints(pgMar.getTop(), DEFAULT_MARGIN);
+                marginBottom = toPoints(pgMar.getBottom(), DEFAULT_MARGIN);
+            }
+        }
+
+        Document pdf = new Document(pageSize, marginLeft, marginRight, marginTop, marginBottom);
+        PdfWriter.getInstance(pdf, out).setCloseStream(false);
+        pdf.open();
+        for (IBodyElement element : document.getBodyElements()) {
+            if (element instanceof XWPFParagraph) {
+                renderBodyParagraph(pdf, (XWPFParagraph) element);
+            } else if (element instanceof XWPFTable) {
+                pdf.add(buildTable((XWPFTable) element));
+            }
+        }
+        pdf.close();
+    }
+
+    /**
+     * 渲染正文段落，遇到分页符时另起一页
+     */
+    private void renderBodyParagraph(Document pdf, XWPFParagraph paragraph) throws DocumentException, IOException, UnsupportedDocumentException {
+        if (paragraph.isPageBreak()) {
+            pdf.newPage();
+        }
+        List<Paragraph> segments = buildParagraph(paragraph);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i > 0) {
+                pdf.newPage();
+            }
+            pdf.add(segments.get(i));
+        }
+    }
+
+    /**
+     * 将一个Word段落转换为iText段落，按段内分页符拆分为多段
+     */
+    private List<Paragraph> buildParagraph(XWPFParagraph paragraph) throws DocumentException, IOException, UnsupportedDocumentException {
+        List<Paragraph> segments = new ArrayList<>();
+        Paragraph current = newParagraph(paragraph);
+        String prefix = listPrefix(paragraph);
+        if (prefix != null) {
+            current.add(new Chunk(prefix, fonts.font(styleFontSize(paragraph.getStyleID()), Font.NORMAL, BaseColor.BLACK)));
+        }
+
+        for (XWPFRun run : paragraph.getRuns()) {
+            CTR ctr = run.getCTR();
+            if (!ctr.getPictList().isEmpty() || !ctr.getObjectList().isEmpty()) {
+                throw new UnsupportedDocumentException("包含VML图形或OLE对象");
+            }
+            for (CTDrawing drawing : ctr.getDrawingList()) {
+                if (!drawing.getAnchorList().isEmpty()) {
+                    throw new UnsupportedDocumentException("包含浮动图片");
+                }
+            }
+            for (XWPFPicture picture : run.getEmbeddedPictures()) {
+                current.add(buildImage(picture));
+            }
+
+            String text = run.text();
+            if (!text.isEmpty()) {
+                if (!fonts.canRender(text)) {
+                    throw new UnsupportedDocumentException("字体不支持文档中的字符");
+                }
+                current.add(new Chunk(text.replace("\t", "    "), runFont(paragraph, run)));
+            }
+
+            for (CTBr br : ctr.getBrList()) {
+                if (br.getType() == STBrType.PAGE) {
+                    segments.add(current);
+                    current = newParagraph(paragraph);
+                }
+            }
+        }
+        if (current.isEmpty()) {
+            // 空段落保留一行高度
+            current.add(new Chunk(" ", fonts.font(styleFontSize(paragraph.getStyleID()), Font.NORMAL, BaseColor.BLACK)));
+        }
+        segments.add(current);
+        return segments;
+    }
+
+    private Paragraph newParagraph(XWPFParagraph paragraph) {
+        Paragraph result = new Paragraph();
+        result.setAlignment(alignment(paragraph.getAlignment()));
+        result.setLeading(0, 1.2f);
+        if (paragraph.getSpacingBefore() > 0) {
+            result.setSpacingBefore(paragraph.getSpacingBefore() / TWIPS_PER_POINT);
+        }
+        if (paragraph.getSpacingAfter() > 0) {
+            result.setSpacingAfter(paragraph.getSpacingAfter() / TWIPS_PER_POINT);
+        }
+        if (paragraph.getIndentationLeft() > 0) {
+            result.setIndentationLeft(paragraph.getIndentationLeft() / TWIPS_PER_POINT);
+        }
+        if (paragraph.getIndentationFirstLine() > 0) {
+            result.setFirstLineIndent(paragraph.getIndentationFirstLine() / TWIPS_PER_POINT);
+        }
+        return result;
+    }
+
+    /**
+     * 列表项前缀，只支持项目符号和阿拉伯数字编号
+     */
+    private String listPrefix(XWPFParagraph paragraph) throws UnsupportedDocumentException {
+        String numFmt = paragraph.getNumFmt();
+        if (numFmt == null) {
+            return null;
+        }
+        int level = paragraph.getNumIlvl() != null ? paragraph.getNumIlvl().intValue() : 0;
+        String indent = "    ".repeat(level);
+        if ("bullet".equals(numFmt)) {
+            return indent + "• ";
+        }
+        if ("decimal".equals(numFmt)) {
+            String numId = String.valueOf(paragraph.getNumID());
+            int value = listCounters.merge(numId + ":" + level, 1, Integer::sum);
+            // 上一级序号递增时，重置更深层级的计数
+            listCounters.keySet().removeIf(key -> key.startsWith(numId + ":")
+                    && Integer.parseInt(key.substring(numId.length() + 1)) > level);
+            return indent + value + ". ";
+        }
+        throw new UnsupportedDocumentException("不支持的列表编号格式: " + numFmt);
+    }
+
+    private Chunk buildImage(XWPFPicture picture) throws UnsupportedDocumentException, IOException, DocumentException {
+        PictureType pictureType = picture.getPictureData().getPictureTypeEnum();
+        if (!SUPPORTED_PICTURES.contains(pictureType)) {
+            throw new UnsupportedDocumentException("不支持的图片格式: " + pictureType);
+        }
+        Image image = Image.getInstance(picture.getPictureData().getData());
+        if (picture.getWidth() > 0 && picture.getDepth() > 0) {
+            image.scaleAbsolute((float) picture.getWidth(), (float) picture.getDepth());
+        }
+        return new Chunk(image, 0, 0, true);
+    }
+
+    private PdfPTable buildTable(XWPFTable table) throws DocumentException, IOException, UnsupportedDocumentException {
+        int columns = 0;
+        for (XWPFTableRow row : table.getRows()) {
+            int span = 0;
+            for (XWPFTableCell cell : row.getTableCells()) {
+                span += gridSpan(cell);
+            }
+            columns = Math.max(columns, span);
+        }
+        if (columns == 0) {
+            throw new UnsupportedDocumentException("空表格");
+        }
+
+        PdfPTable pdfTable = new PdfPTable(columns);
+        pdfTable.setWidthPercentage(100);
+        pdfTable.setSpacingAfter(6);
+        List<CTTblGridCol> gridCols = table.getCTTbl().getTblGrid() != null
+                ? table.getCTTbl().getTblGrid().getGridColList() : List.of();
+        if (gridCols.size() == columns) {
+            float[] widths = new float[columns];
+            for (int i = 0; i < columns; i++) {
+                widths[i] = Math.max(1f, toPoints(gridCols.get(i).getW(), 1f));
+            }
+            pdfTable.setWidths(widths);
+        }
+
+        for (XWPFTableRow row : table.getRows()) {
+            int used = 0;
+            for (XWPFTableCell cell : row.getTableCells()) {
+                CTTcPr tcPr = cell.getCTTc().getTcPr();
+                if (tcPr != null && tcPr.isSetVMerge()) {
+                    throw new UnsupportedDocumentException("包含纵向合并的单元格");
+                }
+                if (!cell.getTables().isEmpty()) {
+                    throw new UnsupportedDocumentException("包含嵌套表格");
+                }
+                PdfPCell pdfCell = new PdfPCell();
+                pdfCell.setColspan(gridSpan(cell));
+                pdfCell.setPadding(4);
+                BaseColor background = color(cell.getColor());
+                if (background != null) {
+                    pdfCell.setBackgroundColor(background);
+                }
+                for (XWPFParagraph paragraph : cell.getParagraphs()) {
+                    for (Paragraph segment : buildParagraph(paragraph)) {
+                        pdfCell.addElement(segment);
+                    }
+                }
+                pdfTable.addCell(pdfCell);
+                used += gridSpan(cell);
+            }
+            // 补齐不完整的行，否则iText不会输出该行
+            for (; used < columns; used++) {
+                PdfPCell filler = new PdfPCell();
+                filler.setBorder(Rectangle.NO_BORDER);
+                pdfTable.addCell(filler);
+            }
+        }
+        return pdfTable;
+    }
+
+    private int gridSpan(XWPFTableCell cell) {
+        CTTcPr tcPr = cell.getCTTc().getTcPr();
+        if (tcPr != null && tcPr.isSetGridSpan() && tcPr.getGridSpan().getVal() != null) {
+            return Math.max(1, tcPr.getGridSpan().getVal().intValue());
+        }
+        return 1;
+    }
+
+    private Font runFont(XWPFParagraph paragraph, XWPFRun run) throws IOException, DocumentException {
+        CTRPr rPr = run.getCTR().getRPr();
+        Double runSize = run.getFontSizeAsDouble();
+        float size = runSize != null ? runSize.floatValue() : styleFontSize(paragraph.getStyleID());
+        boolean bold = rPr != null && !rPr.getBList().isEmpty() ? run.isBold() : styleFlag(paragraph.getStyleID(), true);
+        boolean italic = rPr != null && !rPr.getIList().isEmpty() ? run.isItalic() : styleFlag(paragraph.getStyleID(), false);
+
+        int style = Font.NORMAL;
+        if (bold) {
+            style |= Font.BOLD;
+        }
+        if (italic) {
+            style |= Font.ITALIC;
+        }
+        if (run.getUnderline() != null && run.getUnderline() != UnderlinePatterns.NONE) {
+            style |= Font.UNDERLINE;
+        }
+        if (run.isStrikeThrough()) {
+            style |= Font.STRIKETHRU;
+        }
+        BaseColor color = color(run.getColor());
+        return fonts.font(size, style, color != null ? color : BaseColor.BLACK);
+    }
+
+    /**
+     * 沿段落样式的继承链查找字号，找不到时使用文档默认字号
+     */
+    private float styleFontSize(String styleId) {
+        for (CTRPr rPr : styleChain(styleId)) {
+            if (!rPr.getSzList().isEmpty() && rPr.getSzList().get(0).getVal() != null) {
+                return Float.parseFloat(rPr.getSzList().get(0).getVal().toString()) / 2f;
+            }
+        }
+        Double defaultSize = document.getStyles() != null && document.getStyles().getDefaultRunStyle() != null
+                ? document.getStyles().getDefaultRunStyle().getFontSizeAsDouble() : null;
+        return defaultSize != null ? defaultSize.floatValue() : DEFAULT_FONT_SIZE;
+    }
+
+    /**
+     * 沿段落样式的继承链查找粗体(bold=true)或斜体(bold=false)设置
+     */
+    private boolean styleFlag(String styleId, boolean bold) {
+        for (CTRPr rPr : styleChain(styleId)) {
+            List<CTOnOff> flags = bold ? rPr.getBList() : rPr.getIList();
+            if (!flags.isEmpty()) {
+                return isOn(flags.get(0));
+            }
+        }
+        return false;
+    }
+
+    private List<CTRPr> styleChain(String styleId) {
+        List<CTRPr> chain = new ArrayList<>();
+        if (document.getStyles() == null) {
+            return chain;
+        }
+        String id = styleId != null ? styleId : "Normal";
+        for (int depth = 0; id != null && depth < MAX_STYLE_DEPTH; depth++) {
+            XWPFStyle style = document.getStyles().getStyle(id);
+            if (style == null) {
+                break;
+            }
+            if (style.getCTStyle().getRPr() != null) {
+                chain.add(style.getCTStyle().getRPr());
+            }
+            id = style.getBasisStyleID();
+        }
+        return chain;
+    }
+
+    private static boolean isOn(CTOnOff onOff) {
+        Object val = onOff.getVal();
+        if (val == null) {
+            return true;
+        }
+        String value = val.toString();
+        return "true".equals(value) || "1".equals(value) || "on".equals(value);
+    }
+
+    private static int alignment(ParagraphAlignment alignment) {
+        if (alignment == null) {
+            return Element.ALIGN_LEFT;
+        }
+        switch (alignment) {
+            case CENTER:
+                return Element.ALIGN_CENTER;
+            case RIGHT:
+            case END:
+                return Element.ALIGN_RIGHT;
+            case BOTH:
+            case DISTRIBUTE:
+                return Element.ALIGN_JUSTIFIED;
+            default:
+                return Element.ALIGN_LEFT;
+        }
+    }
+
+    private static BaseColor color(String hex) {
+        if (hex == null || hex.length() != 6 || "auto".equalsIgnoreCase(hex)) {
+            return null;
+        }
+        try {
+            return new BaseColor(0xFF000000 | Integer.parseInt(hex, 16));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static float toPoints(Object twips, float defaultValue) {
+        if (twips == null) {
+            return defaultValue;
+        }
+        try {
+            return Float.parseFloat(twips.toString()) / TWIPS_PER_POINT;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.yufei.ptw.engine;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.pdf.BaseFont;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.EngineProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.CostEstimate;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractFootnoteEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHeaderFooter;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * JVM内的Word转PDF引擎（POI + iText）
+ * 处理只包含文本、表格和嵌入式图片的DOCX文档，没有网络调用和进程启动开销；
+ * 页眉页脚、脚注、文本框、图表、分栏等无法忠实渲染的内容会抛出 {@link UnsupportedDocumentException} 回退到Python引擎
+ */
+@Slf4j
+@Order(0)
+@Component
+public class PoiItextConversionEngine implements ConversionEngine {
+
+    public static final String NAME = "poi-itext";
+
+    @Autowired
+    private EngineProperties engineProperties;
+
+    private volatile BaseFont customFont;
+    private volatile BaseFont latinFont;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(ConversionType type, DocumentContent source) {
+        if (type != ConversionType.WORD_TO_PDF || !engineProperties.isInProcessEnabled()) {
+            return false;
+        }
+        try {
+            return source.size() <= engineProperties.getInProcessMaxBytes() && isZip(source);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void convert(ConversionType type, CostEstimate estimate, DocumentContent source, DocumentContent output)
+            throws Exception {
+        long start = System.currentTimeMillis();
+        try (InputStream in = source.openInput();
+             XWPFDocument document = new XWPFDocument(in)) {
+            String reason = inspect(document);
+            if (reason != null) {
+                throw new UnsupportedDocumentException(reason);
+            }
+            try (OutputStream out = output.openOutput()) {
+                new DocxPdfRenderer(document, this).render(out);
+            }
+        }
+        log.debug("JVM内Word转PDF完成，耗时: {} ms, 输出: {}", System.currentTimeMillis() - start, output);
+    }
+
+    /**
+     * 检查文档是否包含本引擎无法忠实渲染的内容
+     *
+     * @return 不支持的原因，全部支持时返回null
+     */
+    String inspect(XWPFDocument document) throws OpenXML4JException {
+        if (hasContent(document.getHeaderList()) || hasContent(document.getFooterList())) {
+            return "包含页眉或页脚";
+        }
+        if (hasNotes(document.getFootnotes()) || hasNotes(document.getEndnotes())) {
+            return "包含脚注或尾注";
+        }
+        if (document.getComments() != null && document.getComments().length > 0) {
+            return "包含批注";
+        }
+        if (!document.getCharts().isEmpty()) {
+            return "包含图表";
+        }
+        if (!document.getAllEmbeddedParts().isEmpty()) {
+            return "包含嵌入对象";
+        }
+        CTBody body = document.getDocument().getBody();
+        CTSectPr sectPr = body.getSectPr();
+        if (sectPr != null && sectPr.isSetCols() && sectPr.getCols().getNum() != null
+                && sectPr.getCols().getNum().compareTo(BigInteger.ONE) > 0) {
+            return "包含分栏";
+        }
+        String bodyXml = body.xmlText();
+        if (bodyXml.contains("txbxContent") || bodyXml.contains("AlternateContent")) {
+            return "包含文本框或形状";
+        }
+        for (IBodyElement element : document.getBodyElements()) {
+            if (element instanceof XWPFParagraph) {
+                XWPFParagraph paragraph = (XWPFParagraph) element;
+                if (paragraph.getCTP().isSetPPr() && paragraph.getCTP().getPPr().isSetSectPr()) {
+                    return "包含多个节";
+                }
+            } else if (!(element instanceof XWPFTable)) {
+                return "包含内容控件";
+            }
+        }
+        return null;
+    }
+
+    private boolean hasContent(List<? extends XWPFHeaderFooter> parts) {
+        for (XWPFHeaderFooter part : parts) {
+            if (!part.getText().isBlank() || !part.getAllPictures().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasNotes(List<? extends XWPFAbstractFootnoteEndnote> notes) {
+        // id为-1和0的是分隔符，不是正文中的脚注
+        for (XWPFAbstractFootnoteEndnote note : notes) {
+            if (note.getId() != null && note.getId().signum() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isZip(DocumentContent source) throws IOException {
+        try (InputStream in = source.openInput()) {
+            byte[] header = in.readNBytes(4);
+            return header.length == 4 && header[0] == 0x50 && header[1] == 0x4B && header[2] == 0x03 && header[3] == 0x04;
+        }
+    }
+
+    /**
+     * 判断当前字体能否渲染文本中的所有字符
+     */
+    boolean canRender(String text) throws IOException, DocumentException {
+        BaseFont baseFont = baseFont();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (!Character.isWhitespace(codePoint) && !Character.isISOControl(codePoint) && !baseFont.charExists(codePoint)) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    /**
+     * 创建指定样式的字体，配置了字体文件时使用该字体，否则使用内置的Helvetica
+     */
+    Font font(float size, int style, BaseColor color) throws IOException, DocumentException {
+        BaseFont custom = customFont();
+        if (custom != null) {
+            return new Font(custom, size, style, color);
+        }
+        return new Font(Font.FontFamily.HELVETICA, size, style, color);
+    }
+
+    private BaseFont baseFont() throws IOException, DocumentException {
+        BaseFont custom = customFont();
+        if (custom != null) {
+            return custom;
+        }
+        if (latinFont == null) {
+            latinFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        }
+        return latinFont;
+    }
+
+    private BaseFont customFont() throws IOException, DocumentException {
+        String fontPath = engineProperties.getFontPath();
+        if (fontPath == null || fontPath.isBlank()) {
+            return null;
+        }
+        if (customFont == null) {
+            synchronized (this) {
+                if (customFont == null) {
+                    customFont = BaseFont.createFont(fontPath, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+                    log.info("JVM内转换引擎已加载字体: {}", fontPath);
+                }
+            }
+        }
+        return customFont;
+    }
+}
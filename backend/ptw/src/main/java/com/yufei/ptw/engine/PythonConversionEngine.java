@@ -0,0 +1,48 @@
+package com.yufei.ptw.engine;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.converter.ConversionMicroBatcher;
+import com.yufei.ptw.converter.PythonConverterClient;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.CostEstimate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Python转换引擎
+ * 通过HTTP调用Python转换服务（Word COM / pdf2docx），支持所有转换类型，作为兜底引擎；
+ * 启用微批处理时，小的Word文档经 {@link ConversionMicroBatcher} 合并调用
+ */
+@Order(100)
+@Component
+public class PythonConversionEngine implements ConversionEngine {
+
+    public static final String NAME = "python";
+
+    @Autowired
+    private PythonConverterClient converterClient;
+
+    @Autowired
+    private ConversionMicroBatcher microBatcher;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(ConversionType type, DocumentContent source) {
+        return true;
+    }
+
+    @Override
+    public void convert(ConversionType type, CostEstimate estimate, DocumentContent source, DocumentContent output)
+            throws Exception {
+        if (microBatcher.accepts(type, source)) {
+            microBatcher.convert(source, output);
+        } else {
+            converterClient.convert(type, estimate != null && estimate.isScanned(), source, output);
+        }
+    }
+}
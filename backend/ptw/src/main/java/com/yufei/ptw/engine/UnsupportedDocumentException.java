@@ -0,0 +1,11 @@
+package com.yufei.ptw.engine;
+
+/**
+ * 文档包含当前引擎无法忠实转换的内容，需要回退到其他引擎
+ */
+public class UnsupportedDocumentException extends Exception {
+
+    public UnsupportedDocumentException(String message) {
+        super(message);
+    }
+}
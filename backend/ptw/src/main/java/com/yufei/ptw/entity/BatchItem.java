@@ -0,0 +1,71 @@
+package com.yufei.ptw.entity;
+
+/**
+ * 批量转换中的单个文件
+ */
+public class BatchItem {
+    private String taskId;
+    private String originalFilename;
+    private String targetFilename;
+    private TaskStatus status;
+    private String fileUrl;
+    private String errorMessage;
+
+    public BatchItem() {
+    }
+
+    public BatchItem(String taskId, String originalFilename, String targetFilename) {
+        this.taskId = taskId;
+        this.originalFilename = originalFilename;
+        this.targetFilename = targetFilename;
+        this.status = TaskStatus.PENDING;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public String getTargetFilename() {
+        return targetFilename;
+    }
+
+    public void setTargetFilename(String targetFilename) {
+        this.targetFilename = targetFilename;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+
+    public String getFileUrl() {
+        return fileUrl;
+    }
+
+    public void setFileUrl(String fileUrl) {
+        this.fileUrl = fileUrl;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,91 @@
+package com.yufei.ptw.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 批量转换的汇总状态
+ */
+public class BatchStatus {
+    private String batchId;
+    private int total;
+    private int pending;
+    private int processing;
+    private int completed;
+    private int failed;
+    private boolean finished;
+    private LocalDateTime createTime;
+    private List<BatchItem> items;
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public void setPending(int pending) {
+        this.pending = pending;
+    }
+
+    public int getProcessing() {
+        return processing;
+    }
+
+    public void setProcessing(int processing) {
+        this.processing = processing;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+
+    public List<BatchItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BatchItem> items) {
+        this.items = items;
+    }
+}
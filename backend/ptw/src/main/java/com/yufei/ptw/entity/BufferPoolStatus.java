@@ -0,0 +1,85 @@
+package com.yufei.ptw.entity;
+
+/**
+ * 小文件内存缓冲区使用情况
+ */
+public class BufferPoolStatus {
+    private boolean enabled;
+    // 每块缓冲区的字节数，即内存阈值
+    private int slabSize;
+    // 缓冲区总字节数上限
+    private long maxBytes;
+    // 已分配的缓冲区字节数
+    private long allocatedBytes;
+    // 使用中的缓冲区字节数
+    private long inUseBytes;
+    private long peakInUseBytes;
+    // 缓冲区用尽、直接写入本地文件的次数
+    private long exhausted;
+    // 内容超过阈值、转写到本地文件的次数
+    private long spills;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    public void setSlabSize(int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getInUseBytes() {
+        return inUseBytes;
+    }
+
+    public void setInUseBytes(long inUseBytes) {
+        this.inUseBytes = inUseBytes;
+    }
+
+    public long getPeakInUseBytes() {
+        return peakInUseBytes;
+    }
+
+    public void setPeakInUseBytes(long peakInUseBytes) {
+        this.peakInUseBytes = peakInUseBytes;
+    }
+
+    public long getExhausted() {
+        return exhausted;
+    }
+
+    public void setExhausted(long exhausted) {
+        this.exhausted = exhausted;
+    }
+
+    public long getSpills() {
+        return spills;
+    }
+
+    public void setSpills(long spills) {
+        this.spills = spills;
+    }
+}
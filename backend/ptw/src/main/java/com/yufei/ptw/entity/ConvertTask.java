@@ -11,6 +11,12 @@ public class ConvertTask {
     private TaskStatus status;
     private String fileUrl;
     private String errorMessage;
+    private String engine;
+    private String tenant;
+    // PDF是否有文本层，false表示扫描件，Word任务或无法判断时为null
+    private Boolean hasTextLayer;
+    // 预计完成时间，客户端可据此决定下次查询的时间
+    private LocalDateTime estimatedCompletionTime;
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
@@ -66,6 +72,38 @@ public class ConvertTask {
         this.errorMessage = errorMessage;
     }
 
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    public Boolean getHasTextLayer() {
+        return hasTextLayer;
+    }
+
+    public void setHasTextLayer(Boolean hasTextLayer) {
+        this.hasTextLayer = hasTextLayer;
+    }
+
+    public LocalDateTime getEstimatedCompletionTime() {
+        return estimatedCompletionTime;
+    }
+
+    public void setEstimatedCompletionTime(LocalDateTime estimatedCompletionTime) {
+        this.estimatedCompletionTime = estimatedCompletionTime;
+    }
+
     public LocalDateTime getCreateTime() {
         return createTime;
     }
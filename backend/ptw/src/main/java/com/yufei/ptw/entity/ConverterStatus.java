@@ -0,0 +1,137 @@
+package com.yufei.ptw.entity;
+
+/**
+ * 转换服务并发限制和熔断状态
+ */
+public class ConverterStatus {
+    // 当前自适应并发上限
+    private int concurrencyLimit;
+    // 正在进行的转换请求数
+    private int inFlight;
+    // 最近一次成功请求的耗时（毫秒）
+    private long lastLatencyMillis;
+    // 因达到并发上限未能发出的对冲请求数
+    private long limiterRejections;
+    // 熔断器状态：CLOSED、OPEN、HALF_OPEN
+    private String breakerState;
+    // 累计熔断次数
+    private long breakerTrips;
+    // 熔断期间直接拒绝的请求数
+    private long breakerRejections;
+    // 发出的对冲请求数
+    private long hedges;
+    // 对冲请求先完成的次数
+    private long hedgeWins;
+    // 微批处理发送的批量请求数
+    private long microBatches;
+    // 通过批量请求完成的文档数
+    private long microBatchedDocuments;
+    // 平均每个批量请求完成的文档数
+    private double averageBatchSize;
+    // 批量转换失败后改为单独转换的文档数
+    private long microBatchFallbacks;
+
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    public void setLastLatencyMillis(long lastLatencyMillis) {
+        this.lastLatencyMillis = lastLatencyMillis;
+    }
+
+    public long getLimiterRejections() {
+        return limiterRejections;
+    }
+
+    public void setLimiterRejections(long limiterRejections) {
+        this.limiterRejections = limiterRejections;
+    }
+
+    public String getBreakerState() {
+        return breakerState;
+    }
+
+    public void setBreakerState(String breakerState) {
+        this.breakerState = breakerState;
+    }
+
+    public long getBreakerTrips() {
+        return breakerTrips;
+    }
+
+    public void setBreakerTrips(long breakerTrips) {
+        this.breakerTrips = breakerTrips;
+    }
+
+    public long getBreakerRejections() {
+        return breakerRejections;
+    }
+
+    public void setBreakerRejections(long breakerRejections) {
+        this.breakerRejections = breakerRejections;
+    }
+
+    public long getHedges() {
+        return hedges;
+    }
+
+    public void setHedges(long hedges) {
+        this.hedges = hedges;
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins;
+    }
+
+    public void setHedgeWins(long hedgeWins) {
+        this.hedgeWins = hedgeWins;
+    }
+
+    public long getMicroBatches() {
+        return microBatches;
+    }
+
+    public void setMicroBatches(long microBatches) {
+        this.microBatches = microBatches;
+    }
+
+    public long getMicroBatchedDocuments() {
+        return microBatchedDocuments;
+    }
+
+    public void setMicroBatchedDocuments(long microBatchedDocuments) {
+        this.microBatchedDocuments = microBatchedDocuments;
+    }
+
+    public double getAverageBatchSize() {
+        return averageBatchSize;
+    }
+
+    public void setAverageBatchSize(double averageBatchSize) {
+        this.averageBatchSize = averageBatchSize;
+    }
+
+    public long getMicroBatchFallbacks() {
+        return microBatchFallbacks;
+    }
+
+    public void setMicroBatchFallbacks(long microBatchFallbacks) {
+        this.microBatchFallbacks = microBatchFallbacks;
+    }
+}
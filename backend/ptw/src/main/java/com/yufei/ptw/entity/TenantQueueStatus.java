@@ -0,0 +1,79 @@
+package com.yufei.ptw.entity;
+
+/**
+ * 租户调度队列状态
+ */
+public class TenantQueueStatus {
+    private String tenant;
+    private int weight;
+    private int maxConcurrency;
+    private int queued;
+    private int expressQueued;
+    private int scannedQueued;
+    private int running;
+    private long dispatched;
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public int getExpressQueued() {
+        return expressQueued;
+    }
+
+    public void setExpressQueued(int expressQueued) {
+        this.expressQueued = expressQueued;
+    }
+
+    public int getScannedQueued() {
+        return scannedQueued;
+    }
+
+    public void setScannedQueued(int scannedQueued) {
+        this.scannedQueued = scannedQueued;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    public void setDispatched(long dispatched) {
+        this.dispatched = dispatched;
+    }
+}
@@ -0,0 +1,75 @@
+package com.yufei.ptw.entity;
+
+/**
+ * 本机转换服务进程状态
+ */
+public class WorkerProcessStatus {
+    // 槽位号，决定端口和套接字路径
+    private int slot;
+    private String url;
+    // 进程未运行时为空
+    private Long pid;
+    // STARTING、READY、RECYCLING 或 RETIRING
+    private String state;
+    // 当前进程已处理的请求数
+    private long requests;
+    private int outstanding;
+    // 该槽位的重启次数
+    private int restarts;
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Long getPid() {
+        return pid;
+    }
+
+    public void setPid(Long pid) {
+        this.pid = pid;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public int getOutstanding() {
+        return outstanding;
+    }
+
+    public void setOutstanding(int outstanding) {
+        this.outstanding = outstanding;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public void setRestarts(int restarts) {
+        this.restarts = restarts;
+    }
+}
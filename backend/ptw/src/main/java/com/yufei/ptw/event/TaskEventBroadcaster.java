@@ -0,0 +1,244 @@
+package com.yufei.ptw.event;
+
+import com.yufei.ptw.config.EventProperties;
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.service.TaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 任务状态推送
+ * 一个SSE连接可以订阅多个任务，订阅时先推送各任务的当前状态，之后推送 {@link TaskStatusEvent}；
+ * 所有订阅的任务结束后服务端关闭连接。
+ * 事件发布线程只负责入队，实际写出在eventExecutor上按连接串行执行，慢客户端不会阻塞转换流水线，
+ * 也不会为每个订阅者占用一个Servlet线程
+ */
+@Slf4j
+@Component
+public class TaskEventBroadcaster {
+
+    public static final String EVENT_STATUS = "status";
+    public static final String EVENT_MISSING = "missing";
+
+    private static final Object HEARTBEAT = new Object();
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private EventProperties eventProperties;
+
+    @Autowired
+    @Qualifier("eventExecutor")
+    private TaskExecutor eventExecutor;
+
+    // 任务ID -> 订阅该任务的连接
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private final Set<Subscription> connections = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    public void init() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TaskEventHeartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = eventProperties.getHeartbeatInterval().toMillis();
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        for (Subscription subscription : connections) {
+            subscription.emitter.complete();
+        }
+    }
+
+    /**
+     * 订阅一组任务的状态变化
+     */
+    public SseEmitter subscribe(Collection<String> taskIds) {
+        Set<String> ids = new LinkedHashSet<>(taskIds);
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("任务ID不能为空");
+        }
+        if (ids.size() > eventProperties.getMaxTasksPerSubscription()) {
+            throw new IllegalArgumentException("单个连接最多订阅" + eventProperties.getMaxTasksPerSubscription() + "个任务");
+        }
+
+        Subscription subscription = new Subscription(newEmitter(eventProperties.getTimeout().toMillis()), ids);
+        subscription.emitter.onCompletion(() -> unregister(subscription));
+        subscription.emitter.onTimeout(() -> unregister(subscription));
+        subscription.emitter.onError(e -> unregister(subscription));
+        connections.add(subscription);
+        // 先登记再读取当前状态，保证不会漏掉两者之间发生的变化
+        for (String taskId : ids) {
+            subscriptions.computeIfAbsent(taskId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
+        for (String taskId : ids) {
+            ConvertTask task = taskService.getTask(taskId);
+            subscription.offer(task != null ? TaskStatusEvent.of(task) : new TaskStatusEvent(taskId, null, null, null));
+        }
+        return subscription.emitter;
+    }
+
+    /**
+     * 任务状态变化时由TaskService发布
+     */
+    @EventListener
+    public void onTaskStatus(TaskStatusEvent event) {
+        Set<Subscription> subscribers = subscriptions.get(event.getTaskId());
+        if (subscribers != null) {
+            for (Subscription subscription : subscribers) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    /**
+     * 当前连接数
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    private void unregister(Subscription subscription) {
+        if (!connections.remove(subscription)) {
+            return;
+        }
+        for (String taskId : subscription.taskIds) {
+            subscriptions.computeIfPresent(taskId, (id, subscribers) -> {
+                subscribers.remove(subscription);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscription subscription : connections) {
+            subscription.offer(null);
+        }
+    }
+
+    /**
+     * 单个SSE连接，事件按到达顺序串行写出
+     */
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final Set<String> taskIds;
+        // 尚未结束的任务，全部结束后关闭连接
+        private final Set<String> unfinished;
+        // 待写出的事件和心跳
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscription(SseEmitter emitter, Set<String> taskIds) {
+            this.emitter = emitter;
+            this.taskIds = taskIds;
+            this.unfinished = ConcurrentHashMap.newKeySet();
+            this.unfinished.addAll(taskIds);
+        }
+
+        private void offer(TaskStatusEvent event) {
+            if (closed) {
+                return;
+            }
+            queue.add(event != null ? event : HEARTBEAT);
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    eventExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    log.warn("任务状态推送线程池已满，关闭连接");
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Object item;
+                while (!closed && (item = queue.poll()) != null) {
+                    if (item instanceof TaskStatusEvent) {
+                        send((TaskStatusEvent) item);
+                    } else {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("任务状态推送失败，客户端可能已断开: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(TaskStatusEvent event) throws IOException {
+            if (!unfinished.contains(event.getTaskId())) {
+                return;
+            }
+            if (event.getStatus() == null) {
+                emitter.send(SseEmitter.event().name(EVENT_MISSING).id(event.getTaskId())
+                        .data(event, MediaType.APPLICATION_JSON));
+                unfinished.remove(event.getTaskId());
+            } else {
+                emitter.send(SseEmitter.event().name(EVENT_STATUS).id(event.getTaskId())
+                        .data(event, MediaType.APPLICATION_JSON));
+                if (event.isFinished()) {
+                    unfinished.remove(event.getTaskId());
+                }
+            }
+            if (unfinished.isEmpty()) {
+                closed = true;
+                emitter.complete();
+                unregister(this);
+            }
+        }
+
+        private void close() {
+            closed = true;
+            emitter.completeWithError(new IOException("连接已关闭"));
+            unregister(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.yufei.ptw.event;
+
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.entity.TaskStatus;
+
+/**
+ * 任务状态变化事件
+ * 保存变化时刻的任务状态快照，推送给订阅的客户端
+ */
+public class TaskStatusEvent {
+    private final String taskId;
+    private final TaskStatus status;
+    private final String fileUrl;
+    private final String errorMessage;
+
+    public TaskStatusEvent(String taskId, TaskStatus status, String fileUrl, String errorMessage) {
+        this.taskId = taskId;
+        this.status = status;
+        this.fileUrl = fileUrl;
+        this.errorMessage = errorMessage;
+    }
+
+    public static TaskStatusEvent of(ConvertTask task) {
+        return new TaskStatusEvent(task.getTaskId(), task.getStatus(), task.getFileUrl(), task.getErrorMessage());
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public String getFileUrl() {
+        return fileUrl;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public boolean isFinished() {
+        return status == TaskStatus.COMPLETED || status == TaskStatus.FAILED;
+    }
+}
@@ -2,6 +2,8 @@ package com.yufei.ptw.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.yufei.ptw.upload.InvalidDocumentException;
+import com.yufei.ptw.upload.UploadTooLargeException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -37,6 +39,40 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
     }
     
+    /**
+     * 处理流式上传时在写入过程中发现的文件过大
+     */
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handleUploadTooLargeException(UploadTooLargeException ex, WebRequest request) {
+        logger.error("File size exceeded limit: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", new Date());
+        response.put("status", HttpStatus.PAYLOAD_TOO_LARGE.value());
+        response.put("error", "File too large");
+        response.put("message", "File size exceeds the allowed limit of " + ex.getMaxBytes() + " bytes");
+        response.put("path", request.getDescription(false));
+
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+    }
+
+    /**
+     * 处理入队前结构校验发现的损坏或伪造文件
+     */
+    @ExceptionHandler(InvalidDocumentException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidDocumentException(InvalidDocumentException ex, WebRequest request) {
+        logger.warn("Invalid document rejected: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", new Date());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Invalid document");
+        response.put("message", ex.getMessage());
+        response.put("path", request.getDescription(false));
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     /**
      * 处理文件转换不支持的异常
      */
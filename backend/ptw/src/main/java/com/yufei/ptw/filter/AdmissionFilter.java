@@ -0,0 +1,56 @@
+package com.yufei.ptw.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.pipeline.AdmissionController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 转换请求准入过滤器
+ * 在Spring解析multipart请求体之前执行，过载时直接返回429和Retry-After，不读取上传内容
+ */
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String CONVERT_PATH = "/api/convert/";
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // 只检查上传文件的转换请求，查询和下载接口不受影响
+        return !"POST".equals(request.getMethod()) || !request.getRequestURI().startsWith(CONVERT_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdmissionController.Rejection rejection = admissionController.check(request.getContentLengthLong());
+        if (rejection == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+                Result.error(HttpStatus.TOO_MANY_REQUESTS.value(), rejection.getReason()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.yufei.ptw.journal;
+
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.pipeline.ConversionJob;
+
+/**
+ * 任务日志中一个任务的完整状态
+ */
+public class JournalEntry {
+    private final ConvertTask task;
+    // 转换作业信息，用于重启后重新提交；已结束的任务为null
+    private final ConversionJob job;
+
+    public JournalEntry(ConvertTask task, ConversionJob job) {
+        this.task = task;
+        this.job = job;
+    }
+
+    public ConvertTask getTask() {
+        return task;
+    }
+
+    public ConversionJob getJob() {
+        return job;
+    }
+}
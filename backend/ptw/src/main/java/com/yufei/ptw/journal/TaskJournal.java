@@ -0,0 +1,417 @@
+package com.yufei.ptw.journal;
+
+import com.yufei.ptw.config.JournalProperties;
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * 任务日志
+ * 任务的每次状态变化以一条小记录追加到内存映射文件中，后台线程按syncInterval批量刷盘；
+ * 启动时回放日志恢复任务状态，并把文件重写为只包含每个任务最新状态的紧凑形式；
+ * 运行中文件写满时使用任务服务提供的当前状态快照进行压缩
+ * <p>
+ * 文件格式：文件头[magic, version]，之后每条记录为[长度, CRC32, 内容]，长度为0表示日志结束，
+ * 崩溃时写了一半的记录通过CRC校验识别并丢弃
+ */
+@Slf4j
+@Component
+public class TaskJournal {
+
+    private static final String JOURNAL_FILENAME = ".task-journal";
+    private static final int MAGIC = 0x5054574A;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    // 记录类型
+    private static final byte TASK = 1;
+    private static final byte PROCESSING = 2;
+    private static final byte ENGINE = 3;
+    private static final byte COMPLETED = 4;
+    private static final byte FAILED = 5;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Autowired
+    private JournalProperties journalProperties;
+
+    private Path journalPath;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private volatile boolean dirty;
+    private List<JournalEntry> replayed = new ArrayList<>();
+    private Supplier<Collection<JournalEntry>> snapshotSource;
+    private ScheduledExecutorService flusher;
+    private long compactions;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!journalProperties.isEnabled()) {
+            log.info("任务日志未启用，任务状态只保存在内存中");
+            return;
+        }
+        String file = journalProperties.getFile();
+        journalPath = file != null && !file.isBlank() ? Paths.get(file) : Paths.get(uploadDir).resolve(JOURNAL_FILENAME);
+        Files.createDirectories(journalPath.toAbsolutePath().getParent());
+
+        long start = System.currentTimeMillis();
+        Map<String, JournalEntry> state = new LinkedHashMap<>();
+        if (Files.exists(journalPath)) {
+            replay(state);
+        }
+        replayed = new ArrayList<>(state.values());
+        // 重写为紧凑格式，同时丢弃末尾残缺的记录
+        rewrite(replayed, 0);
+        log.info("任务日志回放完成，任务数: {}, 耗时: {} ms, 文件: {}",
+                replayed.size(), System.currentTimeMillis() - start, journalPath);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TaskJournalSync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, journalProperties.getSyncInterval().toMillis());
+        flusher.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        sync();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        buffer = null;
+    }
+
+    /**
+     * 取出启动时回放得到的任务，只能取一次
+     */
+    public synchronized List<JournalEntry> takeReplayed() {
+        List<JournalEntry> entries = replayed;
+        replayed = new ArrayList<>();
+        return entries;
+    }
+
+    /**
+     * 设置压缩时使用的当前状态快照来源
+     */
+    public synchronized void setSnapshotSource(Supplier<Collection<JournalEntry>> snapshotSource) {
+        this.snapshotSource = snapshotSource;
+    }
+
+    public void appendTask(ConvertTask task, ConversionJob job) {
+        if (buffer != null) {
+            append(encodeTask(task, job));
+        }
+    }
+
+    public void appendProcessing(String taskId) {
+        append(PROCESSING, taskId, null);
+    }
+
+    public void appendEngine(String taskId, String engine) {
+        append(ENGINE, taskId, engine);
+    }
+
+    public void appendCompleted(String taskId, String fileUrl) {
+        append(COMPLETED, taskId, fileUrl);
+    }
+
+    public void appendFailed(String taskId, String errorMessage) {
+        append(FAILED, taskId, errorMessage);
+    }
+
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    private void append(byte type, String taskId, String value) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(System.currentTimeMillis());
+            writeString(out, taskId);
+            writeString(out, value);
+            append(bytes.toByteArray());
+        } catch (IOException e) {
+            log.error("写入任务日志失败，任务ID: {}, 错误信息: {}", taskId, e.getMessage());
+        }
+    }
+
+    private synchronized void append(byte[] body) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (buffer.remaining() < RECORD_HEADER_SIZE + body.length) {
+                compact(RECORD_HEADER_SIZE + body.length);
+            }
+            writeRecord(buffer, body);
+            dirty = true;
+        } catch (IOException e) {
+            log.error("写入任务日志失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 使用当前状态快照重写日志文件
+     */
+    private void compact(int required) throws IOException {
+        Collection<JournalEntry> snapshot = snapshotSource != null ? snapshotSource.get() : List.of();
+        rewrite(snapshot, required);
+        compactions++;
+        log.info("任务日志已压缩，任务数: {}, 文件大小: {} 字节", snapshot.size(), buffer.capacity());
+    }
+
+    /**
+     * 批量刷盘，由后台线程定时调用
+     */
+    void sync() {
+        MappedByteBuffer current = buffer;
+        if (current != null && dirty) {
+            dirty = false;
+            current.force();
+        }
+    }
+
+    /**
+     * 将任务状态写入临时文件，原子替换日志文件后重新映射
+     */
+    private synchronized void rewrite(Collection<JournalEntry> entries, int required) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(content);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        for (JournalEntry entry : entries) {
+            byte[] body = encodeTask(entry.getTask(), entry.getJob());
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            out.writeInt(body.length);
+            out.writeInt((int) crc.getValue());
+            out.write(body);
+        }
+        int used = content.size();
+        // 压缩后剩余空间不足一半时扩容，避免频繁压缩
+        long capacity = journalProperties.getCapacity();
+        while (capacity < (long) (used + required) * 2) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("任务日志超过最大容量");
+        }
+
+        Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel temp = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.wrap(content.toByteArray());
+            while (data.hasRemaining()) {
+                temp.write(data);
+            }
+            temp.force(true);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        mapped.position(used);
+        buffer = mapped;
+        dirty = false;
+    }
+
+    /**
+     * 回放日志，遇到长度为0或校验失败的记录时停止
+     */
+    private void replay(Map<String, JournalEntry> state) throws IOException {
+        try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            if (in.size() < FILE_HEADER_SIZE) {
+                return;
+            }
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+                log.warn("任务日志格式不正确，忽略已有内容: {}", journalPath);
+                return;
+            }
+            while (data.remaining() >= RECORD_HEADER_SIZE) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                data.get(body);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("任务日志末尾存在不完整的记录，已丢弃");
+                    break;
+                }
+                apply(ByteBuffer.wrap(body), state);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer record, Map<String, JournalEntry> state) {
+        byte type = record.get();
+        LocalDateTime time = toDateTime(record.getLong());
+        String taskId = readString(record);
+        if (type == TASK) {
+            ConvertTask task = new ConvertTask(taskId, readString(record));
+            task.setStatus(TaskStatus.valueOf(readString(record)));
+            task.setFileUrl(readString(record));
+            task.setErrorMessage(readString(record));
+            task.setEngine(readString(record));
+            task.setCreateTime(toDateTime(record.getLong()));
+            task.setUpdateTime(time);
+            boolean hasJob = record.get() == 1;
+            String jobType = hasJob ? readString(record) : null;
+            String sourcePath = hasJob ? readString(record) : null;
+            String targetFilename = hasJob ? readString(record) : null;
+            String contentHash = hasJob ? readString(record) : null;
+            // 租户字段追加在记录末尾，兼容没有该字段的旧记录
+            if (record.hasRemaining()) {
+                task.setTenant(readString(record));
+            }
+            ConversionJob job = null;
+            if (hasJob) {
+                job = new ConversionJob(taskId, ConversionType.valueOf(jobType), Paths.get(sourcePath), targetFilename,
+                        task.getOriginalFilename(), contentHash, task.getTenant());
+            }
+            state.put(taskId, new JournalEntry(task, job));
+            return;
+        }
+        JournalEntry entry = state.get(taskId);
+        if (entry == null) {
+            return;
+        }
+        ConvertTask task = entry.getTask();
+        String value = readString(record);
+        switch (type) {
+            case PROCESSING:
+                task.setStatus(TaskStatus.PROCESSING);
+                break;
+            case ENGINE:
+                task.setEngine(value);
+                break;
+            case COMPLETED:
+                task.setFileUrl(value);
+                task.setStatus(TaskStatus.COMPLETED);
+                break;
+            case FAILED:
+                task.setErrorMessage(value);
+                task.setStatus(TaskStatus.FAILED);
+                break;
+            default:
+                return;
+        }
+        task.setUpdateTime(time);
+    }
+
+    private byte[] encodeTask(ConvertTask task, ConversionJob job) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(TASK);
+            out.writeLong(toMillis(task.getUpdateTime()));
+            writeString(out, task.getTaskId());
+            writeString(out, task.getOriginalFilename());
+            writeString(out, task.getStatus().name());
+            writeString(out, task.getFileUrl());
+            writeString(out, task.getErrorMessage());
+            writeString(out, task.getEngine());
+            out.writeLong(toMillis(task.getCreateTime()));
+            out.writeByte(job != null ? 1 : 0);
+            if (job != null) {
+                writeString(out, job.getType().name());
+                writeString(out, job.getSourcePath().toString());
+                writeString(out, job.getTargetFilename());
+                writeString(out, job.getContentHash());
+            }
+            writeString(out, task.getTenant());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeRecord(ByteBuffer target, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        target.putInt(body.length);
+        target.putInt((int) crc.getValue());
+        target.put(body);
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,71 @@
+package com.yufei.ptw.metrics;
+
+import com.yufei.ptw.converter.AdaptiveConcurrencyLimiter;
+import com.yufei.ptw.converter.CircuitBreaker;
+import com.yufei.ptw.converter.ConversionMicroBatcher;
+import com.yufei.ptw.converter.HedgePolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 注册在抓取时读取的转换服务调用指标：自适应并发上限、熔断器、对冲请求和微批处理
+ */
+@Component
+public class ConverterMetricsBinder {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private HedgePolicy hedgePolicy;
+
+    @Autowired
+    private ConversionMicroBatcher microBatcher;
+
+    @PostConstruct
+    public void bind() {
+        Gauge.builder("ptw.converter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("ptw.converter.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        FunctionCounter.builder("ptw.converter.limiter.rejections", limiter, AdaptiveConcurrencyLimiter::getRejections)
+                .register(meterRegistry);
+
+        // 每个状态一条时间序列，当前状态取值为1
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("ptw.converter.breaker.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                    .tag("state", state.name())
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("ptw.converter.breaker.trips", circuitBreaker, CircuitBreaker::getTrips)
+                .register(meterRegistry);
+        FunctionCounter.builder("ptw.converter.breaker.rejections", circuitBreaker, CircuitBreaker::getRejections)
+                .register(meterRegistry);
+
+        FunctionCounter.builder("ptw.converter.hedge.requests", hedgePolicy, HedgePolicy::getRequests)
+                .register(meterRegistry);
+        FunctionCounter.builder("ptw.converter.hedges", hedgePolicy, HedgePolicy::getHedges).register(meterRegistry);
+        FunctionCounter.builder("ptw.converter.hedge.wins", hedgePolicy, HedgePolicy::getHedgeWins)
+                .register(meterRegistry);
+
+        // 平均批大小 = documents / batches，fallbacks为批量失败后改为单独转换的文档数
+        FunctionCounter.builder("ptw.microbatch.batches", microBatcher, ConversionMicroBatcher::getBatches)
+                .register(meterRegistry);
+        FunctionCounter.builder("ptw.microbatch.documents", microBatcher, ConversionMicroBatcher::getBatchedDocuments)
+                .register(meterRegistry);
+        FunctionCounter.builder("ptw.microbatch.fallbacks", microBatcher, ConversionMicroBatcher::getFallbacks)
+                .register(meterRegistry);
+        Gauge.builder("ptw.microbatch.average.size", microBatcher, batcher -> batcher.getBatches() > 0
+                        ? (double) batcher.getBatchedDocuments() / batcher.getBatches() : 0)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+package com.yufei.ptw.metrics;
+
+import com.yufei.ptw.config.MetricsProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流水线指标
+ * 计时器和计数器注册到Micrometer的 {@link MeterRegistry}，通过 /actuator/prometheus 供Prometheus抓取；
+ * 计时器同时输出分位数和直方图桶，多个实例的分位数由Prometheus按直方图聚合。
+ * 标签值必须来自有限集合（转换类型、失败原因等），不能使用任务ID、文件名；
+ * 创建过的计时器和计数器按名称和标签缓存，热路径上不再重复构建和查找注册表
+ */
+@Component
+public class PipelineMetrics {
+
+    // 直方图桶的范围，覆盖从毫秒级的类型检测到分钟级的大文件转换
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(10);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MetricsProperties metricsProperties;
+
+    // 名称和标签 → 已注册的计时器、计数器
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 取得计时器，不存在时创建
+     *
+     * @param tags 标签名和标签值交替排列
+     */
+    public Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(key(name, tags), key -> Timer.builder(name)
+                .tags(tags)
+                .publishPercentiles(metricsProperties.getPercentiles())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .distributionStatisticExpiry(metricsProperties.getWindow())
+                .register(meterRegistry));
+    }
+
+    /**
+     * 取得计数器，不存在时创建
+     */
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(key(name, tags), key -> meterRegistry.counter(name, tags));
+    }
+
+    private static String key(String name, String... tags) {
+        return tags.length == 0 ? name : name + '|' + String.join("|", tags);
+    }
+}
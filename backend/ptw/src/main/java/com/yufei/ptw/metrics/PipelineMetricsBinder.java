@@ -0,0 +1,82 @@
+package com.yufei.ptw.metrics;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.cache.ConversionResultCache;
+import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import com.yufei.ptw.service.TaskService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+
+/**
+ * 注册在抓取时读取的流水线指标：各线程池（{@link ExecutorServiceMetrics}）、公平调度器的排队和执行数、
+ * 各状态的任务数、任务存储的大小和淘汰次数、内存缓冲区的使用情况和结果缓存的命中情况
+ */
+@Component
+public class PipelineMetricsBinder {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Bean名称 → 线程池，包括taskExecutor及各阶段的线程池
+    @Autowired
+    private Map<String, ThreadPoolTaskExecutor> executors;
+
+    @Autowired
+    private FairShareScheduler scheduler;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    @Autowired
+    private ConversionResultCache resultCache;
+
+    @PostConstruct
+    public void bind() {
+        executors.forEach((name, executor) ->
+                new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(meterRegistry));
+
+        Gauge.builder("ptw.scheduler.queued", scheduler, FairShareScheduler::getQueued).register(meterRegistry);
+        Gauge.builder("ptw.scheduler.running", scheduler, FairShareScheduler::getRunning).register(meterRegistry);
+        for (TaskStatus status : TaskStatus.values()) {
+            Gauge.builder("ptw.tasks", taskService, service -> service.countTasks(status))
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ptw.task.store.size", taskService, TaskService::getSize).register(meterRegistry);
+        FunctionCounter.builder("ptw.task.store.evictions", taskService, TaskService::getExpiredEvictions)
+                .tag("reason", "expired").register(meterRegistry);
+        FunctionCounter.builder("ptw.task.store.evictions", taskService, TaskService::getCapacityEvictions)
+                .tag("reason", "capacity").register(meterRegistry);
+
+        Gauge.builder("ptw.buffer.allocated", bufferPool, BufferPool::getAllocatedBytes)
+                .baseUnit(BaseUnits.BYTES).register(meterRegistry);
+        Gauge.builder("ptw.buffer.in.use", bufferPool, BufferPool::getInUseBytes)
+                .baseUnit(BaseUnits.BYTES).register(meterRegistry);
+        Gauge.builder("ptw.buffer.peak.in.use", bufferPool, BufferPool::getPeakInUseBytes)
+                .baseUnit(BaseUnits.BYTES).register(meterRegistry);
+        // 缓冲区用尽改用本地文件的次数、缓冲内容超过单块大小写出到本地文件的次数
+        FunctionCounter.builder("ptw.buffer.exhausted", bufferPool, BufferPool::getExhausted).register(meterRegistry);
+        FunctionCounter.builder("ptw.buffer.spills", bufferPool, BufferPool::getSpills).register(meterRegistry);
+
+        FunctionCounter.builder("ptw.result.cache.requests", resultCache, ConversionResultCache::getHits)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("ptw.result.cache.requests", resultCache, ConversionResultCache::getMisses)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("ptw.result.cache.evictions", resultCache, ConversionResultCache::getEvictions)
+                .register(meterRegistry);
+    }
+}
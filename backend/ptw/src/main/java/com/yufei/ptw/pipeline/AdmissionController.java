@@ -0,0 +1,147 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.config.AdmissionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 准入控制
+ * 在上传文件落盘之前根据转换队列深度、正在转换的任务数、剩余堆内存和上传目录剩余磁盘空间判断是否接收请求，
+ * 过载时尽早拒绝并给出建议的重试时间，而不是先保存文件、创建任务再在线程池满时失败
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Autowired
+    private AdmissionProperties admissionProperties;
+
+    @Autowired
+    private FairShareScheduler scheduler;
+
+    // 转换耗时的指数加权移动平均（毫秒），0表示还没有记录
+    private final AtomicLong averageConversionMillis = new AtomicLong();
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * 判断是否接收新的转换请求
+     *
+     * @param contentLength 请求体大小，未知时为-1
+     * @return 接收时返回null，拒绝时返回拒绝原因和建议的重试时间
+     */
+    public Rejection check(long contentLength) {
+        if (!admissionProperties.isEnabled()) {
+            return null;
+        }
+        Rejection rejection = checkQueue();
+        if (rejection == null) {
+            rejection = checkHeap();
+        }
+        if (rejection == null) {
+            rejection = checkDisk(contentLength);
+        }
+        if (rejection != null) {
+            rejections.incrementAndGet();
+            log.warn("拒绝转换请求: {}, 建议{}秒后重试", rejection.getReason(), rejection.getRetryAfterSeconds());
+        }
+        return rejection;
+    }
+
+    /**
+     * 记录一次转换耗时，用于估算队列排空时间
+     */
+    public void recordConversion(long durationMillis) {
+        averageConversionMillis.accumulateAndGet(Math.max(1, durationMillis),
+                (average, sample) -> average == 0 ? sample : (average * 7 + sample) / 8);
+    }
+
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    private Rejection checkQueue() {
+        int queued = scheduler.getQueued();
+        int capacity = scheduler.getMaxQueued();
+        // 实际可同时执行的任务数取转换服务自适应并发上限收缩后的值；上限收缩后正在执行的任务可能超过上限，
+        // 超出的部分完成之前排队的任务不会开始，也计入积压
+        int limit = Math.max(1, scheduler.getConcurrencyLimit());
+        int backlog = queued + Math.max(0, scheduler.getRunning() - limit);
+        if (capacity == 0 || backlog < capacity * admissionProperties.getMaxQueueUtilization()) {
+            return null;
+        }
+        // 按当前平均耗时估算排在前面的任务全部开始执行所需的时间
+        long average = averageConversionMillis.get();
+        if (average == 0) {
+            average = admissionProperties.getInitialConversionTime().toMillis();
+        }
+        long waitMillis = (backlog + 1) * average / limit;
+        return new Rejection("转换队列已满（" + queued + "/" + capacity + "），请稍后重试", retryAfter(waitMillis));
+    }
+
+    private Rejection checkHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (freeHeap >= admissionProperties.getMinFreeHeap()) {
+            return null;
+        }
+        return new Rejection("服务器内存不足，请稍后重试", retryAfter(admissionProperties.getHeapRetryAfter().toMillis()));
+    }
+
+    private Rejection checkDisk(long contentLength) {
+        try {
+            Path path = Paths.get(uploadDir).toAbsolutePath();
+            while (path != null && !Files.exists(path)) {
+                path = path.getParent();
+            }
+            if (path == null) {
+                return null;
+            }
+            long usable = Files.getFileStore(path).getUsableSpace();
+            if (usable - Math.max(0, contentLength) >= admissionProperties.getMinFreeDisk()) {
+                return null;
+            }
+        } catch (IOException e) {
+            log.warn("读取上传目录剩余空间失败: {}", e.getMessage());
+            return null;
+        }
+        return new Rejection("服务器磁盘空间不足，请稍后重试", retryAfter(admissionProperties.getDiskRetryAfter().toMillis()));
+    }
+
+    private long retryAfter(long millis) {
+        long seconds = (millis + 999) / 1000;
+        return Math.max(1, Math.min(seconds, admissionProperties.getMaxRetryAfter().getSeconds()));
+    }
+
+    /**
+     * 拒绝原因和建议的重试时间
+     */
+    public static class Rejection {
+        private final String reason;
+        private final long retryAfterSeconds;
+
+        public Rejection(String reason, long retryAfterSeconds) {
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
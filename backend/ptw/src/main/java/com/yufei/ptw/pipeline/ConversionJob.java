@@ -0,0 +1,106 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.buffer.DocumentContent;
+
+import java.nio.file.Path;
+
+/**
+ * 转换作业
+ * 在流水线各阶段之间传递的不可变描述信息
+ */
+public class ConversionJob {
+    private final String taskId;
+    private final ConversionType type;
+    private final DocumentContent source;
+    private final String targetFilename;
+    private final String originalFilename;
+    // 源文件内容的SHA-256（十六进制）
+    private final String contentHash;
+    // 提交任务的租户，null表示默认租户
+    private final String tenant;
+    // 转换成本估算，提交到流水线前填充
+    private final CostEstimate estimate;
+
+    public ConversionJob(String taskId, ConversionType type, Path sourcePath, String targetFilename,
+                         String originalFilename, String contentHash) {
+        this(taskId, type, sourcePath, targetFilename, originalFilename, contentHash, null);
+    }
+
+    public ConversionJob(String taskId, ConversionType type, Path sourcePath, String targetFilename,
+                         String originalFilename, String contentHash, String tenant) {
+        this(taskId, type, DocumentContent.ofFile(sourcePath), targetFilename, originalFilename, contentHash, tenant);
+    }
+
+    public ConversionJob(String taskId, ConversionType type, DocumentContent source, String targetFilename,
+                         String originalFilename, String contentHash, String tenant) {
+        this(taskId, type, source, targetFilename, originalFilename, contentHash, tenant, null);
+    }
+
+    private ConversionJob(String taskId, ConversionType type, DocumentContent source, String targetFilename,
+                          String originalFilename, String contentHash, String tenant, CostEstimate estimate) {
+        this.taskId = taskId;
+        this.type = type;
+        this.source = source;
+        this.targetFilename = targetFilename;
+        this.originalFilename = originalFilename;
+        this.contentHash = contentHash;
+        this.tenant = tenant;
+        this.estimate = estimate;
+    }
+
+    /**
+     * 返回带有成本估算的副本
+     */
+    public ConversionJob withEstimate(CostEstimate estimate) {
+        return new ConversionJob(taskId, type, source, targetFilename, originalFilename, contentHash, tenant, estimate);
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public ConversionType getType() {
+        return type;
+    }
+
+    /**
+     * 源文件内容，可能只在内存中
+     */
+    public DocumentContent getSource() {
+        return source;
+    }
+
+    /**
+     * 源文件的本地路径，源文件在内存中时该文件不存在
+     */
+    public Path getSourcePath() {
+        return source.getPath();
+    }
+
+    public String getTargetFilename() {
+        return targetFilename;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public CostEstimate getEstimate() {
+        return estimate;
+    }
+
+    /**
+     * 转换结果的本地输出路径（与源文件同目录）
+     */
+    public Path getOutputPath() {
+        return source.getPath().getParent().resolve(targetFilename);
+    }
+}
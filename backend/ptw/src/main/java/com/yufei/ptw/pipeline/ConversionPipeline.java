@@ -0,0 +1,225 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.cache.ConversionResultCache;
+import com.yufei.ptw.converter.ConverterUnavailableException;
+import com.yufei.ptw.engine.ConversionEngineSelector;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import com.yufei.ptw.service.TaskService;
+import com.yufei.ptw.util.OssUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件转换流水线
+ * 上传文件在请求线程中落盘（spool）后，依次经过 转换(convert) → 存储(store) → 收尾(finalize) 三个阶段，
+ * 每个阶段运行在各自的有界线程池上，请求线程提交后立即返回；
+ * 转换阶段前由 {@link FairShareScheduler} 按租户公平排队，排队成本和预计完成时间来自 {@link CostEstimator}，
+ * 扫描件PDF由 {@link TextLayerDetector} 识别后进入单独的通道；
+ * 启用内存缓冲时，小文件的源文件和转换结果保存在 {@link BufferPool} 的缓冲区中，各阶段之间不经过本地文件；
+ * 各阶段的耗时和按原因分类的失败次数记录到 {@link PipelineMetrics}
+ */
+@Slf4j
+@Component
+public class ConversionPipeline {
+
+    @Autowired
+    private ConversionEngineSelector engineSelector;
+
+    @Autowired
+    private OssUtil ossUtil;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ConversionResultCache resultCache;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private FairShareScheduler scheduler;
+
+    @Autowired
+    private CostEstimator costEstimator;
+
+    @Autowired
+    private TextLayerDetector textLayerDetector;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    @Qualifier("storeExecutor")
+    private ThreadPoolTaskExecutor storeExecutor;
+
+    @Autowired
+    @Qualifier("finalizeExecutor")
+    private ThreadPoolTaskExecutor finalizeExecutor;
+
+    /**
+     * 提交转换作业
+     *
+     * @param job 已落盘的转换作业
+     * @return 完成时携带文件URL的Future，失败时异常完成
+     */
+    public CompletableFuture<String> submit(ConversionJob job) {
+        // 上传时已在请求线程中估算，只有重启后恢复的任务在这里估算
+        ConversionJob estimated = estimate(job);
+        CostEstimate estimate = estimated.getEstimate();
+        SchedulingLane lane = estimate.isScanned() ? SchedulingLane.SCANNED
+                : costEstimator.isExpress(estimate) ? SchedulingLane.EXPRESS : SchedulingLane.STANDARD;
+        log.info("提交{}任务到流水线，任务ID: {}, {}, 调度通道: {}", job.getType().getDescription(), job.getTaskId(),
+                estimate, lane);
+        taskService.updateTaskEstimate(job.getTaskId(), LocalDateTime.now().plus(
+                Duration.ofMillis(scheduler.estimateWaitMillis(lane) + estimate.getEstimatedMillis())));
+        DocumentContent output = bufferPool.allocate(job.getOutputPath());
+        // 转换阶段由公平调度器按租户排队后在转换线程池上执行
+        CompletableFuture<DocumentContent> converted = scheduler.submit(job.getTenant(), estimate.getEstimatedMillis(),
+                lane, () -> convert(estimated, output));
+        return converted
+                .thenApplyAsync(result -> store(job, result), storeExecutor)
+                .whenCompleteAsync((fileUrl, ex) -> finish(job, output, fileUrl, ex), finalizeExecutor);
+    }
+
+    /**
+     * 估算转换成本，PDF先检测文本层并把结果记录到任务
+     * 需要读取文档，应在上传线程中创建任务后调用；提交、跟随任务重新提交时直接使用作业携带的估算
+     *
+     * @return 带有成本估算的作业，已有估算时返回原作业
+     */
+    public ConversionJob estimate(ConversionJob job) {
+        if (job.getEstimate() != null) {
+            return job;
+        }
+        boolean scanned = false;
+        int pages = -1;
+        if (job.getType() != ConversionType.WORD_TO_PDF) {
+            // 检测时读取的页数直接用于估算，PDF只打开一次
+            TextLayerDetector.Detection detection = textLayerDetector.detect(job.getSource());
+            taskService.updateTaskTextLayer(job.getTaskId(), detection.getHasTextLayer());
+            scanned = Boolean.FALSE.equals(detection.getHasTextLayer());
+            pages = detection.getPages();
+        }
+        return job.withEstimate(costEstimator.estimate(job.getType(), job.getSource(), scanned, pages));
+    }
+
+    /**
+     * 转换阶段：由转换引擎生成输出文件，并记录实际使用的引擎
+     */
+    private DocumentContent convert(ConversionJob job, DocumentContent output) {
+        log.info("开始{}任务，任务ID: {}", job.getType().getDescription(), job.getTaskId());
+        taskService.updateTaskToProcessing(job.getTaskId());
+        // 开始执行后排队时间已确定，按转换耗时重新计算预计完成时间
+        taskService.updateTaskEstimate(job.getTaskId(),
+                LocalDateTime.now().plus(Duration.ofMillis(job.getEstimate().getEstimatedMillis())));
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            String engine = engineSelector.convert(job.getType(), job.getEstimate(), job.getSource(), output);
+            outcome = "success";
+            long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            admissionController.recordConversion(elapsed);
+            costEstimator.record(job.getType(), job.getEstimate(), elapsed);
+            taskService.updateTaskEngine(job.getTaskId(), engine);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            pipelineMetrics.timer("ptw.converter.call", "type", job.getType().name(), "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return output;
+    }
+
+    /**
+     * 存储阶段：将输出文件上传到阿里云OSS，并记录到结果缓存
+     */
+    private String store(ConversionJob job, DocumentContent output) {
+        long start = System.nanoTime();
+        try {
+            String fileUrl = ossUtil.uploadContent(output, job.getTargetFilename(), job.getType().getContentType());
+            if (job.getContentHash() != null) {
+                resultCache.put(resultCache.key(job.getType(), job.getContentHash()), fileUrl);
+            }
+            return fileUrl;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            pipelineMetrics.timer("ptw.oss.upload").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 收尾阶段：更新任务状态，清理本地文件并释放缓冲区
+     */
+    private void finish(ConversionJob job, DocumentContent output, String fileUrl, Throwable ex) {
+        String taskId = job.getTaskId();
+        if (ex == null) {
+            taskService.updateTaskToCompleted(taskId, fileUrl);
+            log.info("{}任务完成，任务ID: {}, 文件URL: {}", job.getType().getDescription(), taskId, fileUrl);
+        } else {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            String errorMessage = cause.getMessage() != null ? cause.getMessage() : "未知错误";
+            taskService.updateTaskToFailed(taskId, errorMessage);
+            pipelineMetrics.counter("ptw.conversion.failures", "cause", failureCause(cause)).increment();
+            log.error("{}任务失败，任务ID: {}, 错误信息: {}", job.getType().getDescription(), taskId, errorMessage, cause);
+        }
+
+        long start = System.nanoTime();
+        try {
+            // 清理本地文件
+            job.getSource().delete();
+            output.delete();
+            log.info("已清理本地文件，任务ID: {}", taskId);
+        } catch (IOException e) {
+            log.error("清理本地文件失败，任务ID: {}, 错误信息: {}", taskId, e.getMessage(), e);
+        } finally {
+            pipelineMetrics.timer("ptw.cleanup").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 失败原因分类，作为失败计数的标签，取值是有限的几种
+     */
+    static String failureCause(Throwable cause) {
+        if (cause instanceof ConverterUnavailableException) {
+            return "converter_unavailable";
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return "queue_full";
+        }
+        if (cause instanceof CancellationException) {
+            return "cancelled";
+        }
+        if (cause instanceof ResourceAccessException) {
+            return cause.getCause() instanceof SocketTimeoutException ? "converter_timeout" : "converter_unreachable";
+        }
+        if (cause instanceof RestClientException) {
+            return "converter_error";
+        }
+        if (cause instanceof IOException) {
+            return "io";
+        }
+        return "other";
+    }
+}
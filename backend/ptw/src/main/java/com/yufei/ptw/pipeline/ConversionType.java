@@ -0,0 +1,39 @@
+package com.yufei.ptw.pipeline;
+
+/**
+ * 转换类型枚举
+ * 描述转换方向、Python API端点以及输出文件的扩展名和Content-Type
+ */
+public enum ConversionType {
+    WORD_TO_PDF("/word-to-pdf", ".pdf", "application/pdf", "Word转PDF"),
+    PDF_TO_DOCX("/pdf-to-word", ".docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "PDF转Word(DOCX)"),
+    PDF_TO_DOC("/pdf-to-word", ".doc", "application/msword", "PDF转Word(DOC)");
+
+    private final String endpoint;
+    private final String targetExtension;
+    private final String contentType;
+    private final String description;
+
+    ConversionType(String endpoint, String targetExtension, String contentType, String description) {
+        this.endpoint = endpoint;
+        this.targetExtension = targetExtension;
+        this.contentType = contentType;
+        this.description = description;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getTargetExtension() {
+        return targetExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,46 @@
+package com.yufei.ptw.pipeline;
+
+/**
+ * 转换任务的成本估算
+ */
+public class CostEstimate {
+    // 页数，无法读取时为-1
+    private final int pages;
+    private final long bytes;
+    // 是否为扫描件PDF，扫描件使用单独的估算参数
+    private final boolean scanned;
+    // 预计转换耗时（毫秒）
+    private final long estimatedMillis;
+
+    public CostEstimate(int pages, long bytes, long estimatedMillis) {
+        this(pages, bytes, false, estimatedMillis);
+    }
+
+    public CostEstimate(int pages, long bytes, boolean scanned, long estimatedMillis) {
+        this.pages = pages;
+        this.bytes = bytes;
+        this.scanned = scanned;
+        this.estimatedMillis = estimatedMillis;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public boolean isScanned() {
+        return scanned;
+    }
+
+    public long getEstimatedMillis() {
+        return estimatedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "pages=" + pages + ", bytes=" + bytes + ", scanned=" + scanned + ", estimatedMillis=" + estimatedMillis;
+    }
+}
@@ -0,0 +1,195 @@
+package com.yufei.ptw.pipeline;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.CostProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hpsf.PropertySetFactory;
+import org.apache.poi.hpsf.SummaryInformation;
+import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 转换成本估算
+ * 根据转换方向、页数和文件大小估算转换耗时，页数通过iText/POI只读取文档元数据获得，不解析正文；
+ * 每次转换完成后用实测耗时修正对应转换方向的每页（或每MB）耗时，扫描件PDF和文本PDF分别修正
+ */
+@Slf4j
+@Component
+public class CostEstimator {
+
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    @Autowired
+    private CostProperties costProperties;
+
+    // 各转换方向的估算参数，由估算器的监视器保护
+    private final Map<ConversionType, Model> models = new EnumMap<>(ConversionType.class);
+    private final Map<ConversionType, Model> scannedModels = new EnumMap<>(ConversionType.class);
+
+    /**
+     * 估算转换成本
+     */
+    public CostEstimate estimate(ConversionType type, DocumentContent source) {
+        return estimate(type, source, false);
+    }
+
+    /**
+     * 估算转换成本
+     *
+     * @param scanned 是否为扫描件PDF
+     */
+    public CostEstimate estimate(ConversionType type, DocumentContent source, boolean scanned) {
+        return estimate(type, source, scanned, -1);
+    }
+
+    /**
+     * 估算转换成本
+     *
+     * @param scanned 是否为扫描件PDF
+     * @param pages   已知的页数（如文本层检测时读取的页数），未知时为-1，由估算器读取
+     */
+    public CostEstimate estimate(ConversionType type, DocumentContent source, boolean scanned, int pages) {
+        long bytes;
+        try {
+            bytes = source.size();
+        } catch (IOException e) {
+            bytes = 0;
+        }
+        if (pages <= 0) {
+            pages = countPages(type, source);
+        }
+        Model model = model(type, scanned);
+        double variable;
+        synchronized (this) {
+            variable = pages > 0 ? pages * model.millisPerPage : bytes / BYTES_PER_MEGABYTE * model.millisPerMegabyte;
+        }
+        CostEstimate estimate = new CostEstimate(pages, bytes, scanned,
+                costProperties.getBaseMillis() + Math.round(variable));
+        log.debug("转换成本估算，类型: {}, {}", type, estimate);
+        return estimate;
+    }
+
+    /**
+     * 用实测耗时修正估算参数
+     */
+    public void record(ConversionType type, CostEstimate estimate, long actualMillis) {
+        if (estimate == null) {
+            return;
+        }
+        double variable = Math.max(0, actualMillis - costProperties.getBaseMillis());
+        double rate = costProperties.getLearningRate();
+        Model model = model(type, estimate.isScanned());
+        synchronized (this) {
+            if (estimate.getPages() > 0) {
+                model.millisPerPage += rate * (variable / estimate.getPages() - model.millisPerPage);
+            } else if (estimate.getBytes() > 0) {
+                model.millisPerMegabyte += rate * (variable / (estimate.getBytes() / BYTES_PER_MEGABYTE) - model.millisPerMegabyte);
+            }
+        }
+    }
+
+    /**
+     * 是否进入快速通道
+     */
+    public boolean isExpress(CostEstimate estimate) {
+        return estimate.getEstimatedMillis() <= costProperties.getExpressThreshold().toMillis();
+    }
+
+    private synchronized Model model(ConversionType type, boolean scanned) {
+        if (scanned) {
+            return scannedModels.computeIfAbsent(type, t -> new Model(costProperties.getInitialScannedMillisPerPage(),
+                    costProperties.getInitialMillisPerMegabyte()));
+        }
+        return models.computeIfAbsent(type, t -> new Model(costProperties.getInitialMillisPerPage(),
+                costProperties.getInitialMillisPerMegabyte()));
+    }
+
+    /**
+     * 读取页数，失败时返回-1
+     */
+    int countPages(ConversionType type, DocumentContent source) {
+        try {
+            byte[] header;
+            try (InputStream in = source.openInput()) {
+                header = in.readNBytes(4);
+            }
+            if (header.length < 4) {
+                return -1;
+            }
+            if (header[0] == 0x25 && header[1] == 0x50 && header[2] == 0x44 && header[3] == 0x46) {
+                return countPdfPages(source);
+            }
+            if (header[0] == 0x50 && header[1] == 0x4B) {
+                return countDocxPages(source);
+            }
+            if (header[0] == (byte) 0xD0 && header[1] == (byte) 0xCF) {
+                return countDocPages(source);
+            }
+        } catch (Exception e) {
+            log.debug("读取页数失败，按文件大小估算: {}", e.getMessage());
+        }
+        return -1;
+    }
+
+    private int countPdfPages(DocumentContent source) throws IOException {
+        // 部分读取模式只解析交叉引用表和页面树
+        PdfReader reader = new PdfReader(new RandomAccessFileOrArray(PdfSource.open(source)), null);
+        try {
+            return reader.getNumberOfPages();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int countDocxPages(DocumentContent source) throws Exception {
+        // 读取docProps/app.xml中Word保存时记录的页数
+        try (OPCPackage pkg = source.isInMemory() ? openPackage(source)
+                : OPCPackage.open(source.getPath().toFile(), PackageAccess.READ)) {
+            int pages = new POIXMLProperties(pkg).getExtendedProperties().getPages();
+            return pages > 0 ? pages : -1;
+        }
+    }
+
+    private OPCPackage openPackage(DocumentContent source) throws Exception {
+        try (InputStream in = source.openInput()) {
+            return OPCPackage.open(in);
+        }
+    }
+
+    private int countDocPages(DocumentContent source) throws Exception {
+        try (POIFSFileSystem fs = source.isInMemory() ? openFileSystem(source)
+                : new POIFSFileSystem(source.getPath().toFile(), true)) {
+            SummaryInformation info = (SummaryInformation) PropertySetFactory.create(fs.getRoot(),
+                    SummaryInformation.DEFAULT_STREAM_NAME);
+            int pages = info.getPageCount();
+            return pages > 0 ? pages : -1;
+        }
+    }
+
+    private POIFSFileSystem openFileSystem(DocumentContent source) throws IOException {
+        try (InputStream in = source.openInput()) {
+            return new POIFSFileSystem(in);
+        }
+    }
+
+    private static final class Model {
+        private double millisPerPage;
+        private double millisPerMegabyte;
+
+        private Model(double millisPerPage, double millisPerMegabyte) {
+            this.millisPerPage = millisPerPage;
+            this.millisPerMegabyte = millisPerMegabyte;
+        }
+    }
+}
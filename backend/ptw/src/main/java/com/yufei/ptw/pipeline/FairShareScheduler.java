@@ -0,0 +1,376 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.config.CostProperties;
+import com.yufei.ptw.config.SchedulerProperties;
+import com.yufei.ptw.config.TextLayerProperties;
+import com.yufei.ptw.converter.AdaptiveConcurrencyLimiter;
+import com.yufei.ptw.entity.TenantQueueStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 多租户公平调度器
+ * 位于转换阶段之前，每个租户有独立的等待队列，按赤字轮询（Deficit Round Robin）顺序把任务交给转换线程池：
+ * 每轮租户获得与权重成正比的额度，额度足够时调度队首任务并扣除其成本（预计转换耗时）。
+ * 同时交给线程池的任务数不超过maxConcurrency和 {@link AdaptiveConcurrencyLimiter} 当前上限中的较小者，
+ * 等待都发生在调度器中，一个租户大量提交不会阻塞其他租户，转换服务过载时任务留在队列中而不是占住转换线程。
+ * <p>
+ * 任务按 {@link SchedulingLane} 分为三个通道，每个通道有独立的等待队列和并发限制：
+ * 预计耗时短的任务进入快速通道，按预计耗时从短到长（SJF）调度，并保留expressSlots个并发；
+ * 扫描件PDF进入扫描件通道，最多占用scannedSlots个并发，一批扫描件不会阻塞文本PDF
+ */
+@Slf4j
+@Component
+public class FairShareScheduler {
+
+    @Autowired
+    private SchedulerProperties schedulerProperties;
+
+    @Autowired
+    private CostProperties costProperties;
+
+    @Autowired
+    private TextLayerProperties textLayerProperties;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private ThreadPoolTaskExecutor convertExecutor;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    // 以下字段由调度器的监视器保护
+    private final Map<String, TenantQueue> tenants = new HashMap<>();
+    private final Map<SchedulingLane, Lane> lanes = new EnumMap<>(SchedulingLane.class);
+    private int maxConcurrency;
+    private int reservedExpressSlots;
+    private int running;
+    private int queued;
+    private long sequence;
+
+    @PostConstruct
+    public void init() {
+        maxConcurrency = schedulerProperties.getMaxConcurrency() > 0
+                ? schedulerProperties.getMaxConcurrency() : convertExecutor.getCorePoolSize();
+        // 至少留一个并发给普通任务
+        reservedExpressSlots = Math.max(0, Math.min(costProperties.getExpressSlots(), maxConcurrency - 1));
+        int scannedSlots = Math.max(1, Math.min(textLayerProperties.getScannedSlots(),
+                maxConcurrency - reservedExpressSlots - 1));
+        lanes.put(SchedulingLane.EXPRESS, new Lane(maxConcurrency));
+        lanes.put(SchedulingLane.SCANNED, new Lane(scannedSlots));
+        lanes.put(SchedulingLane.STANDARD, new Lane(maxConcurrency - reservedExpressSlots));
+        // 许可释放或上限提高后继续派发排队的任务
+        limiter.addListener(this::dispatch);
+        log.info("公平调度器已启动，最大并发: {}, 快速通道保留并发: {}, 扫描件通道并发: {}, 排队上限: {}",
+                maxConcurrency, reservedExpressSlots, scannedSlots, schedulerProperties.getMaxQueued());
+    }
+
+    /**
+     * 提交任务，由调度器决定何时在转换线程池上执行
+     *
+     * @param tenant 租户，null表示默认租户
+     * @param cost   任务成本（预计转换耗时，毫秒），成本越高消耗的额度越多
+     * @param lane   调度通道
+     * @param task   转换任务
+     * @return 任务完成时完成的Future；排队已满时异常完成
+     */
+    public <T> CompletableFuture<T> submit(String tenant, long cost, SchedulingLane lane, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        String key = tenant != null ? tenant : schedulerProperties.getDefaultTenant();
+        synchronized (this) {
+            if (queued >= schedulerProperties.getMaxQueued()) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("转换队列已满，请稍后重试"));
+            }
+            TenantQueue tenantQueue = tenants.computeIfAbsent(key, this::newTenantQueue);
+            Lane target = lanes.get(lane);
+            LaneQueue laneQueue = tenantQueue.queues.get(lane);
+            if (laneQueue.jobs.isEmpty()) {
+                target.active.addLast(laneQueue);
+            }
+            ScheduledJob<T> job = new ScheduledJob<>(Math.max(1, cost), sequence++, task, future);
+            laneQueue.jobs.add(job);
+            target.queuedCost += job.cost;
+            queued++;
+        }
+        dispatch();
+        return future;
+    }
+
+    /**
+     * 估算新任务在指定通道中开始执行前需要等待的时间（毫秒）
+     */
+    public synchronized long estimateWaitMillis(SchedulingLane lane) {
+        Lane target = lanes.get(lane);
+        if (running < concurrencyLimit() && target.running < target.limit && target.queuedCost == 0) {
+            return 0;
+        }
+        // 排队任务全部执行完，正在执行的任务平均剩余一半
+        return (target.queuedCost + target.runningCost / 2) / target.limit;
+    }
+
+    /**
+     * 所有租户排队中的任务数
+     */
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public int getMaxQueued() {
+        return schedulerProperties.getMaxQueued();
+    }
+
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 各租户的队列状态
+     */
+    public synchronized List<TenantQueueStatus> getTenantStatus() {
+        List<TenantQueueStatus> result = new ArrayList<>(tenants.size());
+        for (TenantQueue queue : tenants.values()) {
+            TenantQueueStatus status = new TenantQueueStatus();
+            status.setTenant(queue.tenant);
+            status.setWeight(queue.weight);
+            status.setMaxConcurrency(queue.maxConcurrency);
+            status.setQueued(queue.queued());
+            status.setExpressQueued(queue.queues.get(SchedulingLane.EXPRESS).jobs.size());
+            status.setScannedQueued(queue.queues.get(SchedulingLane.SCANNED).jobs.size());
+            status.setRunning(queue.running);
+            status.setDispatched(queue.dispatched);
+            result.add(status);
+        }
+        result.sort(Comparator.comparing(TenantQueueStatus::getTenant));
+        return result;
+    }
+
+    /**
+     * 当前允许同时执行的任务数，即maxConcurrency与转换服务自适应并发上限中的较小值
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit();
+    }
+
+    private int concurrencyLimit() {
+        return limiter.isEnabled() ? Math.min(maxConcurrency, limiter.getLimit()) : maxConcurrency;
+    }
+
+    /**
+     * 在并发上限内选出任务：快速通道优先，其次是未达到并发上限的扫描件通道，最后是普通通道；
+     * 快速通道以外的任务合计不占用保留给快速通道的并发。选出的任务在锁外交给线程池
+     */
+    private void dispatch() {
+        List<Launch> launches = new ArrayList<>();
+        synchronized (this) {
+            while (running < concurrencyLimit()) {
+                Launch launch = next(lanes.get(SchedulingLane.EXPRESS));
+                if (launch == null && running - lanes.get(SchedulingLane.EXPRESS).running
+                        < maxConcurrency - reservedExpressSlots) {
+                    launch = next(lanes.get(SchedulingLane.SCANNED));
+                    if (launch == null) {
+                        launch = next(lanes.get(SchedulingLane.STANDARD));
+                    }
+                }
+                if (launch == null) {
+                    break;
+                }
+                launches.add(launch);
+            }
+        }
+        for (Launch launch : launches) {
+            try {
+                convertExecutor.execute(() -> run(launch));
+            } catch (RejectedExecutionException e) {
+                log.error("转换线程池拒绝任务，租户: {}", launch.queue.owner.tenant);
+                launch.job.future.completeExceptionally(new RejectedExecutionException("转换队列已满，请稍后重试", e));
+                release(launch);
+            }
+        }
+    }
+
+    /**
+     * 按赤字轮询选出通道中的下一个任务，通道或所有租户都达到并发上限时返回null
+     */
+    private Launch next(Lane lane) {
+        if (lane.running >= lane.limit) {
+            return null;
+        }
+        // 连续因并发上限跳过的租户数
+        int skipped = 0;
+        while (!lane.active.isEmpty() && skipped < lane.active.size()) {
+            LaneQueue queue = lane.active.peekFirst();
+            TenantQueue owner = queue.owner;
+            if (owner.maxConcurrency > 0 && owner.running >= owner.maxConcurrency) {
+                lane.active.addLast(lane.active.pollFirst());
+                skipped++;
+                continue;
+            }
+            ScheduledJob<?> job = queue.jobs.peek();
+            if (queue.deficit < job.cost) {
+                // 额度不足，补充一轮额度后轮到下一个租户
+                queue.deficit += owner.weight * schedulerProperties.getQuantum().toMillis();
+                lane.active.addLast(lane.active.pollFirst());
+                skipped = 0;
+                continue;
+            }
+            queue.jobs.poll();
+            queue.deficit -= job.cost;
+            if (queue.jobs.isEmpty()) {
+                // 队列清空后额度归零，避免空闲租户积累额度
+                queue.deficit = 0;
+                lane.active.pollFirst();
+            }
+            owner.running++;
+            owner.dispatched++;
+            lane.running++;
+            lane.queuedCost -= job.cost;
+            lane.runningCost += job.cost;
+            queued--;
+            running++;
+            return new Launch(lane, queue, job);
+        }
+        return null;
+    }
+
+    private <T> void run(Launch launch) {
+        @SuppressWarnings("unchecked")
+        ScheduledJob<T> job = (ScheduledJob<T>) launch.job;
+        try {
+            job.future.complete(job.task.get());
+        } catch (CompletionException e) {
+            job.future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+        } catch (Throwable e) {
+            job.future.completeExceptionally(e);
+        } finally {
+            release(launch);
+        }
+    }
+
+    private void release(Launch launch) {
+        synchronized (this) {
+            TenantQueue owner = launch.queue.owner;
+            running--;
+            owner.running--;
+            launch.lane.running--;
+            launch.lane.runningCost -= launch.job.cost;
+            // 空闲的租户不再保留，配置从属性中重新读取
+            if (owner.running == 0 && owner.queued() == 0) {
+                tenants.remove(owner.tenant, owner);
+            }
+        }
+        dispatch();
+    }
+
+    private TenantQueue newTenantQueue(String tenant) {
+        int weight = schedulerProperties.getWeights().getOrDefault(tenant, schedulerProperties.getDefaultWeight());
+        int concurrency = schedulerProperties.getTenantConcurrency()
+                .getOrDefault(tenant, schedulerProperties.getDefaultTenantConcurrency());
+        return new TenantQueue(tenant, Math.max(1, weight), Math.max(0, concurrency));
+    }
+
+    /**
+     * 调度通道，active中是有等待任务的租户队列，按轮询顺序排列
+     */
+    private static final class Lane {
+        private final int limit;
+        private final Deque<LaneQueue> active = new ArrayDeque<>();
+        private int running;
+        private long queuedCost;
+        private long runningCost;
+
+        private Lane(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    private static final class TenantQueue {
+        private final String tenant;
+        private final int weight;
+        private final int maxConcurrency;
+        private final Map<SchedulingLane, LaneQueue> queues = new EnumMap<>(SchedulingLane.class);
+        private int running;
+        private long dispatched;
+
+        private TenantQueue(String tenant, int weight, int maxConcurrency) {
+            this.tenant = tenant;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            // 快速通道内按预计耗时从短到长，其他通道按提交顺序
+            queues.put(SchedulingLane.EXPRESS, new LaneQueue(this, new PriorityQueue<>(
+                    Comparator.<ScheduledJob<?>>comparingLong(job -> job.cost).thenComparingLong(job -> job.sequence))));
+            queues.put(SchedulingLane.STANDARD, new LaneQueue(this, new ArrayDeque<>()));
+            queues.put(SchedulingLane.SCANNED, new LaneQueue(this, new ArrayDeque<>()));
+        }
+
+        private int queued() {
+            int total = 0;
+            for (LaneQueue queue : queues.values()) {
+                total += queue.jobs.size();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 租户在一个通道中的等待队列
+     */
+    private static final class LaneQueue {
+        private final TenantQueue owner;
+        private final Queue<ScheduledJob<?>> jobs;
+        private long deficit;
+
+        private LaneQueue(TenantQueue owner, Queue<ScheduledJob<?>> jobs) {
+            this.owner = owner;
+            this.jobs = jobs;
+        }
+    }
+
+    private static final class ScheduledJob<T> {
+        private final long cost;
+        private final long sequence;
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future;
+
+        private ScheduledJob(long cost, long sequence, Supplier<T> task, CompletableFuture<T> future) {
+            this.cost = cost;
+            this.sequence = sequence;
+            this.task = task;
+            this.future = future;
+        }
+    }
+
+    private static final class Launch {
+        private final Lane lane;
+        private final LaneQueue queue;
+        private final ScheduledJob<?> job;
+
+        private Launch(Lane lane, LaneQueue queue, ScheduledJob<?> job) {
+            this.lane = lane;
+            this.queue = queue;
+            this.job = job;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.yufei.ptw.pipeline;
+
+import com.itextpdf.text.io.RandomAccessSource;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.yufei.ptw.buffer.DocumentContent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * PDF元数据读取使用的iText读取源
+ * 内存中的内容直接读取缓冲区，不复制；本地文件使用部分读取模式，只读取用到的部分
+ */
+final class PdfSource implements RandomAccessSource {
+
+    private final ByteBuffer buffer;
+
+    private PdfSource(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    static RandomAccessSource open(DocumentContent content) throws IOException {
+        ByteBuffer buffer = content.asReadOnlyBuffer();
+        if (buffer != null) {
+            return new PdfSource(buffer);
+        }
+        return new RandomAccessSourceFactory().setForceRead(false).createBestSource(content.getPath().toString());
+    }
+
+    @Override
+    public int get(long position) {
+        return position < buffer.limit() ? buffer.get((int) position) & 0xFF : -1;
+    }
+
+    @Override
+    public int get(long position, byte[] bytes, int off, int len) {
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+        int n = (int) Math.min(len, buffer.limit() - position);
+        buffer.get((int) position, bytes, off, n);
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public void close() {
+        // 缓冲区由DocumentContent归还到缓冲区池
+    }
+}
@@ -0,0 +1,13 @@
+package com.yufei.ptw.pipeline;
+
+/**
+ * 调度通道，各通道有独立的等待队列和并发限制
+ */
+public enum SchedulingLane {
+    // 预计耗时短的任务，按预计耗时从短到长调度，可使用全部并发
+    EXPRESS,
+    // 普通任务，不占用为快速通道保留的并发
+    STANDARD,
+    // 扫描件PDF，只使用扫描件通道的并发，大量扫描件不会阻塞文本PDF
+    SCANNED
+}
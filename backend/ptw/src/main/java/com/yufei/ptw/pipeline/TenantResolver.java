@@ -0,0 +1,36 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.config.SchedulerProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * 从当前请求的请求头中识别租户
+ */
+@Component
+public class TenantResolver {
+
+    private static final int MAX_TENANT_LENGTH = 64;
+
+    @Autowired
+    private SchedulerProperties schedulerProperties;
+
+    /**
+     * 当前请求的租户，不在请求线程中或请求头缺失时返回默认租户
+     */
+    public String currentTenant() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            String tenant = ((ServletRequestAttributes) attributes).getRequest()
+                    .getHeader(schedulerProperties.getTenantHeader());
+            if (tenant != null && !tenant.isBlank()) {
+                tenant = tenant.trim();
+                return tenant.length() > MAX_TENANT_LENGTH ? tenant.substring(0, MAX_TENANT_LENGTH) : tenant;
+            }
+        }
+        return schedulerProperties.getDefaultTenant();
+    }
+}
@@ -0,0 +1,104 @@
+package com.yufei.ptw.pipeline;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.TextLayerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * PDF文本层检测
+ * 在文档中均匀抽取若干页提取文本，平均每页字符数过少时判定为扫描件（只有图片没有文本层）。
+ * 使用iText部分读取模式，只解析交叉引用表和被抽样的页面，不加载整个文档；内存中的PDF直接读取缓冲区。
+ * 检测时顺便返回页数，成本估算不必再次打开文档
+ */
+@Slf4j
+@Component
+public class TextLayerDetector {
+
+    @Autowired
+    private TextLayerProperties textLayerProperties;
+
+    /**
+     * 检测PDF是否包含文本层
+     *
+     * @return true表示有文本层，false表示扫描件，无法判断（未启用、加密、解析失败）时返回null
+     */
+    public Boolean hasTextLayer(DocumentContent pdf) {
+        return detect(pdf).getHasTextLayer();
+    }
+
+    /**
+     * 检测PDF是否包含文本层，同时读取页数
+     */
+    public Detection detect(DocumentContent pdf) {
+        if (!textLayerProperties.isEnabled()) {
+            return new Detection(-1, null);
+        }
+        long start = System.currentTimeMillis();
+        PdfReader reader = null;
+        int pages = -1;
+        try {
+            reader = new PdfReader(new RandomAccessFileOrArray(PdfSource.open(pdf)), null);
+            pages = reader.getNumberOfPages();
+            int samples = Math.min(pages, Math.max(1, textLayerProperties.getSamplePages()));
+            if (samples == 0) {
+                return new Detection(pages, null);
+            }
+            long required = (long) samples * textLayerProperties.getMinCharsPerPage();
+            long chars = 0;
+            for (int i = 0; i < samples && chars < required; i++) {
+                int page = 1 + (int) ((long) i * pages / samples);
+                chars += countVisibleChars(PdfTextExtractor.getTextFromPage(reader, page));
+                reader.releasePage(page);
+            }
+            boolean hasText = chars >= required;
+            log.debug("PDF文本层检测完成，文件: {}, 页数: {}, 抽样: {}, 字符数: {}, 有文本层: {}, 耗时: {} ms",
+                    pdf.getPath().getFileName(), pages, samples, chars, hasText, System.currentTimeMillis() - start);
+            return new Detection(pages, hasText);
+        } catch (Exception e) {
+            log.warn("PDF文本层检测失败，按文本PDF处理，文件: {}, 错误信息: {}", pdf.getPath().getFileName(), e.getMessage());
+            return new Detection(pages, null);
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    private int countVisibleChars(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 文本层检测结果
+     */
+    public static final class Detection {
+        // 页数，未启用检测或无法读取时为-1
+        private final int pages;
+        // true表示有文本层，false表示扫描件，无法判断时为null
+        private final Boolean hasTextLayer;
+
+        public Detection(int pages, Boolean hasTextLayer) {
+            this.pages = pages;
+            this.hasTextLayer = hasTextLayer;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+
+        public Boolean getHasTextLayer() {
+            return hasTextLayer;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.yufei.ptw.service;
+
+import com.yufei.ptw.entity.BatchStatus;
+import com.yufei.ptw.entity.Result;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 批量转换服务接口
+ */
+public interface BatchService {
+
+    /**
+     * 提交批量转换，支持多个文件或ZIP压缩包
+     */
+    Result<String> submitBatch(MultipartFile[] files);
+
+    /**
+     * 查询批次汇总状态，批次不存在时返回null
+     */
+    BatchStatus getBatchStatus(String batchId);
+
+    /**
+     * 按完成顺序将批次的转换结果以ZIP格式写入输出流，直到所有文件处理完毕
+     */
+    void writeResults(String batchId, OutputStream outputStream) throws IOException;
+}
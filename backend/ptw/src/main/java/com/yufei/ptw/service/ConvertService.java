@@ -3,8 +3,14 @@ package com.yufei.ptw.service;
 
 import com.yufei.ptw.entity.Result;
 
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionType;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
 public interface ConvertService {
 
     /**
@@ -16,6 +22,32 @@ public interface ConvertService {
      * PDF转Word接口 (DOCX格式)
      */
     Result<String> pdfToWord(MultipartFile file);
-    
+
+    /**
+     * 流式上传转换：直接解析multipart请求体，一次读取完成落盘、内容哈希和文件类型检测，根据文件内容自动选择转换方向
+     *
+     * @param body          请求体
+     * @param contentType   请求的Content-Type，包含multipart分隔符
+     * @param contentLength 请求体长度，未知时为-1
+     * @throws com.yufei.ptw.upload.UploadTooLargeException 文件超过大小限制时
+     */
+    Result<String> changeStream(InputStream body, String contentType, long contentLength) throws IOException;
+
+    /**
+     * 根据文件名、Content-Type和文件头识别转换方向（Word转PDF或PDF转Word），不支持时返回null
+     */
+    ConversionType detectConversionType(String filename, String contentType, byte[] header);
+
+    /**
+     * 将文件内容保存到本地目录并创建任务记录，返回带有成本估算的待提交转换作业
+     */
+    ConversionJob prepare(InputStream content, String originalFilename, ConversionType type) throws IOException;
+
+    /**
+     * 提交转换作业，命中结果缓存时直接完成；相同内容正在转换时等待该转换的结果，不重复转换
+     *
+     * @return 完成时携带文件URL的Future
+     */
+    CompletableFuture<String> dispatch(ConversionJob job);
 
 }
@@ -2,6 +2,10 @@ package com.yufei.ptw.service;
 
 import com.yufei.ptw.entity.ConvertTask;
 import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.pipeline.ConversionJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 任务服务接口
@@ -12,6 +16,16 @@ public interface TaskService {
      */
     ConvertTask createTask(String taskId, String originalFilename);
 
+    /**
+     * 为已落盘的转换作业创建任务，作业信息会持久化，服务重启后可以重新提交
+     */
+    ConvertTask createTask(ConversionJob job);
+
+    /**
+     * 取出服务重启后恢复的未完成作业，只能取一次
+     */
+    List<ConversionJob> takeRecoveredJobs();
+
     /**
      * 根据任务ID查询任务
      */
@@ -22,6 +36,21 @@ public interface TaskService {
      */
     void updateTaskToProcessing(String taskId);
 
+    /**
+     * 记录PDF文本层检测结果
+     */
+    void updateTaskTextLayer(String taskId, Boolean hasTextLayer);
+
+    /**
+     * 更新任务的预计完成时间
+     */
+    void updateTaskEstimate(String taskId, LocalDateTime estimatedCompletionTime);
+
+    /**
+     * 记录完成转换的引擎
+     */
+    void updateTaskEngine(String taskId, String engine);
+
     /**
      * 更新任务状态为已完成
      */
@@ -31,4 +60,24 @@ public interface TaskService {
      * 更新任务状态为失败
      */
     void updateTaskToFailed(String taskId, String errorMessage);
-}
\ No newline at end of file
+
+    /**
+     * 统计当前保存的处于指定状态的任务数
+     */
+    long countTasks(TaskStatus status);
+
+    /**
+     * 当前保存的任务数
+     */
+    int getSize();
+
+    /**
+     * 因超过保留时间被淘汰的任务数
+     */
+    long getExpiredEvictions();
+
+    /**
+     * 因任务总数超过上限被提前淘汰的任务数
+     */
+    long getCapacityEvictions();
+}
@@ -0,0 +1,537 @@
+package com.yufei.ptw.service.serviceImpl;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.BatchProperties;
+import com.yufei.ptw.entity.BatchItem;
+import com.yufei.ptw.entity.BatchStatus;
+import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.service.BatchService;
+import com.yufei.ptw.service.ConvertService;
+import com.yufei.ptw.service.TaskService;
+import com.yufei.ptw.upload.InvalidDocumentException;
+import com.yufei.ptw.util.OssUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量转换服务实现类
+ * 批次中的文件全部落盘后逐个提交到转换流水线，每个批次同时在流水线中的文件数不超过maxConcurrency，
+ * 避免一个大批次占满转换线程池；结果按完成顺序以流的方式写入ZIP，不在内存中构建整个压缩包
+ */
+@Slf4j
+@Service
+public class BatchServiceImpl implements BatchService {
+
+    private static final int HEADER_LENGTH = 8;
+
+    // 解压量在此以内时不检查压缩比，很小的压缩包本身开销占比大
+    private static final long RATIO_GRACE_BYTES = 1024 * 1024;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Autowired
+    private ConvertService convertService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private OssUtil ossUtil;
+
+    @Autowired
+    private BatchProperties batchProperties;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    @Override
+    public Result<String> submitBatch(MultipartFile[] files) {
+        purgeExpired();
+        if (files == null || files.length == 0) {
+            return Result.error("上传文件不能为空");
+        }
+
+        Batch batch = new Batch(UUID.randomUUID().toString(), Math.max(1, batchProperties.getMaxConcurrency()));
+        try {
+            for (MultipartFile file : files) {
+                if (file.isEmpty() || file.getOriginalFilename() == null) {
+                    continue;
+                }
+                String filename = baseName(file.getOriginalFilename());
+                try (InputStream in = file.getInputStream()) {
+                    if (filename.toLowerCase().endsWith(".zip")) {
+                        addZipEntries(batch, in);
+                    } else {
+                        addItem(batch, in, filename, file.getContentType());
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            discard(batch, e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (IOException e) {
+            log.error("批量文件上传失败: {}", e.getMessage(), e);
+            discard(batch, "批量文件上传失败");
+            return Result.error("文件上传失败: " + e.getMessage());
+        }
+
+        if (batch.items.isEmpty()) {
+            return Result.error("没有可转换的文件");
+        }
+        batch.checkFinished();
+        batches.put(batch.id, batch);
+        log.info("批量转换已提交，批次ID: {}, 文件数: {}", batch.id, batch.items.size());
+        pump(batch);
+        return Result.success("批量任务已提交，批次ID: " + batch.id);
+    }
+
+    @Override
+    public BatchStatus getBatchStatus(String batchId) {
+        purgeExpired();
+        Batch batch = batches.get(batchId);
+        return batch == null ? null : batch.status();
+    }
+
+    @Override
+    public void writeResults(String batchId, OutputStream outputStream) throws IOException {
+        Batch batch = batches.get(batchId);
+        if (batch == null) {
+            throw new IllegalArgumentException("批次不存在: " + batchId);
+        }
+        long deadline = System.currentTimeMillis() + batchProperties.getDownloadTimeout().toMillis();
+        Set<String> entryNames = new HashSet<>();
+        StringBuilder errors = new StringBuilder();
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        for (int index = 0; index < batch.items.size(); index++) {
+            BatchItem item = batch.awaitFinished(index, deadline);
+            if (item == null) {
+                errors.append("下载超时，其余文件未完成转换").append(System.lineSeparator());
+                break;
+            }
+            if (item.getStatus() == TaskStatus.COMPLETED) {
+                writeResult(zip, item, entryNames, errors);
+            } else {
+                errors.append(item.getOriginalFilename()).append(": ").append(item.getErrorMessage())
+                        .append(System.lineSeparator());
+            }
+            // 每完成一个文件就刷出，客户端可以边转换边下载
+            zip.flush();
+        }
+        if (errors.length() > 0) {
+            zip.putNextEntry(new ZipEntry(uniqueName(entryNames, "errors.txt")));
+            zip.write(errors.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * 先把转换结果完整读取到缓冲区再写入压缩包，读取OSS失败时记入errors.txt，不会留下写了一半的条目；
+     * 写入客户端失败时抛出异常结束下载
+     */
+    private void writeResult(ZipOutputStream zip, BatchItem item, Set<String> entryNames, StringBuilder errors)
+            throws IOException {
+        Path uploadPath = Paths.get(uploadDir);
+        Files.createDirectories(uploadPath);
+        DocumentContent result = bufferPool.allocate(uploadPath.resolve("batch_" + item.getTaskId() + "_result"));
+        try {
+            try (InputStream in = ossUtil.openStream(item.getFileUrl());
+                 OutputStream out = result.openOutput()) {
+                in.transferTo(out);
+            } catch (IOException | RuntimeException e) {
+                log.error("读取转换结果失败，任务ID: {}, 错误信息: {}", item.getTaskId(), e.getMessage());
+                errors.append(item.getOriginalFilename()).append(": 读取转换结果失败").append(System.lineSeparator());
+                return;
+            }
+            zip.putNextEntry(new ZipEntry(uniqueName(entryNames, item.getTargetFilename())));
+            try (InputStream in = result.openInput()) {
+                in.transferTo(zip);
+            }
+            zip.closeEntry();
+        } finally {
+            result.delete();
+        }
+    }
+
+    /**
+     * 展开ZIP压缩包，跳过目录和macOS生成的元数据文件
+     * 解压总量超过批次上限或压缩比异常时抛出 {@link IllegalArgumentException}，由调用方丢弃整个批次
+     */
+    private void addZipEntries(Batch batch, InputStream in) throws IOException {
+        CountingInputStream compressed = new CountingInputStream(in);
+        ZipInputStream zipIn = new ZipInputStream(compressed, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zipIn.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (entry.isDirectory() || name.startsWith("__MACOSX/") || baseName(name).startsWith(".")) {
+                continue;
+            }
+            // prepare会关闭传入的流，这里不能关闭整个压缩包
+            addItem(batch, new ExpansionLimitingInputStream(StreamUtils.nonClosing(zipIn), batch, compressed),
+                    baseName(name), null);
+        }
+    }
+
+    /**
+     * 识别文件类型并落盘，不支持的文件直接记为失败
+     */
+    private void addItem(Batch batch, InputStream in, String filename, String contentType) throws IOException {
+        if (batch.items.size() >= batchProperties.getMaxItems()) {
+            throw new IllegalArgumentException("单个批次最多包含" + batchProperties.getMaxItems() + "个文件");
+        }
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(HEADER_LENGTH);
+        byte[] header = buffered.readNBytes(HEADER_LENGTH);
+        buffered.reset();
+
+        ConversionType type = convertService.detectConversionType(filename, contentType, header);
+        if (type == null) {
+            pipelineMetrics.counter("ptw.conversion.failures", "cause", "unsupported_type").increment();
+            addFailedItem(batch, filename, "不支持的文件类型");
+            return;
+        }
+
+        ConversionJob job;
+        try {
+            job = convertService.prepare(buffered, filename, type);
+        } catch (InvalidDocumentException e) {
+            // 结构损坏的文件不影响批次中的其他文件
+            addFailedItem(batch, filename, e.getMessage());
+            return;
+        }
+        BatchItem item = new BatchItem(job.getTaskId(), filename, targetName(filename, type));
+        batch.items.add(item);
+        batch.waiting.add(new PendingItem(job, item));
+    }
+
+    /**
+     * 记录一个未进入队列就失败的文件
+     */
+    private void addFailedItem(Batch batch, String filename, String errorMessage) {
+        String taskId = UUID.randomUUID().toString();
+        taskService.createTask(taskId, filename);
+        taskService.updateTaskToFailed(taskId, errorMessage);
+        BatchItem item = new BatchItem(taskId, filename, filename);
+        item.setStatus(TaskStatus.FAILED);
+        item.setErrorMessage(errorMessage);
+        batch.items.add(item);
+        batch.finished.add(item);
+    }
+
+    /**
+     * 在批次并发上限内提交等待中的文件
+     */
+    private void pump(Batch batch) {
+        List<PendingItem> launch = new ArrayList<>();
+        synchronized (batch) {
+            while (batch.running < batch.maxConcurrency && !batch.waiting.isEmpty()) {
+                PendingItem pending = batch.waiting.poll();
+                pending.item.setStatus(TaskStatus.PROCESSING);
+                batch.running++;
+                launch.add(pending);
+            }
+        }
+        // 在锁外提交，命中缓存时回调会在当前线程同步执行
+        for (PendingItem pending : launch) {
+            CompletableFuture<String> future;
+            try {
+                future = convertService.dispatch(pending.job);
+            } catch (RuntimeException e) {
+                taskService.updateTaskToFailed(pending.job.getTaskId(), e.getMessage());
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((fileUrl, ex) -> {
+                batch.complete(pending.item, fileUrl, ex);
+                pump(batch);
+            });
+        }
+    }
+
+    /**
+     * 提交失败时清理已落盘的文件
+     */
+    private void discard(Batch batch, String reason) {
+        for (PendingItem pending : batch.waiting) {
+            taskService.updateTaskToFailed(pending.job.getTaskId(), reason);
+            try {
+                pending.job.getSource().delete();
+            } catch (IOException e) {
+                log.warn("清理本地文件失败，任务ID: {}, 错误信息: {}", pending.job.getTaskId(), e.getMessage());
+            }
+        }
+        batch.waiting.clear();
+    }
+
+    private void purgeExpired() {
+        LocalDateTime expireBefore = LocalDateTime.now().minus(batchProperties.getRetention());
+        batches.values().removeIf(batch -> batch.isExpired(expireBefore));
+    }
+
+    private String baseName(String path) {
+        String name = path.replace('\\', '/');
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    private String targetName(String filename, ConversionType type) {
+        int dotIndex = filename.lastIndexOf('.');
+        return (dotIndex > 0 ? filename.substring(0, dotIndex) : filename) + type.getTargetExtension();
+    }
+
+    /**
+     * ZIP内的文件名重复时追加序号
+     */
+    private String uniqueName(Set<String> names, String name) {
+        if (names.add(name)) {
+            return name;
+        }
+        int dotIndex = name.lastIndexOf('.');
+        String base = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        String extension = dotIndex > 0 ? name.substring(dotIndex) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * 统计从上传流中读取的压缩数据字节数，以及该压缩包已解压的字节数
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        private long expanded;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * 读取ZIP条目时累计解压字节数，批次总量超过上限或压缩包解压量相对已读取的压缩数据比例过高时中止
+     */
+    private final class ExpansionLimitingInputStream extends FilterInputStream {
+        private final Batch batch;
+        private final CountingInputStream compressed;
+
+        private ExpansionLimitingInputStream(InputStream in, Batch batch, CountingInputStream compressed) {
+            super(in);
+            this.batch = batch;
+            this.compressed = compressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                expanded(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                expanded(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            expanded(skipped);
+            return skipped;
+        }
+
+        private void expanded(long bytes) {
+            batch.expandedBytes += bytes;
+            compressed.expanded += bytes;
+            if (batch.expandedBytes > batchProperties.getMaxExpandedBytes()) {
+                throw new IllegalArgumentException("压缩包解压后超过" + batchProperties.getMaxExpandedBytes() + "字节");
+            }
+            if (compressed.expanded > RATIO_GRACE_BYTES
+                    && compressed.expanded > compressed.count * batchProperties.getMaxCompressionRatio()) {
+                throw new IllegalArgumentException("压缩包压缩比异常，疑似压缩炸弹");
+            }
+        }
+    }
+
+    private static final class PendingItem {
+        private final ConversionJob job;
+        private final BatchItem item;
+
+        private PendingItem(ConversionJob job, BatchItem item) {
+            this.job = job;
+            this.item = item;
+        }
+    }
+
+    /**
+     * 单个批次的运行状态，所有可变字段由批次对象的监视器保护
+     */
+    private static final class Batch {
+        private final String id;
+        private final int maxConcurrency;
+        private final LocalDateTime createTime = LocalDateTime.now();
+        private final List<BatchItem> items = new ArrayList<>();
+        private final Deque<PendingItem> waiting = new ArrayDeque<>();
+        // 按完成顺序排列，下载时依次写入
+        private final List<BatchItem> finished = new ArrayList<>();
+        private int running;
+        private LocalDateTime finishTime;
+        // 提交阶段展开ZIP的累计字节数，只在提交线程中访问
+        private long expandedBytes;
+
+        private Batch(String id, int maxConcurrency) {
+            this.id = id;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        private synchronized void complete(BatchItem item, String fileUrl, Throwable ex) {
+            if (ex == null) {
+                item.setStatus(TaskStatus.COMPLETED);
+                item.setFileUrl(fileUrl);
+            } else {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                item.setStatus(TaskStatus.FAILED);
+                item.setErrorMessage(cause.getMessage() != null ? cause.getMessage() : "未知错误");
+            }
+            running--;
+            finished.add(item);
+            checkFinished();
+            notifyAll();
+        }
+
+        private synchronized void checkFinished() {
+            if (finishTime == null && finished.size() == items.size()) {
+                finishTime = LocalDateTime.now();
+            }
+        }
+
+        /**
+         * 等待第index个完成的文件
+         *
+         * @return 超过截止时间仍未完成时返回null
+         */
+        private synchronized BatchItem awaitFinished(int index, long deadline) throws IOException {
+            while (finished.size() <= index) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("下载被中断", e);
+                }
+            }
+            return finished.get(index);
+        }
+
+        private synchronized boolean isExpired(LocalDateTime expireBefore) {
+            return finishTime != null && finishTime.isBefore(expireBefore);
+        }
+
+        private synchronized BatchStatus status() {
+            BatchStatus status = new BatchStatus();
+            status.setBatchId(id);
+            status.setTotal(items.size());
+            status.setCreateTime(createTime);
+            List<BatchItem> snapshot = new ArrayList<>(items.size());
+            for (BatchItem item : items) {
+                switch (item.getStatus()) {
+                    case PENDING:
+                        status.setPending(status.getPending() + 1);
+                        break;
+                    case PROCESSING:
+                        status.setProcessing(status.getProcessing() + 1);
+                        break;
+                    case COMPLETED:
+                        status.setCompleted(status.getCompleted() + 1);
+                        break;
+                    default:
+                        status.setFailed(status.getFailed() + 1);
+                        break;
+                }
+                BatchItem copy = new BatchItem(item.getTaskId(), item.getOriginalFilename(), item.getTargetFilename());
+                copy.setStatus(item.getStatus());
+                copy.setFileUrl(item.getFileUrl());
+                copy.setErrorMessage(item.getErrorMessage());
+                snapshot.add(copy);
+            }
+            status.setItems(snapshot);
+            status.setFinished(finished.size() == items.size());
+            return status;
+        }
+    }
+}
@@ -1,53 +1,83 @@
 package com.yufei.ptw.service.serviceImpl;
 
-import com.yufei.ptw.config.OssProperties;
+import com.yufei.ptw.cache.ConversionResultCache;
+import com.yufei.ptw.config.UploadProperties;
 import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionPipeline;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.TenantResolver;
 import com.yufei.ptw.service.ConvertService;
 import com.yufei.ptw.service.TaskService;
-import com.yufei.ptw.util.OssUtil;
+import com.yufei.ptw.upload.DocumentValidator;
+import com.yufei.ptw.upload.InvalidDocumentException;
+import com.yufei.ptw.upload.MultipartStreamParser;
+import com.yufei.ptw.upload.SpooledFile;
+import com.yufei.ptw.upload.UploadSpooler;
+import com.yufei.ptw.upload.UploadTooLargeException;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 public class ConvertServiceImpl implements ConvertService {
 
+    // multipart分隔符和表单项头部的长度余量，请求体超过文件大小上限加该值时直接拒绝
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
     @Value("${file.upload-dir}")
     public String uploadDir;
 
     @Autowired
-    private OssUtil ossUtil;
+    private TaskService taskService;
 
     @Autowired
-    private OssProperties ossProperties;
+    private ConversionPipeline conversionPipeline;
 
     @Autowired
-    private TaskService taskService;
+    private ConversionResultCache resultCache;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final String PYTHON_API_BASE_URL = "http://localhost:5000/convert";
+    @Autowired
+    private TenantResolver tenantResolver;
+
+    @Autowired
+    private UploadSpooler uploadSpooler;
+
+    @Autowired
+    private UploadProperties uploadProperties;
+
+    @Autowired
+    private DocumentValidator documentValidator;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    // 正在转换的内容，键与结果缓存相同，值为领头任务的结果；相同内容的后续任务跟随领头任务完成
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
 
     @Override
     public Result<String> change(MultipartFile file) {
@@ -70,48 +100,21 @@ public class ConvertServiceImpl implements ConvertService {
         log.debug("文件扩展名: {}, Content-Type: {}", extension, contentType);
 
         // 4. 更严格的文件类型检测，结合扩展名和内容类型
+        long detectStart = System.nanoTime();
         String actualExtension = determineActualFileType(file, extension, contentType);
+        pipelineMetrics.timer("ptw.type.detection").record(System.nanoTime() - detectStart, TimeUnit.NANOSECONDS);
         if (actualExtension == null) {
+            recordRejection("unsupported_type");
             return Result.error("只支持.doc和.docx格式的Word文件");
         }
 
-        // 使用实际检测到的文件类型进行处理
-        extension = actualExtension;
-
-        try {
-            // 3. 创建存储目录
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // 4. 生成唯一文件名和任务ID
-            String taskId = UUID.randomUUID().toString();
-            String sourceFilename = taskId + "_" + originalFilename;
-            String pdfFilename = sourceFilename.substring(0, sourceFilename.lastIndexOf('.')) + ".pdf";
-
-            // 5. 保存上传文件
-            Path sourceFilePath = uploadPath.resolve(sourceFilename);
-            file.transferTo(sourceFilePath);
-
-            // 6. 创建任务记录
-            taskService.createTask(taskId, originalFilename);
-
-            // 7. 异步执行转换和上传
-            asyncConvertAndUpload(sourceFilePath, pdfFilename, extension, originalFilename, taskId);
-
-            // 8. 立即返回任务ID
-            return Result.success("任务已提交，任务ID: " + taskId);
-        } catch (IOException e) {
-            log.error("文件IO错误: {}", e.getMessage(), e);
-            return Result.error("文件上传失败: " + e.getMessage());
-        }
+        return submitConversion(file, originalFilename, ConversionType.WORD_TO_PDF);
     }
 
     @Override
     public Result<String> pdfToWord(MultipartFile file) {
         log.info("正在接收PDF转Word请求");
-        return pdfToWordFormat(file, ".docx", true);
+        return pdfToWordFormat(file, ConversionType.PDF_TO_DOCX);
     }
 
 
@@ -119,7 +122,7 @@ public class ConvertServiceImpl implements ConvertService {
     /**
      * PDF转Word通用方法，支持DOCX和DOC格式
      */
-    private Result<String> pdfToWordFormat(MultipartFile file, String targetExtension, boolean isDocx) {
+    private Result<String> pdfToWordFormat(MultipartFile file, ConversionType type) {
         // 1. 验证文件
         if (file.isEmpty()) {
             return Result.error("上传文件不能为空");
@@ -138,183 +141,288 @@ public class ConvertServiceImpl implements ConvertService {
         log.debug("文件扩展名: {}, Content-Type: {}", extension, contentType);
 
         // 4. 更严格的文件类型检测，结合扩展名和内容类型
+        long detectStart = System.nanoTime();
         String actualExtension = determinePdfFileType(file, extension, contentType);
+        pipelineMetrics.timer("ptw.type.detection").record(System.nanoTime() - detectStart, TimeUnit.NANOSECONDS);
         if (actualExtension == null) {
+            recordRejection("unsupported_type");
             return Result.error("只支持.pdf格式的文件");
         }
 
-        // 使用实际检测到的文件类型进行处理
-        extension = actualExtension;
+        return submitConversion(file, originalFilename, type);
+    }
 
+    /**
+     * 保存上传文件、创建任务并提交到转换流水线
+     */
+    private Result<String> submitConversion(MultipartFile file, String originalFilename, ConversionType type) {
         try {
-            // 3. 创建存储目录
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // 4. 生成唯一文件名和任务ID
-            String taskId = UUID.randomUUID().toString();
-            String sourceFilename = taskId + "_" + originalFilename;
-            String targetFilename = sourceFilename.substring(0, sourceFilename.lastIndexOf('.')) + targetExtension;
-
-            // 5. 保存上传文件
-            Path sourceFilePath = uploadPath.resolve(sourceFilename);
-            file.transferTo(sourceFilePath);
-
-            // 6. 创建任务记录
-            taskService.createTask(taskId, originalFilename);
-
-            // 7. 异步执行转换和上传
-            if (isDocx) {
-                asyncConvertPdfToWord(sourceFilePath, targetFilename, extension, originalFilename, taskId);
-            } else {
-                asyncConvertPdfToDoc(sourceFilePath, targetFilename, extension, originalFilename, taskId);
+            ConversionJob job;
+            try (InputStream in = file.getInputStream()) {
+                job = prepare(in, originalFilename, type);
             }
+            dispatch(job);
 
-            // 8. 立即返回任务ID
-            return Result.success("任务已提交，任务ID: " + taskId);
+            // 立即返回任务ID
+            return Result.success("任务已提交，任务ID: " + job.getTaskId());
+        } catch (InvalidDocumentException e) {
+            return Result.error(e.getMessage());
         } catch (IOException e) {
             log.error("文件IO错误: {}", e.getMessage(), e);
             return Result.error("文件上传失败: " + e.getMessage());
         }
     }
 
-    /**
-     * 异步执行文件转换和上传
-     */
-    @Async("taskExecutor")
-    public void asyncConvertAndUpload(Path sourceFilePath, String pdfFilename, String extension, String originalFilename, String taskId) {
-        log.info("开始异步转换任务，任务ID: {}", taskId);
-        try {
-            // 1. 更新任务状态为处理中
-            taskService.updateTaskToProcessing(taskId);
+    @Override
+    public ConversionJob prepare(InputStream content, String originalFilename, ConversionType type) throws IOException {
+        // 1. 生成任务ID和本地文件路径
+        String taskId = UUID.randomUUID().toString();
+        Path sourceFilePath = sourcePath(taskId, originalFilename);
 
-            // 2. 执行转换
-            Path pdfFilePath = sourceFilePath.getParent().resolve(pdfFilename);
-            convertWordToPdf(sourceFilePath, pdfFilePath, extension, originalFilename);
+        // 2. 保存上传文件，同时计算内容哈希
+        SpooledFile spooled = uploadSpooler.spool(content, sourceFilePath);
 
-            // 3. 上传到阿里云OSS
-            String fileUrl = uploadToOss(pdfFilePath, pdfFilename);
+        // 3. 检查文件结构，损坏的文件不进入队列
+        validate(type, spooled);
 
-            // 4. 更新任务状态为已完成
-            taskService.updateTaskToCompleted(taskId, fileUrl);
-            log.info("转换任务完成，任务ID: {}, 文件URL: {}", taskId, fileUrl);
+        // 4. 创建任务记录
+        return createJob(taskId, type, spooled, originalFilename);
+    }
 
-        } catch (Exception e) {
-            // 5. 更新任务状态为失败
-            String errorMessage = e.getMessage() != null ? e.getMessage() : "未知错误";
-            taskService.updateTaskToFailed(taskId, errorMessage);
-            log.error("异步转换任务失败，任务ID: {}, 错误信息: {}", taskId, errorMessage, e);
-        } finally {
-            try {
-                // 清理本地文件
-                Files.deleteIfExists(sourceFilePath);
-                Path pdfFilePath = sourceFilePath.getParent().resolve(pdfFilename);
-                Files.deleteIfExists(pdfFilePath);
-                log.info("已清理本地文件，任务ID: {}", taskId);
-            } catch (IOException e) {
-                log.error("清理本地文件失败，任务ID: {}, 错误信息: {}", taskId, e.getMessage(), e);
+    @Override
+    public Result<String> changeStream(InputStream body, String contentType, long contentLength) throws IOException {
+        String boundary = boundary(contentType);
+        if (boundary == null) {
+            return Result.error("请求不是multipart/form-data格式");
+        }
+        if (contentLength > uploadProperties.getMaxFileSize() + MULTIPART_OVERHEAD) {
+            throw new UploadTooLargeException(uploadProperties.getMaxFileSize());
+        }
+        MultipartStreamParser parser = new MultipartStreamParser(body, boundary);
+        MultipartStreamParser.Part part;
+        while ((part = parser.nextPart()) != null) {
+            if (part.getFilename() != null) {
+                break;
             }
         }
+        if (part == null || part.getFilename().isEmpty()) {
+            return Result.error("上传文件不能为空");
+        }
+        // 浏览器可能发送带路径的文件名，只保留最后一段
+        String originalFilename = part.getFilename().replace('\\', '/');
+        originalFilename = originalFilename.substring(originalFilename.lastIndexOf('/') + 1);
+        if (originalFilename.isEmpty()) {
+            return Result.error("无效的文件名");
+        }
+
+        // 一次读取完成落盘、哈希和文件头检测，超过大小限制时在读取过程中中止
+        String taskId = UUID.randomUUID().toString();
+        SpooledFile spooled = uploadSpooler.spool(part.getContent(), sourcePath(taskId, originalFilename));
+        if (spooled.getSize() == 0) {
+            spooled.getContent().delete();
+            return Result.error("上传文件不能为空");
+        }
+        ConversionType type = detectConversionType(originalFilename, part.getContentType(), spooled.getHeader());
+        if (type == null) {
+            spooled.getContent().delete();
+            recordRejection("unsupported_type");
+            return Result.error("只支持Word（.doc/.docx）和PDF文件");
+        }
+        log.info("流式上传完成，文件: {}, 大小: {} 字节, 转换类型: {}", originalFilename, spooled.getSize(),
+                type.getDescription());
+        try {
+            validate(type, spooled);
+        } catch (InvalidDocumentException e) {
+            return Result.error(e.getMessage());
+        }
+
+        ConversionJob job = createJob(taskId, type, spooled, originalFilename);
+        dispatch(job);
+        return Result.success("任务已提交，任务ID: " + job.getTaskId());
     }
 
     /**
-     * 异步执行PDF转Word转换和上传(DOCX格式)
+     * 入队前检查文件结构，校验失败时删除已保存的文件
      */
-    @Async("taskExecutor")
-    public void asyncConvertPdfToWord(Path sourceFilePath, String docxFilename, String extension, String originalFilename, String taskId) {
-        log.info("开始异步PDF转Word(DOCX)任务，任务ID: {}", taskId);
+    private void validate(ConversionType type, SpooledFile spooled) throws IOException {
+        long start = System.nanoTime();
         try {
-            // 1. 更新任务状态为处理中
-            taskService.updateTaskToProcessing(taskId);
-
-            // 2. 执行转换
-            Path docxFilePath = sourceFilePath.getParent().resolve(docxFilename);
-            convertPdfToWord(sourceFilePath, docxFilePath, extension, originalFilename);
-
-            // 3. 上传到阿里云OSS
-            String fileUrl = uploadToOss(docxFilePath, docxFilename);
-
-            // 4. 更新任务状态为已完成
-            taskService.updateTaskToCompleted(taskId, fileUrl);
-            log.info("PDF转Word(DOCX)任务完成，任务ID: {}, 文件URL: {}", taskId, fileUrl);
-
-        } catch (Exception e) {
-            // 5. 更新任务状态为失败
-            String errorMessage = e.getMessage() != null ? e.getMessage() : "未知错误";
-            taskService.updateTaskToFailed(taskId, errorMessage);
-            log.error("异步PDF转Word(DOCX)任务失败，任务ID: {}, 错误信息: {}", taskId, errorMessage, e);
+            documentValidator.validate(type, spooled.getContent());
+        } catch (InvalidDocumentException e) {
+            spooled.getContent().delete();
+            recordRejection("invalid_document");
+            throw e;
         } finally {
-            try {
-                // 清理本地文件
-                Files.deleteIfExists(sourceFilePath);
-                Path docxFilePath = sourceFilePath.getParent().resolve(docxFilename);
-                Files.deleteIfExists(docxFilePath);
-                log.info("已清理本地文件，任务ID: {}", taskId);
-            } catch (IOException e) {
-                log.error("清理本地文件失败，任务ID: {}, 错误信息: {}", taskId, e.getMessage(), e);
-            }
+            pipelineMetrics.timer("ptw.document.validation").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
     /**
-     * 异步执行PDF转Word转换和上传(DOC格式)
+     * 记录进入流水线之前就被拒绝的请求
      */
-    @Async("taskExecutor")
-    public void asyncConvertPdfToDoc(Path sourceFilePath, String docFilename, String extension, String originalFilename, String taskId) {
-        log.info("开始异步PDF转Word(DOC)任务，任务ID: {}", taskId);
-        try {
-            // 1. 更新任务状态为处理中
-            taskService.updateTaskToProcessing(taskId);
+    private void recordRejection(String cause) {
+        pipelineMetrics.counter("ptw.conversion.failures", "cause", cause).increment();
+    }
 
-            // 2. 执行转换
-            Path docFilePath = sourceFilePath.getParent().resolve(docFilename);
-            convertPdfToDoc(sourceFilePath, docFilePath, extension, originalFilename);
+    /**
+     * 上传文件的本地路径，目录不存在时创建
+     */
+    private Path sourcePath(String taskId, String originalFilename) throws IOException {
+        Path uploadPath = Paths.get(uploadDir);
+        if (!Files.exists(uploadPath)) {
+            Files.createDirectories(uploadPath);
+        }
+        return uploadPath.resolve(taskId + "_" + originalFilename);
+    }
 
-            // 3. 上传到阿里云OSS
-            String fileUrl = uploadToOss(docFilePath, docFilename);
+    private ConversionJob createJob(String taskId, ConversionType type, SpooledFile spooled, String originalFilename) {
+        String sourceFilename = spooled.getPath().getFileName().toString();
+        int dotIndex = sourceFilename.lastIndexOf('.');
+        String baseName = dotIndex > taskId.length() ? sourceFilename.substring(0, dotIndex) : sourceFilename;
+        String targetFilename = baseName + type.getTargetExtension();
+
+        ConversionJob job = new ConversionJob(taskId, type, spooled.getContent(), targetFilename, originalFilename,
+                spooled.getContentHash(), tenantResolver.currentTenant());
+        taskService.createTask(job);
+        // 在上传线程中估算成本（PDF同时检测文本层），提交到流水线时不再读取文档
+        return conversionPipeline.estimate(job);
+    }
 
-            // 4. 更新任务状态为已完成
-            taskService.updateTaskToCompleted(taskId, fileUrl);
-            log.info("PDF转Word(DOC)任务完成，任务ID: {}, 文件URL: {}", taskId, fileUrl);
+    private String boundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (!MediaType.MULTIPART_FORM_DATA.includes(mediaType)) {
+                return null;
+            }
+            // getParameter不去掉引号，boundary含空格等字符时客户端会写成 boundary="..."
+            String boundary = mediaType.getParameter("boundary");
+            if (boundary != null && boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                boundary = boundary.substring(1, boundary.length() - 1).replaceAll("\\\\(.)", "$1");
+            }
+            return boundary == null || boundary.isEmpty() ? null : boundary;
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
 
-        } catch (Exception e) {
-            // 5. 更新任务状态为失败
-            String errorMessage = e.getMessage() != null ? e.getMessage() : "未知错误";
-            taskService.updateTaskToFailed(taskId, errorMessage);
-            log.error("异步PDF转Word(DOC)任务失败，任务ID: {}, 错误信息: {}", taskId, errorMessage, e);
-        } finally {
+    @Override
+    public CompletableFuture<String> dispatch(ConversionJob job) {
+        // 相同内容已转换过时直接返回缓存的文件URL
+        String cachedUrl = resultCache.get(resultCache.key(job.getType(), job.getContentHash()));
+        if (cachedUrl != null) {
             try {
-                // 清理本地文件
-                Files.deleteIfExists(sourceFilePath);
-                Path docFilePath = sourceFilePath.getParent().resolve(docFilename);
-                Files.deleteIfExists(docFilePath);
-                log.info("已清理本地文件，任务ID: {}", taskId);
+                job.getSource().delete();
             } catch (IOException e) {
-                log.error("清理本地文件失败，任务ID: {}, 错误信息: {}", taskId, e.getMessage(), e);
+                log.warn("清理本地文件失败，任务ID: {}, 错误信息: {}", job.getTaskId(), e.getMessage());
             }
+            taskService.updateTaskToCompleted(job.getTaskId(), cachedUrl);
+            log.info("命中转换结果缓存，任务ID: {}, 文件URL: {}", job.getTaskId(), cachedUrl);
+            return CompletableFuture.completedFuture(cachedUrl);
         }
+        if (job.getContentHash() == null) {
+            return conversionPipeline.submit(job);
+        }
+
+        String key = resultCache.key(job.getType(), job.getContentHash());
+        CompletableFuture<String> leader = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            return follow(job, existing);
+        }
+        // 成为领头任务后再查一次缓存，上一个领头任务可能刚好在两次检查之间完成
+        if (resultCache.get(key) != null) {
+            inFlight.remove(key, leader);
+            leader.complete(null);
+            return dispatch(job);
+        }
+
+        // 提交到转换流水线异步执行转换和上传
+        CompletableFuture<String> converted;
+        try {
+            converted = conversionPipeline.submit(job);
+        } catch (RuntimeException e) {
+            converted = CompletableFuture.failedFuture(e);
+        }
+        converted.whenComplete((fileUrl, ex) -> {
+            // 先移除再完成，领头任务被取消时跟随者重新提交可以选出新的领头任务
+            inFlight.remove(key, leader);
+            if (ex == null) {
+                leader.complete(fileUrl);
+            } else {
+                leader.completeExceptionally(unwrap(ex));
+            }
+        });
+        // 返回副本，调用方取消时不影响跟随者
+        return leader.copy();
     }
 
     /**
-     * 将文件上传到阿里云OSS
-     *
-     * @param filePath 本地文件路径
-     * @param fileName 在OSS中存储的文件名
-     * @return 文件访问URL
+     * 跟随正在进行的相同转换：领头任务成功或转换失败时以相同的结果完成，
+     * 领头任务被取消或排队被拒绝时重新提交，由跟随者之一成为新的领头任务
      */
-    private String uploadToOss(Path filePath, String fileName) throws IOException {
-        try (InputStream inputStream = Files.newInputStream(filePath)) {
-            // 确定文件类型
-            String contentType = "application/pdf";
-            if (fileName.endsWith(".doc")) {
-                contentType = "application/msword";
-            } else if (fileName.endsWith(".docx")) {
-                contentType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+    private CompletableFuture<String> follow(ConversionJob job, CompletableFuture<String> leader) {
+        String taskId = job.getTaskId();
+        log.info("相同内容正在转换，任务ID: {} 等待领头任务的结果", taskId);
+        return leader.handle((fileUrl, ex) -> {
+            if (ex == null && fileUrl == null) {
+                // 领头任务发现缓存已有结果，重新走缓存
+                return dispatch(job);
+            }
+            Throwable cause = ex != null ? unwrap(ex) : null;
+            if (cause instanceof CancellationException || cause instanceof RejectedExecutionException) {
+                log.info("领头任务未执行（{}），重新提交任务，任务ID: {}", cause.getMessage(), taskId);
+                return dispatch(job);
             }
+            try {
+                job.getSource().delete();
+            } catch (IOException e) {
+                log.warn("清理本地文件失败，任务ID: {}, 错误信息: {}", taskId, e.getMessage());
+            }
+            if (cause == null) {
+                taskService.updateTaskToCompleted(taskId, fileUrl);
+                log.info("跟随任务完成，任务ID: {}, 文件URL: {}", taskId, fileUrl);
+                return CompletableFuture.completedFuture(fileUrl);
+            }
+            String errorMessage = cause.getMessage() != null ? cause.getMessage() : "未知错误";
+            taskService.updateTaskToFailed(taskId, errorMessage);
+            log.info("跟随任务失败，任务ID: {}, 错误信息: {}", taskId, errorMessage);
+            return CompletableFuture.<String>failedFuture(cause);
+        }).thenCompose(Function.identity());
+    }
+
+    private Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
 
-            return ossUtil.uploadStream(inputStream, fileName, contentType);
+    /**
+     * 应用启动完成后重新提交重启前未完成的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRecoveredTasks() {
+        List<ConversionJob> jobs = taskService.takeRecoveredJobs();
+        for (ConversionJob job : jobs) {
+            log.info("重新提交未完成的任务，任务ID: {}", job.getTaskId());
+            dispatch(job);
+        }
+    }
+
+    @Override
+    public ConversionType detectConversionType(String filename, String contentType, byte[] header) {
+        long start = System.nanoTime();
+        try {
+            String extension = getFileExtension(filename);
+            if (determineActualFileType(extension, contentType, header) != null) {
+                return ConversionType.WORD_TO_PDF;
+            }
+            if (determinePdfFileType(extension, contentType, header) != null) {
+                return ConversionType.PDF_TO_DOCX;
+            }
+            return null;
+        } finally {
+            pipelineMetrics.timer("ptw.type.detection").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -333,6 +441,10 @@ public class ConvertServiceImpl implements ConvertService {
      * 更准确地确定文件类型，结合扩展名、Content-Type和文件头签名
      */
     private String determineActualFileType(MultipartFile file, String extension, String contentType) {
+        return determineActualFileType(extension, contentType, readHeader(file));
+    }
+
+    private String determineActualFileType(String extension, String contentType, byte[] header) {
         // 检查扩展名
         if ("doc".equals(extension) || "docx".equals(extension)) {
             return extension;
@@ -348,23 +460,17 @@ public class ConvertServiceImpl implements ConvertService {
         }
 
         // 检查文件头签名（魔术数字）
-        try (InputStream is = file.getInputStream()) {
-            byte[] header = new byte[8];
-            int bytesRead = is.read(header);
-            if (bytesRead >= 4) {
-                // DOC文件头：D0 CF 11 E0 A1 B1 1A E1（OLE2 Compound File）
-                if (header[0] == (byte) 0xD0 && header[1] == (byte) 0xCF &&
-                        header[2] == (byte) 0x11 && header[3] == (byte) 0xE0) {
-                    return "doc";
-                }
-                // DOCX文件头：50 4B 03 04（ZIP文件）
-                if (header[0] == (byte) 0x50 && header[1] == (byte) 0x4B &&
-                        header[2] == (byte) 0x03 && header[3] == (byte) 0x04) {
-                    return "docx";
-                }
+        if (header != null && header.length >= 4) {
+            // DOC文件头：D0 CF 11 E0 A1 B1 1A E1（OLE2 Compound File）
+            if (header[0] == (byte) 0xD0 && header[1] == (byte) 0xCF &&
+                    header[2] == (byte) 0x11 && header[3] == (byte) 0xE0) {
+                return "doc";
+            }
+            // DOCX文件头：50 4B 03 04（ZIP文件）
+            if (header[0] == (byte) 0x50 && header[1] == (byte) 0x4B &&
+                    header[2] == (byte) 0x03 && header[3] == (byte) 0x04) {
+                return "docx";
             }
-        } catch (IOException e) {
-            log.error("检测文件类型时发生IO错误: {}", e.getMessage(), e);
         }
 
         return null; // 无法确定或不支持的文件类型
@@ -374,6 +480,10 @@ public class ConvertServiceImpl implements ConvertService {
      * 更准确地确定PDF文件类型，结合扩展名、Content-Type和文件头签名
      */
     private String determinePdfFileType(MultipartFile file, String extension, String contentType) {
+        return determinePdfFileType(extension, contentType, readHeader(file));
+    }
+
+    private String determinePdfFileType(String extension, String contentType, byte[] header) {
         // 检查扩展名
         if ("pdf".equals(extension)) {
             return extension;
@@ -385,124 +495,26 @@ public class ConvertServiceImpl implements ConvertService {
         }
 
         // 检查文件头签名（魔术数字）
-        try (InputStream is = file.getInputStream()) {
-            byte[] header = new byte[8];
-            int bytesRead = is.read(header);
-            if (bytesRead >= 4) {
-                // PDF文件头：%PDF
-                if (header[0] == (byte) 0x25 && header[1] == (byte) 0x50 &&
-                        header[2] == (byte) 0x44 && header[3] == (byte) 0x46) {
-                    return "pdf";
-                }
+        if (header != null && header.length >= 4) {
+            // PDF文件头：%PDF
+            if (header[0] == (byte) 0x25 && header[1] == (byte) 0x50 &&
+                    header[2] == (byte) 0x44 && header[3] == (byte) 0x46) {
+                return "pdf";
             }
-        } catch (IOException e) {
-            log.error("检测PDF文件类型时发生IO错误: {}", e.getMessage(), e);
         }
 
         return null; // 无法确定或不支持的文件类型
     }
 
-    // Word转PDF核心转换方法 - 调用Python API
-    private void convertWordToPdf(Path inputPath, Path outputPath, String extension, String originalFilename) throws Exception {
-        String url = PYTHON_API_BASE_URL + "/word-to-pdf";
-        
-        // 构建多部分表单数据
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new FileSystemResource(inputPath.toFile()));
-        
-        // 设置请求头
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-        
-        // 创建请求实体
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-        
-        // 发送请求并获取响应
-        log.debug("调用Python API进行Word转PDF: {}", url);
-        ResponseEntity<byte[]> response = restTemplate.exchange(
-                url,
-                HttpMethod.POST,
-                requestEntity,
-                byte[].class
-        );
-        
-        // 检查响应状态
-        if (!response.getStatusCode().is2xxSuccessful()) {
-            throw new Exception("Python API调用失败: " + response.getStatusCode());
-        }
-        
-        // 保存响应体到输出文件
-        byte[] pdfBytes = response.getBody();
-        if (pdfBytes == null) {
-            throw new Exception("Python API返回空响应");
-        }
-        
-        Files.write(outputPath, pdfBytes);
-        log.debug("Word转PDF成功，输出文件: {}", outputPath);
-    }
-
-    // PDF转Word核心转换方法 - 调用Python API(DOCX格式)
-    private void convertPdfToWord(Path inputPath, Path outputPath, String extension, String originalFilename) throws Exception {
-        String url = PYTHON_API_BASE_URL + "/pdf-to-word";
-        
-        // 构建多部分表单数据
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new FileSystemResource(inputPath.toFile()));
-        
-        // 设置请求头
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-        
-        // 创建请求实体
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-        
-        // 发送请求并获取响应
-        log.debug("调用Python API进行PDF转Word: {}", url);
-        ResponseEntity<byte[]> response = restTemplate.exchange(
-                url,
-                HttpMethod.POST,
-                requestEntity,
-                byte[].class
-        );
-        
-        // 检查响应状态
-        if (!response.getStatusCode().is2xxSuccessful()) {
-            throw new Exception("Python API调用失败: " + response.getStatusCode());
-        }
-        
-        // 保存响应体到输出文件
-        byte[] docxBytes = response.getBody();
-        if (docxBytes == null) {
-            throw new Exception("Python API返回空响应");
-        }
-        
-        Files.write(outputPath, docxBytes);
-        log.debug("PDF转Word成功，输出文件: {}", outputPath);
-    }
-    
-    // PDF转Word核心转换方法 - 调用Python API(DOC格式)
-    private void convertPdfToDoc(Path inputPath, Path outputPath, String extension, String originalFilename) throws Exception {
-        // 首先转换为DOCX
-        Path docxOutputPath = Paths.get(outputPath.toString().replace(".doc", ".docx"));
-        convertPdfToWord(inputPath, docxOutputPath, extension, originalFilename);
-        
-        // 这里添加DOCX转DOC的逻辑，由于Python API不直接支持DOC格式
-        // 我们可以通过重命名的方式，或者在后续添加更复杂的转换逻辑
-        // 目前先将DOCX文件复制并重命名为DOC文件
-        Files.copy(docxOutputPath, outputPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-        log.debug("PDF转Word(DOC)成功，输出文件: {}", outputPath);
-    }
-
-    // 检测PDF文件是否包含可提取的文本内容
-    private boolean isPdfWithText(Path pdfPath) throws Exception {
-        try {
-            // 这里可以添加PDF文本检测逻辑
-            // 由于现在使用Python API，暂时返回true
-            return true;
-        } catch (Exception e) {
-            log.error("检测PDF文本内容时发生错误: {}", e.getMessage());
-            // 出错时默认认为可以尝试转换
-            return true;
+    /**
+     * 读取文件头的前8个字节
+     */
+    private byte[] readHeader(MultipartFile file) {
+        try (InputStream is = file.getInputStream()) {
+            return is.readNBytes(8);
+        } catch (IOException e) {
+            log.error("检测文件类型时发生IO错误: {}", e.getMessage(), e);
+            return null;
         }
     }
 }
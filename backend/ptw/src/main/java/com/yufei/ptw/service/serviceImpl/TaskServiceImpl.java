@@ -1,31 +1,145 @@
 package com.yufei.ptw.service.serviceImpl;
 
+import com.yufei.ptw.config.TaskStoreProperties;
 import com.yufei.ptw.entity.ConvertTask;
 import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.event.TaskStatusEvent;
+import com.yufei.ptw.journal.JournalEntry;
+import com.yufei.ptw.journal.TaskJournal;
+import com.yufei.ptw.pipeline.ConversionJob;
 import com.yufei.ptw.service.TaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 任务服务实现类
- * 使用内存存储任务信息，适合开发和测试环境
- * 生产环境建议使用数据库或Redis存储
+ * 使用内存存储任务信息，查询直接访问ConcurrentHashMap，不加锁；
+ * 任务结束时按完成顺序进入淘汰队列，超过保留时间或总数超过上限时从队首淘汰，
+ * 每次只检查队首，不扫描整个任务表。进行中的任务不会被淘汰。
+ * 各状态的任务数在创建、状态变化和淘汰时更新，统计时同样不扫描任务表。
+ * 每次状态变化同时写入任务日志，重启后从日志恢复任务，源文件仍在的未完成任务会重新提交；
+ * 状态变化以 {@link TaskStatusEvent} 发布，用于推送给订阅的客户端
  */
+@Slf4j
 @Service
 public class TaskServiceImpl implements TaskService {
 
+    @Autowired
+    private TaskStoreProperties taskStoreProperties;
+
+    @Autowired
+    private TaskJournal taskJournal;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // 使用ConcurrentHashMap确保线程安全
     private final Map<String, ConvertTask> taskMap = new ConcurrentHashMap<>();
 
+    // 未完成任务的作业信息，压缩日志时需要写入
+    private final Map<String, ConversionJob> activeJobs = new ConcurrentHashMap<>();
+
+    // 已结束的任务，按完成时间排列
+    private final Queue<FinishedTask> finishedQueue = new ConcurrentLinkedQueue<>();
+
+    // 同一时间只有一个线程执行淘汰，其他线程直接跳过
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong expiredEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+
+    // 任务表中各状态的任务数，按TaskStatus的序号存放；修改状态和移出任务表时持有任务的监视器
+    private final AtomicLongArray statusCounts = new AtomicLongArray(TaskStatus.values().length);
+
+    private List<ConversionJob> recoveredJobs = new ArrayList<>();
+
+    /**
+     * 从任务日志恢复任务
+     */
+    @PostConstruct
+    public void init() {
+        List<JournalEntry> entries = taskJournal.takeReplayed();
+        List<ConvertTask> finished = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            ConvertTask task = entry.getTask();
+            ConversionJob job = entry.getJob();
+            taskMap.put(task.getTaskId(), task);
+            if (isFinished(task)) {
+                finished.add(task);
+            } else if (job != null && Files.exists(job.getSourcePath())) {
+                task.setStatus(TaskStatus.PENDING);
+                activeJobs.put(task.getTaskId(), job);
+                recoveredJobs.add(job);
+            } else {
+                task.setErrorMessage("服务重启，源文件已不存在");
+                task.setStatus(TaskStatus.FAILED);
+                taskJournal.appendFailed(task.getTaskId(), task.getErrorMessage());
+                finished.add(task);
+            }
+        }
+        // 按原完成时间进入淘汰队列，重启不会延长已结束任务的保留时间
+        finished.sort(Comparator.comparing(ConvertTask::getUpdateTime));
+        long now = System.nanoTime();
+        LocalDateTime wallNow = LocalDateTime.now();
+        for (ConvertTask task : finished) {
+            long age = Math.max(0, Duration.between(task.getUpdateTime(), wallNow).toNanos());
+            finishedQueue.add(new FinishedTask(task, now - age));
+        }
+        for (ConvertTask task : taskMap.values()) {
+            statusCounts.incrementAndGet(task.getStatus().ordinal());
+        }
+        taskJournal.setSnapshotSource(this::snapshot);
+        if (!entries.isEmpty()) {
+            log.info("已从任务日志恢复任务: {}, 待重新提交: {}", entries.size(), recoveredJobs.size());
+        }
+        evict();
+    }
+
     @Override
     public ConvertTask createTask(String taskId, String originalFilename) {
         ConvertTask task = new ConvertTask(taskId, originalFilename);
-        taskMap.put(taskId, task);
+        store(task);
+        taskJournal.appendTask(task, null);
+        evict();
+        return task;
+    }
+
+    @Override
+    public ConvertTask createTask(ConversionJob job) {
+        ConvertTask task = new ConvertTask(job.getTaskId(), job.getOriginalFilename());
+        task.setTenant(job.getTenant());
+        activeJobs.put(job.getTaskId(), job);
+        store(task);
+        taskJournal.appendTask(task, job);
+        evict();
         return task;
     }
 
+    @Override
+    public synchronized List<ConversionJob> takeRecoveredJobs() {
+        List<ConversionJob> jobs = recoveredJobs;
+        recoveredJobs = new ArrayList<>();
+        return jobs;
+    }
+
     @Override
     public ConvertTask getTask(String taskId) {
         return taskMap.get(taskId);
@@ -35,7 +149,34 @@ public class TaskServiceImpl implements TaskService {
     public void updateTaskToProcessing(String taskId) {
         ConvertTask task = taskMap.get(taskId);
         if (task != null) {
-            task.setStatus(TaskStatus.PROCESSING);
+            setStatus(task, TaskStatus.PROCESSING);
+            taskJournal.appendProcessing(taskId);
+            eventPublisher.publishEvent(TaskStatusEvent.of(task));
+        }
+    }
+
+    @Override
+    public void updateTaskTextLayer(String taskId, Boolean hasTextLayer) {
+        ConvertTask task = taskMap.get(taskId);
+        if (task != null) {
+            task.setHasTextLayer(hasTextLayer);
+        }
+    }
+
+    @Override
+    public void updateTaskEstimate(String taskId, LocalDateTime estimatedCompletionTime) {
+        ConvertTask task = taskMap.get(taskId);
+        if (task != null) {
+            task.setEstimatedCompletionTime(estimatedCompletionTime);
+        }
+    }
+
+    @Override
+    public void updateTaskEngine(String taskId, String engine) {
+        ConvertTask task = taskMap.get(taskId);
+        if (task != null) {
+            task.setEngine(engine);
+            taskJournal.appendEngine(taskId, engine);
         }
     }
 
@@ -43,8 +184,11 @@ public class TaskServiceImpl implements TaskService {
     public void updateTaskToCompleted(String taskId, String fileUrl) {
         ConvertTask task = taskMap.get(taskId);
         if (task != null) {
-            task.setStatus(TaskStatus.COMPLETED);
             task.setFileUrl(fileUrl);
+            setStatus(task, TaskStatus.COMPLETED);
+            taskJournal.appendCompleted(taskId, fileUrl);
+            eventPublisher.publishEvent(TaskStatusEvent.of(task));
+            finished(task);
         }
     }
 
@@ -52,8 +196,131 @@ public class TaskServiceImpl implements TaskService {
     public void updateTaskToFailed(String taskId, String errorMessage) {
         ConvertTask task = taskMap.get(taskId);
         if (task != null) {
-            task.setStatus(TaskStatus.FAILED);
             task.setErrorMessage(errorMessage);
+            setStatus(task, TaskStatus.FAILED);
+            taskJournal.appendFailed(taskId, errorMessage);
+            eventPublisher.publishEvent(TaskStatusEvent.of(task));
+            finished(task);
+        }
+    }
+
+    @Override
+    public long countTasks(TaskStatus status) {
+        return statusCounts.get(status.ordinal());
+    }
+
+    @Override
+    public int getSize() {
+        return taskMap.size();
+    }
+
+    @Override
+    public long getExpiredEvictions() {
+        return expiredEvictions.get();
+    }
+
+    @Override
+    public long getCapacityEvictions() {
+        return capacityEvictions.get();
+    }
+
+    private boolean isFinished(ConvertTask task) {
+        return task.getStatus() == TaskStatus.COMPLETED || task.getStatus() == TaskStatus.FAILED;
+    }
+
+    /**
+     * 保存新任务并计入对应状态，替换使用相同ID的旧任务
+     */
+    private void store(ConvertTask task) {
+        ConvertTask previous = taskMap.get(task.getTaskId());
+        if (previous != null) {
+            remove(previous);
+        }
+        // 先计数再放入任务表，之后的状态变化都能看到该任务
+        statusCounts.incrementAndGet(task.getStatus().ordinal());
+        taskMap.put(task.getTaskId(), task);
+    }
+
+    /**
+     * 修改任务状态并更新各状态的任务数，任务已被淘汰或替换时只修改状态
+     */
+    private void setStatus(ConvertTask task, TaskStatus status) {
+        synchronized (task) {
+            TaskStatus previous = task.getStatus();
+            task.setStatus(status);
+            if (previous != status && taskMap.get(task.getTaskId()) == task) {
+                statusCounts.decrementAndGet(previous.ordinal());
+                statusCounts.incrementAndGet(status.ordinal());
+            }
+        }
+    }
+
+    /**
+     * 从任务表移除任务并减少对应状态的任务数
+     *
+     * @return 任务仍在任务表中并被移除时返回true
+     */
+    private boolean remove(ConvertTask task) {
+        synchronized (task) {
+            // 按对象删除，避免误删使用相同ID重新创建的任务
+            if (!taskMap.remove(task.getTaskId(), task)) {
+                return false;
+            }
+            statusCounts.decrementAndGet(task.getStatus().ordinal());
+            return true;
+        }
+    }
+
+    private void finished(ConvertTask task) {
+        activeJobs.remove(task.getTaskId());
+        finishedQueue.add(new FinishedTask(task, System.nanoTime()));
+        evict();
+    }
+
+    /**
+     * 当前所有任务的状态，用于压缩任务日志
+     */
+    private Collection<JournalEntry> snapshot() {
+        List<JournalEntry> entries = new ArrayList<>(taskMap.size());
+        for (ConvertTask task : taskMap.values()) {
+            entries.add(new JournalEntry(task, isFinished(task) ? null : activeJobs.get(task.getTaskId())));
+        }
+        return entries;
+    }
+
+    /**
+     * 从队首淘汰过期的任务，任务总数仍超过上限时继续淘汰最早结束的任务
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long expireBefore = System.nanoTime() - taskStoreProperties.getFinishedTtl().toNanos();
+            int maxEntries = taskStoreProperties.getMaxEntries();
+            FinishedTask head;
+            while ((head = finishedQueue.peek()) != null) {
+                boolean expired = head.finishedAt - expireBefore <= 0;
+                if (!expired && taskMap.size() <= maxEntries) {
+                    break;
+                }
+                finishedQueue.poll();
+                if (remove(head.task)) {
+                    (expired ? expiredEvictions : capacityEvictions).incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class FinishedTask {
+        private final ConvertTask task;
+        private final long finishedAt;
+
+        private FinishedTask(ConvertTask task, long finishedAt) {
+            this.task = task;
+            this.finishedAt = finishedAt;
         }
     }
-}
\ No newline at end of file
+}
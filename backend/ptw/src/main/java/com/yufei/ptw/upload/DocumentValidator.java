@@ -0,0 +1,434 @@
+package com.yufei.ptw.upload;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.ValidationProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 入队前的文档结构校验
+ * 只读取判断所需的几个字节范围，不解析文档内容，损坏或截断的文件在排队和占用转换服务之前被拒绝：
+ * <ul>
+ *   <li>DOCX：从文件末尾找到ZIP中央目录，检查各条目的位置、是否包含 word/document.xml，
+ *   并按声明的大小检查条目数、解压总大小、压缩比和条目数据重叠，拒绝压缩炸弹</li>
+ *   <li>DOC：检查OLE2复合文档头、扇区大小、FAT和目录扇区位置以及根目录项</li>
+ *   <li>PDF：检查文件头、末尾的 %%EOF 和 startxref，以及 startxref 指向的交叉引用表或交叉引用流</li>
+ * </ul>
+ * 本地文件中较大的范围（如大压缩包的中央目录）通过内存映射读取，内存中的内容直接读取缓冲区
+ */
+@Slf4j
+@Component
+public class DocumentValidator {
+
+    private static final int ZIP_EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP_CEN_SIGNATURE = 0x02014b50;
+    private static final int ZIP_EOCD_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIZE = 56;
+    private static final int ZIP_CEN_SIZE = 46;
+    private static final int ZIP_LOC_SIZE = 30;
+    private static final int ZIP_MAX_COMMENT = 0xFFFF;
+    private static final long ZIP_MAGIC_32 = 0xFFFFFFFFL;
+    // 解压后不超过该大小的条目不检查压缩比，小的XML部件压缩比本来就很高
+    private static final long RATIO_GRACE_BYTES = 100 * 1024;
+    private static final String WORD_MAIN_PART = "word/document.xml";
+
+    private static final long OLE2_SIGNATURE = 0xE11AB1A1E011CFD0L;
+    private static final int OLE2_HEADER_SIZE = 512;
+    private static final int OLE2_DIR_ENTRY_SIZE = 128;
+    private static final int OLE2_ROOT_STORAGE = 5;
+
+    // PDF文件头可以出现在前1024字节内，%%EOF也可以出现在最后1024字节内
+    private static final int PDF_WINDOW = 1024;
+    private static final byte[] PDF_HEADER = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PDF_EOF = "%%EOF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PDF_STARTXREF = "startxref".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PDF_XREF = "xref".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PDF_OBJ = "obj".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private ValidationProperties validationProperties;
+
+    /**
+     * 校验文档结构
+     *
+     * @throws InvalidDocumentException 文件损坏、截断、不是声称的格式或是压缩炸弹
+     */
+    public void validate(ConversionType type, DocumentContent content) throws InvalidDocumentException {
+        if (!validationProperties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (ByteRanges source = ByteRanges.open(content)) {
+            if (type == ConversionType.WORD_TO_PDF) {
+                validateWord(source);
+            } else {
+                validatePdf(source);
+            }
+        } catch (InvalidDocumentException e) {
+            log.info("文档结构校验失败，文件: {}, 原因: {}", content.getPath().getFileName(), e.getMessage());
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.info("文档结构无法解析，文件: {}, 原因: {}", content.getPath().getFileName(), e.toString());
+            throw new InvalidDocumentException("文件结构无法解析，文件可能已损坏");
+        }
+        log.debug("文档结构校验通过，文件: {}, 耗时: {} us", content.getPath().getFileName(),
+                (System.nanoTime() - start) / 1000);
+    }
+
+    private void validateWord(ByteRanges source) throws IOException {
+        if (source.size() >= 8) {
+            ByteBuffer header = source.read(0, 8);
+            if (header.getLong(0) == OLE2_SIGNATURE) {
+                validateDoc(source);
+                return;
+            }
+            if (header.getInt(0) == 0x04034b50) {
+                validateDocx(source);
+                return;
+            }
+        }
+        throw new InvalidDocumentException("不是有效的Word文档");
+    }
+
+    /**
+     * 校验DOCX：读取ZIP中央目录，不解压任何条目
+     */
+    private void validateDocx(ByteRanges source) throws IOException {
+        long size = source.size();
+        int tailLength = (int) Math.min(size, ZIP_EOCD_SIZE + ZIP_MAX_COMMENT);
+        ByteBuffer tail = source.read(size - tailLength, tailLength);
+        int eocd = -1;
+        for (int i = tailLength - ZIP_EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == ZIP_EOCD_SIGNATURE && i + ZIP_EOCD_SIZE + u16(tail, i + 20) <= tailLength) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new InvalidDocumentException("DOCX文件不完整，缺少ZIP中央目录");
+        }
+        long eocdOffset = size - tailLength + eocd;
+        long entries = u16(tail, eocd + 10);
+        long directorySize = u32(tail, eocd + 12);
+        long directoryOffset = u32(tail, eocd + 16);
+        if (entries == 0xFFFF || directorySize == ZIP_MAGIC_32 || directoryOffset == ZIP_MAGIC_32) {
+            if (eocd < ZIP64_LOCATOR_SIZE || tail.getInt(eocd - ZIP64_LOCATOR_SIZE) != ZIP64_LOCATOR_SIGNATURE) {
+                throw new InvalidDocumentException("DOCX文件的ZIP64目录无效");
+            }
+            ByteBuffer zip64 = source.read(tail.getLong(eocd - ZIP64_LOCATOR_SIZE + 8), ZIP64_EOCD_SIZE);
+            if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                throw new InvalidDocumentException("DOCX文件的ZIP64目录无效");
+            }
+            entries = zip64.getLong(32);
+            directorySize = zip64.getLong(40);
+            directoryOffset = zip64.getLong(48);
+        }
+        if (entries < 0 || entries > validationProperties.getMaxZipEntries()) {
+            throw new InvalidDocumentException("DOCX压缩包条目数异常: " + entries);
+        }
+        if (directoryOffset < 0 || directorySize < 0 || directoryOffset + directorySize > eocdOffset) {
+            throw new InvalidDocumentException("DOCX文件不完整，ZIP中央目录位置无效");
+        }
+
+        ByteBuffer directory = source.read(directoryOffset, directorySize);
+        long[][] extents = new long[(int) entries][];
+        long totalUncompressed = 0;
+        boolean mainPart = false;
+        int pos = 0;
+        for (int n = 0; n < entries; n++) {
+            if (pos + ZIP_CEN_SIZE > directorySize || directory.getInt(pos) != ZIP_CEN_SIGNATURE) {
+                throw new InvalidDocumentException("DOCX文件的ZIP中央目录已损坏");
+            }
+            long compressed = u32(directory, pos + 20);
+            long uncompressed = u32(directory, pos + 24);
+            int nameLength = u16(directory, pos + 28);
+            int extraLength = u16(directory, pos + 30);
+            int commentLength = u16(directory, pos + 32);
+            long localOffset = u32(directory, pos + 42);
+            int next = pos + ZIP_CEN_SIZE + nameLength + extraLength + commentLength;
+            if (next > directorySize) {
+                throw new InvalidDocumentException("DOCX文件的ZIP中央目录已损坏");
+            }
+            byte[] nameBytes = new byte[nameLength];
+            directory.get(pos + ZIP_CEN_SIZE, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if (compressed == ZIP_MAGIC_32 || uncompressed == ZIP_MAGIC_32 || localOffset == ZIP_MAGIC_32) {
+                // ZIP64扩展字段按 解压后大小、压缩后大小、本地头位置 的顺序只包含被置为0xFFFFFFFF的值
+                int extra = pos + ZIP_CEN_SIZE + nameLength;
+                int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    int id = u16(directory, extra);
+                    int length = u16(directory, extra + 2);
+                    if (id == 0x0001) {
+                        int field = extra + 4;
+                        if (uncompressed == ZIP_MAGIC_32) {
+                            uncompressed = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (compressed == ZIP_MAGIC_32) {
+                            compressed = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (localOffset == ZIP_MAGIC_32) {
+                            localOffset = directory.getLong(field);
+                        }
+                        break;
+                    }
+                    extra += 4 + length;
+                }
+            }
+            if (compressed < 0 || uncompressed < 0 || localOffset < 0) {
+                throw new InvalidDocumentException("DOCX文件的ZIP中央目录已损坏");
+            }
+
+            totalUncompressed += uncompressed;
+            if (totalUncompressed > validationProperties.getMaxUncompressedBytes()) {
+                throw new InvalidDocumentException("DOCX解压后大小超过限制，疑似压缩炸弹");
+            }
+            if (uncompressed > RATIO_GRACE_BYTES
+                    && uncompressed > compressed * validationProperties.getMaxCompressionRatio()) {
+                throw new InvalidDocumentException("DOCX条目压缩比异常，疑似压缩炸弹: " + name);
+            }
+            long end = localOffset + ZIP_LOC_SIZE + nameLength + compressed;
+            if (end > directoryOffset) {
+                throw new InvalidDocumentException("DOCX文件不完整，条目数据超出文件范围: " + name);
+            }
+            extents[n] = new long[]{localOffset, end};
+            mainPart |= WORD_MAIN_PART.equals(name);
+            pos = next;
+        }
+
+        // 正常压缩包中各条目的数据互不重叠，重叠是用同一段压缩数据冒充多个条目的压缩炸弹
+        Arrays.sort(extents, Comparator.comparingLong(extent -> extent[0]));
+        for (int i = 1; i < extents.length; i++) {
+            if (extents[i - 1][1] > extents[i][0]) {
+                throw new InvalidDocumentException("DOCX条目数据互相重叠，疑似压缩炸弹");
+            }
+        }
+        if (!mainPart) {
+            throw new InvalidDocumentException("不是有效的Word文档，缺少 " + WORD_MAIN_PART);
+        }
+    }
+
+    /**
+     * 校验DOC：检查OLE2复合文档头和根目录项
+     */
+    private void validateDoc(ByteRanges source) throws IOException {
+        long size = source.size();
+        if (size < OLE2_HEADER_SIZE) {
+            throw new InvalidDocumentException("DOC文件被截断");
+        }
+        ByteBuffer header = source.read(0, OLE2_HEADER_SIZE);
+        int majorVersion = u16(header, 0x1A);
+        int sectorShift = u16(header, 0x1E);
+        if (u16(header, 0x1C) != 0xFFFE || u16(header, 0x20) != 6
+                || !(majorVersion == 3 && sectorShift == 9 || majorVersion == 4 && sectorShift == 12)) {
+            throw new InvalidDocumentException("DOC文件头无效");
+        }
+        long sectorSize = 1L << sectorShift;
+        // 第一个扇区是文件头，扇区N位于 (N + 1) * 扇区大小
+        long sectors = (size + sectorSize - 1) / sectorSize - 1;
+        long fatSectors = u32(header, 0x2C);
+        long firstDirectorySector = u32(header, 0x30);
+        long firstFatSector = u32(header, 0x4C);
+        if (fatSectors == 0 || fatSectors > sectors || firstFatSector >= sectors || firstDirectorySector >= sectors) {
+            throw new InvalidDocumentException("DOC文件被截断或扇区表无效");
+        }
+        ByteBuffer root = source.read((firstDirectorySector + 1) * sectorSize, OLE2_DIR_ENTRY_SIZE);
+        if (root.get(0x42) != OLE2_ROOT_STORAGE) {
+            throw new InvalidDocumentException("DOC文件的目录已损坏");
+        }
+    }
+
+    /**
+     * 校验PDF：检查文件头、结束标记和startxref指向的交叉引用
+     */
+    private void validatePdf(ByteRanges source) throws IOException {
+        long size = source.size();
+        int headLength = (int) Math.min(size, PDF_WINDOW);
+        int headerOffset = indexOf(source.read(0, headLength), PDF_HEADER, 0, headLength);
+        if (headerOffset < 0) {
+            throw new InvalidDocumentException("不是有效的PDF文件，缺少文件头");
+        }
+        int tailLength = (int) Math.min(size, PDF_WINDOW);
+        ByteBuffer tail = source.read(size - tailLength, tailLength);
+        int eof = lastIndexOf(tail, PDF_EOF, tailLength);
+        if (eof < 0) {
+            throw new InvalidDocumentException("PDF文件不完整，缺少结束标记");
+        }
+        int startxref = lastIndexOf(tail, PDF_STARTXREF, eof);
+        if (startxref < 0) {
+            throw new InvalidDocumentException("PDF文件不完整，缺少startxref");
+        }
+        int pos = skipWhitespace(tail, startxref + PDF_STARTXREF.length, eof);
+        long xrefOffset = 0;
+        int digits = 0;
+        for (; pos < eof && isDigit(tail.get(pos)) && digits < 18; pos++, digits++) {
+            xrefOffset = xrefOffset * 10 + (tail.get(pos) - '0');
+        }
+        // 规范中的偏移量从文件开头算起；文件头前有其他数据时，部分生成器写入的偏移量相对于文件头，两种都接受
+        if (digits == 0 || !isXref(source, xrefOffset, size)
+                && (headerOffset == 0 || !isXref(source, xrefOffset + headerOffset, size))) {
+            throw new InvalidDocumentException("PDF交叉引用表位置无效");
+        }
+    }
+
+    /**
+     * 指定位置是否为交叉引用表（xref）或交叉引用流（N G obj）
+     */
+    private boolean isXref(ByteRanges source, long offset, long size) throws IOException {
+        if (offset >= size) {
+            return false;
+        }
+        int length = (int) Math.min(64, size - offset);
+        ByteBuffer xref = source.read(offset, length);
+        int start = skipWhitespace(xref, 0, length);
+        return startsWith(xref, PDF_XREF, start, length) || isObjectHeader(xref, start, length);
+    }
+
+    /**
+     * 交叉引用流以间接对象开始：对象号 代号 obj
+     */
+    private boolean isObjectHeader(ByteBuffer buffer, int pos, int limit) {
+        for (int part = 0; part < 2; part++) {
+            int digitsStart = pos;
+            while (pos < limit && isDigit(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos == digitsStart) {
+                return false;
+            }
+            pos = skipWhitespace(buffer, pos, limit);
+        }
+        return startsWith(buffer, PDF_OBJ, pos, limit);
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int limit) {
+        for (int i = from; i + pattern.length <= limit; i++) {
+            if (startsWith(buffer, pattern, i, limit)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, byte[] pattern, int limit) {
+        for (int i = limit - pattern.length; i >= 0; i--) {
+            if (startsWith(buffer, pattern, i, limit)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, byte[] pattern, int pos, int limit) {
+        if (pos + pattern.length > limit) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (buffer.get(pos + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int pos, int limit) {
+        while (pos < limit && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\r' || b == '\n' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int u16(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long u32(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * 按需读取文档中的字节范围，返回小端序的缓冲区
+     */
+    private static final class ByteRanges implements Closeable {
+        // 超过该长度的范围使用内存映射，较小的范围直接读取，省去建立映射的开销
+        private static final long MAP_THRESHOLD = 64 * 1024;
+
+        private final ByteBuffer memory;
+        private final FileChannel channel;
+        private final long size;
+
+        private ByteRanges(ByteBuffer memory, FileChannel channel, long size) {
+            this.memory = memory;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        static ByteRanges open(DocumentContent content) throws IOException {
+            ByteBuffer buffer = content.asReadOnlyBuffer();
+            if (buffer != null) {
+                return new ByteRanges(buffer, null, buffer.remaining());
+            }
+            FileChannel channel = FileChannel.open(content.getPath(), StandardOpenOption.READ);
+            return new ByteRanges(null, channel, channel.size());
+        }
+
+        long size() {
+            return size;
+        }
+
+        ByteBuffer read(long offset, long length) throws IOException {
+            if (offset < 0 || length < 0 || offset > size - length || length > Integer.MAX_VALUE) {
+                throw new InvalidDocumentException("文件不完整，引用的位置超出文件长度");
+            }
+            ByteBuffer range;
+            if (memory != null) {
+                range = memory.slice((int) offset, (int) length);
+            } else if (length >= MAP_THRESHOLD) {
+                range = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            } else {
+                range = ByteBuffer.allocate((int) length);
+                while (range.hasRemaining()) {
+                    if (channel.read(range, offset + range.position()) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                range.flip();
+            }
+            return range.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
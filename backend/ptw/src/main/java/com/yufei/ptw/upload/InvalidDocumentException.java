@@ -0,0 +1,13 @@
+package com.yufei.ptw.upload;
+
+import java.io.IOException;
+
+/**
+ * 文档结构校验失败：文件损坏、截断、不是声称的格式或是压缩炸弹
+ */
+public class InvalidDocumentException extends IOException {
+
+    public InvalidDocumentException(String message) {
+        super(message);
+    }
+}
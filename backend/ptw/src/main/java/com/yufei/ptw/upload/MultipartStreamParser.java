@@ -0,0 +1,292 @@
+package com.yufei.ptw.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * multipart/form-data 流式解析器
+ * 直接读取请求体，按分隔符逐个返回表单项，表单项内容以流的形式提供，不在内存或临时文件中缓存整个请求；
+ * 读取下一个表单项前会跳过当前表单项的剩余内容
+ */
+public class MultipartStreamParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    private final InputStream in;
+    // 表单项之间的分隔符：CRLF + "--" + boundary
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    // buffer中[head, tail)为未读取的数据
+    private int head;
+    private int tail;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    /**
+     * @param in       请求体
+     * @param boundary Content-Type中的boundary参数
+     */
+    public MultipartStreamParser(InputStream in, String boundary) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("无效的multipart分隔符: " + boundary);
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // 第一个分隔符前没有CRLF，补上后可以统一按分隔符查找
+        buffer[0] = CR;
+        buffer[1] = LF;
+        tail = 2;
+    }
+
+    /**
+     * 读取下一个表单项的头部
+     *
+     * @return 下一个表单项，没有更多表单项时返回null
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // 跳过前导内容或当前表单项未读取的内容
+        PartInputStream skipped = current != null ? current : new PartInputStream();
+        skipped.skip(Long.MAX_VALUE);
+        current = null;
+
+        // 分隔符后为 "--" 表示结束，否则为CRLF和表单项头部
+        if (!fill(2)) {
+            throw new IOException("multipart内容不完整");
+        }
+        if (buffer[head] == DASH && buffer[head + 1] == DASH) {
+            finished = true;
+            return null;
+        }
+        readLine();
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String headerName = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if ("Content-Disposition".equalsIgnoreCase(headerName)) {
+                name = parameter(value, "name");
+                filename = parameter(value, "filename");
+            } else if ("Content-Type".equalsIgnoreCase(headerName)) {
+                contentType = value;
+            }
+        }
+        current = new PartInputStream();
+        return new Part(name, filename, contentType, current);
+    }
+
+    /**
+     * 读取一行头部（UTF-8，浏览器按UTF-8发送非ASCII文件名），不包含行尾的CRLF
+     */
+    private String readLine() throws IOException {
+        int scanned = head;
+        while (true) {
+            for (int i = scanned; i + 1 < tail; i++) {
+                if (buffer[i] == CR && buffer[i + 1] == LF) {
+                    String line = new String(buffer, head, i - head, StandardCharsets.UTF_8);
+                    head = i + 2;
+                    return line;
+                }
+            }
+            if (tail - head >= MAX_HEADER_LINE) {
+                throw new IOException("multipart头部过长");
+            }
+            int scannedOffset = Math.max(0, tail - 1 - head);
+            compact();
+            if (!readMore()) {
+                throw new IOException("multipart内容不完整");
+            }
+            scanned = head + scannedOffset;
+        }
+    }
+
+    /**
+     * 保证缓冲区中至少有n个字节
+     *
+     * @return 流已结束且不足n个字节时返回false
+     */
+    private boolean fill(int n) throws IOException {
+        while (tail - head < n) {
+            if (head > 0 && buffer.length - tail < n) {
+                compact();
+            }
+            if (!readMore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void compact() {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+    }
+
+    private boolean readMore() throws IOException {
+        if (eof || tail == buffer.length) {
+            return false;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    private static String parameter(String header, String name) {
+        for (String part : header.split(";")) {
+            String token = part.trim();
+            int eq = token.indexOf('=');
+            if (eq > 0 && token.substring(0, eq).trim().equalsIgnoreCase(name)) {
+                String value = token.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 一个表单项
+     */
+    public static final class Part {
+        private final String name;
+        private final String filename;
+        private final String contentType;
+        private final InputStream content;
+
+        private Part(String name, String filename, String contentType, InputStream content) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 文件名，不是文件字段时为null
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * 表单项内容，读到下一个分隔符为止；在调用下一次 {@link #nextPart()} 前有效
+         */
+        public InputStream getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * 读到分隔符为止的表单项内容
+     */
+    private final class PartInputStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int read = read(one, 0, 1);
+            return read < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int found = indexOfDelimiter();
+                if (found >= 0) {
+                    int available = found - head;
+                    if (available == 0) {
+                        done = true;
+                        head = found + delimiter.length;
+                        return -1;
+                    }
+                    return copy(b, off, Math.min(len, available));
+                }
+                // 末尾可能是分隔符的前半部分，保留到读入更多数据后再判断
+                int safe = tail - head - (delimiter.length - 1);
+                if (safe > 0) {
+                    return copy(b, off, Math.min(len, safe));
+                }
+                compact();
+                if (!readMore()) {
+                    throw new IOException("multipart内容不完整，缺少结束分隔符");
+                }
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] discard = new byte[4096];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(discard, 0, (int) Math.min(discard.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        private int copy(byte[] b, int off, int len) {
+            System.arraycopy(buffer, head, b, off, len);
+            head += len;
+            return len;
+        }
+
+        private int indexOfDelimiter() {
+            int last = tail - delimiter.length;
+            outer:
+            for (int i = head; i <= last; i++) {
+                if (buffer[i] != CR) {
+                    continue;
+                }
+                for (int j = 1; j < delimiter.length; j++) {
+                    if (buffer[i + j] != delimiter[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+}
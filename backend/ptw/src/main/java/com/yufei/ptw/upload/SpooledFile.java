@@ -0,0 +1,49 @@
+package com.yufei.ptw.upload;
+
+import com.yufei.ptw.buffer.DocumentContent;
+
+import java.nio.file.Path;
+
+/**
+ * 已保存的上传文件，记录写入时顺带得到的大小、内容哈希和文件头；小文件可能只保存在内存中
+ */
+public class SpooledFile {
+
+    private final DocumentContent content;
+    private final long size;
+    private final String contentHash;
+    private final byte[] header;
+
+    public SpooledFile(DocumentContent content, long size, String contentHash, byte[] header) {
+        this.content = content;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.header = header;
+    }
+
+    public DocumentContent getContent() {
+        return content;
+    }
+
+    public Path getPath() {
+        return content.getPath();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 十六进制的SHA-256
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * 文件的前 {@link UploadSpooler#HEADER_LENGTH} 个字节，用于识别文件类型
+     */
+    public byte[] getHeader() {
+        return header;
+    }
+}
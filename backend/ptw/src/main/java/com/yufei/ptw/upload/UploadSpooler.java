@@ -0,0 +1,87 @@
+package com.yufei.ptw.upload;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.UploadProperties;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传内容落盘
+ * 一次读取同时完成写入本地文件、计算SHA-256、保留文件头和检查大小限制，不需要再次读取文件；
+ * 启用内存缓冲时小文件只写入 {@link BufferPool} 的缓冲区，超过阈值时才写入本地文件
+ */
+@Component
+public class UploadSpooler {
+
+    // 识别文件类型需要的文件头长度
+    public static final int HEADER_LENGTH = 8;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private UploadProperties uploadProperties;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    /**
+     * 将内容写入目标文件或内存缓冲区，超过大小限制时删除已写入的部分并抛出 {@link UploadTooLargeException}
+     */
+    public SpooledFile spool(InputStream content, Path target) throws IOException {
+        long start = System.nanoTime();
+        long maxBytes = uploadProperties.getMaxFileSize();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256", e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] header = new byte[HEADER_LENGTH];
+        int headerLength = 0;
+        long size = 0;
+        boolean complete = false;
+        DocumentContent spooled = bufferPool.allocate(target);
+        try (OutputStream out = spooled.openOutput()) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    pipelineMetrics.counter("ptw.conversion.failures", "cause", "upload_too_large").increment();
+                    throw new UploadTooLargeException(maxBytes);
+                }
+                if (headerLength < HEADER_LENGTH) {
+                    int n = Math.min(read, HEADER_LENGTH - headerLength);
+                    System.arraycopy(buffer, 0, header, headerLength, n);
+                    headerLength += n;
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                spooled.delete();
+            }
+            pipelineMetrics.timer("ptw.upload.receive").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        pipelineMetrics.counter("ptw.upload.bytes").increment(size);
+        return new SpooledFile(spooled, size, HexFormat.of().formatHex(digest.digest()),
+                Arrays.copyOf(header, headerLength));
+    }
+}
@@ -0,0 +1,20 @@
+package com.yufei.ptw.upload;
+
+import java.io.IOException;
+
+/**
+ * 上传文件超过大小限制，在写入过程中发现时抛出，已写入的部分会被删除
+ */
+public class UploadTooLargeException extends IOException {
+
+    private final long maxBytes;
+
+    public UploadTooLargeException(long maxBytes) {
+        super("文件大小超过限制: " + maxBytes + " 字节");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
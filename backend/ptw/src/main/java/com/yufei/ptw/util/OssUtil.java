@@ -2,17 +2,39 @@ package com.yufei.ptw.util;
 
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
 import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
 import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.yufei.ptw.buffer.DocumentContent;
 import com.yufei.ptw.config.OssProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Component
@@ -20,15 +42,32 @@ public class OssUtil {
 
     private final OSS ossClient;
     private final OssProperties ossProperties;
+    // 分片上传线程池，所有分片上传共享，并发度由uploadConcurrency限制
+    private final ExecutorService partExecutor;
 
     @Autowired
     public OssUtil(OssProperties ossProperties) {
-        this.ossProperties = ossProperties;
-        this.ossClient = new OSSClientBuilder().build(
+        this(ossProperties, new OSSClientBuilder().build(
                 ossProperties.getEndpoint(),
                 ossProperties.getAccessKeyId(),
                 ossProperties.getAccessKeySecret()
-        );
+        ));
+    }
+
+    /**
+     * 使用指定的OSS客户端构造（测试时可传入本地替身）
+     */
+    public OssUtil(OssProperties ossProperties, OSS ossClient) {
+        this.ossProperties = ossProperties;
+        this.ossClient = ossClient;
+        AtomicInteger threadIndex = new AtomicInteger();
+        int concurrency = Math.max(1, ossProperties.getUploadConcurrency());
+        this.partExecutor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "OssPart-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -41,6 +80,41 @@ public class OssUtil {
         return uploadStream(file.getInputStream(), fileName, file.getContentType());
     }
 
+    /**
+     * 上传本地文件到OSS
+     * 文件大小超过multipartThreshold时使用并发分片上传，否则使用单次上传
+     * @param filePath 本地文件路径
+     * @param fileName 存储的文件名
+     * @param contentType 文件类型
+     * @return 文件访问URL
+     */
+    public String uploadFile(Path filePath, String fileName, String contentType) throws IOException {
+        long size = Files.size(filePath);
+        if (size < ossProperties.getMultipartThreshold()) {
+            try (InputStream inputStream = Files.newInputStream(filePath)) {
+                return uploadStream(inputStream, fileName, contentType);
+            }
+        }
+        return uploadMultipart(filePath, size, fileName, contentType);
+    }
+
+    /**
+     * 上传转换结果到OSS
+     * 内容在内存中时直接读取缓冲区单次上传，不写入本地文件，也不复制为字节数组；否则按本地文件上传
+     * @param content 文件内容
+     * @param fileName 存储的文件名
+     * @param contentType 文件类型
+     * @return 文件访问URL
+     */
+    public String uploadContent(DocumentContent content, String fileName, String contentType) throws IOException {
+        if (!content.isInMemory()) {
+            return uploadFile(content.getPath(), fileName, contentType);
+        }
+        try (InputStream inputStream = content.openInput()) {
+            return uploadStream(inputStream, content.size(), fileName, contentType);
+        }
+    }
+
     /**
      * 上传文件到OSS
      * @param inputStream 文件流
@@ -49,6 +123,10 @@ public class OssUtil {
      * @return 文件访问URL
      */
     public String uploadStream(InputStream inputStream, String fileName, String contentType) throws IOException {
+        return uploadStream(inputStream, -1, fileName, contentType);
+    }
+
+    private String uploadStream(InputStream inputStream, long contentLength, String fileName, String contentType) {
         // 构建完整对象名称
         String objectName = ossProperties.getFolder() + fileName;
 
@@ -57,6 +135,10 @@ public class OssUtil {
         if (contentType != null) {
             metadata.setContentType(contentType);
         }
+        if (contentLength >= 0) {
+            // 已知长度时按Content-Length上传
+            metadata.setContentLength(contentLength);
+        }
 
         // 创建上传请求
         PutObjectRequest putObjectRequest = new PutObjectRequest(
@@ -89,12 +171,105 @@ public class OssUtil {
         }
     }
 
+    /**
+     * 打开已上传文件的输入流
+     * @param fileUrl 上传时返回的文件访问URL
+     * @return 文件内容流，调用方负责关闭
+     */
+    public InputStream openStream(String fileUrl) {
+        String urlPrefix = ossProperties.getUrlPrefix();
+        if (fileUrl == null || !fileUrl.startsWith(urlPrefix)) {
+            throw new IllegalArgumentException("不是本存储桶的文件URL: " + fileUrl);
+        }
+        String objectName = fileUrl.substring(urlPrefix.length());
+        return ossClient.getObject(ossProperties.getBucketName(), objectName).getObjectContent();
+    }
+
+    /**
+     * 分片上传：各分片在线程池上并发上传，单个分片失败时重试，最终失败则中止整个上传
+     */
+    private String uploadMultipart(Path filePath, long size, String fileName, String contentType) throws IOException {
+        String bucketName = ossProperties.getBucketName();
+        String objectName = ossProperties.getFolder() + fileName;
+        long partSize = ossProperties.getPartSize();
+        int partCount = (int) ((size + partSize - 1) / partSize);
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        String uploadId = ossClient.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, objectName, metadata)).getUploadId();
+        log.info("开始分片上传，对象: {}, 大小: {} 字节, 分片数: {}, uploadId: {}", objectName, size, partCount, uploadId);
+
+        List<CompletableFuture<PartETag>> futures = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            int partNumber = i + 1;
+            long offset = i * partSize;
+            long length = Math.min(partSize, size - offset);
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> uploadPartWithRetry(filePath, bucketName, objectName, uploadId, partNumber, offset, length),
+                    partExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            List<PartETag> partETags = new ArrayList<>(partCount);
+            for (CompletableFuture<PartETag> future : futures) {
+                partETags.add(future.join());
+            }
+            partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            ossClient.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            abortQuietly(bucketName, objectName, uploadId);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new IOException("分片上传失败: " + cause.getMessage(), cause);
+        }
+
+        log.info("分片上传完成，对象: {}", objectName);
+        return ossProperties.getUrlPrefix() + objectName;
+    }
+
+    private PartETag uploadPartWithRetry(Path filePath, String bucketName, String objectName, String uploadId,
+                                         int partNumber, long offset, long length) {
+        int attempts = Math.max(0, ossProperties.getPartRetries()) + 1;
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            // 每次重试重新打开文件并定位到分片起始位置
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                channel.position(offset);
+                UploadPartRequest request = new UploadPartRequest(bucketName, objectName, uploadId, partNumber,
+                        Channels.newInputStream(channel), length);
+                return ossClient.uploadPart(request).getPartETag();
+            } catch (IOException e) {
+                lastError = new CompletionException(e);
+            } catch (RuntimeException e) {
+                lastError = e;
+            }
+            log.warn("分片上传失败，对象: {}, 分片: {}, 第{}次尝试: {}", objectName, partNumber, attempt, lastError.getMessage());
+        }
+        throw lastError;
+    }
+
+    private void abortQuietly(String bucketName, String objectName, String uploadId) {
+        try {
+            ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+            log.info("已中止分片上传，对象: {}, uploadId: {}", objectName, uploadId);
+        } catch (RuntimeException e) {
+            log.error("中止分片上传失败，对象: {}, uploadId: {}", objectName, uploadId, e);
+        }
+    }
+
     /**
      * 关闭OSS客户端（在应用关闭时调用）
      */
+    @PreDestroy
     public void shutdown() {
+        partExecutor.shutdownNow();
         if (ossClient != null) {
             ossClient.shutdown();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package com.yufei.ptw.buffer;
+
+import com.yufei.ptw.config.MemoryProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证小文件保存在内存、超过阈值转写本地文件，以及缓冲区用尽时回退到本地文件
+ */
+class DocumentContentTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MemoryProperties properties;
+    private BufferPool pool;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MemoryProperties();
+        properties.setEnabled(true);
+        properties.setThreshold(4 * 1024);
+        properties.setMaxBufferedBytes(8 * 1024);
+        pool = new BufferPool();
+        ReflectionTestUtils.setField(pool, "memoryProperties", properties);
+    }
+
+    @Test
+    void smallContentStaysInMemory() throws IOException {
+        byte[] data = bytes(3 * 1024);
+        DocumentContent content = write(pool.allocate(tempDir.resolve("small.docx")), data);
+
+        assertTrue(content.isInMemory());
+        assertFalse(Files.exists(content.getPath()));
+        assertEquals(data.length, content.size());
+        assertArrayEquals(data, read(content));
+        assertEquals(4 * 1024, pool.getInUseBytes());
+
+        content.delete();
+        assertEquals(0, pool.getInUseBytes());
+        // 释放的缓冲区被复用，不再分配新的
+        write(pool.allocate(tempDir.resolve("next.docx")), data);
+        assertEquals(4 * 1024, pool.getAllocatedBytes());
+    }
+
+    @Test
+    void largeContentSpillsToDisk() throws IOException {
+        byte[] data = bytes(10 * 1024);
+        DocumentContent content = pool.allocate(tempDir.resolve("large.docx"));
+        try (OutputStream out = content.openOutput()) {
+            // 分块写入，越过阈值时已写入的部分一起转写
+            for (int offset = 0; offset < data.length; offset += 1000) {
+                out.write(data, offset, Math.min(1000, data.length - offset));
+            }
+        }
+
+        assertFalse(content.isInMemory());
+        assertArrayEquals(data, Files.readAllBytes(content.getPath()));
+        assertArrayEquals(data, read(content));
+        assertEquals(1, pool.getSpills());
+        assertEquals(0, pool.getInUseBytes());
+    }
+
+    @Test
+    void exhaustedPoolFallsBackToDisk() throws IOException {
+        byte[] data = bytes(1024);
+        DocumentContent first = write(pool.allocate(tempDir.resolve("a.docx")), data);
+        DocumentContent second = write(pool.allocate(tempDir.resolve("b.docx")), data);
+        DocumentContent third = write(pool.allocate(tempDir.resolve("c.docx")), data);
+
+        assertTrue(first.isInMemory());
+        assertTrue(second.isInMemory());
+        assertFalse(third.isInMemory());
+        assertArrayEquals(data, Files.readAllBytes(third.getPath()));
+        assertEquals(1, pool.getExhausted());
+        assertEquals(8 * 1024, pool.getInUseBytes());
+    }
+
+    @Test
+    void replaceWithMovesMemoryAndFiles() throws IOException {
+        byte[] data = bytes(2 * 1024);
+        DocumentContent output = pool.allocate(tempDir.resolve("out.pdf"));
+        DocumentContent hedge = write(output.sibling(".hedge"), data);
+        output.replaceWith(hedge);
+        assertTrue(output.isInMemory());
+        assertArrayEquals(data, read(output));
+        // 缓冲区直接转移，不复制
+        assertFalse(hedge.isInMemory());
+        assertEquals(4 * 1024, pool.getInUseBytes());
+
+        DocumentContent fileOutput = DocumentContent.ofFile(tempDir.resolve("file.pdf"));
+        DocumentContent fileHedge = write(fileOutput.sibling(".hedge"), data);
+        fileOutput.replaceWith(fileHedge);
+        assertArrayEquals(data, Files.readAllBytes(fileOutput.getPath()));
+        assertFalse(Files.exists(fileHedge.getPath()));
+    }
+
+    @Test
+    void disabledPoolWritesFiles() throws IOException {
+        properties.setEnabled(false);
+        byte[] data = bytes(16);
+        DocumentContent content = write(pool.allocate(tempDir.resolve("off.docx")), data);
+        assertFalse(content.isInMemory());
+        assertArrayEquals(data, Files.readAllBytes(content.getPath()));
+        assertEquals(0, pool.getAllocatedBytes());
+    }
+
+    private DocumentContent write(DocumentContent content, byte[] data) throws IOException {
+        try (OutputStream out = content.openOutput()) {
+            out.write(data);
+        }
+        return content;
+    }
+
+    private byte[] read(DocumentContent content) throws IOException {
+        try (InputStream in = content.openInput()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
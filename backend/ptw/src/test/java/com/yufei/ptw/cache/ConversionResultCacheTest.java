@@ -0,0 +1,61 @@
+package com.yufei.ptw.cache;
+
+import com.yufei.ptw.config.CacheProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ConversionResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ConversionResultCache newCache(int maxEntries) {
+        CacheProperties properties = new CacheProperties();
+        properties.setMaxEntries(maxEntries);
+        ConversionResultCache cache = new ConversionResultCache();
+        ReflectionTestUtils.setField(cache, "cacheProperties", properties);
+        ReflectionTestUtils.setField(cache, "uploadDir", tempDir.toString());
+        cache.init();
+        return cache;
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        ConversionResultCache cache = newCache(2);
+        String a = cache.key(ConversionType.WORD_TO_PDF, "a");
+        String b = cache.key(ConversionType.WORD_TO_PDF, "b");
+        String c = cache.key(ConversionType.WORD_TO_PDF, "c");
+        cache.put(a, "url-a");
+        cache.put(b, "url-b");
+        cache.get(a);
+        cache.put(c, "url-c");
+
+        assertNull(cache.get(b));
+        assertEquals("url-a", cache.get(a));
+        assertEquals("url-c", cache.get(c));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getMisses());
+        cache.close();
+    }
+
+    @Test
+    void indexSurvivesRestart() {
+        ConversionResultCache cache = newCache(10);
+        String key = cache.key(ConversionType.PDF_TO_DOCX, "abc");
+        cache.put(key, "url-abc");
+        cache.put(cache.key(ConversionType.WORD_TO_PDF, "abc"), "url-pdf");
+        cache.close();
+
+        ConversionResultCache reloaded = newCache(10);
+        assertEquals(2, reloaded.size());
+        assertEquals("url-abc", reloaded.get(key));
+        reloaded.close();
+    }
+}
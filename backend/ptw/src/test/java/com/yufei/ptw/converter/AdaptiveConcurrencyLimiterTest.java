@@ -0,0 +1,112 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.ConverterLimiterProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证并发上限的加性增、乘性减、按转换类型分别维护的基线和对冲许可
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private ConverterLimiterProperties properties;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConverterLimiterProperties();
+        properties.setInitialLimit(2);
+        properties.setMaxLimit(10);
+        limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "limiterProperties", properties);
+        limiter.init();
+    }
+
+    @Test
+    void growsWhileLatencyStaysAtBaseline() {
+        for (int i = 0; i < 20; i++) {
+            fill();
+            for (int j = limiter.getInFlight(); j > 0; j--) {
+                limiter.onSuccess(ConversionType.WORD_TO_PDF, false, 100, 0);
+            }
+        }
+        assertTrue(limiter.getLimit() > 2);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void shrinksOnLatencyAndDrops() {
+        properties.setInitialLimit(8);
+        limiter.init();
+        limiter.acquire();
+        limiter.onSuccess(ConversionType.WORD_TO_PDF, false, 100, 0);
+        limiter.acquire();
+        // 延迟达到基线的5倍，按0.9收缩
+        limiter.onSuccess(ConversionType.WORD_TO_PDF, false, 500, 0);
+        assertEquals(7, limiter.getLimit());
+        limiter.acquire();
+        limiter.onDropped();
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void mixedTrafficDoesNotCollapseTheLimit() {
+        // 快速的Word转PDF、较慢的PDF转Word和很慢的扫描件交替完成，各自的延迟都稳定
+        for (int round = 0; round < 30; round++) {
+            fill();
+            int slot = 0;
+            for (int j = limiter.getInFlight(); j > 0; j--, slot++) {
+                switch ((round + slot) % 3) {
+                    case 0:
+                        limiter.onSuccess(ConversionType.WORD_TO_PDF, false, 200, 0);
+                        break;
+                    case 1:
+                        limiter.onSuccess(ConversionType.PDF_TO_DOCX, false, 3_000, 0);
+                        break;
+                    default:
+                        limiter.onSuccess(ConversionType.PDF_TO_DOCX, true, 60_000, 0);
+                        break;
+                }
+            }
+        }
+        assertTrue(limiter.getLimit() > 2, "limit=" + limiter.getLimit());
+    }
+
+    @Test
+    void slowdownOfOneTypeStillShrinksTheLimit() {
+        properties.setInitialLimit(8);
+        limiter.init();
+        limiter.acquire();
+        limiter.onSuccess(ConversionType.PDF_TO_DOCX, false, 3_000, 0);
+        limiter.acquire();
+        limiter.onSuccess(ConversionType.PDF_TO_DOCX, false, 9_000, 0);
+        assertEquals(7, limiter.getLimit());
+    }
+
+    @Test
+    void hedgePermitsRespectTheLimitAndReleasesNotifyListeners() {
+        AtomicInteger notified = new AtomicInteger();
+        limiter.addListener(notified::incrementAndGet);
+        fill();
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejections());
+
+        limiter.onIgnored();
+        assertEquals(1, notified.get());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    private void fill() {
+        while (limiter.getInFlight() < limiter.getLimit()) {
+            limiter.acquire();
+        }
+    }
+}
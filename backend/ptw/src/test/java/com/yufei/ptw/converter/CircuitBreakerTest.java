@@ -0,0 +1,73 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.CircuitBreakerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 验证熔断器的打开、半开试探和恢复
+ */
+class CircuitBreakerTest {
+
+    private CircuitBreakerProperties properties;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CircuitBreakerProperties();
+        properties.setWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setHalfOpenCalls(1);
+        breaker = new CircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "breakerProperties", properties);
+    }
+
+    @Test
+    void opensWhenFailureRateExceedsThreshold() {
+        call(false);
+        call(true);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTrips());
+        assertThrows(ConverterUnavailableException.class, breaker::acquirePermission);
+        assertEquals(1, breaker.getRejections());
+    }
+
+    @Test
+    void halfOpenProbeClosesOrReopens() {
+        properties.setOpenDuration(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 试探失败重新熔断
+        call(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTrips());
+
+        breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // 半开状态下试探名额已用完
+        assertThrows(ConverterUnavailableException.class, breaker::acquirePermission);
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void call(boolean failure) {
+        breaker.acquirePermission();
+        if (failure) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+}
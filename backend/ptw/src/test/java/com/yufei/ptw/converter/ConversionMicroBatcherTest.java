@@ -0,0 +1,174 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.MicroBatchProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 验证微批处理的凑批、逐文档失败隔离和整批失败回退
+ */
+class ConversionMicroBatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MicroBatchProperties properties;
+    private PythonConverterClient client;
+    private FairShareScheduler scheduler;
+    private ConversionMicroBatcher batcher;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new MicroBatchProperties();
+        properties.setEnabled(true);
+        properties.setMaxItems(3);
+        properties.setWindow(Duration.ofSeconds(5));
+        client = mock(PythonConverterClient.class);
+        // 单独转换时写入固定内容
+        doAnswer(invocation -> Files.writeString(invocation.<DocumentContent>getArgument(3).getPath(), "single"))
+                .when(client).convert(eq(ConversionType.WORD_TO_PDF), eq(false), any(), any());
+        scheduler = mock(FairShareScheduler.class);
+        when(scheduler.getConcurrencyLimit()).thenReturn(8);
+        batcher = new ConversionMicroBatcher();
+        ReflectionTestUtils.setField(batcher, "batchProperties", properties);
+        ReflectionTestUtils.setField(batcher, "converterClient", client);
+        ReflectionTestUtils.setField(batcher, "scheduler", scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sendsFullBatchAsOneRequest() throws Exception {
+        answerBatch((String) null, null, null);
+        List<Path> outputs = convertConcurrently(3);
+
+        for (Path output : outputs) {
+            assertEquals("batched", Files.readString(output));
+        }
+        verify(client, times(1)).convertBatch(anyList(), anyList());
+        verify(client, never()).convert(any(), anyBoolean(), any(), any());
+        assertEquals(1, batcher.getBatches());
+        assertEquals(3, batcher.getBatchedDocuments());
+    }
+
+    @Test
+    void batchClosesAtTheSchedulerConcurrencyLimit() throws Exception {
+        // 只有2个转换并发时不可能凑满3个文档，凑满2个就发送，不等到窗口结束
+        when(scheduler.getConcurrencyLimit()).thenReturn(2);
+        answerBatch((String) null, null);
+        long start = System.nanoTime();
+        List<Path> outputs = convertConcurrently(2);
+
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 4);
+        for (Path output : outputs) {
+            assertEquals("batched", Files.readString(output));
+        }
+        assertEquals(2, batcher.getBatchedDocuments());
+    }
+
+    @Test
+    void failedDocumentIsRetriedAlone() throws Exception {
+        answerBatch(null, "Conversion failed", null);
+        List<Path> outputs = convertConcurrently(3);
+
+        long single = 0;
+        for (Path output : outputs) {
+            single += "single".equals(Files.readString(output)) ? 1 : 0;
+        }
+        assertEquals(1, single);
+        verify(client, times(1)).convert(eq(ConversionType.WORD_TO_PDF), eq(false), any(), any());
+        assertEquals(2, batcher.getBatchedDocuments());
+        assertEquals(1, batcher.getFallbacks());
+    }
+
+    @Test
+    void batchFailureFallsBackToSingleRequests() throws Exception {
+        when(client.convertBatch(anyList(), anyList())).thenThrow(new IOException("Python API调用失败: 500"));
+        List<Path> outputs = convertConcurrently(3);
+
+        for (Path output : outputs) {
+            assertEquals("single", Files.readString(output));
+        }
+        assertEquals(0, batcher.getBatches());
+        assertEquals(3, batcher.getFallbacks());
+    }
+
+    @Test
+    void loneDocumentIsSentAloneAfterWindow() throws Exception {
+        properties.setWindow(Duration.ofMillis(50));
+        Path input = Files.writeString(tempDir.resolve("in.docx"), "docx");
+        Path output = tempDir.resolve("out.pdf");
+        assertTrue(batcher.accepts(ConversionType.WORD_TO_PDF, DocumentContent.ofFile(input)));
+        assertFalse(batcher.accepts(ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(input)));
+
+        batcher.convert(DocumentContent.ofFile(input), DocumentContent.ofFile(output));
+        assertEquals("single", Files.readString(output));
+        verify(client, never()).convertBatch(anyList(), anyList());
+    }
+
+    private void answerBatch(String... errors) throws Exception {
+        when(client.convertBatch(anyList(), anyList())).thenAnswer(invocation -> {
+            List<DocumentContent> outputs = invocation.getArgument(1);
+            for (int i = 0; i < outputs.size(); i++) {
+                if (errors[i] == null) {
+                    Files.writeString(outputs.get(i).getPath(), "batched");
+                }
+            }
+            return Arrays.asList(errors);
+        });
+    }
+
+    private List<Path> convertConcurrently(int count) throws Exception {
+        List<Path> outputs = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path input = Files.writeString(tempDir.resolve("in" + i + ".docx"), "docx" + i);
+            Path output = tempDir.resolve("out" + i + ".pdf");
+            outputs.add(output);
+            futures.add(executor.submit(() -> {
+                batcher.convert(DocumentContent.ofFile(input), DocumentContent.ofFile(output));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return outputs;
+    }
+}
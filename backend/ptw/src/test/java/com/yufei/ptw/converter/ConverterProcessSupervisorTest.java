@@ -0,0 +1,138 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.ConverterProperties;
+import com.yufei.ptw.config.WorkerProcessProperties;
+import com.yufei.ptw.entity.WorkerProcessStatus;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 使用 {@link FakeConverterWorker} 作为转换服务进程，验证启动、崩溃重启、按请求数回收和按排队任务数扩缩容
+ */
+class ConverterProcessSupervisorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private WorkerProcessProperties properties;
+    private ConverterWorkerPool workerPool;
+    private FairShareScheduler scheduler;
+    private ConverterProcessSupervisor supervisor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WorkerProcessProperties();
+        properties.setEnabled(true);
+        properties.setCommand(List.of(ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"), FakeConverterWorker.class.getName(), "{socket}"));
+        properties.setSocketDirectory(tempDir.toString());
+        properties.setMinWorkers(1);
+        properties.setMaxWorkers(1);
+        // 由测试手动触发检查
+        properties.setSuperviseInterval(Duration.ofHours(1));
+
+        ConverterProperties converterProperties = new ConverterProperties();
+        UnixSocketConverterTransport socketTransport = new UnixSocketConverterTransport();
+        ReflectionTestUtils.setField(socketTransport, "converterProperties", converterProperties);
+        workerPool = new ConverterWorkerPool();
+        ReflectionTestUtils.setField(workerPool, "converterProperties", converterProperties);
+        ReflectionTestUtils.setField(workerPool, "socketTransport", socketTransport);
+        scheduler = mock(FairShareScheduler.class);
+
+        supervisor = new ConverterProcessSupervisor();
+        ReflectionTestUtils.setField(supervisor, "processProperties", properties);
+        ReflectionTestUtils.setField(supervisor, "workerPool", workerPool);
+        ReflectionTestUtils.setField(supervisor, "scheduler", scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        supervisor.shutdown();
+    }
+
+    @Test
+    void restartsCrashedWorkerAndRecyclesAfterMaxRequests() {
+        properties.setMaxRequests(3);
+        supervisor.init();
+        awaitReady(0);
+        long pid = supervisor.getStatus().get(0).getPid();
+        assertEquals(1, workerPool.getWorkers().size());
+
+        ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+        awaitReady(1);
+        long restartedPid = supervisor.getStatus().get(0).getPid();
+        assertNotEquals(pid, restartedPid);
+        assertEquals(1, workerPool.getWorkers().size());
+
+        for (int i = 0; i < 3; i++) {
+            workerPool.release(workerPool.acquire());
+        }
+        supervisor.supervise();
+        assertEquals("RECYCLING", supervisor.getStatus().get(0).getState());
+        assertTrue(workerPool.getWorkers().isEmpty());
+        awaitReady(2);
+        assertNotEquals(restartedPid, supervisor.getStatus().get(0).getPid());
+        assertEquals(0, supervisor.getStatus().get(0).getRequests());
+    }
+
+    @Test
+    void scalesWithQueueDepth() {
+        properties.setMaxWorkers(2);
+        properties.setScaleDownIdle(Duration.ofHours(1));
+        supervisor.init();
+        awaitReady(0);
+
+        when(scheduler.getQueued()).thenReturn(5);
+        supervisor.supervise();
+        assertEquals(2, supervisor.getStatus().size());
+        await(() -> workerPool.getWorkers().size() == 2);
+        supervisor.supervise();
+        assertEquals(2, supervisor.getStatus().size());
+
+        when(scheduler.getQueued()).thenReturn(0);
+        properties.setScaleDownIdle(Duration.ZERO);
+        await(() -> supervisor.getStatus().size() == 1);
+        assertEquals(1, workerPool.getWorkers().size());
+        assertEquals(0, supervisor.getStatus().get(0).getSlot());
+    }
+
+    private void awaitReady(int restarts) {
+        await(() -> {
+            WorkerProcessStatus status = supervisor.getStatus().get(0);
+            return "READY".equals(status.getState()) && status.getRestarts() == restarts;
+        });
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            supervisor.supervise();
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+        fail("等待超时: " + supervisor.getStatus().size() + " 个进程");
+    }
+}
@@ -0,0 +1,14 @@
+package com.yufei.ptw.converter;
+
+import java.nio.file.Paths;
+
+/**
+ * 供进程监管测试启动的转换服务进程：在参数指定的Unix域套接字上运行 {@link FakeSocketConverterServer}
+ */
+public class FakeConverterWorker {
+
+    public static void main(String[] args) throws Exception {
+        new FakeSocketConverterServer(Paths.get(args[0]));
+        Thread.currentThread().join();
+    }
+}
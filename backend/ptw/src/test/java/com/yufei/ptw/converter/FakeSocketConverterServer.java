@@ -0,0 +1,126 @@
+package com.yufei.ptw.converter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 按Unix域套接字协议实现的转换服务替身，"转换"即原样复制文件内容；
+ * 也用于 com.yufei.ptw.benchmark.ConverterTransportBenchmark
+ */
+public class FakeSocketConverterServer implements AutoCloseable {
+
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private volatile String failure;
+
+    public FakeSocketConverterServer(Path socketPath) throws IOException {
+        this.socketPath = socketPath;
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        executor.execute(this::acceptLoop);
+    }
+
+    /**
+     * 之后的转换请求都返回该错误信息
+     */
+    void failWith(String message) {
+        this.failure = message;
+    }
+
+    public Path getSocketPath() {
+        return socketPath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        executor.shutdownNow();
+        Files.deleteIfExists(socketPath);
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                executor.execute(() -> handle(channel));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            if (in.readInt() != UnixSocketConverterTransport.MAGIC || in.readByte() != UnixSocketConverterTransport.VERSION) {
+                return;
+            }
+            byte op = in.readByte();
+            UnixSocketConverterTransport.readString(in);
+            String error = failure;
+            if (op == UnixSocketConverterTransport.OP_CONVERT_PATH) {
+                Path input = Paths.get(UnixSocketConverterTransport.readString(in));
+                Path output = Paths.get(UnixSocketConverterTransport.readString(in));
+                if (error == null) {
+                    Files.copy(input, output);
+                }
+            } else if (op == UnixSocketConverterTransport.OP_CONVERT_STREAM) {
+                UnixSocketConverterTransport.readString(in);
+                long length = in.readLong();
+                Path temp = Files.createTempFile("fake-converter", ".bin");
+                try {
+                    try (OutputStream file = Files.newOutputStream(temp)) {
+                        copy(in, file, length);
+                    }
+                    if (error == null) {
+                        out.writeByte(UnixSocketConverterTransport.STATUS_OK);
+                        out.writeLong(Files.size(temp));
+                        Files.copy(temp, out);
+                        out.flush();
+                        return;
+                    }
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            if (error != null) {
+                out.writeByte(1);
+                UnixSocketConverterTransport.writeString(out, error);
+            } else {
+                out.writeByte(UnixSocketConverterTransport.STATUS_OK);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // 客户端中止
+        }
+    }
+
+    private void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        while (length > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new IOException("请求内容不完整");
+            }
+            out.write(buffer, 0, read);
+            length -= read;
+        }
+    }
+}
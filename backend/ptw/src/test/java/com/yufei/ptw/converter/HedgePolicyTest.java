@@ -0,0 +1,55 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.config.HedgeProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 验证对冲等待时间按转换类型分别取分位数
+ */
+class HedgePolicyTest {
+
+    private HedgePolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        HedgeProperties properties = new HedgeProperties();
+        properties.setEnabled(true);
+        properties.setMinSamples(10);
+        properties.setMinDelay(Duration.ofMillis(1));
+        policy = new HedgePolicy();
+        ReflectionTestUtils.setField(policy, "hedgeProperties", properties);
+    }
+
+    @Test
+    void mixedTrafficUsesTheDelayOfItsOwnType() {
+        // 快速的Word转PDF、较慢的PDF转Word和很慢的扫描件交替完成
+        for (int i = 0; i < 30; i++) {
+            policy.recordLatency(ConversionType.WORD_TO_PDF, false, 200, 0);
+            policy.recordLatency(ConversionType.PDF_TO_DOCX, false, 3_000, 0);
+            policy.recordLatency(ConversionType.PDF_TO_DOCX, true, 60_000, 0);
+        }
+
+        assertEquals(200, policy.onRequest(ConversionType.WORD_TO_PDF, false, 0));
+        assertEquals(3_000, policy.onRequest(ConversionType.PDF_TO_DOCX, false, 0));
+        assertEquals(60_000, policy.onRequest(ConversionType.PDF_TO_DOCX, true, 0));
+    }
+
+    @Test
+    void typesWithoutEnoughSamplesAreNotHedged() {
+        for (int i = 0; i < 30; i++) {
+            policy.recordLatency(ConversionType.WORD_TO_PDF, false, 200, 0);
+        }
+        policy.recordLatency(ConversionType.PDF_TO_DOCX, true, 60_000, 0);
+
+        assertEquals(-1, policy.onRequest(ConversionType.PDF_TO_DOCX, false, 0));
+        assertEquals(-1, policy.onRequest(ConversionType.PDF_TO_DOCX, true, 0));
+        assertEquals(2, policy.getRequests());
+    }
+}
@@ -0,0 +1,278 @@
+package com.yufei.ptw.converter;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.CircuitBreakerProperties;
+import com.yufei.ptw.config.ConverterLimiterProperties;
+import com.yufei.ptw.config.ConverterProperties;
+import com.yufei.ptw.config.HedgeProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用两个本地HTTP服务作为转换节点，验证卡住的请求被对冲请求替代并中止
+ */
+class PythonConverterClientTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    // 第一个节点上的请求卡住，模拟卡住的Word进程
+    private volatile boolean stuck = true;
+    // 非0时转换接口返回该状态码
+    private volatile int errorStatus;
+    private final List<ConverterWorker> workers = new ArrayList<>();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private ConverterWorkerPool workerPool;
+    private AdaptiveConcurrencyLimiter limiter;
+    private CircuitBreaker breaker;
+    private CloseableHttpClient httpClient;
+    private ThreadPoolTaskExecutor hedgeExecutor;
+    private HedgeProperties hedgeProperties;
+    private HedgePolicy hedgePolicy;
+    private PythonConverterClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        workerPool = new ConverterWorkerPool();
+        ReflectionTestUtils.setField(workerPool, "converterProperties", new ConverterProperties());
+        @SuppressWarnings("unchecked")
+        List<ConverterWorker> poolWorkers = (List<ConverterWorker>) ReflectionTestUtils.getField(workerPool, "workers");
+        for (int i = 0; i < 2; i++) {
+            workers.add(new ConverterWorker("http://127.0.0.1:" + startServer(i == 0).getAddress().getPort()));
+        }
+        poolWorkers.addAll(workers);
+
+        httpClient = HttpClients.createDefault();
+        hedgeExecutor = new ThreadPoolTaskExecutor();
+        hedgeExecutor.setCorePoolSize(1);
+        hedgeExecutor.setQueueCapacity(0);
+        hedgeExecutor.initialize();
+
+        ConverterLimiterProperties limiterProperties = new ConverterLimiterProperties();
+        limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "limiterProperties", limiterProperties);
+        limiter.init();
+        breaker = new CircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "breakerProperties", new CircuitBreakerProperties());
+        hedgeProperties = new HedgeProperties();
+        hedgeProperties.setEnabled(true);
+        hedgeProperties.setMinSamples(1);
+        hedgeProperties.setMinDelay(Duration.ofMillis(100));
+        hedgeProperties.setBudgetPercent(100);
+        hedgePolicy = new HedgePolicy();
+        ReflectionTestUtils.setField(hedgePolicy, "hedgeProperties", hedgeProperties);
+        hedgePolicy.recordLatency(ConversionType.PDF_TO_DOCX, false, 50, 0);
+
+        client = new PythonConverterClient();
+        ReflectionTestUtils.setField(client, "restTemplate", new RestTemplate(new AbortableRequestFactory(httpClient)));
+        ReflectionTestUtils.setField(client, "workerPool", workerPool);
+        ReflectionTestUtils.setField(client, "circuitBreaker", breaker);
+        ReflectionTestUtils.setField(client, "limiter", limiter);
+        ReflectionTestUtils.setField(client, "hedgePolicy", hedgePolicy);
+        ReflectionTestUtils.setField(client, "hedgeExecutor", hedgeExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        unblock.countDown();
+        client.shutdown();
+        hedgeExecutor.shutdown();
+        httpClient.close();
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void hedgeReplacesStuckRequest() throws Exception {
+        Path input = Files.writeString(tempDir.resolve("in.pdf"), "%PDF-1.4");
+        Path output = tempDir.resolve("out.docx");
+        // 让主请求选中会卡住的第一个节点
+        workers.get(1).acquire();
+        long start = System.nanoTime();
+        client.convert(ConversionType.PDF_TO_DOCX, false, DocumentContent.ofFile(input), DocumentContent.ofFile(output));
+
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        assertEquals("converted", Files.readString(output));
+        assertFalse(Files.exists(tempDir.resolve("out.docx.hedge")));
+        assertEquals(1, hedgePolicy.getHedges());
+        assertEquals(1, hedgePolicy.getHedgeWins());
+    }
+
+    @Test
+    void noHedgeWithoutBudget() throws Exception {
+        hedgeProperties.setBudgetPercent(0);
+        stuck = false;
+        Path input = Files.writeString(tempDir.resolve("in.pdf"), "%PDF-1.4");
+        Path output = tempDir.resolve("out.docx");
+        client.convert(ConversionType.PDF_TO_DOCX, false, DocumentContent.ofFile(input), DocumentContent.ofFile(output));
+
+        assertEquals("converted", Files.readString(output));
+        assertEquals(0, hedgePolicy.getHedges());
+    }
+
+    @Test
+    void batchResponseIsFannedOutPerDocument() throws Exception {
+        stuck = false;
+        List<DocumentContent> inputs = List.of(
+                DocumentContent.ofFile(Files.writeString(tempDir.resolve("a.docx"), "a")),
+                DocumentContent.ofFile(Files.writeString(tempDir.resolve("b.docx"), "b")));
+        List<Path> outputs = List.of(tempDir.resolve("a.pdf"), tempDir.resolve("b.pdf"));
+        List<String> errors = client.convertBatch(inputs,
+                List.of(DocumentContent.ofFile(outputs.get(0)), DocumentContent.ofFile(outputs.get(1))));
+
+        assertNull(errors.get(0));
+        assertEquals("pdf0", Files.readString(outputs.get(0)));
+        assertEquals("Conversion failed", errors.get(1));
+        assertFalse(Files.exists(outputs.get(1)));
+    }
+
+    @Test
+    void documentFailuresDoNotShrinkTheLimitOrOpenTheBreaker() throws Exception {
+        stuck = false;
+        hedgeProperties.setEnabled(false);
+        errorStatus = 422;
+        int limit = limiter.getLimit();
+        Path input = Files.writeString(tempDir.resolve("in.pdf"), "%PDF-1.4");
+        for (int i = 0; i < 20; i++) {
+            assertThrows(HttpClientErrorException.class, () -> client.convert(ConversionType.PDF_TO_DOCX, false,
+                    DocumentContent.ofFile(input), DocumentContent.ofFile(tempDir.resolve("out.docx"))));
+        }
+
+        assertEquals(limit, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void serverErrorsShrinkTheLimit() throws Exception {
+        stuck = false;
+        hedgeProperties.setEnabled(false);
+        errorStatus = 503;
+        int limit = limiter.getLimit();
+        Path input = Files.writeString(tempDir.resolve("in.pdf"), "%PDF-1.4");
+        assertThrows(HttpServerErrorException.class, () -> client.convert(ConversionType.PDF_TO_DOCX, false,
+                DocumentContent.ofFile(input), DocumentContent.ofFile(tempDir.resolve("out.docx"))));
+
+        assertTrue(limiter.getLimit() < limit);
+    }
+
+    @Test
+    void wordToPdfSkipsSocketWorkers() {
+        ConverterWorker socketWorker = new ConverterWorker("unix:/run/ptw/converter.sock");
+        workerPool.addWorker(socketWorker);
+        // HTTP节点更忙，PDF转Word会选中套接字节点，Word转PDF仍只能选HTTP节点
+        workers.forEach(ConverterWorker::acquire);
+
+        ConverterWorker pdfToWord = workerPool.acquire(ConversionType.PDF_TO_DOCX, null);
+        assertSame(socketWorker, pdfToWord);
+        workerPool.release(pdfToWord);
+        for (int i = 0; i < 10; i++) {
+            ConverterWorker wordToPdf = workerPool.acquire(ConversionType.WORD_TO_PDF, null);
+            assertFalse(wordToPdf.isUnixSocket());
+            workerPool.release(wordToPdf);
+        }
+    }
+
+    @Test
+    void batchIsSentToAnHttpWorkerInAMixedPool() throws Exception {
+        stuck = false;
+        workerPool.addWorker(new ConverterWorker("unix:/run/ptw/converter.sock"));
+        workers.forEach(ConverterWorker::acquire);
+        List<DocumentContent> inputs = List.of(
+                DocumentContent.ofFile(Files.writeString(tempDir.resolve("a.docx"), "a")),
+                DocumentContent.ofFile(Files.writeString(tempDir.resolve("b.docx"), "b")));
+        List<String> errors = client.convertBatch(inputs,
+                List.of(DocumentContent.ofFile(tempDir.resolve("a.pdf")), DocumentContent.ofFile(tempDir.resolve("b.pdf"))));
+
+        assertNull(errors.get(0));
+        assertEquals("pdf0", Files.readString(tempDir.resolve("a.pdf")));
+    }
+
+    @Test
+    void wordToPdfFailsWhenOnlySocketWorkersExist() {
+        ConverterWorkerPool socketOnly = new ConverterWorkerPool();
+        socketOnly.addWorker(new ConverterWorker("unix:/run/ptw/converter.sock"));
+
+        assertThrows(IllegalStateException.class, () -> socketOnly.acquire(ConversionType.WORD_TO_PDF, null));
+    }
+
+    private HttpServer startServer(boolean first) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/convert/word-to-pdf/batch", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            ByteArrayOutputStream zip = new ByteArrayOutputStream();
+            try (ZipOutputStream out = new ZipOutputStream(zip)) {
+                out.putNextEntry(new ZipEntry("0.pdf"));
+                out.write("pdf0".getBytes(StandardCharsets.UTF_8));
+                out.putNextEntry(new ZipEntry("1.error"));
+                out.write("Conversion failed".getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.sendResponseHeaders(200, zip.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                zip.writeTo(out);
+            }
+        });
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (errorStatus != 0) {
+                exchange.sendResponseHeaders(errorStatus, -1);
+                exchange.close();
+                return;
+            }
+            if (first && stuck) {
+                try {
+                    unblock.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "converted".getBytes(StandardCharsets.UTF_8);
+            try {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (IOException e) {
+                // 请求已被客户端中止
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return server;
+    }
+}
@@ -0,0 +1,115 @@
+package com.yufei.ptw.converter;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.ConverterProperties;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证Unix域套接字传输的PATH、STREAM两种模式、内存中的内容和错误处理
+ */
+class UnixSocketConverterTransportTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ConverterProperties properties;
+    private UnixSocketConverterTransport transport;
+    private FakeSocketConverterServer server;
+    private byte[] content;
+    private Path input;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new ConverterProperties();
+        transport = new UnixSocketConverterTransport();
+        ReflectionTestUtils.setField(transport, "converterProperties", properties);
+        server = new FakeSocketConverterServer(tempDir.resolve("converter.sock"));
+        content = new byte[300 * 1024];
+        new Random(7).nextBytes(content);
+        input = Files.write(tempDir.resolve("in.pdf"), content);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        transport.shutdown();
+    }
+
+    @Test
+    void convertsByPath() throws IOException {
+        Path output = tempDir.resolve("out.docx");
+        transport.convert(server.getSocketPath(), ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(input),
+                DocumentContent.ofFile(output), abort -> {
+        });
+        assertArrayEquals(content, Files.readAllBytes(output));
+        transport.ping(server.getSocketPath());
+    }
+
+    @Test
+    void convertsByStream() throws IOException {
+        properties.setSocketTransferMode(ConverterProperties.SocketTransferMode.STREAM);
+        Path output = tempDir.resolve("out.docx");
+        transport.convert(server.getSocketPath(), ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(input),
+                DocumentContent.ofFile(output), abort -> {
+        });
+        assertArrayEquals(content, Files.readAllBytes(output));
+    }
+
+    @Test
+    void streamsContentHeldInMemory() throws IOException {
+        MemoryProperties memoryProperties = new MemoryProperties();
+        memoryProperties.setEnabled(true);
+        memoryProperties.setThreshold(512 * 1024);
+        BufferPool pool = new BufferPool();
+        ReflectionTestUtils.setField(pool, "memoryProperties", memoryProperties);
+        DocumentContent source = pool.allocate(tempDir.resolve("memory.pdf"));
+        try (OutputStream out = source.openOutput()) {
+            out.write(content);
+        }
+        DocumentContent output = pool.allocate(tempDir.resolve("memory.docx"));
+
+        // 配置为PATH模式，源文件在内存中时仍使用STREAM模式
+        transport.convert(server.getSocketPath(), ConversionType.PDF_TO_DOCX, source, output, abort -> {
+        });
+        assertTrue(output.isInMemory());
+        assertFalse(Files.exists(output.getPath()));
+        try (InputStream in = output.openInput()) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void reportsConverterErrorsAndConnectionFailures() {
+        server.failWith("Conversion failed");
+        IOException error = assertThrows(IOException.class, () -> transport.convert(server.getSocketPath(),
+                ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(input),
+                DocumentContent.ofFile(tempDir.resolve("out.docx")), abort -> {
+                }));
+        assertTrue(error.getMessage().contains("Conversion failed"));
+
+        assertThrows(ResourceAccessException.class, () -> transport.convert(tempDir.resolve("missing.sock"),
+                ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(input),
+                DocumentContent.ofFile(tempDir.resolve("out.docx")), abort -> {
+                }));
+    }
+}
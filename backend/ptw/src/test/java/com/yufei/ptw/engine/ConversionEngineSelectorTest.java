@@ -0,0 +1,86 @@
+package com.yufei.ptw.engine;
+
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversionEngineSelectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ConversionEngine inProcess;
+    private ConversionEngine python;
+    private ConversionEngineSelector selector;
+    private DocumentContent source;
+    private Path output;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        inProcess = mock(ConversionEngine.class);
+        when(inProcess.getName()).thenReturn(PoiItextConversionEngine.NAME);
+        when(inProcess.supports(any(), any())).thenReturn(true);
+        python = mock(ConversionEngine.class);
+        when(python.getName()).thenReturn(PythonConversionEngine.NAME);
+        when(python.supports(any(), any())).thenReturn(true);
+        selector = new ConversionEngineSelector();
+        ReflectionTestUtils.setField(selector, "engines", List.of(inProcess, python));
+        source = DocumentContent.ofFile(Files.write(tempDir.resolve("source.docx"), new byte[]{1}));
+        output = tempDir.resolve("output.pdf");
+    }
+
+    @Test
+    void fallsBackWhenTheEngineFails() throws Exception {
+        // 写出部分内容后失败，回退前应清理
+        doAnswer(invocation -> {
+            Files.write(output, new byte[]{1, 2, 3});
+            throw new IllegalStateException("broken image part");
+        }).when(inProcess).convert(any(), any(), any(), any());
+
+        String engine = selector.convert(ConversionType.WORD_TO_PDF, null, source, DocumentContent.ofFile(output));
+
+        assertEquals(PythonConversionEngine.NAME, engine);
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    void fallsBackWhenTheDocumentIsUnsupported() throws Exception {
+        doThrow(new UnsupportedDocumentException("包含页眉或页脚")).when(inProcess).convert(any(), any(), any(), any());
+
+        assertEquals(PythonConversionEngine.NAME,
+                selector.convert(ConversionType.WORD_TO_PDF, null, source, DocumentContent.ofFile(output)));
+    }
+
+    @Test
+    void lastEngineFailureIsRethrown() throws Exception {
+        doAnswer(invocation -> {
+            Files.write(output, new byte[]{1, 2, 3});
+            throw new IllegalStateException("broken image part");
+        }).when(inProcess).convert(any(), any(), any(), any());
+        IOException unreachable = new IOException("converter unreachable");
+        doThrow(unreachable).when(python).convert(any(), any(), any(), any());
+
+        IOException thrown = assertThrows(IOException.class,
+                () -> selector.convert(ConversionType.WORD_TO_PDF, null, source, DocumentContent.ofFile(output)));
+        assertSame(unreachable, thrown);
+        assertFalse(Files.exists(output));
+    }
+}
@@ -0,0 +1,114 @@
+package com.yufei.ptw.engine;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.EngineProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PoiItextConversionEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PoiItextConversionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new PoiItextConversionEngine();
+        EngineProperties properties = new EngineProperties();
+        properties.setInProcessEnabled(true);
+        ReflectionTestUtils.setField(engine, "engineProperties", properties);
+    }
+
+    private Path save(XWPFDocument document, String name) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            document.write(out);
+        }
+        document.close();
+        return path;
+    }
+
+    @Test
+    void convertsTextAndTables() throws Exception {
+        XWPFDocument document = new XWPFDocument();
+        XWPFRun title = document.createParagraph().createRun();
+        title.setBold(true);
+        title.setFontSize(16);
+        title.setText("Quarterly report");
+        document.createParagraph().createRun().setText("Revenue grew in every region.");
+        XWPFTable table = document.createTable(2, 2);
+        table.getRow(0).getCell(0).setText("Region");
+        table.getRow(0).getCell(1).setText("Revenue");
+        table.getRow(1).getCell(0).setText("North");
+        table.getRow(1).getCell(1).setText("42");
+        Path source = save(document, "plain.docx");
+        Path output = tempDir.resolve("plain.pdf");
+
+        assertTrue(engine.supports(ConversionType.WORD_TO_PDF, DocumentContent.ofFile(source)));
+        engine.convert(ConversionType.WORD_TO_PDF, null, DocumentContent.ofFile(source), DocumentContent.ofFile(output));
+
+        PdfReader reader = new PdfReader(output.toString());
+        int pages = reader.getNumberOfPages();
+        String text = PdfTextExtractor.getTextFromPage(reader, 1);
+        reader.close();
+        assertEquals(1, pages);
+        assertTrue(text.contains("Quarterly report"));
+        assertTrue(text.contains("North"));
+    }
+
+    @Test
+    void rejectsDocumentsWithHeaders() throws Exception {
+        XWPFDocument document = new XWPFDocument();
+        document.createHeader(HeaderFooterType.DEFAULT).createParagraph().createRun().setText("Confidential");
+        document.createParagraph().createRun().setText("Body");
+        Path source = save(document, "header.docx");
+
+        assertThrows(UnsupportedDocumentException.class,
+                () -> engine.convert(ConversionType.WORD_TO_PDF, null, DocumentContent.ofFile(source),
+                        DocumentContent.ofFile(tempDir.resolve("header.pdf"))));
+    }
+
+    @Test
+    void rejectsTextTheFontCannotRender() throws Exception {
+        XWPFDocument document = new XWPFDocument();
+        document.createParagraph().createRun().setText("年度报告");
+        Path source = save(document, "cjk.docx");
+
+        assertThrows(UnsupportedDocumentException.class,
+                () -> engine.convert(ConversionType.WORD_TO_PDF, null, DocumentContent.ofFile(source),
+                        DocumentContent.ofFile(tempDir.resolve("cjk.pdf"))));
+    }
+
+    @Test
+    void onlyHandlesWordToPdf() throws Exception {
+        Path source = save(new XWPFDocument(), "empty.docx");
+        assertFalse(engine.supports(ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(source)));
+    }
+
+    @Test
+    void disabledByDefault() throws Exception {
+        Path source = save(new XWPFDocument(), "default.docx");
+        ReflectionTestUtils.setField(engine, "engineProperties", new EngineProperties());
+        assertFalse(engine.supports(ConversionType.WORD_TO_PDF, DocumentContent.ofFile(source)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.yufei.ptw.event;
+
+import com.yufei.ptw.config.EventProperties;
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.service.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 验证一个连接订阅多个任务时的推送顺序和关闭时机
+ */
+class TaskEventBroadcasterTest {
+
+    private TaskService taskService;
+    private TaskEventBroadcaster broadcaster;
+    private RecordingEmitter emitter;
+
+    @BeforeEach
+    void setUp() {
+        taskService = mock(TaskService.class);
+        broadcaster = new TaskEventBroadcaster() {
+            @Override
+            SseEmitter newEmitter(long timeout) {
+                emitter = new RecordingEmitter();
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(broadcaster, "taskService", taskService);
+        ReflectionTestUtils.setField(broadcaster, "eventProperties", new EventProperties());
+        ReflectionTestUtils.setField(broadcaster, "eventExecutor", new SyncTaskExecutor());
+    }
+
+    @Test
+    void multiplexesTasksAndClosesWhenAllFinished() {
+        when(taskService.getTask("a")).thenReturn(new ConvertTask("a", "a.docx"));
+        when(taskService.getTask("b")).thenReturn(new ConvertTask("b", "b.docx"));
+
+        broadcaster.subscribe(List.of("a", "b", "unknown"));
+        assertEquals(List.of("status:a:PENDING", "status:b:PENDING", "missing:unknown:null"), emitter.events);
+
+        broadcaster.onTaskStatus(new TaskStatusEvent("a", TaskStatus.PROCESSING, null, null));
+        broadcaster.onTaskStatus(new TaskStatusEvent("other", TaskStatus.PROCESSING, null, null));
+        broadcaster.onTaskStatus(new TaskStatusEvent("a", TaskStatus.COMPLETED, "url", null));
+        assertFalse(emitter.completed);
+        assertEquals(1, broadcaster.getConnectionCount());
+
+        broadcaster.onTaskStatus(new TaskStatusEvent("b", TaskStatus.FAILED, null, "error"));
+        assertTrue(emitter.completed);
+        assertEquals(0, broadcaster.getConnectionCount());
+        assertEquals(List.of("status:a:PENDING", "status:b:PENDING", "missing:unknown:null",
+                "status:a:PROCESSING", "status:a:COMPLETED", "status:b:FAILED"), emitter.events);
+
+        // 连接关闭后不再推送
+        broadcaster.onTaskStatus(new TaskStatusEvent("a", TaskStatus.COMPLETED, "url", null));
+        assertEquals(6, emitter.events.size());
+    }
+
+    /**
+     * 记录写出事件的SseEmitter
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            Set<DataWithMediaType> data = builder.build();
+            String name = null;
+            TaskStatusEvent event = null;
+            for (DataWithMediaType item : data) {
+                if (item.getData() instanceof TaskStatusEvent) {
+                    event = (TaskStatusEvent) item.getData();
+                } else if (item.getData().toString().startsWith("event:")) {
+                    String text = item.getData().toString();
+                    name = text.substring(6, text.indexOf('\n'));
+                }
+            }
+            if (event != null) {
+                events.add(name + ":" + event.getTaskId() + ":" + event.getStatus());
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
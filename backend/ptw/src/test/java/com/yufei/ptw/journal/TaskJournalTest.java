@@ -0,0 +1,158 @@
+package com.yufei.ptw.journal;
+
+import com.yufei.ptw.config.JournalProperties;
+import com.yufei.ptw.entity.ConvertTask;
+import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证任务日志的回放、残缺记录处理和压缩
+ */
+class TaskJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaskJournal journal;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void replaysStateTransitionsAfterRestart() throws IOException {
+        journal = open(4096);
+        ConvertTask done = new ConvertTask("done", "a.docx");
+        journal.appendTask(done, job("done"));
+        journal.appendProcessing("done");
+        journal.appendEngine("done", "python");
+        journal.appendCompleted("done", "https://oss.example/a.pdf");
+        ConvertTask running = new ConvertTask("running", "b.docx");
+        journal.appendTask(running, job("running"));
+        journal.appendProcessing("running");
+        journal.close();
+
+        journal = open(4096);
+        Map<String, JournalEntry> entries = byId(journal.takeReplayed());
+        assertEquals(2, entries.size());
+        ConvertTask replayedDone = entries.get("done").getTask();
+        assertEquals(TaskStatus.COMPLETED, replayedDone.getStatus());
+        assertEquals("https://oss.example/a.pdf", replayedDone.getFileUrl());
+        assertEquals("python", replayedDone.getEngine());
+        JournalEntry replayedRunning = entries.get("running");
+        assertEquals(TaskStatus.PROCESSING, replayedRunning.getTask().getStatus());
+        assertEquals(ConversionType.WORD_TO_PDF, replayedRunning.getJob().getType());
+        assertEquals(tempDir.resolve("running_b.docx"), replayedRunning.getJob().getSourcePath());
+    }
+
+    @Test
+    void ignoresTornRecordAtTail() throws IOException {
+        journal = open(4096);
+        journal.appendTask(new ConvertTask("a", "a.docx"), job("a"));
+        journal.appendCompleted("a", "url");
+        journal.close();
+        journal = null;
+
+        // 模拟写到一半崩溃：长度已写入，内容不完整
+        Path file = tempDir.resolve(".task-journal");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = findEnd(channel);
+            channel.write(ByteBuffer.allocate(12).putInt(40).putInt(123).putInt(7).flip(), end);
+        }
+
+        journal = open(4096);
+        Map<String, JournalEntry> entries = byId(journal.takeReplayed());
+        assertEquals(TaskStatus.COMPLETED, entries.get("a").getTask().getStatus());
+        // 恢复后可以继续写入
+        journal.appendFailed("a", "error");
+        journal.close();
+        journal = open(4096);
+        assertEquals(TaskStatus.FAILED, byId(journal.takeReplayed()).get("a").getTask().getStatus());
+    }
+
+    @Test
+    void compactsUsingSnapshotWhenFull() throws IOException {
+        journal = open(1024);
+        List<JournalEntry> live = new ArrayList<>();
+        ConvertTask task = new ConvertTask("live", "live.docx");
+        live.add(new JournalEntry(task, job("live")));
+        journal.setSnapshotSource(() -> (Collection<JournalEntry>) live);
+        journal.appendTask(task, job("live"));
+        for (int i = 0; i < 100; i++) {
+            journal.appendEngine("live", "engine-" + i);
+        }
+        task.setEngine("engine-99");
+        assertTrue(journal.getCompactions() > 0);
+        journal.close();
+
+        journal = open(1024);
+        Map<String, JournalEntry> entries = byId(journal.takeReplayed());
+        assertEquals(1, entries.size());
+        assertEquals("engine-99", entries.get("live").getTask().getEngine());
+        assertNotNull(entries.get("live").getJob());
+    }
+
+    private TaskJournal open(int capacity) throws IOException {
+        JournalProperties properties = new JournalProperties();
+        properties.setCapacity(capacity);
+        TaskJournal taskJournal = new TaskJournal();
+        ReflectionTestUtils.setField(taskJournal, "journalProperties", properties);
+        ReflectionTestUtils.setField(taskJournal, "uploadDir", tempDir.toString());
+        taskJournal.open();
+        return taskJournal;
+    }
+
+    private ConversionJob job(String taskId) {
+        String filename = taskId.equals("running") ? "b.docx" : taskId + ".docx";
+        return new ConversionJob(taskId, ConversionType.WORD_TO_PDF, tempDir.resolve(taskId + "_" + filename),
+                taskId + ".pdf", filename, "hash-" + taskId);
+    }
+
+    private Map<String, JournalEntry> byId(List<JournalEntry> entries) {
+        Map<String, JournalEntry> map = new HashMap<>();
+        for (JournalEntry entry : entries) {
+            map.put(entry.getTask().getTaskId(), entry);
+        }
+        return map;
+    }
+
+    /**
+     * 找到最后一条记录之后的位置
+     */
+    private long findEnd(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        long position = 8;
+        while (true) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.flip().getInt();
+            if (length == 0) {
+                return position;
+            }
+            position += 8 + length;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.yufei.ptw.metrics;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.cache.ConversionResultCache;
+import com.yufei.ptw.config.CircuitBreakerProperties;
+import com.yufei.ptw.config.ConverterLimiterProperties;
+import com.yufei.ptw.config.HedgeProperties;
+import com.yufei.ptw.config.MetricsProperties;
+import com.yufei.ptw.converter.AdaptiveConcurrencyLimiter;
+import com.yufei.ptw.converter.CircuitBreaker;
+import com.yufei.ptw.converter.ConversionMicroBatcher;
+import com.yufei.ptw.converter.HedgePolicy;
+import com.yufei.ptw.pipeline.FairShareScheduler;
+import com.yufei.ptw.service.TaskService;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 验证计时器的分位数和直方图输出，以及流水线和转换服务调用指标的注册
+ */
+class PipelineMetricsTest {
+
+    private PrometheusMeterRegistry meterRegistry;
+    private PipelineMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        metrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(metrics, "metricsProperties", new MetricsProperties());
+    }
+
+    @Test
+    void timersPublishPercentilesAndHistogram() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.timer("ptw.converter.call", "type", "PDF_TO_DOCX", "outcome", "success")
+                    .record(i * 10L, TimeUnit.MILLISECONDS);
+        }
+        metrics.counter("ptw.conversion.failures", "cause", "io").increment();
+
+        String scrape = meterRegistry.scrape();
+        assertTrue(scrape.contains("ptw_converter_call_seconds{outcome=\"success\",type=\"PDF_TO_DOCX\",quantile=\"0.95\",}"));
+        assertTrue(scrape.contains("ptw_converter_call_seconds_bucket{outcome=\"success\",type=\"PDF_TO_DOCX\",le=\"+Inf\",} 100.0"));
+        assertTrue(scrape.contains("ptw_converter_call_seconds_max"));
+        assertTrue(scrape.contains("ptw_conversion_failures_total{cause=\"io\",} 1.0"));
+    }
+
+    @Test
+    void metersAreCachedByNameAndTags() {
+        assertSame(metrics.timer("ptw.converter.call", "type", "PDF_TO_DOCX", "outcome", "success"),
+                metrics.timer("ptw.converter.call", "type", "PDF_TO_DOCX", "outcome", "success"));
+        assertNotSame(metrics.timer("ptw.converter.call", "type", "PDF_TO_DOCX", "outcome", "success"),
+                metrics.timer("ptw.converter.call", "type", "PDF_TO_DOCX", "outcome", "failure"));
+        assertSame(metrics.counter("ptw.conversion.failures", "cause", "io"),
+                metrics.counter("ptw.conversion.failures", "cause", "io"));
+    }
+
+    @Test
+    void bindsConverterMeters() {
+        ConverterLimiterProperties limiterProperties = new ConverterLimiterProperties();
+        limiterProperties.setInitialLimit(3);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "limiterProperties", limiterProperties);
+        limiter.init();
+        limiter.acquire();
+        CircuitBreaker breaker = new CircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "breakerProperties", new CircuitBreakerProperties());
+        HedgePolicy hedgePolicy = new HedgePolicy();
+        ReflectionTestUtils.setField(hedgePolicy, "hedgeProperties", new HedgeProperties());
+
+        ConverterMetricsBinder binder = new ConverterMetricsBinder();
+        ReflectionTestUtils.setField(binder, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(binder, "limiter", limiter);
+        ReflectionTestUtils.setField(binder, "circuitBreaker", breaker);
+        ReflectionTestUtils.setField(binder, "hedgePolicy", hedgePolicy);
+        ReflectionTestUtils.setField(binder, "microBatcher", new ConversionMicroBatcher());
+        binder.bind();
+
+        assertEquals(3, meterRegistry.get("ptw.converter.limit").gauge().value());
+        assertEquals(1, meterRegistry.get("ptw.converter.in.flight").gauge().value());
+        assertEquals(1, meterRegistry.get("ptw.converter.breaker.state").tag("state", "CLOSED").gauge().value());
+        assertEquals(0, meterRegistry.get("ptw.converter.breaker.state").tag("state", "OPEN").gauge().value());
+        assertEquals(0, meterRegistry.get("ptw.converter.hedges").functionCounter().count());
+        assertEquals(0, meterRegistry.get("ptw.microbatch.average.size").gauge().value());
+    }
+
+    @Test
+    void bindsTaskStoreMeters() {
+        TaskService taskService = mock(TaskService.class);
+        when(taskService.getSize()).thenReturn(7);
+        when(taskService.getExpiredEvictions()).thenReturn(3L);
+        when(taskService.getCapacityEvictions()).thenReturn(2L);
+
+        PipelineMetricsBinder binder = new PipelineMetricsBinder();
+        ReflectionTestUtils.setField(binder, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(binder, "executors", Map.of());
+        ReflectionTestUtils.setField(binder, "scheduler", mock(FairShareScheduler.class));
+        ReflectionTestUtils.setField(binder, "taskService", taskService);
+        ReflectionTestUtils.setField(binder, "bufferPool", mock(BufferPool.class));
+        ReflectionTestUtils.setField(binder, "resultCache", mock(ConversionResultCache.class));
+        binder.bind();
+
+        assertEquals(7, meterRegistry.get("ptw.task.store.size").gauge().value());
+        assertEquals(3, meterRegistry.get("ptw.task.store.evictions").tag("reason", "expired").functionCounter().count());
+        assertEquals(2, meterRegistry.get("ptw.task.store.evictions").tag("reason", "capacity").functionCounter().count());
+    }
+}
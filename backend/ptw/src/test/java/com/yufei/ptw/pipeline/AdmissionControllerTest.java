@@ -0,0 +1,80 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.config.AdmissionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 验证准入控制的拒绝条件和建议重试时间
+ */
+class AdmissionControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FairShareScheduler scheduler;
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = mock(FairShareScheduler.class);
+        when(scheduler.getMaxQueued()).thenReturn(4);
+        when(scheduler.getConcurrencyLimit()).thenReturn(2);
+        when(scheduler.getRunning()).thenReturn(2);
+
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxQueueUtilization(0.75);
+        properties.setMinFreeDisk(0);
+        properties.setMinFreeHeap(0);
+        admissionController = new AdmissionController();
+        ReflectionTestUtils.setField(admissionController, "admissionProperties", properties);
+        ReflectionTestUtils.setField(admissionController, "scheduler", scheduler);
+        ReflectionTestUtils.setField(admissionController, "uploadDir", tempDir.toString());
+    }
+
+    @Test
+    void rejectsWhenQueueIsNearlyFullWithEstimatedRetryAfter() {
+        admissionController.recordConversion(4000);
+        // 队列中两个任务，未达到75%
+        when(scheduler.getQueued()).thenReturn(2);
+        assertNull(admissionController.check(100));
+
+        when(scheduler.getQueued()).thenReturn(3);
+        AdmissionController.Rejection rejection = admissionController.check(100);
+        assertNotNull(rejection);
+        // (3个排队 + 本次) * 4秒 / 2个线程
+        assertEquals(8, rejection.getRetryAfterSeconds());
+        assertEquals(1, admissionController.getRejections());
+    }
+
+    @Test
+    void usesTheShrunkConcurrencyLimitAndRunningTasks() {
+        admissionController.recordConversion(4000);
+        // 转换服务过载，并发上限从2收缩到1，仍有3个任务在执行
+        when(scheduler.getConcurrencyLimit()).thenReturn(1);
+        when(scheduler.getRunning()).thenReturn(3);
+        when(scheduler.getQueued()).thenReturn(1);
+
+        AdmissionController.Rejection rejection = admissionController.check(100);
+        assertNotNull(rejection);
+        // (1个排队 + 2个超出上限的执行中任务 + 本次) * 4秒 / 1个执行位置
+        assertEquals(16, rejection.getRetryAfterSeconds());
+    }
+
+    @Test
+    void rejectsWhenUploadWouldExhaustDisk() {
+        AdmissionController.Rejection rejection = admissionController.check(Long.MAX_VALUE / 2);
+        assertNotNull(rejection);
+        assertEquals(60, rejection.getRetryAfterSeconds());
+    }
+}
@@ -0,0 +1,100 @@
+package com.yufei.ptw.pipeline;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.CostProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证页数读取、按实测耗时修正估算和快速通道判定
+ */
+class CostEstimatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CostProperties properties;
+    private CostEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CostProperties();
+        estimator = new CostEstimator();
+        ReflectionTestUtils.setField(estimator, "costProperties", properties);
+    }
+
+    @Test
+    void estimatesPdfByPageCount() throws Exception {
+        Path pdf = pdf(3);
+        CostEstimate estimate = estimator.estimate(ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(pdf));
+        assertEquals(3, estimate.getPages());
+        assertEquals(properties.getBaseMillis() + 3 * properties.getInitialMillisPerPage(),
+                estimate.getEstimatedMillis());
+    }
+
+    @Test
+    void fallsBackToSizeWhenPagesAreUnknown() throws Exception {
+        Path file = tempDir.resolve("unknown.bin");
+        Files.write(file, new byte[1024 * 1024]);
+        CostEstimate estimate = estimator.estimate(ConversionType.WORD_TO_PDF, DocumentContent.ofFile(file));
+        assertEquals(-1, estimate.getPages());
+        assertEquals(properties.getBaseMillis() + properties.getInitialMillisPerMegabyte(),
+                estimate.getEstimatedMillis());
+    }
+
+    @Test
+    void usesAKnownPageCountWithoutReadingTheDocument() throws Exception {
+        // 文件内容不是PDF，页数来自文本层检测
+        Path file = tempDir.resolve("unknown.bin");
+        Files.write(file, new byte[1024]);
+        CostEstimate estimate = estimator.estimate(ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(file), false, 4);
+        assertEquals(4, estimate.getPages());
+        assertEquals(properties.getBaseMillis() + 4 * properties.getInitialMillisPerPage(),
+                estimate.getEstimatedMillis());
+    }
+
+    @Test
+    void recordedDurationsMoveTheEstimate() throws Exception {
+        Path pdf = pdf(2);
+        CostEstimate before = estimator.estimate(ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(pdf));
+        assertFalse(estimator.isExpress(new CostEstimate(20, 0, 20_000)));
+        for (int i = 0; i < 20; i++) {
+            // 实际每页只需100毫秒
+            estimator.record(ConversionType.PDF_TO_DOCX, before, properties.getBaseMillis() + 200);
+        }
+        CostEstimate after = estimator.estimate(ConversionType.PDF_TO_DOCX, DocumentContent.ofFile(pdf));
+        assertTrue(after.getEstimatedMillis() < before.getEstimatedMillis());
+        assertTrue(after.getEstimatedMillis() < properties.getBaseMillis() + 2 * 150);
+        assertTrue(estimator.isExpress(after));
+    }
+
+    private Path pdf(int pages) throws Exception {
+        Path path = tempDir.resolve("doc.pdf");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            Document document = new Document();
+            PdfWriter.getInstance(document, out);
+            document.open();
+            for (int i = 0; i < pages; i++) {
+                if (i > 0) {
+                    document.newPage();
+                }
+                document.add(new Paragraph("page " + (i + 1)));
+            }
+            document.close();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,254 @@
+package com.yufei.ptw.pipeline;
+
+import com.yufei.ptw.config.ConverterLimiterProperties;
+import com.yufei.ptw.config.CostProperties;
+import com.yufei.ptw.config.SchedulerProperties;
+import com.yufei.ptw.config.TextLayerProperties;
+import com.yufei.ptw.converter.AdaptiveConcurrencyLimiter;
+import com.yufei.ptw.entity.TenantQueueStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证多租户调度的轮询顺序、权重、租户并发上限、快速通道、扫描件通道和自适应并发上限
+ */
+class FairShareSchedulerTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private SchedulerProperties properties;
+    private CostProperties costProperties;
+    private TextLayerProperties textLayerProperties;
+    private ConverterLimiterProperties limiterProperties;
+    private AdaptiveConcurrencyLimiter limiter;
+    private FairShareScheduler scheduler;
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+        properties = new SchedulerProperties();
+        properties.setMaxConcurrency(1);
+        properties.setMaxQueued(10);
+        // 每个任务成本为1，每轮额度也为1，便于验证轮询顺序
+        properties.setQuantum(Duration.ofMillis(1));
+        costProperties = new CostProperties();
+        costProperties.setExpressSlots(0);
+        textLayerProperties = new TextLayerProperties();
+        limiterProperties = new ConverterLimiterProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void interleavesTenantsInsteadOfFifo() {
+        start();
+        CompletableFuture<String> blocker = scheduler.submit("a", 1, SchedulingLane.STANDARD, this::block);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            futures.add(submit("a", "a" + i));
+        }
+        futures.add(submit("b", "b1"));
+        futures.add(submit("b", "b2"));
+        assertEquals(6, scheduler.getQueued());
+
+        release.countDown();
+        blocker.join();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        assertEquals(List.of("a1", "b1", "a2", "b2", "a3", "a4"), executed);
+    }
+
+    @Test
+    void weightsGiveProportionalShare() {
+        properties.getWeights().put("a", 2);
+        start();
+        CompletableFuture<String> blocker = scheduler.submit("b", 1, SchedulingLane.STANDARD, this::block);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            futures.add(submit("a", "a" + i));
+        }
+        for (int i = 1; i <= 2; i++) {
+            futures.add(submit("b", "b" + i));
+        }
+
+        release.countDown();
+        blocker.join();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        assertEquals(List.of("a1", "a2", "b1", "a3", "a4", "b2"), executed);
+    }
+
+    @Test
+    void tenantConcurrencyCapLeavesSlotsForOthers() {
+        properties.setMaxConcurrency(2);
+        properties.getTenantConcurrency().put("a", 1);
+        start();
+        CompletableFuture<String> first = scheduler.submit("a", 1, SchedulingLane.STANDARD, this::block);
+        CompletableFuture<String> second = submit("a", "a2");
+        CompletableFuture<String> other = submit("b", "b1");
+
+        other.join();
+        assertFalse(second.isDone());
+        TenantQueueStatus a = scheduler.getTenantStatus().get(0);
+        assertEquals("a", a.getTenant());
+        assertEquals(1, a.getRunning());
+        assertEquals(1, a.getQueued());
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertEquals(List.of("b1", "a2"), executed);
+    }
+
+    @Test
+    void expressLaneRunsShortestJobsOnReservedSlot() {
+        properties.setMaxConcurrency(2);
+        costProperties.setExpressSlots(1);
+        start();
+        CompletableFuture<String> blocker = scheduler.submit("a", 1, SchedulingLane.STANDARD, this::block);
+        CompletableFuture<String> standard = submit("a", "s1");
+        assertFalse(standard.isDone());
+        assertEquals(1, scheduler.getRunning());
+
+        CompletableFuture<String> express = scheduler.submit("b", 5, SchedulingLane.EXPRESS, () -> {
+            executed.add("e1");
+            return "e1";
+        });
+        express.join();
+        assertEquals(List.of("e1"), executed);
+        assertFalse(standard.isDone());
+
+        release.countDown();
+        blocker.join();
+        standard.join();
+        assertEquals(List.of("e1", "s1"), executed);
+    }
+
+    @Test
+    void expressLaneOrdersByCost() {
+        start();
+        CompletableFuture<String> blocker = scheduler.submit("a", 1, SchedulingLane.STANDARD, this::block);
+        properties.setQuantum(Duration.ofSeconds(10));
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        futures.add(submitExpress("a", "slow", 300));
+        futures.add(submitExpress("a", "fast", 100));
+        futures.add(submitExpress("a", "medium", 200));
+
+        release.countDown();
+        blocker.join();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        assertEquals(List.of("fast", "medium", "slow"), executed);
+    }
+
+    @Test
+    void scannedLaneCannotTakeAllSlots() {
+        properties.setMaxConcurrency(2);
+        start();
+        CompletableFuture<String> scan = scheduler.submit("a", 1, SchedulingLane.SCANNED, this::block);
+        CompletableFuture<String> queuedScan = scheduler.submit("a", 1, SchedulingLane.SCANNED, () -> {
+            executed.add("scan2");
+            return "scan2";
+        });
+        CompletableFuture<String> text = submit("a", "text1");
+
+        text.join();
+        assertFalse(queuedScan.isDone());
+        assertEquals(1, scheduler.getTenantStatus().get(0).getScannedQueued());
+
+        release.countDown();
+        scan.join();
+        queuedScan.join();
+        assertEquals(List.of("text1", "scan2"), executed);
+    }
+
+    @Test
+    void converterLimitHoldsJobsInQueueUntilItRises() {
+        properties.setMaxConcurrency(2);
+        limiterProperties.setInitialLimit(1);
+        start();
+        CompletableFuture<String> blocker = scheduler.submit("a", 1, SchedulingLane.STANDARD, this::block);
+        CompletableFuture<String> second = submit("b", "b1");
+        assertFalse(second.isDone());
+        assertEquals(1, scheduler.getQueued());
+        assertEquals(1, scheduler.getRunning());
+
+        // 上限用满时转换服务响应正常，上限提高后调度器立即派发排队的任务
+        limiter.acquire();
+        limiter.onSuccess(ConversionType.WORD_TO_PDF, false, 100, 0);
+        assertEquals(2, limiter.getLimit());
+        second.join();
+        assertFalse(blocker.isDone());
+
+        release.countDown();
+        blocker.join();
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        properties.setMaxQueued(1);
+        start();
+        CompletableFuture<String> blocker = scheduler.submit("a", 1, SchedulingLane.STANDARD, this::block);
+        submit("a", "a1");
+        CompletableFuture<String> rejected = submit("b", "b1");
+        assertTrue(rejected.isCompletedExceptionally());
+        assertThrows(Exception.class, rejected::join);
+        release.countDown();
+        blocker.join();
+    }
+
+    private void start() {
+        scheduler = new FairShareScheduler();
+        ReflectionTestUtils.setField(scheduler, "schedulerProperties", properties);
+        ReflectionTestUtils.setField(scheduler, "costProperties", costProperties);
+        ReflectionTestUtils.setField(scheduler, "textLayerProperties", textLayerProperties);
+        ReflectionTestUtils.setField(scheduler, "convertExecutor", executor);
+        limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "limiterProperties", limiterProperties);
+        limiter.init();
+        ReflectionTestUtils.setField(scheduler, "limiter", limiter);
+        scheduler.init();
+    }
+
+    private CompletableFuture<String> submit(String tenant, String name) {
+        return scheduler.submit(tenant, 1, SchedulingLane.STANDARD, () -> {
+            executed.add(name);
+            return name;
+        });
+    }
+
+    private CompletableFuture<String> submitExpress(String tenant, String name, long cost) {
+        return scheduler.submit(tenant, cost, SchedulingLane.EXPRESS, () -> {
+            executed.add(name);
+            return name;
+        });
+    }
+
+    private String block() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "blocker";
+    }
+}
@@ -0,0 +1,88 @@
+package com.yufei.ptw.pipeline;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.TextLayerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 验证文本PDF和只有图形的扫描件PDF的区分
+ */
+class TextLayerDetectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TextLayerDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new TextLayerDetector();
+        ReflectionTestUtils.setField(detector, "textLayerProperties", new TextLayerProperties());
+    }
+
+    @Test
+    void detectsTextLayer() throws Exception {
+        Path pdf = pdf(8, true);
+        assertEquals(Boolean.TRUE, detector.hasTextLayer(DocumentContent.ofFile(pdf)));
+    }
+
+    @Test
+    void detectsScannedPdf() throws Exception {
+        Path pdf = pdf(8, false);
+        assertEquals(Boolean.FALSE, detector.hasTextLayer(DocumentContent.ofFile(pdf)));
+    }
+
+    @Test
+    void detectionReportsThePageCount() throws Exception {
+        Path pdf = pdf(8, false);
+        TextLayerDetector.Detection detection = detector.detect(DocumentContent.ofFile(pdf));
+        assertEquals(8, detection.getPages());
+        assertEquals(Boolean.FALSE, detection.getHasTextLayer());
+    }
+
+    @Test
+    void returnsNullForUnreadableFile() throws Exception {
+        Path file = tempDir.resolve("broken.pdf");
+        Files.writeString(file, "%PDF-1.4 not really a pdf");
+        assertNull(detector.hasTextLayer(DocumentContent.ofFile(file)));
+    }
+
+    private Path pdf(int pages, boolean withText) throws Exception {
+        Path path = tempDir.resolve(withText ? "text.pdf" : "scan.pdf");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            Document document = new Document();
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            document.open();
+            for (int i = 0; i < pages; i++) {
+                if (i > 0) {
+                    document.newPage();
+                }
+                if (withText) {
+                    document.add(new Paragraph("Page " + (i + 1) + " contains a real text layer for extraction."));
+                } else {
+                    // 只绘制图形，模拟没有文本层的扫描页
+                    PdfContentByte canvas = writer.getDirectContent();
+                    canvas.rectangle(new Rectangle(50, 50, 300, 400));
+                    canvas.fill();
+                }
+            }
+            document.close();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,226 @@
+package com.yufei.ptw.service.serviceImpl;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.config.BatchProperties;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.config.MetricsProperties;
+import com.yufei.ptw.entity.BatchStatus;
+import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.service.ConvertService;
+import com.yufei.ptw.service.TaskService;
+import com.yufei.ptw.util.OssUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 验证批次并发上限和按完成顺序输出的结果压缩包
+ */
+class BatchServiceImplTest {
+
+    private static final byte[] DOCX_HEADER = {0x50, 0x4B, 0x03, 0x04, 0, 0, 0, 0};
+
+    @TempDir
+    Path tempDir;
+
+    private BatchServiceImpl batchService;
+    private BatchProperties properties;
+    private OssUtil ossUtil;
+    // 按提交顺序记录流水线返回的Future
+    private final List<CompletableFuture<String>> dispatched = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ConvertService convertService = mock(ConvertService.class);
+        when(convertService.detectConversionType(anyString(), any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0, String.class).endsWith(".docx") ? ConversionType.WORD_TO_PDF : null);
+        when(convertService.prepare(any(), anyString(), any())).thenAnswer(invocation -> {
+            try (InputStream in = invocation.getArgument(0, InputStream.class)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            String taskId = "task-" + invocation.getArgument(1, String.class);
+            return new ConversionJob(taskId, invocation.getArgument(2), tempDir.resolve(taskId),
+                    taskId + ".pdf", invocation.getArgument(1), "hash");
+        });
+        when(convertService.dispatch(any())).thenAnswer(invocation -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            dispatched.add(future);
+            return future;
+        });
+        ossUtil = mock(OssUtil.class);
+        when(ossUtil.openStream(anyString())).thenAnswer(invocation ->
+                new ByteArrayInputStream(invocation.getArgument(0, String.class).getBytes(StandardCharsets.UTF_8)));
+
+        properties = new BatchProperties();
+        properties.setMaxConcurrency(2);
+        batchService = new BatchServiceImpl();
+        ReflectionTestUtils.setField(batchService, "convertService", convertService);
+        ReflectionTestUtils.setField(batchService, "taskService", mock(TaskService.class));
+        ReflectionTestUtils.setField(batchService, "ossUtil", ossUtil);
+        ReflectionTestUtils.setField(batchService, "batchProperties", properties);
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pipelineMetrics, "metricsProperties", new MetricsProperties());
+        ReflectionTestUtils.setField(batchService, "pipelineMetrics", pipelineMetrics);
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "memoryProperties", new MemoryProperties());
+        ReflectionTestUtils.setField(batchService, "bufferPool", bufferPool);
+        ReflectionTestUtils.setField(batchService, "uploadDir", tempDir.toString());
+    }
+
+    @Test
+    void limitsConcurrencyAndStreamsResultsInCompletionOrder() throws IOException {
+        MultipartFile zip = new MockMultipartFile("files", "docs.zip", "application/zip",
+                zip("a.docx", "dir/b.docx", "__MACOSX/._a.docx", "notes.txt"));
+        MultipartFile single = new MockMultipartFile("files", "b.docx", null, DOCX_HEADER);
+
+        Result<String> result = batchService.submitBatch(new MultipartFile[]{zip, single});
+        assertTrue(result.isSuccess());
+        String batchId = result.getData().substring(result.getData().indexOf(": ") + 2);
+
+        // 三个可转换文件，同时只有两个进入流水线
+        assertEquals(2, dispatched.size());
+        BatchStatus status = batchService.getBatchStatus(batchId);
+        assertEquals(4, status.getTotal());
+        assertEquals(1, status.getFailed());
+        assertEquals(1, status.getPending());
+
+        dispatched.get(1).complete("url-b");
+        assertEquals(3, dispatched.size());
+        dispatched.get(2).complete("url-b2");
+        dispatched.get(0).completeExceptionally(new IllegalStateException("转换失败"));
+        assertTrue(batchService.getBatchStatus(batchId).isFinished());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.writeResults(batchId, out);
+
+        List<String> names = new ArrayList<>();
+        String errors = null;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                if (entry.getName().equals("errors.txt")) {
+                    errors = content;
+                }
+            }
+        }
+        assertEquals(List.of("b.pdf", "b (2).pdf", "errors.txt"), names);
+        assertTrue(errors.contains("notes.txt"));
+        assertTrue(errors.contains("a.docx: 转换失败"));
+    }
+
+    @Test
+    void rejectsHighlyCompressedArchives() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("bomb.docx"));
+            out.write(DOCX_HEADER);
+            out.write(new byte[4 * 1024 * 1024]);
+            out.closeEntry();
+        }
+        MultipartFile zip = new MockMultipartFile("files", "docs.zip", "application/zip", bytes.toByteArray());
+
+        Result<String> result = batchService.submitBatch(new MultipartFile[]{zip});
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getMsg().contains("压缩比"));
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    void rejectsArchivesOverTheExpandedLimit() throws IOException {
+        properties.setMaxExpandedBytes(DOCX_HEADER.length * 2L);
+        MultipartFile zip = new MockMultipartFile("files", "docs.zip", "application/zip",
+                zip("a.docx", "b.docx", "c.docx"));
+
+        Result<String> result = batchService.submitBatch(new MultipartFile[]{zip});
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getMsg().contains("解压后超过"));
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    void resultReadFailuresAreReportedWithoutPartialEntries() throws IOException {
+        when(ossUtil.openStream("url-broken")).thenReturn(new InputStream() {
+            private int remaining = 4;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- > 0) {
+                    return 'x';
+                }
+                throw new IOException("connection reset");
+            }
+        });
+        MultipartFile first = new MockMultipartFile("files", "a.docx", null, DOCX_HEADER);
+        MultipartFile second = new MockMultipartFile("files", "b.docx", null, DOCX_HEADER);
+        Result<String> result = batchService.submitBatch(new MultipartFile[]{first, second});
+        String batchId = result.getData().substring(result.getData().indexOf(": ") + 2);
+        dispatched.get(0).complete("url-broken");
+        dispatched.get(1).complete("url-b");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.writeResults(batchId, out);
+
+        List<String> names = new ArrayList<>();
+        String errors = null;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                if (entry.getName().equals("errors.txt")) {
+                    errors = content;
+                } else {
+                    assertEquals("url-b", content);
+                }
+            }
+        }
+        assertEquals(List.of("b.pdf", "errors.txt"), names);
+        assertTrue(errors.contains("a.docx: 读取转换结果失败"));
+    }
+
+    private byte[] zip(String... names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(DOCX_HEADER);
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,224 @@
+package com.yufei.ptw.service.serviceImpl;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.cache.ConversionResultCache;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.config.MetricsProperties;
+import com.yufei.ptw.config.UploadProperties;
+import com.yufei.ptw.config.ValidationProperties;
+import com.yufei.ptw.entity.Result;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import com.yufei.ptw.pipeline.ConversionJob;
+import com.yufei.ptw.pipeline.ConversionPipeline;
+import com.yufei.ptw.pipeline.ConversionType;
+import com.yufei.ptw.pipeline.CostEstimate;
+import com.yufei.ptw.pipeline.TenantResolver;
+import com.yufei.ptw.service.TaskService;
+import com.yufei.ptw.upload.DocumentValidator;
+import com.yufei.ptw.upload.UploadSpooler;
+import com.yufei.ptw.upload.UploadTooLargeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 验证相同内容并发提交时只转换一次，领头任务失败、取消时跟随者的处理，以及流式上传和结构校验
+ */
+class ConvertServiceImplTest {
+
+    // 只有文件头、交叉引用表和结束标记的PDF，xref位于第9字节
+    private static final String MINIMAL_PDF = "%PDF-1.4\nxref\n0 1\n0000000000 65535 f \ntrailer\n<< /Size 1 >>\n"
+            + "startxref\n9\n%%EOF";
+
+    @TempDir
+    Path tempDir;
+
+    private ConvertServiceImpl convertService;
+    private TaskService taskService;
+    private SimpleMeterRegistry meterRegistry;
+    // 按提交顺序记录流水线收到的作业和返回的Future
+    private final List<ConversionJob> submitted = new ArrayList<>();
+    private final List<CompletableFuture<String>> pipelineFutures = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ConversionResultCache resultCache = mock(ConversionResultCache.class);
+        when(resultCache.key(any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0, ConversionType.class).name() + ":" + invocation.getArgument(1));
+        ConversionPipeline pipeline = mock(ConversionPipeline.class);
+        when(pipeline.estimate(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, ConversionJob.class).withEstimate(new CostEstimate(1, 0, 100)));
+        when(pipeline.submit(any())).thenAnswer(invocation -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            submitted.add(invocation.getArgument(0));
+            pipelineFutures.add(future);
+            return future;
+        });
+        taskService = mock(TaskService.class);
+        convertService = new ConvertServiceImpl();
+        ReflectionTestUtils.setField(convertService, "resultCache", resultCache);
+        ReflectionTestUtils.setField(convertService, "conversionPipeline", pipeline);
+        ReflectionTestUtils.setField(convertService, "taskService", taskService);
+        UploadProperties uploadProperties = new UploadProperties();
+        UploadSpooler uploadSpooler = new UploadSpooler();
+        ReflectionTestUtils.setField(uploadSpooler, "uploadProperties", uploadProperties);
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "memoryProperties", new MemoryProperties());
+        ReflectionTestUtils.setField(uploadSpooler, "bufferPool", bufferPool);
+        ReflectionTestUtils.setField(convertService, "uploadSpooler", uploadSpooler);
+        ReflectionTestUtils.setField(convertService, "uploadProperties", uploadProperties);
+        ReflectionTestUtils.setField(convertService, "tenantResolver", mock(TenantResolver.class));
+        DocumentValidator documentValidator = new DocumentValidator();
+        ReflectionTestUtils.setField(documentValidator, "validationProperties", new ValidationProperties());
+        ReflectionTestUtils.setField(convertService, "documentValidator", documentValidator);
+        meterRegistry = new SimpleMeterRegistry();
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pipelineMetrics, "metricsProperties", new MetricsProperties());
+        ReflectionTestUtils.setField(convertService, "pipelineMetrics", pipelineMetrics);
+        ReflectionTestUtils.setField(uploadSpooler, "pipelineMetrics", pipelineMetrics);
+        convertService.uploadDir = tempDir.toString();
+    }
+
+    @Test
+    void followersShareLeaderResult() throws IOException {
+        CompletableFuture<String> leader = convertService.dispatch(job("t1", "same"));
+        CompletableFuture<String> follower = convertService.dispatch(job("t2", "same"));
+        CompletableFuture<String> other = convertService.dispatch(job("t3", "different"));
+        assertEquals(2, submitted.size());
+
+        pipelineFutures.get(0).complete("url");
+        assertEquals("url", leader.join());
+        assertEquals("url", follower.join());
+        assertFalse(other.isDone());
+        verify(taskService).updateTaskToCompleted("t2", "url");
+        assertFalse(Files.exists(tempDir.resolve("t2")));
+    }
+
+    @Test
+    void followersShareConversionFailure() throws IOException {
+        convertService.dispatch(job("t1", "same"));
+        CompletableFuture<String> follower = convertService.dispatch(job("t2", "same"));
+
+        pipelineFutures.get(0).completeExceptionally(new CompletionException(new IOException("损坏的文件")));
+        assertThrows(CompletionException.class, follower::join);
+        verify(taskService).updateTaskToFailed("t2", "损坏的文件");
+        assertEquals(1, submitted.size());
+    }
+
+    @Test
+    void followerTakesOverWhenLeaderIsCancelled() throws IOException {
+        convertService.dispatch(job("t1", "same"));
+        CompletableFuture<String> follower = convertService.dispatch(job("t2", "same"));
+        CompletableFuture<String> another = convertService.dispatch(job("t3", "same"));
+
+        pipelineFutures.get(0).completeExceptionally(new CancellationException());
+        // 两个跟随者中只有一个成为新的领头任务，源文件仍然保留
+        assertEquals(2, submitted.size());
+        assertTrue(Files.exists(submitted.get(1).getSourcePath()));
+
+        pipelineFutures.get(1).complete("url");
+        assertEquals("url", follower.join());
+        assertEquals("url", another.join());
+    }
+
+    @Test
+    void streamingUploadDetectsTypeFromContent() throws IOException {
+        Result<String> result = streamUpload(MINIMAL_PDF);
+
+        assertEquals(200, result.getCode());
+        assertEquals(1, submitted.size());
+        ConversionJob job = submitted.get(0);
+        assertEquals(ConversionType.PDF_TO_DOCX, job.getType());
+        assertEquals("scan", job.getOriginalFilename());
+        assertEquals(MINIMAL_PDF, Files.readString(job.getSourcePath()));
+        assertEquals(64, job.getContentHash().length());
+        // 成本在上传线程中估算，随作业提交
+        assertEquals(100, job.getEstimate().getEstimatedMillis());
+    }
+
+    @Test
+    void truncatedUploadIsRejectedBeforeQueueing() throws IOException {
+        Result<String> result = streamUpload(MINIMAL_PDF.substring(0, MINIMAL_PDF.indexOf("startxref")));
+
+        assertEquals(400, result.getCode());
+        assertTrue(result.getMsg().contains("PDF"));
+        assertTrue(submitted.isEmpty());
+        assertEquals(1, meterRegistry.counter("ptw.conversion.failures", "cause", "invalid_document").count());
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertFalse(files.anyMatch(Files::isRegularFile));
+        }
+    }
+
+    @Test
+    void streamingUploadRejectsFilenamesWithoutABaseName() throws IOException {
+        for (String filename : new String[]{"/", "docs/", "C:\\docs\\"}) {
+            Result<String> result = streamUpload(filename, MINIMAL_PDF);
+
+            assertEquals(400, result.getCode());
+            assertEquals("无效的文件名", result.getMsg());
+        }
+        assertTrue(submitted.isEmpty());
+    }
+
+    @Test
+    void streamingUploadAcceptsAQuotedBoundary() throws IOException {
+        Result<String> result = streamUpload("scan", MINIMAL_PDF, "b0und ary", "\"b0und ary\"");
+
+        assertEquals(200, result.getCode());
+        assertEquals(1, submitted.size());
+        assertEquals(MINIMAL_PDF, Files.readString(submitted.get(0).getSourcePath()));
+    }
+
+    @Test
+    void streamingUploadRejectsOversizedRequestUpFront() {
+        assertThrows(UploadTooLargeException.class, () -> convertService.changeStream(
+                new ByteArrayInputStream(new byte[0]), "multipart/form-data; boundary=x", Long.MAX_VALUE / 2));
+    }
+
+    private Result<String> streamUpload(String content) throws IOException {
+        return streamUpload("C:\\docs\\scan", content);
+    }
+
+    private Result<String> streamUpload(String filename, String content) throws IOException {
+        return streamUpload(filename, content, "b0undary", "b0undary");
+    }
+
+    private Result<String> streamUpload(String filename, String content, String boundary, String boundaryParameter)
+            throws IOException {
+        byte[] body = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n"
+                + content + "\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return convertService.changeStream(new ByteArrayInputStream(body),
+                "multipart/form-data; boundary=" + boundaryParameter, body.length);
+    }
+
+    private ConversionJob job(String taskId, String hash) throws IOException {
+        Path source = Files.createFile(tempDir.resolve(taskId));
+        return new ConversionJob(taskId, ConversionType.PDF_TO_DOCX, source, taskId + ".docx", taskId + ".pdf", hash);
+    }
+}
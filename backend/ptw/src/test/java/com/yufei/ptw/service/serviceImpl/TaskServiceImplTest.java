@@ -0,0 +1,97 @@
+package com.yufei.ptw.service.serviceImpl;
+
+import com.yufei.ptw.config.JournalProperties;
+import com.yufei.ptw.config.TaskStoreProperties;
+import com.yufei.ptw.entity.TaskStatus;
+import com.yufei.ptw.journal.TaskJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 验证任务存储的容量上限、过期淘汰和各状态的任务数
+ */
+class TaskServiceImplTest {
+
+    private TaskStoreProperties properties;
+    private TaskServiceImpl taskService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TaskStoreProperties();
+        properties.setMaxEntries(3);
+        properties.setFinishedTtl(Duration.ofHours(1));
+        JournalProperties journalProperties = new JournalProperties();
+        journalProperties.setEnabled(false);
+        TaskJournal journal = new TaskJournal();
+        ReflectionTestUtils.setField(journal, "journalProperties", journalProperties);
+        taskService = new TaskServiceImpl();
+        ReflectionTestUtils.setField(taskService, "taskStoreProperties", properties);
+        ReflectionTestUtils.setField(taskService, "taskJournal", journal);
+        ReflectionTestUtils.setField(taskService, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+    }
+
+    @Test
+    void evictsOldestFinishedTasksWhenOverCapacity() {
+        taskService.createTask("a", "a.docx");
+        taskService.createTask("b", "b.docx");
+        taskService.createTask("c", "c.docx");
+        taskService.updateTaskToCompleted("b", "url-b");
+        taskService.updateTaskToFailed("a", "error");
+
+        taskService.createTask("d", "d.docx");
+
+        // 最早结束的b被淘汰，进行中的c不受影响
+        assertNull(taskService.getTask("b"));
+        assertNotNull(taskService.getTask("a"));
+        assertNotNull(taskService.getTask("c"));
+        assertEquals(3, taskService.getSize());
+        assertEquals(1, taskService.getCapacityEvictions());
+    }
+
+    @Test
+    void evictsFinishedTasksAfterTtl() {
+        properties.setFinishedTtl(Duration.ZERO);
+        taskService.createTask("a", "a.docx");
+        taskService.createTask("b", "b.docx");
+        taskService.updateTaskToCompleted("a", "url-a");
+
+        taskService.createTask("c", "c.docx");
+
+        assertNull(taskService.getTask("a"));
+        assertNotNull(taskService.getTask("b"));
+        assertEquals(1, taskService.getExpiredEvictions());
+    }
+
+    @Test
+    void countsTasksByStatusAcrossTransitionsAndEvictions() {
+        taskService.createTask("a", "a.docx");
+        taskService.createTask("b", "b.docx");
+        taskService.createTask("c", "c.docx");
+        taskService.updateTaskToProcessing("a");
+        taskService.updateTaskToProcessing("b");
+        taskService.updateTaskToCompleted("b", "url-b");
+        // 重复的完成通知不重复计数
+        taskService.updateTaskToCompleted("b", "url-b");
+
+        assertEquals(1, taskService.countTasks(TaskStatus.PENDING));
+        assertEquals(1, taskService.countTasks(TaskStatus.PROCESSING));
+        assertEquals(1, taskService.countTasks(TaskStatus.COMPLETED));
+
+        // 超过容量，已完成的b被淘汰
+        taskService.createTask("d", "d.docx");
+
+        assertEquals(2, taskService.countTasks(TaskStatus.PENDING));
+        assertEquals(1, taskService.countTasks(TaskStatus.PROCESSING));
+        assertEquals(0, taskService.countTasks(TaskStatus.COMPLETED));
+        assertEquals(0, taskService.countTasks(TaskStatus.FAILED));
+    }
+}
@@ -0,0 +1,180 @@
+package com.yufei.ptw.upload;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.buffer.DocumentContent;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.config.ValidationProperties;
+import com.yufei.ptw.pipeline.ConversionType;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证正常的DOCX、DOC、PDF通过校验，损坏、截断、伪造的文件和压缩炸弹被拒绝
+ */
+class DocumentValidatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DocumentValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new DocumentValidator();
+        ReflectionTestUtils.setField(validator, "validationProperties", new ValidationProperties());
+    }
+
+    @Test
+    void acceptsWellFormedDocuments() throws Exception {
+        byte[] docx = docx();
+        assertDoesNotThrow(() -> validator.validate(ConversionType.WORD_TO_PDF, file("a.docx", docx)));
+        assertDoesNotThrow(() -> validator.validate(ConversionType.WORD_TO_PDF, file("a.doc", doc())));
+        assertDoesNotThrow(() -> validator.validate(ConversionType.PDF_TO_DOCX, file("a.pdf", pdf())));
+        // 内存中的内容直接读取缓冲区
+        assertDoesNotThrow(() -> validator.validate(ConversionType.WORD_TO_PDF, inMemory("m.docx", docx)));
+    }
+
+    @Test
+    void rejectsTruncatedAndForgedWordFiles() throws Exception {
+        byte[] docx = docx();
+        assertRejected(ConversionType.WORD_TO_PDF, Arrays.copyOf(docx, docx.length - 100), "中央目录");
+        assertRejected(ConversionType.WORD_TO_PDF, zip("xl/workbook.xml", new byte[16]), "word/document.xml");
+        assertRejected(ConversionType.WORD_TO_PDF, "plain text".getBytes(StandardCharsets.UTF_8), "Word");
+
+        byte[] doc = doc();
+        // 字节序标记错误
+        doc[0x1C] = 0;
+        assertRejected(ConversionType.WORD_TO_PDF, doc, "DOC文件头");
+        assertRejected(ConversionType.WORD_TO_PDF, Arrays.copyOf(doc(), 600), "DOC");
+    }
+
+    @Test
+    void rejectsZipBombs() throws Exception {
+        // 10MB的0压缩后只有约10KB，压缩比远超上限
+        assertRejected(ConversionType.WORD_TO_PDF, zip("word/document.xml", new byte[10 * 1024 * 1024]), "压缩炸弹");
+
+        ValidationProperties properties = new ValidationProperties();
+        properties.setMaxZipEntries(2);
+        ReflectionTestUtils.setField(validator, "validationProperties", properties);
+        assertRejected(ConversionType.WORD_TO_PDF, docx(), "条目数");
+    }
+
+    @Test
+    void rejectsBrokenPdfs() throws Exception {
+        byte[] pdf = pdf();
+        assertRejected(ConversionType.PDF_TO_DOCX, Arrays.copyOf(pdf, pdf.length / 2), "PDF");
+        assertRejected(ConversionType.PDF_TO_DOCX, Arrays.copyOfRange(pdf, 10, pdf.length), "文件头");
+
+        // startxref指向文件之外
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        int offset = text.lastIndexOf("startxref") + "startxref\n".length();
+        String moved = text.substring(0, offset) + "9" + text.substring(offset);
+        assertRejected(ConversionType.PDF_TO_DOCX, moved.getBytes(StandardCharsets.ISO_8859_1), "交叉引用");
+    }
+
+    @Test
+    void acceptsAbsoluteXrefOffsetAfterLeadingBytes() throws Exception {
+        // 文件头前有其他数据，startxref按规范写入从文件开头算起的偏移量
+        String prefix = "leading junk\n";
+        String text = prefix + new String(pdf(), StandardCharsets.ISO_8859_1);
+        int start = text.lastIndexOf("startxref") + "startxref\n".length();
+        int end = text.indexOf('\n', start);
+        long xrefOffset = Long.parseLong(text.substring(start, end).trim());
+        String absolute = text.substring(0, start) + (xrefOffset + prefix.length()) + text.substring(end);
+        assertDoesNotThrow(() -> validator.validate(ConversionType.PDF_TO_DOCX,
+                file("absolute.pdf", absolute.getBytes(StandardCharsets.ISO_8859_1))));
+    }
+
+    @Test
+    void acceptsHeaderRelativeXrefOffsetAfterLeadingBytes() throws Exception {
+        // 文件头前有其他数据，startxref中的偏移量仍相对于文件头
+        byte[] pdf = pdf();
+        byte[] prefixed = new byte[pdf.length + 14];
+        System.arraycopy("leading junk\r\n".getBytes(StandardCharsets.ISO_8859_1), 0, prefixed, 0, 14);
+        System.arraycopy(pdf, 0, prefixed, 14, pdf.length);
+        assertDoesNotThrow(() -> validator.validate(ConversionType.PDF_TO_DOCX, file("relative.pdf", prefixed)));
+    }
+
+    private void assertRejected(ConversionType type, byte[] data, String reason) throws IOException {
+        InvalidDocumentException error = assertThrows(InvalidDocumentException.class,
+                () -> validator.validate(type, file("bad", data)));
+        assertTrue(error.getMessage().contains(reason), error.getMessage());
+    }
+
+    private DocumentContent file(String name, byte[] data) throws IOException {
+        return DocumentContent.ofFile(Files.write(tempDir.resolve(name), data));
+    }
+
+    private DocumentContent inMemory(String name, byte[] data) throws IOException {
+        MemoryProperties memoryProperties = new MemoryProperties();
+        memoryProperties.setEnabled(true);
+        BufferPool pool = new BufferPool();
+        ReflectionTestUtils.setField(pool, "memoryProperties", memoryProperties);
+        DocumentContent content = pool.allocate(tempDir.resolve(name));
+        try (OutputStream out = content.openOutput()) {
+            out.write(data);
+        }
+        assertTrue(content.isInMemory());
+        return content;
+    }
+
+    private byte[] docx() throws IOException {
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            document.createParagraph().createRun().setText("校验");
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private byte[] doc() throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            fs.createDocument(new ByteArrayInputStream(new byte[4096]), "WordDocument");
+            fs.writeFilesystem(out);
+            return out.toByteArray();
+        }
+    }
+
+    private byte[] pdf() throws DocumentException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, out);
+        document.open();
+        document.add(new Paragraph("validate"));
+        document.close();
+        return out.toByteArray();
+    }
+
+    private byte[] zip(String name, byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+            zip.write("<Types/>".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.yufei.ptw.upload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 验证multipart流式解析在分段到达、内容中出现类似分隔符的字节和请求体不完整时的行为
+ */
+class MultipartStreamParserTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void parsesFieldsAndLargeFileReadInSmallChunks() throws IOException {
+        byte[] content = new byte[200 * 1024];
+        new Random(3).nextBytes(content);
+        // 在缓冲区边界附近放入分隔符的前缀
+        byte[] prefix = ("\r\n--" + BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(prefix, 0, content, 64 * 1024 - 5, prefix.length);
+        byte[] body = concat(
+                ("preamble\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"tenant\"\r\n\r\n"
+                        + "acme\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"file\"; filename=\"报告.docx\"\r\n"
+                        + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8),
+                content,
+                ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        MultipartStreamParser parser = new MultipartStreamParser(new TrickleInputStream(body, 7), BOUNDARY);
+        MultipartStreamParser.Part field = parser.nextPart();
+        assertEquals("tenant", field.getName());
+        assertNull(field.getFilename());
+        assertEquals("acme", new String(field.getContent().readAllBytes(), StandardCharsets.UTF_8));
+
+        MultipartStreamParser.Part file = parser.nextPart();
+        assertEquals("file", file.getName());
+        assertEquals("报告.docx", file.getFilename());
+        assertEquals("application/octet-stream", file.getContentType());
+        assertArrayEquals(content, file.getContent().readAllBytes());
+        assertNull(parser.nextPart());
+    }
+
+    @Test
+    void skipsUnreadPartContent() throws IOException {
+        byte[] body = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"a\"; filename=\"a.pdf\"\r\n\r\n"
+                + "%PDF-1.4 ignored\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"b\"\r\n\r\n"
+                + "value\r\n--" + BOUNDARY + "--").getBytes(StandardCharsets.UTF_8);
+        MultipartStreamParser parser = new MultipartStreamParser(new ByteArrayInputStream(body), BOUNDARY);
+        assertEquals("a", parser.nextPart().getName());
+        MultipartStreamParser.Part second = parser.nextPart();
+        assertEquals("b", second.getName());
+        assertEquals("value", new String(second.getContent().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(parser.nextPart());
+    }
+
+    @Test
+    void truncatedBodyFails() throws IOException {
+        byte[] body = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.pdf\"\r\n\r\n"
+                + "%PDF-1.4 truncated").getBytes(StandardCharsets.UTF_8);
+        MultipartStreamParser parser = new MultipartStreamParser(new ByteArrayInputStream(body), BOUNDARY);
+        InputStream content = parser.nextPart().getContent();
+        assertThrows(IOException.class, content::readAllBytes);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 每次最多返回chunk个字节，模拟网络分段到达
+     */
+    private static final class TrickleInputStream extends InputStream {
+        private final byte[] data;
+        private final int chunk;
+        private int position;
+
+        private TrickleInputStream(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return position < data.length ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, chunk), data.length - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
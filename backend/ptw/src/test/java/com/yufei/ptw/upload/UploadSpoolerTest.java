@@ -0,0 +1,97 @@
+package com.yufei.ptw.upload;
+
+import com.yufei.ptw.buffer.BufferPool;
+import com.yufei.ptw.config.MemoryProperties;
+import com.yufei.ptw.config.MetricsProperties;
+import com.yufei.ptw.config.UploadProperties;
+import com.yufei.ptw.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证落盘时同时得到哈希和文件头，小文件保存在内存中，以及超过大小限制时中止并删除文件
+ */
+class UploadSpoolerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private UploadProperties properties;
+    private MemoryProperties memoryProperties;
+    private UploadSpooler spooler;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UploadProperties();
+        memoryProperties = new MemoryProperties();
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "memoryProperties", memoryProperties);
+        spooler = new UploadSpooler();
+        ReflectionTestUtils.setField(spooler, "uploadProperties", properties);
+        ReflectionTestUtils.setField(spooler, "bufferPool", bufferPool);
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pipelineMetrics, "metricsProperties", new MetricsProperties());
+        ReflectionTestUtils.setField(spooler, "pipelineMetrics", pipelineMetrics);
+    }
+
+    @Test
+    void spoolsWithHashAndHeader() throws Exception {
+        byte[] content = "%PDF-1.7 content".getBytes(StandardCharsets.US_ASCII);
+        SpooledFile spooled = spooler.spool(new ByteArrayInputStream(content), tempDir.resolve("a.pdf"));
+
+        assertArrayEquals(content, Files.readAllBytes(spooled.getPath()));
+        assertEquals(content.length, spooled.getSize());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                spooled.getContentHash());
+        assertEquals("%PDF-1.7", new String(spooled.getHeader(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void abortsWhenTooLarge() {
+        properties.setMaxFileSize(1024);
+        Path target = tempDir.resolve("big.pdf");
+        assertThrows(UploadTooLargeException.class,
+                () -> spooler.spool(new ByteArrayInputStream(new byte[4096]), target));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void shortContentKeepsShortHeader() throws IOException {
+        SpooledFile spooled = spooler.spool(new ByteArrayInputStream(new byte[]{1, 2}), tempDir.resolve("tiny"));
+        assertEquals(2, spooled.getHeader().length);
+    }
+
+    @Test
+    void smallContentIsKeptInMemory() throws IOException {
+        memoryProperties.setEnabled(true);
+        byte[] content = "%PDF-1.7 small".getBytes(StandardCharsets.US_ASCII);
+        Path target = tempDir.resolve("small.pdf");
+        SpooledFile spooled = spooler.spool(new ByteArrayInputStream(content), target);
+
+        assertTrue(spooled.getContent().isInMemory());
+        assertFalse(Files.exists(target));
+        try (InputStream in = spooled.getContent().openInput()) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertEquals("%PDF-1.7", new String(spooled.getHeader(), StandardCharsets.US_ASCII));
+    }
+}
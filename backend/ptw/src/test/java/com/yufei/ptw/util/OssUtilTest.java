@@ -0,0 +1,161 @@
+package com.yufei.ptw.util;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+import com.yufei.ptw.config.OssProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 使用内存中的OSS替身验证分片上传
+ */
+class OssUtilTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OSS oss;
+    private OssUtil ossUtil;
+    // 分片号 -> 分片内容
+    private final Map<Integer, byte[]> storedParts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        OssProperties properties = new OssProperties();
+        properties.setBucketName("bucket");
+        properties.setFolder("out/");
+        properties.setUrlPrefix("https://oss.example/");
+        properties.setMultipartThreshold(1000);
+        properties.setPartSize(300);
+        properties.setUploadConcurrency(3);
+        properties.setPartRetries(2);
+
+        oss = mock(OSS.class);
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload-1");
+        when(oss.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+        ossUtil = new OssUtil(properties, oss);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ossUtil.shutdown();
+    }
+
+    private Path randomFile(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return Files.write(tempDir.resolve("data.bin"), bytes);
+    }
+
+    private UploadPartResult store(UploadPartRequest request) throws IOException {
+        byte[] part = readFully(request.getInputStream(), (int) request.getPartSize());
+        storedParts.put(request.getPartNumber(), part);
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag("etag-" + request.getPartNumber());
+        return result;
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return buffer;
+    }
+
+    @Test
+    void smallFileUsesSinglePut() throws IOException {
+        Path file = randomFile(500);
+
+        String url = ossUtil.uploadFile(file, "small.pdf", "application/pdf");
+
+        assertEquals("https://oss.example/out/small.pdf", url);
+        verify(oss).putObject(any(PutObjectRequest.class));
+        verify(oss, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void largeFileIsUploadedInPartsAndRetried() throws IOException {
+        Path file = randomFile(1000);
+        AtomicInteger failures = new AtomicInteger();
+        when(oss.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            // 第2片第一次上传失败，验证单片重试
+            if (request.getPartNumber() == 2 && failures.getAndIncrement() == 0) {
+                throw new ClientException("connection reset");
+            }
+            return store(request);
+        });
+
+        String url = ossUtil.uploadFile(file, "large.pdf", "application/pdf");
+
+        assertEquals("https://oss.example/out/large.pdf", url);
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(oss).completeMultipartUpload(captor.capture());
+        assertEquals(4, captor.getValue().getPartETags().size());
+        for (int i = 0; i < 4; i++) {
+            PartETag partETag = captor.getValue().getPartETags().get(i);
+            assertEquals(i + 1, partETag.getPartNumber());
+        }
+
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        for (int i = 1; i <= 4; i++) {
+            byte[] part = storedParts.get(i);
+            assembled.write(part);
+        }
+        assertArrayEquals(Files.readAllBytes(file), assembled.toByteArray());
+    }
+
+    @Test
+    void failedPartAbortsUpload() throws IOException {
+        Path file = randomFile(1000);
+        when(oss.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            if (request.getPartNumber() == 3) {
+                throw new ClientException("bucket unavailable");
+            }
+            return store(request);
+        });
+
+        assertThrows(IOException.class, () -> ossUtil.uploadFile(file, "broken.pdf", "application/pdf"));
+        verify(oss).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(oss, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+}
@@ -1,7 +1,10 @@
 from flask import Flask, request, send_file, jsonify
 from flask_cors import CORS
 import os
+import shutil
+import sys
 import tempfile
+import zipfile
 from converter import FileConverter
 
 app = Flask(__name__)
@@ -55,7 +58,7 @@ def convert_word_to_pdf():
     os.remove(input_path)
     
     if not success:
-        return jsonify({'error': 'Conversion failed'}), 500
+        return jsonify({'error': 'Conversion failed'}), 422
     
     # 返回转换后的文件
     response = send_file(output_path, as_attachment=True)
@@ -68,6 +71,43 @@ def convert_word_to_pdf():
     
     return response
 
+@app.route('/convert/word-to-pdf/batch', methods=['POST'])
+def convert_word_to_pdf_batch():
+    """
+    批量Word转PDF，所有文件在同一个Word实例中转换
+    返回ZIP：第i个文件成功时包含 i.pdf，失败时包含 i.error（UTF-8错误信息）
+    """
+    files = request.files.getlist('files')
+    if not files:
+        return jsonify({'error': 'No file provided'}), 400
+
+    work_dir = tempfile.mkdtemp(prefix='ptw-batch-', dir=app.config['UPLOAD_FOLDER'])
+    items = []
+    for i, file in enumerate(files):
+        input_path = os.path.join(work_dir, '%d%s' % (i, os.path.splitext(file.filename or '')[1] or '.docx'))
+        file.save(input_path)
+        items.append((input_path, os.path.join(work_dir, '%d.pdf' % i)))
+
+    errors = converter.word_to_pdf_batch(items)
+
+    zip_path = work_dir + '.zip'
+    with zipfile.ZipFile(zip_path, 'w', zipfile.ZIP_STORED) as archive:
+        for i, ((_, output_path), error) in enumerate(zip(items, errors)):
+            if error is None and os.path.exists(output_path):
+                archive.write(output_path, '%d.pdf' % i)
+            else:
+                archive.writestr('%d.error' % i, error or 'Conversion failed')
+    shutil.rmtree(work_dir, ignore_errors=True)
+
+    response = send_file(zip_path, mimetype='application/zip')
+
+    @response.call_on_close
+    def cleanup():
+        if os.path.exists(zip_path):
+            os.remove(zip_path)
+
+    return response
+
 @app.route('/convert/pdf-to-word', methods=['POST'])
 def convert_pdf_to_word():
     if 'file' not in request.files:
@@ -95,7 +135,7 @@ def convert_pdf_to_word():
     os.remove(input_path)
     
     if not success:
-        return jsonify({'error': 'Conversion failed'}), 500
+        return jsonify({'error': 'Conversion failed'}), 422
     
     # 返回转换后的文件
     response = send_file(output_path, as_attachment=True)
@@ -109,4 +149,8 @@ def convert_pdf_to_word():
     return response
 
 if __name__ == '__main__':
-    app.run(host='0.0.0.0', port=5000, debug=True)
+    if len(sys.argv) > 1:
+        # 由后端进程池启动：使用分配的端口，不启用调试模式的自动重载（重载会派生子进程，后端无法监管）
+        app.run(host='127.0.0.1', port=int(sys.argv[1]), debug=False)
+    else:
+        app.run(host='0.0.0.0', port=5000, debug=True)
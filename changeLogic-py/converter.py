@@ -30,6 +30,45 @@ class FileConverter:
             except:
                 pass
     
+    def word_to_pdf_batch(self, items):
+        """
+        在同一个Word实例中依次转换多个Word文档，省去每个文档启动Word的开销
+        :param items: (输入路径, 输出路径) 列表
+        :return: 与items一一对应的错误信息列表，成功的项为None
+        """
+        errors = []
+        word = None
+        try:
+            comtypes.CoInitialize()
+            word = CreateObject('Word.Application')
+            word.Visible = False
+            for input_path, output_path in items:
+                # 单个文档失败不影响同批次的其他文档
+                try:
+                    doc = word.Documents.Open(os.path.abspath(input_path))
+                    try:
+                        doc.SaveAs(os.path.abspath(output_path), FileFormat=17)
+                    finally:
+                        doc.Close(False)
+                    errors.append(None)
+                except Exception as e:
+                    print(f"Word转PDF失败: {input_path}, {str(e)}")
+                    errors.append(str(e) or 'Conversion failed')
+        except Exception as e:
+            print(f"启动Word失败: {str(e)}")
+            errors.extend([str(e) or 'Conversion failed'] * (len(items) - len(errors)))
+        finally:
+            try:
+                if word is not None:
+                    word.Quit()
+            except:
+                pass
+            try:
+                comtypes.CoUninitialize()
+            except:
+                pass
+        return errors
+
     def pdf_to_word(self, input_path, output_path):
         """
         将PDF文档转换为Word
@@ -0,0 +1,139 @@
+"""
+Unix域套接字转换服务，供同机部署的Java服务调用，省去HTTP解析和上传文件的重复保存
+
+协议与Java端 UnixSocketConverterTransport 一致，所有整数为大端序，字符串为 int长度 + UTF-8字节：
+请求: int magic | byte version | byte op | string endpoint | 参数
+  op=0 PING           无参数
+  op=1 CONVERT_PATH   string inputPath | string outputPath   直接读写本地文件
+  op=2 CONVERT_STREAM string filename | long length | 文件内容
+响应: byte status（0成功，1失败）| 成功且为STREAM时 long length | 文件内容；失败时 string message
+
+只能在Linux等提供AF_UNIX的系统上运行，Windows版CPython没有 socket.AF_UNIX；
+Word转PDF依赖Windows上的Microsoft Word（comtypes），因此本服务只提供 /pdf-to-word，
+Word转PDF仍需由Windows上的HTTP服务（app.py）处理。
+
+运行: python uds_server.py /run/ptw/converter.sock
+"""
+import os
+import socket
+import struct
+import sys
+import tempfile
+import threading
+
+from converter import FileConverter
+
+MAGIC = 0x50545755
+VERSION = 1
+OP_PING = 0
+OP_CONVERT_PATH = 1
+OP_CONVERT_STREAM = 2
+BUFFER_SIZE = 64 * 1024
+
+converter = FileConverter()
+
+# 端点与HTTP接口保持一致；Word转PDF需要Windows上的Microsoft Word，Unix域套接字服务不提供
+ENDPOINTS = {
+    '/pdf-to-word': (converter.pdf_to_word, '.docx'),
+}
+
+
+def recv_exact(conn, size):
+    chunks = []
+    while size > 0:
+        chunk = conn.recv(min(size, BUFFER_SIZE))
+        if not chunk:
+            raise EOFError('连接已关闭')
+        chunks.append(chunk)
+        size -= len(chunk)
+    return b''.join(chunks)
+
+
+def read_string(conn):
+    (length,) = struct.unpack('>i', recv_exact(conn, 4))
+    return recv_exact(conn, length).decode('utf-8')
+
+
+def send_error(conn, message):
+    data = message.encode('utf-8')
+    conn.sendall(struct.pack('>bi', 1, len(data)) + data)
+
+
+def convert_path(conn, convert):
+    input_path = read_string(conn)
+    output_path = read_string(conn)
+    if not convert(input_path, output_path):
+        send_error(conn, 'Conversion failed')
+        return
+    conn.sendall(struct.pack('>b', 0))
+
+
+def convert_stream(conn, convert, suffix):
+    filename = read_string(conn)
+    (length,) = struct.unpack('>q', recv_exact(conn, 8))
+    work_dir = tempfile.mkdtemp(prefix='ptw-uds-')
+    input_path = os.path.join(work_dir, os.path.basename(filename))
+    output_path = os.path.splitext(input_path)[0] + suffix
+    try:
+        with open(input_path, 'wb') as f:
+            remaining = length
+            while remaining > 0:
+                chunk = conn.recv(min(remaining, BUFFER_SIZE))
+                if not chunk:
+                    raise EOFError('连接已关闭')
+                f.write(chunk)
+                remaining -= len(chunk)
+        if not convert(input_path, output_path):
+            send_error(conn, 'Conversion failed')
+            return
+        conn.sendall(struct.pack('>bq', 0, os.path.getsize(output_path)))
+        with open(output_path, 'rb') as f:
+            conn.sendfile(f)
+    finally:
+        for path in (input_path, output_path):
+            if os.path.exists(path):
+                os.remove(path)
+        os.rmdir(work_dir)
+
+
+def handle(conn):
+    with conn:
+        try:
+            magic, version, op = struct.unpack('>ibb', recv_exact(conn, 6))
+            if magic != MAGIC or version != VERSION:
+                send_error(conn, 'Unsupported protocol')
+                return
+            endpoint = read_string(conn)
+            if op == OP_PING:
+                conn.sendall(struct.pack('>b', 0))
+                return
+            if endpoint not in ENDPOINTS:
+                send_error(conn, 'Unknown endpoint: ' + endpoint)
+                return
+            convert, suffix = ENDPOINTS[endpoint]
+            if op == OP_CONVERT_PATH:
+                convert_path(conn, convert)
+            elif op == OP_CONVERT_STREAM:
+                convert_stream(conn, convert, suffix)
+            else:
+                send_error(conn, 'Unknown op: %d' % op)
+        except (EOFError, ConnectionError) as e:
+            print(f"连接中断: {str(e)}")
+
+
+def serve(socket_path):
+    if not hasattr(socket, 'AF_UNIX'):
+        sys.exit('当前系统不支持Unix域套接字（AF_UNIX），请改用 python app.py 启动HTTP服务')
+    if os.path.exists(socket_path):
+        os.remove(socket_path)
+    server = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    server.bind(socket_path)
+    server.listen(64)
+    print(f"Unix域套接字转换服务已启动: {socket_path}")
+    while True:
+        conn, _ = server.accept()
+        threading.Thread(target=handle, args=(conn,), daemon=True).start()
+
+
+if __name__ == '__main__':
+    serve(sys.argv[1] if len(sys.argv) > 1 else '/tmp/ptw-converter.sock')